@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+package org.tiefaces.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.ss.usermodel.ClientAnchor;
+import org.apache.poi.ss.usermodel.Comment;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.tiefaces.datademo.Department;
+import org.tiefaces.datademo.Employee;
+
+/**
+ * Templates and generated data sets used by benchmarks.
+ *
+ * @author Jason Jiang
+ *
+ */
+public final class BenchmarkData {
+
+	/** template with nested department/employee collections. */
+	public static final String DEPARTMENT_TEMPLATE = "resources/sheet/datacommentdemo.xlsx";
+
+	/** context name of departments in the template. */
+	public static final String DEPARTMENTS = "departments";
+
+	/** name of the sheet added by {@link #addNamesSheet(byte[])}. */
+	public static final String NAMES_SHEET = "Names";
+
+	/**
+	 * hide constructor.
+	 */
+	private BenchmarkData() {
+		// not called
+	}
+
+	/**
+	 * Read template from test resources.
+	 *
+	 * @param resourceName
+	 *            resource name.
+	 * @return template bytes.
+	 * @throws IOException
+	 *             io exception.
+	 */
+	public static byte[] readTemplate(final String resourceName)
+			throws IOException {
+		try (InputStream stream = BenchmarkData.class.getClassLoader()
+				.getResourceAsStream(resourceName)) {
+			if (stream == null) {
+				throw new IOException("Template not found: " + resourceName);
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int len;
+			while ((len = stream.read(buffer)) > 0) {
+				out.write(buffer, 0, len);
+			}
+			return out.toByteArray();
+		}
+	}
+
+	/**
+	 * Add a second sheet expanded from the same departments, so the
+	 * template has more than one sheet to load.
+	 *
+	 * @param template
+	 *            template bytes.
+	 * @return template bytes with the names sheet.
+	 * @throws IOException
+	 *             io exception.
+	 */
+	public static byte[] addNamesSheet(final byte[] template)
+			throws IOException {
+		try (Workbook wb = WorkbookFactory
+				.create(new ByteArrayInputStream(template))) {
+			Sheet names = wb.createSheet(NAMES_SHEET);
+			names.createRow(0).createCell(0).setCellValue("Name");
+			Row eachRow = names.createRow(1);
+			eachRow.createCell(0).setCellValue("${department.name}");
+			eachRow.createCell(1)
+					.setCellValue("${department.staff.size()}");
+			names.createRow(2).createCell(0).setCellValue("End");
+			((XSSFSheet) names).getCTWorksheet().getDimension()
+					.setRef("A1:B3");
+			ClientAnchor anchor = wb.getCreationHelper()
+					.createClientAnchor();
+			anchor.setCol1(0);
+			anchor.setCol2(3);
+			anchor.setRow1(1);
+			anchor.setRow2(4);
+			Comment comment = names.createDrawingPatriarch()
+					.createCellComment(anchor);
+			comment.setString(wb.getCreationHelper().createRichTextString(
+					"tie:each(items=\"" + DEPARTMENTS
+							+ "\", var=\"department\", length=\"1\")"));
+			eachRow.getCell(0).setCellComment(comment);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			wb.write(out);
+			return out.toByteArray();
+		} catch (InvalidFormatException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Create data context with generated departments.
+	 *
+	 * @param departmentCount
+	 *            number of departments.
+	 * @param employeeCount
+	 *            number of employees in each department.
+	 * @return data context.
+	 */
+	public static Map<String, Object> createDepartmentContext(
+			final int departmentCount, final int employeeCount) {
+		List<Department> departments = new ArrayList<>();
+		for (int i = 0; i < departmentCount; i++) {
+			Department department = new Department("Department " + i,
+					Employee.generateOne("Chief " + i),
+					Employee.generate(employeeCount));
+			department.setLink("http://tiefaces.org");
+			departments.add(department);
+		}
+		Map<String, Object> context = new HashMap<>();
+		context.put(DEPARTMENTS, departments);
+		return context;
+	}
+
+	/**
+	 * Create data context with generated departments which staff is read
+	 * slowly, e.g. lazy loaded from database.
+	 *
+	 * @param departmentCount
+	 *            number of departments.
+	 * @param employeeCount
+	 *            number of employees in each department.
+	 * @param latencyNanos
+	 *            wait time of each read of staff.
+	 * @return data context.
+	 */
+	public static Map<String, Object> createSlowDepartmentContext(
+			final int departmentCount, final int employeeCount,
+			final long latencyNanos) {
+		List<Department> departments = new ArrayList<>();
+		for (int i = 0; i < departmentCount; i++) {
+			Department department = new SlowDepartment("Department " + i,
+					Employee.generateOne("Chief " + i),
+					Employee.generate(employeeCount), latencyNanos);
+			department.setLink("http://tiefaces.org");
+			departments.add(department);
+		}
+		Map<String, Object> context = new HashMap<>();
+		context.put(DEPARTMENTS, departments);
+		return context;
+	}
+
+	/**
+	 * Department which waits on each read of staff.
+	 */
+	private static final class SlowDepartment extends Department {
+
+		/** wait time of each read of staff. */
+		private final long latencyNanos;
+
+		/**
+		 * Instantiates a new slow department.
+		 *
+		 * @param name
+		 *            the name.
+		 * @param chief
+		 *            the chief.
+		 * @param staff
+		 *            the staff.
+		 * @param platencyNanos
+		 *            wait time of each read of staff.
+		 */
+		SlowDepartment(final String name, final Employee chief,
+				final List<Employee> staff, final long platencyNanos) {
+			super(name, chief, staff);
+			this.latencyNanos = platencyNanos;
+		}
+
+		@Override
+		public List<Employee> getStaff() {
+			if (latencyNanos > 0) {
+				LockSupport.parkNanos(latencyNanos);
+			}
+			return super.getStaff();
+		}
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+package org.tiefaces.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tiefaces.components.websheet.TieWebSheetBean;
+
+/**
+ * Load of a two sheets template with parallel load on and off. Parallel load
+ * only runs data evaluation of the sheets in parallel, changes of the
+ * workbook hold the workbook lock. So it's measured with data objects read
+ * slowly (latency) and read from memory (no latency).
+ *
+ * @author Jason Jiang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class ParallelLoadBenchmark {
+
+	/** number of departments. */
+	@Param({ "20" })
+	public int departments;
+
+	/** number of employees in each department. */
+	@Param({ "10" })
+	public int employees;
+
+	/** wait time in microseconds of each read of department staff. */
+	@Param({ "0", "20000" })
+	public int latencyMicros;
+
+	/** load sheets in parallel. */
+	@Param({ "false", "true" })
+	public boolean parallel;
+
+	/** template bytes. */
+	private byte[] template;
+
+	/**
+	 * Setup template with two sheets.
+	 *
+	 * @throws Exception
+	 *             exception.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		template = BenchmarkData.addNamesSheet(BenchmarkData
+				.readTemplate(BenchmarkData.DEPARTMENT_TEMPLATE));
+	}
+
+	/**
+	 * Load template and populate data of both sheets.
+	 *
+	 * @return the bean.
+	 */
+	@Benchmark
+	public TieWebSheetBean loadWebSheet() {
+		TieWebSheetBean bean = new TieWebSheetBean();
+		bean.init();
+		bean.setParallelLoad(parallel);
+		bean.loadWebSheet(new ByteArrayInputStream(template),
+				BenchmarkData.createSlowDepartmentContext(departments,
+						employees, TimeUnit.MICROSECONDS
+								.toNanos(latencyMicros)));
+		return bean;
+	}
+
+}
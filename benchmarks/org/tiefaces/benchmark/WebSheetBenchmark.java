@@ -0,0 +1,245 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+package org.tiefaces.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tiefaces.components.websheet.TieWebSheetBean;
+import org.tiefaces.components.websheet.dataobjects.FacesCell;
+import org.tiefaces.components.websheet.dataobjects.FacesRow;
+
+/**
+ * Benchmarks of main web sheet operations: load, tab switch, edit, add/delete
+ * row, validation, export and streaming export.
+ *
+ * Runs without FacesContext/RequestContext, same as the unit tests. The web
+ * sheet skips view map and ajax updates when no faces context available.
+ * Setup fails if the template has no editable cell or row to add, so edit and
+ * row benchmarks never measure error paths.
+ * Use "-prof gc" (default jmh.args of benchmark profile) for allocation rate.
+ *
+ * @author Jason Jiang
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class WebSheetBenchmark {
+
+	/** number of departments. */
+	@Param({ "3", "100" })
+	public int departments;
+
+	/** number of employees in each department. */
+	@Param({ "5", "30" })
+	public int employees;
+
+	/** template bytes. */
+	private byte[] template;
+
+	/** loaded web sheet. */
+	private TieWebSheetBean bean;
+
+	/** tab name of the loaded sheet. */
+	private String tabName;
+
+	/** key of an editable numeric cell in cells map. */
+	private String editKey;
+
+	/**
+	 * row index allowed to add. a single row unit, i.e. followed by another
+	 * row of same collection, so the added row is the next one.
+	 */
+	private int addRowIndex = -1;
+
+	/** edit counter. */
+	private int editCount = 0;
+
+	/**
+	 * Setup template and loaded web sheet.
+	 *
+	 * @throws Exception
+	 *             exception.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		template = BenchmarkData.readTemplate(BenchmarkData.DEPARTMENT_TEMPLATE);
+		bean = loadBean();
+		tabName = bean.getTabs().get(0).getTitle();
+		List<FacesRow> bodyRows = bean.getBodyRows();
+		int pageSize = pageSize(bodyRows);
+		for (int i = 0; i < pageSize; i++) {
+			FacesRow row = bodyRows.get(i);
+			if ((addRowIndex < 0) && row.isAllowAdd()
+					&& (i + 1 < bodyRows.size())
+					&& bodyRows.get(i + 1).isAllowAdd()) {
+				addRowIndex = row.getRowIndex();
+			}
+			if (editKey == null) {
+				editKey = findEditKey(row);
+			}
+		}
+		// fail here instead of measuring error paths.
+		if ((editKey == null) || (addRowIndex < 0)) {
+			throw new IllegalStateException(
+					"No editable numeric cell or row allowed to add in "
+							+ BenchmarkData.DEPARTMENT_TEMPLATE);
+		}
+	}
+
+	/**
+	 * Number of rows in first page. sheet without page size shows all rows.
+	 *
+	 * @param bodyRows
+	 *            body rows.
+	 * @return number of rows.
+	 */
+	private int pageSize(final List<FacesRow> bodyRows) {
+		Integer maxRows = bean.getMaxRowsPerPage();
+		if ((maxRows == null) || (maxRows <= 0)) {
+			return bodyRows.size();
+		}
+		return Math.min(bodyRows.size(), maxRows);
+	}
+
+	/**
+	 * Load a new web sheet with generated data.
+	 *
+	 * @return the bean.
+	 */
+	private TieWebSheetBean loadBean() {
+		TieWebSheetBean newBean = new TieWebSheetBean();
+		newBean.init();
+		newBean.loadWebSheet(new ByteArrayInputStream(template),
+				BenchmarkData.createDepartmentContext(departments,
+						employees));
+		return newBean;
+	}
+
+	/**
+	 * Find numeric cell with save attribute in the row.
+	 *
+	 * @param row
+	 *            faces row.
+	 * @return cells map key. null if not found.
+	 */
+	private String findEditKey(final FacesRow row) {
+		for (FacesCell fcell : row.getCells()) {
+			if ((fcell != null) && fcell.isHasSaveAttr()) {
+				Cell poiCell = bean.getCellHelper()
+						.getPoiCellWithRowColFromCurrentPage(
+								row.getRowIndex(), fcell.getColumnIndex());
+				if ((poiCell != null)
+						&& (poiCell.getCellTypeEnum() == CellType.NUMERIC)) {
+					return row.getRowIndex() + ":" + fcell.getColumnIndex();
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Load template and populate data.
+	 *
+	 * @return the bean.
+	 */
+	@Benchmark
+	public TieWebSheetBean loadWebSheet() {
+		return loadBean();
+	}
+
+	/**
+	 * Switch tab and assemble rows of first page.
+	 *
+	 * @return the bean.
+	 */
+	@Benchmark
+	public TieWebSheetBean loadWorkSheetByTabName() {
+		bean.loadWorkSheetByTabName(tabName);
+		List<FacesRow> bodyRows = bean.getBodyRows();
+		int pageSize = pageSize(bodyRows);
+		for (int i = 0; i < pageSize; i++) {
+			bodyRows.get(i);
+		}
+		return bean;
+	}
+
+	/**
+	 * Edit a cell and recalculate formulas.
+	 *
+	 * @return the value.
+	 */
+	@SuppressWarnings("unchecked")
+	@Benchmark
+	public Object editCell() {
+		editCount++;
+		return bean.getCellsMap().put(editKey,
+				Integer.toString(1000 + (editCount % 2)));
+	}
+
+	/**
+	 * Add a row then delete it, so the sheet keeps same size.
+	 *
+	 * @return the bean.
+	 */
+	@Benchmark
+	public TieWebSheetBean addDeleteRow() {
+		bean.addRepeatRow(addRowIndex);
+		bean.deleteRepeatRow(addRowIndex + 1);
+		return bean;
+	}
+
+	/**
+	 * Validate current page.
+	 *
+	 * @return validation result.
+	 */
+	@Benchmark
+	public boolean validateCurrentPage() {
+		return bean.getValidationHandler().validateCurrentPage();
+	}
+
+	/**
+	 * Export the workbook.
+	 *
+	 * @return the export file.
+	 */
+	@Benchmark
+	public Object doExport() {
+		bean.doExport();
+		return bean.getExportFile();
+	}
+
+	/**
+	 * Export expanded data with streaming workbook.
+	 *
+	 * @return the export file.
+	 */
+	@Benchmark
+	public Object doStreamingExport() {
+		bean.doStreamingExport();
+		return bean.getExportFile();
+	}
+
+}
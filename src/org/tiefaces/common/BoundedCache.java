@@ -0,0 +1,242 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+package org.tiefaces.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Size bounded cache shared by threads. Lookups don't take any lock. When the
+ * cache grows over max size, the least recently used entries are evicted in
+ * one batch down to three quarters of max size, so the eviction cost is
+ * amortized over many puts. Recency is tracked per put, i.e. entries read
+ * between two puts are regarded as used at the same time.
+ *
+ * @author Jason Jiang
+ *
+ * @param <K>
+ *            the key type
+ * @param <V>
+ *            the value type
+ */
+public final class BoundedCache<K, V> {
+
+	/** entries. */
+	private final ConcurrentHashMap<K, Node<V>> map;
+
+	/** max size. */
+	private final int maxSize;
+
+	/** size after eviction. */
+	private final int trimSize;
+
+	/** logical clock. advanced by each put. */
+	private final AtomicLong clock = new AtomicLong();
+
+	/** cache hit counter. */
+	private final AtomicLong hits = new AtomicLong();
+
+	/** cache miss counter. */
+	private final AtomicLong misses = new AtomicLong();
+
+	/** evicted entries counter. */
+	private final AtomicLong evictions = new AtomicLong();
+
+	/** only one thread evicts at a time. others just go on. */
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	/**
+	 * Instantiates a new bounded cache.
+	 *
+	 * @param pmaxSize
+	 *            max number of entries.
+	 */
+	public BoundedCache(final int pmaxSize) {
+		if (pmaxSize <= 0) {
+			throw new IllegalArgumentException(
+					"max size must be positive : " + pmaxSize);
+		}
+		this.maxSize = pmaxSize;
+		this.trimSize = pmaxSize - pmaxSize / 4;
+		this.map = new ConcurrentHashMap<>(Math.min(pmaxSize, 1024));
+	}
+
+	/**
+	 * Gets the cached value. Counts hit or miss.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the value. null if not cached.
+	 */
+	public V get(final K key) {
+		Node<V> node = map.get(key);
+		if (node == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		node.touch(clock.get());
+		return node.value;
+	}
+
+	/**
+	 * Put the value if key is not cached yet. Concurrent puts of same key
+	 * keep the first value.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @return the value cached for the key.
+	 */
+	public V putIfAbsent(final K key, final V value) {
+		Node<V> node = new Node<>(value, clock.incrementAndGet());
+		Node<V> existing = map.putIfAbsent(key, node);
+		if (existing != null) {
+			existing.touch(node.lastAccess);
+			return existing.value;
+		}
+		if (map.size() > maxSize) {
+			evict();
+		}
+		return value;
+	}
+
+	/**
+	 * Evict least recently used entries down to trim size. skipped if another
+	 * thread is evicting.
+	 */
+	private void evict() {
+		if (!evictionLock.tryLock()) {
+			return;
+		}
+		try {
+			List<Map.Entry<K, Node<V>>> entries = new ArrayList<>(
+					map.entrySet());
+			int excess = entries.size() - trimSize;
+			if (excess <= 0) {
+				return;
+			}
+			Collections.sort(entries,
+					new Comparator<Map.Entry<K, Node<V>>>() {
+						@Override
+						public int compare(final Map.Entry<K, Node<V>> o1,
+								final Map.Entry<K, Node<V>> o2) {
+							return Long.compare(o1.getValue().lastAccess,
+									o2.getValue().lastAccess);
+						}
+					});
+			for (int i = 0; i < excess; i++) {
+				Map.Entry<K, Node<V>> entry = entries.get(i);
+				if (map.remove(entry.getKey(), entry.getValue())) {
+					evictions.incrementAndGet();
+				}
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Number of cached entries.
+	 *
+	 * @return the size
+	 */
+	public int size() {
+		return map.size();
+	}
+
+	/**
+	 * Gets the max size.
+	 *
+	 * @return the max size
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Gets the hits.
+	 *
+	 * @return number of lookups found in cache.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the misses.
+	 *
+	 * @return number of lookups not found in cache.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Gets the evictions.
+	 *
+	 * @return number of entries evicted for size.
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * Clear entries and counters.
+	 */
+	public void clear() {
+		map.clear();
+		hits.set(0);
+		misses.set(0);
+		evictions.set(0);
+	}
+
+	/**
+	 * Cached value with its last access time.
+	 *
+	 * @param <V>
+	 *            the value type
+	 */
+	private static final class Node<V> {
+
+		/** value. */
+		private final V value;
+
+		/** last access time in clock of the cache. */
+		private volatile long lastAccess;
+
+		/**
+		 * Instantiates a new node.
+		 *
+		 * @param pvalue
+		 *            the value
+		 * @param paccess
+		 *            the access time
+		 */
+		Node(final V pvalue, final long paccess) {
+			this.value = pvalue;
+			this.lastAccess = paccess;
+		}
+
+		/**
+		 * Mark accessed. write only when changed to keep reads cheap.
+		 *
+		 * @param now
+		 *            the access time
+		 */
+		void touch(final long now) {
+			if (lastAccess < now) {
+				lastAccess = now;
+			}
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+package org.tiefaces.common;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.http.HttpSessionBindingEvent;
+import javax.servlet.http.HttpSessionBindingListener;
+
+/**
+ * Input stream of a temporary file. The file is deleted when the stream is
+ * closed. Used for download content which is too large to keep in memory.
+ * When bound to a session, the stream is also closed when it's unbound, e.g.
+ * the session ends before the content is downloaded.
+ *
+ * @author Jason Jiang
+ *
+ */
+public class TempFileInputStream extends FileInputStream
+		implements HttpSessionBindingListener {
+
+	/** logger. */
+	private static final Logger LOG = Logger
+			.getLogger(TempFileInputStream.class.getName());
+
+	/** The temp file. */
+	private final File file;
+
+	/** Whether closed. */
+	private boolean closed = false;
+
+	/**
+	 * Instantiates a new temp file input stream.
+	 *
+	 * @param pfile
+	 *            the temp file.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public TempFileInputStream(final File pfile) throws IOException {
+		super(pfile);
+		this.file = pfile;
+	}
+
+	/**
+	 * Gets the file.
+	 *
+	 * @return the file
+	 */
+	public final File getFile() {
+		return file;
+	}
+
+	/**
+	 * Gets the session attribute name of the stream.
+	 *
+	 * @return the session attribute name
+	 */
+	public final String getSessionKey() {
+		return TempFileInputStream.class.getName() + "." + file.getName();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.servlet.http.HttpSessionBindingListener#valueBound(javax.
+	 * servlet.http.HttpSessionBindingEvent)
+	 */
+	@Override
+	public void valueBound(final HttpSessionBindingEvent event) {
+		// nothing to do
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.servlet.http.HttpSessionBindingListener#valueUnbound(javax.
+	 * servlet.http.HttpSessionBindingEvent)
+	 */
+	@Override
+	public void valueUnbound(final HttpSessionBindingEvent event) {
+		try {
+			close();
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Error in release temp file : "
+					+ e.getLocalizedMessage(), e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.io.FileInputStream#close()
+	 */
+	@Override
+	public final void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			super.close();
+		} finally {
+			if (file.exists() && !file.delete()) {
+				LOG.log(Level.WARNING,
+						"Cannot delete temp file " + file.getAbsolutePath());
+			}
+		}
+	}
+
+}
@@ -303,6 +303,57 @@ public final class TieConstants {
 	/** The Constant FULL_VALIDATION. */
 	public static final String FULL_VALIDATION = "fullValidation";
 
+	/** The Constant CELL_KEY_SHEET_SHIFT. bits shift of sheet index in long cell key. */
+	public static final int CELL_KEY_SHEET_SHIFT = 40;
+
+	/** The Constant CELL_KEY_ROW_SHIFT. bits shift of row index in long cell key. */
+	public static final int CELL_KEY_ROW_SHIFT = 16;
+
+	/** The Constant CELL_KEY_ROW_MASK. */
+	public static final long CELL_KEY_ROW_MASK = 0xFFFFFFL;
+
+	/** The Constant CELL_KEY_COLUMN_MASK. */
+	public static final long CELL_KEY_COLUMN_MASK = 0xFFFFL;
+
+	/** The Constant DEFAULT_MAX_CACHED_BODY_ROWS. max loaded body rows kept in memory. */
+	public static final int DEFAULT_MAX_CACHED_BODY_ROWS = 200;
+
+	/** The Constant DEFAULT_MAX_CACHED_EXPRESSIONS. max compiled expressions shared by all threads. */
+	public static final int DEFAULT_MAX_CACHED_EXPRESSIONS = 5000;
+
+	/** The Constant EXPORT_TEMP_FILE_PREFIX. prefix of temp file for download. */
+	public static final String EXPORT_TEMP_FILE_PREFIX = "tiefaces-export-";
+
+	/** The Constant DEFAULT_STREAMING_WINDOW_SIZE. rows kept in memory for streaming export. */
+	public static final int DEFAULT_STREAMING_WINDOW_SIZE = 100;
+
+	/** The Constant DEFAULT_MAX_CACHED_TEMPLATES. max parsed templates shared by all sessions. */
+	public static final int DEFAULT_MAX_CACHED_TEMPLATES = 20;
+
+	/** The Constant DEFAULT_MAX_CACHED_SAVE_ATTRS. max parsed save attrs lists shared by all threads. */
+	public static final int DEFAULT_MAX_CACHED_SAVE_ATTRS = 2000;
+
+	/** The Constant DEFAULT_MAX_CACHED_VALIDATION_RULES. max compiled validation rules shared by all threads. */
+	public static final int DEFAULT_MAX_CACHED_VALIDATION_RULES = 1000;
+
+	/** The Constant DEFAULT_CHART_RENDER_THREADS. max threads rendering charts in background. */
+	public static final int DEFAULT_CHART_RENDER_THREADS = 2;
+
+	/** The Constant DEFAULT_CHART_RENDER_QUEUE_SIZE. max charts waiting for background rendering. */
+	public static final int DEFAULT_CHART_RENDER_QUEUE_SIZE = 200;
+
+	/** The Constant DEFAULT_PARALLEL_LOAD_QUEUE_SIZE. max sheets waiting for parallel load. run in caller thread when full. */
+	public static final int DEFAULT_PARALLEL_LOAD_QUEUE_SIZE = 100;
+
+	/** The Constant DEFAULT_MAX_CACHED_IMAGE_BYTES. max bytes of pictures and charts shared by all sessions. */
+	public static final long DEFAULT_MAX_CACHED_IMAGE_BYTES = 64L * 1024 * 1024;
+
+	/** The Constant IMAGE_SERVLET_PATH. url path of pictures and charts. */
+	public static final String IMAGE_SERVLET_PATH = "/tiefacesimage/";
+
+	/** The Constant IMAGE_CACHE_MAX_AGE. seconds browser can cache the image. */
+	public static final int IMAGE_CACHE_MAX_AGE = 31536000;
+
 	/**
 	 * hide constructor.
 	 */
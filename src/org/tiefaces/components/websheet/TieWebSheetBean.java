@@ -5,11 +5,12 @@
 
 package org.tiefaces.components.websheet;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
@@ -30,16 +31,22 @@ import javax.faces.event.AjaxBehaviorEvent;
 import javax.faces.event.ComponentSystemEvent;
 
 import org.apache.poi.EncryptedDocumentException;
+import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.ss.usermodel.FormulaEvaluator;
 import org.apache.poi.ss.usermodel.Picture;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.primefaces.context.RequestContext;
+import org.primefaces.component.datatable.DataTable;
 import org.primefaces.event.TabChangeEvent;
+import org.primefaces.event.data.PageEvent;
 import org.primefaces.model.DefaultStreamedContent;
 import org.primefaces.model.StreamedContent;
+import org.tiefaces.common.TempFileInputStream;
 import org.tiefaces.common.TieConstants;
 import org.tiefaces.components.websheet.chart.ChartHelper;
 import org.tiefaces.components.websheet.chart.ChartsData;
@@ -50,13 +57,20 @@ import org.tiefaces.components.websheet.dataobjects.CachedCells;
 import org.tiefaces.components.websheet.dataobjects.CellAttributesMap;
 import org.tiefaces.components.websheet.dataobjects.CellFormAttributes;
 import org.tiefaces.components.websheet.dataobjects.CellMap;
+import org.tiefaces.components.websheet.dataobjects.CellStyleCache;
+import org.tiefaces.components.websheet.dataobjects.ChangeJournal;
 import org.tiefaces.components.websheet.dataobjects.FacesCell;
 import org.tiefaces.components.websheet.dataobjects.FacesRow;
+import org.tiefaces.components.websheet.dataobjects.FormulaDependencyGraph;
 import org.tiefaces.components.websheet.dataobjects.HeaderCell;
+import org.tiefaces.components.websheet.dataobjects.JournalEntry;
+import org.tiefaces.components.websheet.dataobjects.MergedRegionIndex;
 import org.tiefaces.components.websheet.serializable.SerialDataContext;
 import org.tiefaces.components.websheet.serializable.SerialWorkbook;
 import org.tiefaces.components.websheet.service.CellHelper;
 import org.tiefaces.components.websheet.service.PicturesHelper;
+import org.tiefaces.components.websheet.service.SessionImages;
+import org.tiefaces.components.websheet.service.StreamingExportHelper;
 import org.tiefaces.components.websheet.service.ValidationHandler;
 import org.tiefaces.components.websheet.service.WebSheetLoader;
 import org.tiefaces.components.websheet.utility.CellControlsUtility;
@@ -86,6 +100,12 @@ public class TieWebSheetBean extends TieWebSheetView
 	private transient XSSFEvaluationWorkbook wbWrapper;
 	/** current formula evaluator. */
 	private transient FormulaEvaluator formulaEvaluator;
+	/** current formula dependency graph. */
+	private transient FormulaDependencyGraph formulaDependencyGraph;
+	/** web styles cache of current workbook. */
+	private transient CellStyleCache cellStyleCache;
+	/** merged region index of sheets. key is sheet name. */
+	private transient Map<String, MergedRegionIndex> mergedRegionIndexMap;
 	/** current dataFormatter. */
 	private transient DataFormatter dataFormatter;
 	/** hold data object context. */
@@ -108,6 +128,9 @@ public class TieWebSheetBean extends TieWebSheetView
 	 */
 	private transient ChartsData chartsData;
 
+	/** image cache key of each picture and chart. */
+	private transient Map<String, String> imageKeysMap;
+
 	/** hold cached cells in current display sheet. */
 	private CachedCells cachedCells;
 	/**
@@ -144,6 +167,27 @@ public class TieWebSheetBean extends TieWebSheetView
 	/** for download file. */
 	private transient StreamedContent exportFile;
 
+	/** record changes in journal for delta replication. */
+	private boolean deltaReplication = false;
+
+	/** reuse parsed configuration of same template across sessions. */
+	private boolean templateCache = false;
+
+	/** load data of sheets in parallel. */
+	private boolean parallelLoad = false;
+
+	/** expand sheet only when its tab is first opened. */
+	private boolean lazyTabLoad = false;
+
+	/** assemble body rows on demand instead of all rows on tab load. */
+	private boolean lazyBodyRows = false;
+
+	/** release workbook when the bean is serialized. */
+	private boolean releaseOnSerialize = false;
+
+	/** validation error messages of invalid cells keyed by cell index. */
+	private Map<Long, String> invalidCellsMap;
+
 	/**
 	 * cells map for current display sheet.
 	 */
@@ -325,9 +369,49 @@ public class TieWebSheetBean extends TieWebSheetView
 	 * @return workbook.
 	 */
 	public Workbook getWb() {
+		if (this.getSerialWb().isReleased()) {
+			// rebuild workbook and objects referring to it.
+			this.setWb(this.getSerialWb().getWb());
+			this.formulaEvaluator = null;
+			recover();
+			this.getHelper().getWebSheetLoader().reloadBodyRows();
+		}
 		return this.getSerialWb().getWb();
 	}
 
+	/**
+	 * Release the private workbook of this session, e.g. after rendered for a
+	 * view only user. Only a compact snapshot of cells changed from the
+	 * template is kept, while the template is shared with other sessions.
+	 * The workbook is rebuilt on first access, e.g. add/delete row, edit or
+	 * export. Only available when template cache is enabled.
+	 *
+	 * @return true, if released
+	 */
+	public boolean releaseWorkbook() {
+		try {
+			if (!this.getSerialWb().release()) {
+				return false;
+			}
+		} catch (IOException e) {
+			LOG.log(Level.SEVERE, "Error in release workbook : "
+					+ e.getLocalizedMessage(), e);
+			return false;
+		}
+		this.wbWrapper = null;
+		this.formulaEvaluator = null;
+		this.formulaDependencyGraph = null;
+		this.cellStyleCache = null;
+		this.mergedRegionIndexMap = null;
+		// pictures, charts and changed cells refer to the workbook.
+		// reloaded when rebuilt.
+		this.picturesMap = null;
+		this.getCharsData().getChartAnchorsMap().clear();
+		this.getCharsData().getChartDataMap().clear();
+		this.getCachedCells().clearChanged();
+		return true;
+	}
+
 	/**
 	 * Set up workbook. Also create evaluation wrapper.
 	 * 
@@ -339,6 +423,9 @@ public class TieWebSheetBean extends TieWebSheetView
 
 		this.getSerialWb().setWb(pWb);
 		this.wbWrapper = XSSFEvaluationWorkbook.create((XSSFWorkbook) pWb);
+		this.formulaDependencyGraph = null;
+		this.cellStyleCache = null;
+		this.mergedRegionIndexMap = null;
 	}
 
 	/**
@@ -378,6 +465,76 @@ public class TieWebSheetBean extends TieWebSheetView
 		this.formulaEvaluator = pFormulaEvaluator;
 	}
 
+	/**
+	 * get formula dependency graph.
+	 * 
+	 * @return formula dependency graph.
+	 */
+	public FormulaDependencyGraph getFormulaDependencyGraph() {
+		if ((this.formulaDependencyGraph == null) && (this.getWb() != null)) {
+			this.formulaDependencyGraph = new FormulaDependencyGraph(
+					this.getWb(), this.getWbWrapper());
+		}
+		return formulaDependencyGraph;
+	}
+
+	/**
+	 * get web styles cache of current workbook.
+	 * 
+	 * @return cell style cache.
+	 */
+	public CellStyleCache getCellStyleCache() {
+		if (this.cellStyleCache == null) {
+			this.cellStyleCache = new CellStyleCache();
+		}
+		return cellStyleCache;
+	}
+
+	/**
+	 * get merged region index of the sheet. index is built when first
+	 * requested.
+	 * 
+	 * @param sheet
+	 *            sheet.
+	 * @return merged region index.
+	 */
+	public MergedRegionIndex getMergedRegionIndex(final Sheet sheet) {
+		if (this.mergedRegionIndexMap == null) {
+			this.mergedRegionIndexMap = new HashMap<>();
+		}
+		MergedRegionIndex regionIndex = this.mergedRegionIndexMap
+				.get(sheet.getSheetName());
+		if (regionIndex == null) {
+			regionIndex = new MergedRegionIndex(sheet);
+			this.mergedRegionIndexMap.put(sheet.getSheetName(), regionIndex);
+		}
+		return regionIndex;
+	}
+
+	/**
+	 * remove merged region index of the sheet. it will be rebuilt when
+	 * requested.
+	 * 
+	 * @param sheetName
+	 *            sheet name.
+	 */
+	public void removeMergedRegionIndex(final String sheetName) {
+		if (this.mergedRegionIndexMap != null) {
+			this.mergedRegionIndexMap.remove(sheetName);
+		}
+	}
+
+	/**
+	 * set formula dependency graph.
+	 * 
+	 * @param pFormulaDependencyGraph
+	 *            formula dependency graph.
+	 */
+	public void setFormulaDependencyGraph(
+			final FormulaDependencyGraph pFormulaDependencyGraph) {
+		this.formulaDependencyGraph = pFormulaDependencyGraph;
+	}
+
 	/**
 	 * get data formatter.
 	 * 
@@ -516,6 +673,10 @@ public class TieWebSheetBean extends TieWebSheetView
 	 * @return pictures map.
 	 */
 	public Map<String, Picture> getPicturesMap() {
+		if (this.getSerialWb().isReleased()) {
+			// rebuild workbook. pictures loaded in recover.
+			this.getWb();
+		}
 		if (this.picturesMap == null) {
 			this.picturesMap = new HashMap<>();
 		}
@@ -544,6 +705,40 @@ public class TieWebSheetBean extends TieWebSheetView
 		return this.chartsData;
 	}
 
+	/**
+	 * Gets the image keys map. Key is picture or chart id, value is the key
+	 * in image cache.
+	 *
+	 * @return the image keys map
+	 */
+	public Map<String, String> getImageKeysMap() {
+		if (this.imageKeysMap == null) {
+			this.imageKeysMap = new HashMap<>();
+		}
+		return this.imageKeysMap;
+	}
+
+	/**
+	 * Register picture or chart image rendered in current session. Image
+	 * servlet only serves images registered in the session of the request.
+	 *
+	 * @param imageKey
+	 *            the key in image cache
+	 * @param sourceId
+	 *            the picture or chart id
+	 * @param chart
+	 *            true if it's a chart
+	 */
+	public void registerImage(final String imageKey, final String sourceId,
+			final boolean chart) {
+		FacesContext context = FacesContext.getCurrentInstance();
+		if (context == null) {
+			return;
+		}
+		SessionImages.get(context.getExternalContext().getSessionMap())
+				.register(imageKey, this, sourceId, chart);
+	}
+
 	/**
 	 * Gets the cached cells.
 	 *
@@ -684,6 +879,19 @@ public class TieWebSheetBean extends TieWebSheetView
 		loadWorkSheetByTabName(tabName);
 	}
 
+	/**
+	 * Triggered when user moves to another page of the datatable. Rows of
+	 * the page are validated.
+	 * 
+	 * @param event
+	 *            page event.
+	 */
+	public void onPageChange(final PageEvent event) {
+		int rows = ((DataTable) event.getComponent()).getRows();
+		this.getValidationHandler().validatePage(event.getPage() * rows,
+				rows);
+	}
+
 	/**
 	 * load worksheet by tab name.
 	 * 
@@ -721,17 +929,36 @@ public class TieWebSheetBean extends TieWebSheetView
 		return exportFile;
 	}
 
+	/**
+	 * release previous export file which is not downloaded. close the stream
+	 * to delete the temp file.
+	 */
+	private void releaseExportFile() {
+		if ((exportFile != null) && (exportFile.getStream() != null)) {
+			if (exportFile.getStream() instanceof TempFileInputStream) {
+				Map<String, Object> sessionMap = getSessionMap();
+				if (sessionMap != null) {
+					sessionMap.remove(((TempFileInputStream) exportFile
+							.getStream()).getSessionKey());
+				}
+			}
+			try {
+				exportFile.getStream().close();
+			} catch (IOException e) {
+				LOG.log(Level.WARNING, "Error in release export file : "
+						+ e.getLocalizedMessage(), e);
+			}
+		}
+		exportFile = null;
+	}
+
 	/** download current workbook. */
 	public void doExport() {
 		try {
 
-			String fileName = getFileName();
-			ByteArrayOutputStream out = new ByteArrayOutputStream();
-			this.getWb().write(out);
-			InputStream stream = new BufferedInputStream(
-					new ByteArrayInputStream(out.toByteArray()));
-			exportFile = new DefaultStreamedContent(stream,
-					"application/force-download", fileName);
+			// sheets not opened yet are still templates in lazy mode.
+			this.getHelper().getWebSheetLoader().loadRemainingSheetsData();
+			writeExportFile(this.getWb());
 
 		} catch (Exception e) {
 			LOG.log(Level.SEVERE,
@@ -740,6 +967,79 @@ public class TieWebSheetBean extends TieWebSheetView
 		return;
 	}
 
+	/**
+	 * download data expanded from template with streaming workbook. only a
+	 * window of rows kept in memory, so it's used for very large collections.
+	 * data is exported from data context, charts and pictures are not
+	 * included.
+	 */
+	public void doStreamingExport() {
+		SXSSFWorkbook streamingWb = null;
+		try {
+
+			streamingWb = new StreamingExportHelper(this).buildWorkbook(
+					TieConstants.DEFAULT_STREAMING_WINDOW_SIZE);
+			writeExportFile(streamingWb);
+
+		} catch (Exception e) {
+			LOG.log(Level.SEVERE, "Error in streaming export file : "
+					+ e.getLocalizedMessage(), e);
+		} finally {
+			if (streamingWb != null) {
+				// delete temp files of streaming rows.
+				streamingWb.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Write workbook to export file.
+	 *
+	 * @param workbook
+	 *            the workbook
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void writeExportFile(final Workbook workbook)
+			throws IOException {
+		String fileName = getFileName();
+		releaseExportFile();
+		// write to temp file instead of memory. the file is deleted
+		// after download stream closed.
+		File tempFile = File.createTempFile(
+				TieConstants.EXPORT_TEMP_FILE_PREFIX,
+				"." + TieConstants.EXCEL_2007_TYPE);
+		try (OutputStream out = new BufferedOutputStream(
+				new FileOutputStream(tempFile))) {
+			workbook.write(out);
+		} catch (IOException ex) {
+			tempFile.delete();
+			throw ex;
+		}
+		TempFileInputStream stream = new TempFileInputStream(tempFile);
+		// released with the session if never downloaded.
+		Map<String, Object> sessionMap = getSessionMap();
+		if (sessionMap != null) {
+			sessionMap.put(stream.getSessionKey(), stream);
+		}
+		exportFile = new DefaultStreamedContent(stream,
+				"application/force-download", fileName);
+	}
+
+	/**
+	 * Gets the session map.
+	 *
+	 * @return the session map. null if no faces context or session.
+	 */
+	private Map<String, Object> getSessionMap() {
+		FacesContext context = FacesContext.getCurrentInstance();
+		if ((context == null) || (context.getExternalContext()
+				.getSession(false) == null)) {
+			return null;
+		}
+		return context.getExternalContext().getSessionMap();
+	}
+
 	/**
 	 * Save the current workbooks.
 	 */
@@ -797,6 +1097,8 @@ public class TieWebSheetBean extends TieWebSheetView
 		if (FacesContext.getCurrentInstance() == null) {
 			LOG.info("session has gone");
 		}
+		// delete temp file of export which is not downloaded.
+		releaseExportFile();
 
 	}
 
@@ -806,6 +1108,10 @@ public class TieWebSheetBean extends TieWebSheetView
 	 * @return sheet config map.
 	 */
 	public Map<String, SheetConfiguration> getSheetConfigMap() {
+		if (this.getSerialWb().isReleased()) {
+			// configurations are rebuilt with workbook.
+			this.getWb();
+		}
 		return this.getSerialWb().getSheetConfigMap();
 	}
 
@@ -844,7 +1150,17 @@ public class TieWebSheetBean extends TieWebSheetView
 	 *            row index.
 	 */
 	public void addRepeatRow(final int rowIndex) {
-		this.getHelper().getWebSheetLoader().addRepeatRow(rowIndex);
+		boolean recorded = beginChange(new JournalEntry(
+				JournalEntry.Operation.ADD_ROW,
+				this.getCurrentSheetConfig().getSheetName(), rowIndex, -1,
+				null));
+		try {
+			this.getHelper().getWebSheetLoader().addRepeatRow(rowIndex);
+		} finally {
+			if (recorded) {
+				endChange();
+			}
+		}
 	}
 
 	/**
@@ -854,7 +1170,262 @@ public class TieWebSheetBean extends TieWebSheetView
 	 *            row index.
 	 */
 	public void deleteRepeatRow(final int rowIndex) {
-		this.getHelper().getWebSheetLoader().deleteRepeatRow(rowIndex);
+		boolean recorded = beginChange(new JournalEntry(
+				JournalEntry.Operation.DELETE_ROW,
+				this.getCurrentSheetConfig().getSheetName(), rowIndex, -1,
+				null));
+		try {
+			this.getHelper().getWebSheetLoader().deleteRepeatRow(rowIndex);
+		} finally {
+			if (recorded) {
+				endChange();
+			}
+		}
+	}
+
+	/**
+	 * Checks if changes are recorded for delta replication.
+	 *
+	 * @return true, if delta replication
+	 */
+	public boolean isDeltaReplication() {
+		return deltaReplication;
+	}
+
+	/**
+	 * Sets delta replication. When enabled, cell changes, add/delete rows and
+	 * data saved in context are recorded in change journal.
+	 *
+	 * Delta replication is a manual api. The application sends the result of
+	 * checkpoint() to replicas and calls applyJournal() on them. Serializing
+	 * the bean is not changed by this flag, it still writes the whole
+	 * workbook.
+	 *
+	 * @param pdeltaReplication
+	 *            the delta replication flag
+	 */
+	public void setDeltaReplication(final boolean pdeltaReplication) {
+		this.deltaReplication = pdeltaReplication;
+	}
+
+	/**
+	 * Checks if parsed template is shared across sessions.
+	 *
+	 * @return true, if template cache
+	 */
+	public boolean isTemplateCache() {
+		return templateCache;
+	}
+
+	/**
+	 * Sets template cache. When enabled, configuration parsed from a template
+	 * is registered by content hash of the template. Other sessions loading
+	 * the same template get a copy of it instead of parsing again.
+	 *
+	 * @param ptemplateCache
+	 *            the template cache flag
+	 */
+	public void setTemplateCache(final boolean ptemplateCache) {
+		this.templateCache = ptemplateCache;
+	}
+
+	/**
+	 * Checks if data of sheets is loaded in parallel.
+	 *
+	 * @return true, if parallel load
+	 */
+	public boolean isParallelLoad() {
+		return parallelLoad;
+	}
+
+	/**
+	 * Sets parallel load. When enabled, data expressions of different sheets
+	 * are evaluated in parallel when loading data, while the workbook is
+	 * still changed by one sheet at a time. Only helps when reading data
+	 * objects is slow. Data objects of different sheets are read
+	 * concurrently, so they must be safe for that. Not applied with advanced
+	 * context.
+	 *
+	 * @param pparallelLoad
+	 *            the parallel load flag
+	 */
+	public void setParallelLoad(final boolean pparallelLoad) {
+		this.parallelLoad = pparallelLoad;
+	}
+
+	/**
+	 * Checks if is lazy tab load.
+	 *
+	 * @return true, if lazy tab load
+	 */
+	public boolean isLazyTabLoad() {
+		return lazyTabLoad;
+	}
+
+	/**
+	 * Sets lazy tab load. When enabled, a sheet is expanded with data only
+	 * when its tab is first opened, or when it's referred by formulas of an
+	 * opened sheet. Remaining sheets are expanded before export.
+	 *
+	 * @param plazyTabLoad
+	 *            the lazy tab load flag
+	 */
+	public void setLazyTabLoad(final boolean plazyTabLoad) {
+		this.lazyTabLoad = plazyTabLoad;
+	}
+
+	/**
+	 * Checks if body rows are assembled on demand.
+	 *
+	 * @return true, if lazy body rows
+	 */
+	public boolean isLazyBodyRows() {
+		return lazyBodyRows;
+	}
+
+	/**
+	 * Sets lazy body rows. When enabled, body rows are assembled only when
+	 * requested, e.g. for current page of datatable, and kept in a bounded
+	 * cache. When disabled (default), all body rows are assembled on tab
+	 * load.
+	 *
+	 * @param plazyBodyRows
+	 *            the lazy body rows flag
+	 */
+	public void setLazyBodyRows(final boolean plazyBodyRows) {
+		this.lazyBodyRows = plazyBodyRows;
+	}
+
+	/**
+	 * Checks if workbook is released when the bean is serialized.
+	 *
+	 * @return true, if release on serialize
+	 */
+	public boolean isReleaseOnSerialize() {
+		return releaseOnSerialize;
+	}
+
+	/**
+	 * Sets release on serialize. When enabled, the bean is serialized, e.g.
+	 * session passivated or replicated, with the workbook in released form
+	 * (see {@link #releaseWorkbook()}). The copy rebuilds it on next access,
+	 * while the workbook of this bean is kept. Only available when template
+	 * cache is enabled.
+	 *
+	 * @param preleaseOnSerialize
+	 *            the release on serialize flag
+	 */
+	public void setReleaseOnSerialize(final boolean preleaseOnSerialize) {
+		this.releaseOnSerialize = preleaseOnSerialize;
+	}
+
+	/**
+	 * Gets the validation error messages of invalid cells. Key is cell index
+	 * (sheet, row, column) packed in long.
+	 *
+	 * @return the invalid cells map
+	 */
+	public Map<Long, String> getInvalidCellsMap() {
+		if (invalidCellsMap == null) {
+			invalidCellsMap = new HashMap<>();
+		}
+		return invalidCellsMap;
+	}
+
+	/**
+	 * Gets the change journal since last checkpoint. Kept with the workbook,
+	 * a new journal is started when another workbook is loaded.
+	 *
+	 * @return the change journal
+	 */
+	public ChangeJournal getChangeJournal() {
+		return this.getSerialWb().getChangeJournal();
+	}
+
+	/**
+	 * Begin a recorded change.
+	 *
+	 * @param entry
+	 *            the entry
+	 * @return true if recorded. then endChange must be called after the
+	 *         change finished.
+	 */
+	public boolean beginChange(final JournalEntry entry) {
+		if (!deltaReplication) {
+			return false;
+		}
+		getChangeJournal().begin(entry);
+		return true;
+	}
+
+	/**
+	 * End a recorded change.
+	 */
+	public void endChange() {
+		getChangeJournal().end();
+	}
+
+	/**
+	 * Checkpoint for delta replication. Return changes since last checkpoint
+	 * and start a new journal. The returned journal is sent to replicas
+	 * instead of whole bean. Not called by serialization, the application
+	 * calls it when it replicates.
+	 *
+	 * @return the change journal since last checkpoint
+	 */
+	public ChangeJournal checkpoint() {
+		return this.getSerialWb().checkpoint();
+	}
+
+	/**
+	 * Apply journal from primary to this replica. This web sheet must be same
+	 * as the primary at the last checkpoint. Changes are applied to the
+	 * sheets directly, current tab and page of this replica are kept.
+	 *
+	 * @param journal
+	 *            the journal
+	 */
+	public void applyJournal(final ChangeJournal journal) {
+		WebSheetLoader loader = this.getHelper().getWebSheetLoader();
+		getChangeJournal().suspend();
+		try {
+			for (JournalEntry entry : journal.getEntries()) {
+				// changed sheet may not be expanded yet in lazy tab mode.
+				loader.loadSheetDataOnDemand(entry.getSheetName());
+				String tabName = loader.findTabName(entry.getSheetName());
+				switch (entry.getOperation()) {
+				case CELL_VALUE:
+					Cell poiCell = CellUtility.getPoiCellFromSheet(
+							entry.getRowIndex(), entry.getColIndex(),
+							this.getWb().getSheet(entry.getSheetName()));
+					if (poiCell != null) {
+						this.getCellHelper().updateCellValue(poiCell,
+								(String) entry.getValue(), true);
+					}
+					break;
+				case ADD_ROW:
+					if (tabName != null) {
+						loader.addRepeatRow(tabName, entry.getRowIndex());
+					}
+					break;
+				case DELETE_ROW:
+					if (tabName != null) {
+						loader.deleteRepeatRow(tabName,
+								entry.getRowIndex());
+					}
+					break;
+				case SAVE_DATA:
+					this.getCellHelper().saveDataInContext(
+							entry.getSheetName(), entry.getRowIndex(),
+							entry.getColIndex(), (String) entry.getValue());
+					break;
+				default:
+					break;
+				}
+			}
+		} finally {
+			getChangeJournal().end();
+		}
 	}
 
 	/**
@@ -907,6 +1478,21 @@ public class TieWebSheetBean extends TieWebSheetView
 		return this.getSheetConfigMap().get(currentTabName);
 	}
 
+	/**
+	 * save the bean. workbook is saved in released form if release on
+	 * serialize.
+	 * 
+	 * @param out
+	 *            outputstream.
+	 * @throws IOException
+	 *             io exception.
+	 */
+	private void writeObject(final java.io.ObjectOutputStream out)
+			throws IOException {
+		this.getSerialWb().setReleaseOnWrite(releaseOnSerialize);
+		out.defaultWriteObject();
+	}
+
 	/**
 	 * load the bean from saving.
 	 * 
@@ -932,7 +1518,8 @@ public class TieWebSheetBean extends TieWebSheetView
 	 * recover objects after deserilize.
 	 */
 	private void recover() {
-		if (this.getWb() != null) {
+		// released workbook is rebuilt when accessed.
+		if (!this.getSerialWb().isReleased() && (this.getWb() != null)) {
 			this.getChartHelper().loadChartsMap();
 			this.getPicHelper().loadPicturesMap();
 		}
@@ -8,15 +8,29 @@ package org.tiefaces.components.websheet.chart;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Rectangle;
-import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.poi.POIXMLDocumentPart.RelationPart;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.ClientAnchor;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.xssf.usermodel.XSSFChart;
 import org.apache.poi.xssf.usermodel.XSSFDrawing;
@@ -32,6 +46,7 @@ import org.tiefaces.components.websheet.utility.ChartUtility;
 import org.tiefaces.components.websheet.utility.ColorUtility;
 import org.tiefaces.components.websheet.utility.PicturesUtility;
 import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartUtilities;
 import org.jfree.chart.JFreeChart;
 import org.jfree.data.category.DefaultCategoryDataset;
 import org.jfree.data.general.DefaultPieDataset;
@@ -63,6 +78,13 @@ public class ChartHelper {
 	private static final Logger LOG = Logger
 			.getLogger(ChartHelper.class.getName());
 
+	/**
+	 * shared executor rendering charts in background. when the queue is full
+	 * the chart is rendered when first requested.
+	 */
+	private static final ThreadPoolExecutor RENDER_EXECUTOR =
+			createRenderExecutor();
+
 	/**
 	 * Instantiates a new chart helper.
 	 *
@@ -74,6 +96,245 @@ public class ChartHelper {
 		LOG.fine("ChartHelper Constructor");
 	}
 
+	/**
+	 * Creates the render executor.
+	 *
+	 * @return the thread pool executor
+	 */
+	private static ThreadPoolExecutor createRenderExecutor() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(
+				TieConstants.DEFAULT_CHART_RENDER_THREADS,
+				TieConstants.DEFAULT_CHART_RENDER_THREADS, 60L,
+				TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(
+						TieConstants.DEFAULT_CHART_RENDER_QUEUE_SIZE),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(final Runnable r) {
+						Thread thread = new Thread(r, "tiefaces-chart");
+						thread.setDaemon(true);
+						return thread;
+					}
+				}, new ThreadPoolExecutor.DiscardPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Gets png image of the chart. Render it in current thread if background
+	 * rendering not started yet.
+	 *
+	 * @param chartTask
+	 *            the chart task in charts map
+	 * @return the png bytes. null if render failed.
+	 */
+	public static byte[] getChartImage(final FutureTask<byte[]> chartTask) {
+		if (chartTask == null) {
+			return null;
+		}
+		// no-op if already started in background.
+		chartTask.run();
+		try {
+			return chartTask.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOG.log(Level.SEVERE, "Interrupted in render chart", e);
+		} catch (ExecutionException | CancellationException e) {
+			LOG.log(Level.SEVERE,
+					"render chart error = " + e.getLocalizedMessage(), e);
+		}
+		return null;
+	}
+
+	/**
+	 * Mark charts refer to the cells as changed. They are rendered again when
+	 * next requested, so several changes before that cost only one render.
+	 *
+	 * @param cells
+	 *            the changed cells
+	 */
+	public final void markChartsChanged(final Collection<Cell> cells) {
+		ChartsData chartsData = parent.getCharsData();
+		Map<Long, Set<String>> index = chartsData.getChartSourceIndex();
+		if (index.isEmpty()) {
+			return;
+		}
+		for (Cell cell : cells) {
+			Set<String> chartIds = index
+					.get(CellUtility.getCellIndexLongKey(cell));
+			if (chartIds != null) {
+				chartsData.getChangedChartIds().addAll(chartIds);
+			}
+		}
+	}
+
+	/**
+	 * Mark charts refer to cells in the sheets as changed. Used after formulas
+	 * of the sheets evaluated again.
+	 *
+	 * @param sheetIndexes
+	 *            the sheet indexes
+	 */
+	public final void markSheetChartsChanged(
+			final Collection<Integer> sheetIndexes) {
+		ChartsData chartsData = parent.getCharsData();
+		for (Map.Entry<Long, Set<String>> entry : chartsData
+				.getChartSourceIndex().entrySet()) {
+			if (sheetIndexes.contains(
+					CellUtility.getSheetIndexFromLongKey(entry.getKey()))) {
+				chartsData.getChangedChartIds().addAll(entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Mark all charts as changed. Used after whole workbook evaluated again.
+	 */
+	public final void markAllChartsChanged() {
+		ChartsData chartsData = parent.getCharsData();
+		chartsData.getChangedChartIds()
+				.addAll(chartsData.getChartDataMap().keySet());
+	}
+
+	/**
+	 * Rebuild the index of chart source cells. Index is keyed by sheet index
+	 * and position, so it's rebuilt after rows added or deleted.
+	 */
+	public final void rebuildChartSourceIndex() {
+		ChartsData chartsData = parent.getCharsData();
+		Map<Long, Set<String>> index = chartsData.getChartSourceIndex();
+		index.clear();
+		for (Map.Entry<String, ChartData> entry : chartsData
+				.getChartDataMap().entrySet()) {
+			indexChartSource(entry.getKey(), entry.getValue(), index);
+		}
+	}
+
+	/**
+	 * Gets the render task of the chart. Changed charts are rendered again
+	 * first. All of them are submitted to background at once.
+	 *
+	 * @param chartId
+	 *            the chart id
+	 * @return the chart task. null if not exist.
+	 */
+	public final FutureTask<byte[]> getChartTask(final String chartId) {
+		ChartsData chartsData = parent.getCharsData();
+		if (!chartsData.getChangedChartIds().isEmpty()) {
+			refreshChangedCharts(chartsData);
+		}
+		return chartsData.getChartsMap().get(chartId);
+	}
+
+	/**
+	 * Render changed charts again with current cell values.
+	 *
+	 * @param chartsData
+	 *            the charts data
+	 */
+	private void refreshChangedCharts(final ChartsData chartsData) {
+		for (String chartId : chartsData.getChangedChartIds()) {
+			ChartData chartData = chartsData.getChartDataMap().get(chartId);
+			ClientAnchor anchor = chartsData.getChartAnchorsMap()
+					.get(chartId);
+			if ((chartData == null) || (anchor == null)) {
+				continue;
+			}
+			try {
+				// chart id is sheetName!relationId.
+				Sheet sheet = parent.getWb().getSheet(
+						chartId.substring(0, chartId.lastIndexOf('!')));
+				submitChartRender(chartId, chartData, sheet, anchor,
+						chartsData.getChartsMap());
+				parent.getImageKeysMap().remove(chartId);
+			} catch (Exception ex) {
+				LOG.log(Level.SEVERE, "refresh chart for " + chartId
+						+ " error = " + ex.getLocalizedMessage(), ex);
+			}
+		}
+		chartsData.getChangedChartIds().clear();
+	}
+
+	/**
+	 * Create chart with current cell values, and submit it to render in
+	 * background.
+	 *
+	 * @param chartId
+	 *            the chart id
+	 * @param chartData
+	 *            the chart data
+	 * @param sheet
+	 *            the sheet
+	 * @param anchor
+	 *            the anchor
+	 * @param chartMap
+	 *            the chart map
+	 */
+	private void submitChartRender(final String chartId,
+			final ChartData chartData, final Sheet sheet,
+			final ClientAnchor anchor,
+			final Map<String, FutureTask<byte[]>> chartMap) {
+		JFreeChart jchart = createChart(chartData);
+		if (jchart == null) {
+			return;
+		}
+		AnchorSize anchorSize = PicturesUtility.getAnchorSize(sheet, null,
+				null, anchor);
+		// dataset is read from workbook here. only drawing and encoding are
+		// deferred.
+		FutureTask<byte[]> task = new FutureTask<>(new ChartRenderer(jchart,
+				anchorSize.getWidth(), anchorSize.getHeight()));
+		FutureTask<byte[]> oldTask = chartMap.put(chartId, task);
+		if (oldTask != null) {
+			oldTask.cancel(false);
+		}
+		RENDER_EXECUTOR.execute(task);
+	}
+
+	/**
+	 * Index source cells of the chart.
+	 *
+	 * @param chartId
+	 *            the chart id
+	 * @param chartData
+	 *            the chart data
+	 * @param index
+	 *            the chart source index
+	 */
+	private void indexChartSource(final String chartId,
+			final ChartData chartData, final Map<Long, Set<String>> index) {
+		Workbook wb = parent.getWb();
+		List<ParsedCell> sourceCells = new ArrayList<>();
+		if (chartData.getCategoryList() != null) {
+			sourceCells.addAll(chartData.getCategoryList());
+		}
+		if (chartData.getSeriesList() != null) {
+			for (ChartSeries series : chartData.getSeriesList()) {
+				sourceCells.add(series.getSeriesLabel());
+				if (series.getValueList() != null) {
+					sourceCells.addAll(series.getValueList());
+				}
+			}
+		}
+		for (ParsedCell pCell : sourceCells) {
+			if ((pCell == null) || (pCell.getSheetName() == null)) {
+				continue;
+			}
+			int sheetIndex = wb.getSheetIndex(pCell.getSheetName());
+			if (sheetIndex < 0) {
+				continue;
+			}
+			long key = CellUtility.getCellIndexLongKey(sheetIndex,
+					pCell.getRow(), pCell.getCol());
+			Set<String> chartIds = index.get(key);
+			if (chartIds == null) {
+				chartIds = new LinkedHashSet<>();
+				index.put(key, chartIds);
+			}
+			chartIds.add(chartId);
+		}
+	}
+
 	/**
 	 * initial charts map for current workbook.
 	 */
@@ -654,9 +915,12 @@ public class ChartHelper {
 		Map<String, ClientAnchor> anchorMap = chartsData
 				.getChartAnchorsMap();
 
-		Map<String, BufferedImage> chartMap = chartsData.getChartsMap();
+		Map<String, FutureTask<byte[]>> chartMap = chartsData
+				.getChartsMap();
 		Map<String, ChartData> chartDataMap = chartsData.getChartDataMap();
-		chartMap.clear();
+		chartsData.clearChartsMap();
+		chartsData.getChartSourceIndex().clear();
+		chartsData.getChangedChartIds().clear();
 		chartDataMap.clear();
 
 		for (int i = 0; i < wb.getNumberOfSheets(); i++) {
@@ -740,7 +1004,7 @@ public class ChartHelper {
 	private void generateSingleXSSFChart(final XSSFChart chart,
 			final String chartId, final XSSFSheet sheet,
 			final Map<String, ClientAnchor> anchorMap,
-			final Map<String, BufferedImage> chartMap,
+			final Map<String, FutureTask<byte[]>> chartMap,
 			final Map<String, ChartData> chartDataMap) {
 		ClientAnchor anchor;
 		try {
@@ -750,14 +1014,10 @@ public class ChartHelper {
 						.initChartDataFromXSSFChart(chartId, chart,
 								(XSSFWorkbook) parent.getWb());
 				chartDataMap.put(chartId, chartData);
-				JFreeChart jchart = createChart(chartData);
-				if (jchart != null) {
-					AnchorSize anchorSize = PicturesUtility
-							.getAnchorSize(sheet, null, null, anchor);
-					BufferedImage img = jchart.createBufferedImage(
-							anchorSize.getWidth(), anchorSize.getHeight());
-					chartMap.put(chartId, img);
-				}
+				indexChartSource(chartId, chartData,
+						parent.getCharsData().getChartSourceIndex());
+				submitChartRender(chartId, chartData, sheet, anchor,
+						chartMap);
 			}
 		} catch (Exception ex) {
 			LOG.log(Level.SEVERE, "generate chart for " + chartId
@@ -765,4 +1025,48 @@ public class ChartHelper {
 		}
 	}
 
+	/**
+	 * Render chart to png image.
+	 */
+	private static class ChartRenderer implements Callable<byte[]> {
+
+		/** The chart. */
+		private final JFreeChart chart;
+
+		/** The width. */
+		private final int width;
+
+		/** The height. */
+		private final int height;
+
+		/**
+		 * Instantiates a new chart renderer.
+		 *
+		 * @param pchart
+		 *            the chart
+		 * @param pwidth
+		 *            the width
+		 * @param pheight
+		 *            the height
+		 */
+		ChartRenderer(final JFreeChart pchart, final int pwidth,
+				final int pheight) {
+			this.chart = pchart;
+			this.width = pwidth;
+			this.height = pheight;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		@Override
+		public byte[] call() throws IOException {
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			ChartUtilities.writeChartAsPNG(os, chart, width, height);
+			return os.toByteArray();
+		}
+	}
+
 }
@@ -4,9 +4,11 @@
  */
 package org.tiefaces.components.websheet.chart;
 
-import java.awt.image.BufferedImage;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.FutureTask;
 
 import org.apache.poi.ss.usermodel.ClientAnchor;
 
@@ -20,10 +22,11 @@ public class ChartsData  {
 	/** hold chart data for current display sheet. */
 	private Map<String, ChartData> chartDataMap;
 	/**
-	 * hold charts for current display sheet. each chart is a image generated by
-	 * jfreechart.
+	 * hold charts for current display sheet. each chart is a png image
+	 * generated by jfreechart. rendered in background or when first
+	 * requested.
 	 */
-	private Map<String, BufferedImage> chartsMap;
+	private Map<String, FutureTask<byte[]>> chartsMap;
 	/** hold chart anchor for each chart in current display sheet. */
 	private Map<String, ClientAnchor> chartAnchorsMap;
 	/**
@@ -31,6 +34,13 @@ public class ChartsData  {
 	 * position. e.g. key = Sheet1!A1 value = chartId of chartAnchorsMap.
 	 */
 	private Map<String, String> chartPositionMap;
+	/**
+	 * Index of chart source cells. key is long key of category, series label
+	 * or value cell. value is id of charts refer to the cell.
+	 */
+	private Map<Long, Set<String>> chartSourceIndex;
+	/** charts which source cells changed and need render again. */
+	private Set<String> changedChartIds;
 
 
 	/**
@@ -51,7 +61,7 @@ public class ChartsData  {
 	 * @return chartsmap.
 	 */
 
-	public final Map<String, BufferedImage> getChartsMap() {
+	public final Map<String, FutureTask<byte[]>> getChartsMap() {
 		if (this.chartsMap == null) {
 			this.chartsMap = new HashMap<>();
 		}		
@@ -59,6 +69,19 @@ public class ChartsData  {
 		return chartsMap;
 	}
 
+	/**
+	 * clear chartsmap. charts not rendered yet are cancelled.
+	 */
+	public final void clearChartsMap() {
+		if (this.chartsMap == null) {
+			return;
+		}
+		for (FutureTask<byte[]> task : chartsMap.values()) {
+			task.cancel(false);
+		}
+		chartsMap.clear();
+	}
+
 	/**
 	 * return chartanchorsmap.
 	 * 
@@ -86,6 +109,30 @@ public class ChartsData  {
 		return chartPositionMap;
 	}
 
+	/**
+	 * return chart source index.
+	 * 
+	 * @return chart source index.
+	 */
+	public final Map<Long, Set<String>> getChartSourceIndex() {
+		if (this.chartSourceIndex == null) {
+			this.chartSourceIndex = new HashMap<>();
+		}
+		return chartSourceIndex;
+	}
+
+	/**
+	 * return changed chart ids.
+	 * 
+	 * @return changed chart ids.
+	 */
+	public final Set<String> getChangedChartIds() {
+		if (this.changedChartIds == null) {
+			this.changedChartIds = new LinkedHashSet<>();
+		}
+		return changedChartIds;
+	}
+
 	/**
 	 * set chartdatamap.
 	 * 
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+package org.tiefaces.components.websheet.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+import org.tiefaces.common.TieConstants;
+
+/**
+ * Compiled template of a cell string value. The string is split once into
+ * literal segments and expression slots, so expanding the template for each
+ * data object only evaluates the slots without regex matching again.
+ *
+ * e.g. "Total: ${item.qty} x ${item.price}" has literals "Total: ", " x ", ""
+ * and expressions "item.qty", "item.price".
+ *
+ * @author Jason Jiang
+ *
+ */
+public final class CellTemplate {
+
+	/** The source string. */
+	private final String source;
+
+	/** Whether the source is user formula. i.e. $[formula]. */
+	private final boolean userFormula;
+
+	/** literal segments. always one more than expressions. */
+	private final String[] literals;
+
+	/** expression slots. without ${ and }. */
+	private final String[] expressions;
+
+	/**
+	 * Instantiates a new cell template.
+	 *
+	 * @param psource
+	 *            the source
+	 * @param puserFormula
+	 *            the user formula
+	 * @param pliterals
+	 *            the literals
+	 * @param pexpressions
+	 *            the expressions
+	 */
+	private CellTemplate(final String psource, final boolean puserFormula,
+			final String[] pliterals, final String[] pexpressions) {
+		super();
+		this.source = psource;
+		this.userFormula = puserFormula;
+		this.literals = pliterals;
+		this.expressions = pexpressions;
+	}
+
+	/**
+	 * Compile the string value.
+	 *
+	 * @param strValue
+	 *            the str value
+	 * @return the cell template
+	 */
+	public static CellTemplate compile(final String strValue) {
+		if (strValue.startsWith(TieConstants.USER_FORMULA_PREFIX)
+				&& strValue.endsWith(TieConstants.USER_FORMULA_SUFFIX)) {
+			return new CellTemplate(strValue, true, new String[] { strValue },
+					new String[0]);
+		}
+		int beginExpressionLength = TieConstants.METHOD_PREFIX.length();
+		int endExpressionLength = TieConstants.METHOD_END.length();
+		List<String> literalList = new ArrayList<>();
+		List<String> expressionList = new ArrayList<>();
+		Matcher exprMatcher = TieConstants.EXPRESSION_NOTATION_PATTERN
+				.matcher(strValue);
+		int lastEnd = 0;
+		while (exprMatcher.find()) {
+			literalList.add(strValue.substring(lastEnd, exprMatcher.start()));
+			String matchedString = exprMatcher.group();
+			expressionList.add(matchedString.substring(beginExpressionLength,
+					matchedString.length() - endExpressionLength));
+			lastEnd = exprMatcher.end();
+		}
+		literalList.add(strValue.substring(lastEnd));
+		return new CellTemplate(strValue, false,
+				literalList.toArray(new String[literalList.size()]),
+				expressionList.toArray(new String[expressionList.size()]));
+	}
+
+	/**
+	 * Evaluate the template. If the template is a single expression without
+	 * any literal, the evaluated object is returned as is. Otherwise the
+	 * evaluated string is returned.
+	 *
+	 * @param context
+	 *            the context
+	 * @param engine
+	 *            the engine
+	 * @return the object
+	 */
+	public Object evaluate(final Map<String, Object> context,
+			final ExpressionEngine engine) {
+		if (expressions.length == 0) {
+			return source;
+		}
+		if ((expressions.length == 1) && literals[0].isEmpty()
+				&& literals[1].isEmpty()) {
+			return engine.evaluate(expressions[0], context);
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < expressions.length; i++) {
+			sb.append(literals[i]);
+			Object result = engine.evaluate(expressions[i], context);
+			if (result != null) {
+				sb.append(result.toString());
+			}
+		}
+		sb.append(literals[expressions.length]);
+		return sb.toString();
+	}
+
+	/**
+	 * Gets the source.
+	 *
+	 * @return the source
+	 */
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 * Checks if is user formula.
+	 *
+	 * @return true, if is user formula
+	 */
+	public boolean isUserFormula() {
+		return userFormula;
+	}
+
+	/**
+	 * Gets the user formula without $[ and ].
+	 *
+	 * @return the formula. null if not user formula.
+	 */
+	public String getUserFormula() {
+		if (!userFormula) {
+			return null;
+		}
+		return source.substring(TieConstants.USER_FORMULA_PREFIX.length(),
+				source.length() - TieConstants.USER_FORMULA_SUFFIX.length());
+	}
+
+	/**
+	 * Checks for expression.
+	 *
+	 * @return true, if has expression
+	 */
+	public boolean hasExpression() {
+		return expressions.length > 0;
+	}
+
+}
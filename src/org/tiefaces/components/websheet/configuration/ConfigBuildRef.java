@@ -9,11 +9,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
 import org.tiefaces.components.websheet.dataobjects.CellAttributesMap;
+import org.tiefaces.components.websheet.dataobjects.MergedRegionIndex;
 import org.tiefaces.components.websheet.service.CellHelper;
 
 /**
@@ -74,6 +76,25 @@ public class ConfigBuildRef {
 	 */
 	private Map<String, String> collectionObjNameMap = new HashMap<>();
 
+	/**
+	 * merged region index of the sheet. updated when copying rows. null if
+	 * not indexed.
+	 */
+	private MergedRegionIndex mergedRegionIndex = null;
+
+	/**
+	 * compiled templates of cell values. key is cell string value. shared by
+	 * all expanded rows in this build.
+	 */
+	private Map<String, CellTemplate> cellTemplateMap = new HashMap<>();
+
+	/**
+	 * lock of the workbook shared with builds of other sheets. held by the
+	 * build except when evaluating data expressions. null if sheets are not
+	 * built in parallel.
+	 */
+	private ReentrantLock workbookLock = null;
+
 	/**
 	 * constructor.
 	 * 
@@ -190,6 +211,46 @@ public class ConfigBuildRef {
 		this.shiftMap.put(fullName, attrs);
 	}
 
+	/**
+	 * Gets the cell template map.
+	 *
+	 * @return the cell template map
+	 */
+	public final Map<String, CellTemplate> getCellTemplateMap() {
+		return cellTemplateMap;
+	}
+
+	/**
+	 * Sets the cell template map.
+	 *
+	 * @param pcellTemplateMap
+	 *            the cell template map
+	 */
+	public final void setCellTemplateMap(
+			final Map<String, CellTemplate> pcellTemplateMap) {
+		this.cellTemplateMap = pcellTemplateMap;
+	}
+
+	/**
+	 * Gets the merged region index.
+	 *
+	 * @return the merged region index
+	 */
+	public final MergedRegionIndex getMergedRegionIndex() {
+		return mergedRegionIndex;
+	}
+
+	/**
+	 * Sets the merged region index.
+	 *
+	 * @param pmergedRegionIndex
+	 *            the merged region index
+	 */
+	public final void setMergedRegionIndex(
+			final MergedRegionIndex pmergedRegionIndex) {
+		this.mergedRegionIndex = pmergedRegionIndex;
+	}
+
 	/**
 	 * Gets the shift map.
 	 *
@@ -345,4 +406,43 @@ public class ConfigBuildRef {
 		return finalCommentMap;
 	}
 
+	/**
+	 * Gets the workbook lock.
+	 *
+	 * @return the workbook lock. null if not built in parallel.
+	 */
+	public final ReentrantLock getWorkbookLock() {
+		return workbookLock;
+	}
+
+	/**
+	 * Sets the workbook lock. The build must hold the lock when started.
+	 *
+	 * @param pworkbookLock
+	 *            the workbook lock
+	 */
+	public final void setWorkbookLock(final ReentrantLock pworkbookLock) {
+		this.workbookLock = pworkbookLock;
+	}
+
+	/**
+	 * Begin evaluating data expressions. The workbook lock is released, so
+	 * builds of other sheets could use the workbook meanwhile. Must not touch
+	 * the workbook until {@link #endEvaluation()}.
+	 */
+	public final void beginEvaluation() {
+		if (workbookLock != null) {
+			workbookLock.unlock();
+		}
+	}
+
+	/**
+	 * End evaluating data expressions. The workbook lock is acquired again.
+	 */
+	public final void endEvaluation() {
+		if (workbookLock != null) {
+			workbookLock.lock();
+		}
+	}
+
 }
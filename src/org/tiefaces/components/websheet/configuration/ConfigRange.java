@@ -432,7 +432,8 @@ public class ConfigRange implements Serializable {
 			final ShiftFormulaRef shiftFormulaRef) {
 		try {
 			CommandUtility.evaluate(context, cell,
-					configBuildRef.getEngine());
+					configBuildRef.getEngine(),
+					configBuildRef.getCellTemplateMap(), configBuildRef);
 			if (cell.getCellTypeEnum() == CellType.FORMULA) {
 				// rebuild formula if necessary for dynamic row
 				String originFormula = cell.getCellFormula();
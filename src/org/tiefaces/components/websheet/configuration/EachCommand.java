@@ -203,9 +203,15 @@ public class EachCommand extends ConfigCommand implements Serializable {
 			final List<RowsMapping> currentRowsMappingList) {
 
 		fullName = fullName + ":" + this.getCommandName();
-		Collection itemsCollection = ConfigurationUtility
-				.transformToCollectionObject(configBuildRef.getEngine(),
-						this.getItems(), context);
+		Collection itemsCollection;
+		configBuildRef.beginEvaluation();
+		try {
+			itemsCollection = ConfigurationUtility
+					.transformToCollectionObject(configBuildRef.getEngine(),
+							this.getItems(), context);
+		} finally {
+			configBuildRef.endEvaluation();
+		}
 
 		String objClassName = this.getClassName();
 
@@ -264,6 +270,16 @@ public class EachCommand extends ConfigCommand implements Serializable {
 		int insertPosition = atRow;
 		String thisObjClassName = objClassName;
 
+		// first object uses the template rows. insert template rows for all
+		// other objects at once instead of shifting the sheet per object.
+		if (itemsCollection.size() > 1) {
+			int templateLength = this.getConfigRange().getLastRowPlusAddr()
+					.getRow() - this.getConfigRange().getFirstRowAddr().getRow();
+			CommandUtility.insertEachTemplates(this.getConfigRange(),
+					configBuildRef, itemsCollection.size() - 1,
+					atRow + templateLength);
+		}
+
 		// loop through each object in the collection
 		for (Object obj : itemsCollection) {
 			// gather and cache object class name which used for add row
@@ -274,8 +290,8 @@ public class EachCommand extends ConfigCommand implements Serializable {
 			}
 			RowsMapping unitRowsMapping = new RowsMapping();
 			context.put(var, obj);
-			CommandUtility.insertEachTemplate(this.getConfigRange(),
-					configBuildRef, index, insertPosition, unitRowsMapping);
+			CommandUtility.mapEachTemplateRows(this.getConfigRange(),
+					configBuildRef, insertPosition, unitRowsMapping);
 			ConfigRange currentRange = ConfigurationUtility
 					.buildCurrentRange(this.getConfigRange(),
 							configBuildRef.getSheet(), insertPosition);
@@ -11,11 +11,15 @@ import org.apache.commons.jexl2.Expression;
 import org.apache.commons.jexl2.JexlContext;
 import org.apache.commons.jexl2.JexlEngine;
 import org.apache.commons.jexl2.MapContext;
+import org.tiefaces.common.BoundedCache;
+import org.tiefaces.common.TieConstants;
 import org.tiefaces.exception.EvaluationException;
 
 /**
  * expEngine use jexl engine evaluate an expression. see apache jexl project for
- * detail. use local thread for thread safe.
+ * detail. jexl engine and compiled expressions are immutable, so they are
+ * shared by all threads. compiled expressions are kept in a bounded concurrent
+ * cache.
  * 
  * @author Jason Jiang
  *
@@ -27,22 +31,12 @@ public class ExpressionEngine {
 	/**
 	 * context. private JexlContext jContext;
 	 */
-	/** jexlEngine local map. */
-	private static final ThreadLocal<JexlEngine> 
-	JEXL_LOCAL = new ThreadLocal<JexlEngine>() {
-		@Override
-		protected JexlEngine initialValue() {
-			return new JexlEngine();
-		}
-	};
-	/** jexpmap local map. */
-	private static final ThreadLocal<Map<String, Expression>> 
-	JEXL_MAP_LOCAL = new ThreadLocal<Map<String, Expression>>() {
-		@Override
-		protected Map<String, Expression> initialValue() {
-			return new HashMap<>();
-		}
-	};
+	/** shared jexlEngine. not modified after construction. */
+	private static final JexlEngine JEXL_ENGINE = new JexlEngine();
+
+	/** compiled expressions cache. */
+	private static final BoundedCache<String, Expression> JEXL_CACHE = 
+			new BoundedCache<>(TieConstants.DEFAULT_MAX_CACHED_EXPRESSIONS);
 
 	/**
 	 * empty context used for evaluate single script.
@@ -57,8 +51,7 @@ public class ExpressionEngine {
 	 *            expression.
 	 */
 	public ExpressionEngine(final String pExpression) {
-		JexlEngine jexl = JEXL_LOCAL.get();
-		jExpression = jexl.createExpression(pExpression);
+		jExpression = getCompiledExpression(pExpression);
 	}
 
 
@@ -94,19 +87,73 @@ public class ExpressionEngine {
 			final Map<String, Object> context) {
 		JexlContext jexlContext = new MapContext(context);
 		try {
-			JexlEngine jexl = JEXL_LOCAL.get();
-			Map<String, Expression> expMap = JEXL_MAP_LOCAL.get();
-			Expression jexlExpression = expMap.get(expression);
-			if (jexlExpression == null) {
-				jexlExpression = jexl.createExpression(expression);
-				expMap.put(expression, jexlExpression);
-			}
-			return jexlExpression.evaluate(jexlContext);
+			return getCompiledExpression(expression).evaluate(jexlContext);
 		} catch (Exception e) {
 			throw new EvaluationException(e);
 		}
 	}
 
+	/**
+	 * Gets the compiled expression from cache. compile it if not cached.
+	 * concurrent misses of same expression may compile it more than once, but
+	 * all of them get the first cached one.
+	 *
+	 * @param expression
+	 *            string input expression.
+	 * @return compiled expression.
+	 */
+	private static Expression getCompiledExpression(final String expression) {
+		Expression jexlExpression = JEXL_CACHE.get(expression);
+		if (jexlExpression != null) {
+			return jexlExpression;
+		}
+		return JEXL_CACHE.putIfAbsent(expression,
+				JEXL_ENGINE.createExpression(expression));
+	}
+
+	/**
+	 * Gets the cache hits.
+	 *
+	 * @return number of compiled expressions found in cache.
+	 */
+	public static long getCacheHits() {
+		return JEXL_CACHE.getHits();
+	}
+
+	/**
+	 * Gets the cache misses.
+	 *
+	 * @return number of expressions compiled.
+	 */
+	public static long getCacheMisses() {
+		return JEXL_CACHE.getMisses();
+	}
+
+	/**
+	 * Gets the cache size.
+	 *
+	 * @return number of compiled expressions in cache.
+	 */
+	public static int getCacheSize() {
+		return JEXL_CACHE.size();
+	}
+
+	/**
+	 * Gets the cache evictions.
+	 *
+	 * @return number of compiled expressions evicted from cache.
+	 */
+	public static long getCacheEvictions() {
+		return JEXL_CACHE.getEvictions();
+	}
+
+	/**
+	 * Clear compiled expressions cache and counters.
+	 */
+	public static void clearCache() {
+		JEXL_CACHE.clear();
+	}
+
 	/**
 	 * evaluate from giving context.
 	 * 
@@ -136,12 +183,12 @@ public class ExpressionEngine {
 	}
 
 	/**
-	 * get local exl engine.
+	 * get shared jexl engine.
 	 * 
 	 * @return jexlengine.
 	 */
 	public final JexlEngine getJexlEngine() {
-		return JEXL_LOCAL.get();
+		return JEXL_ENGINE;
 	}
 
 }
@@ -97,7 +97,7 @@ public class RowsMapping implements Serializable {
 	 *            the source row num
 	 * @return the list
 	 */
-	public final List<SerialRow> get(final Integer sourceRowNum) {
+	public List<SerialRow> get(final Integer sourceRowNum) {
 		return rowsMap.get(sourceRowNum);
 	}
 
@@ -153,7 +153,7 @@ public class RowsMapping implements Serializable {
 				.entrySet()) {
 			sb.append(entry.getKey() + "=[");
 			for (SerialRow row : entry.getValue()) {
-				sb.append(row.getRow().getRowNum() + ",");
+				sb.append(row.getRowNum() + ",");
 			}
 			sb.append("], ");
 		}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+package org.tiefaces.components.websheet.configuration;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.apache.poi.EncryptedDocumentException;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.tiefaces.common.BoundedCache;
+import org.tiefaces.common.TieConstants;
+import org.tiefaces.components.websheet.dataobjects.CellAttributesMap;
+import org.tiefaces.components.websheet.serializable.WorkbookSnapshot;
+
+/**
+ * Registry of parsed templates shared by all sessions. Keyed by content hash
+ * of template bytes.
+ *
+ * Each entry keeps the workbook right after configuration built (copy
+ * sheets created and configuration comments removed) and the serialized
+ * configuration. The entry is never changed after it is created. Every
+ * session gets its own workbook and its own copy of configuration from the
+ * entry, so there's no need to parse configuration comments again.
+ *
+ * @author Jason Jiang
+ *
+ */
+public final class TemplateRegistry {
+
+	/** logger. */
+	private static final Logger LOG = Logger
+			.getLogger(TemplateRegistry.class.getName());
+
+	/** hex digits. */
+	private static final char[] HEX_DIGITS = "0123456789abcdef"
+			.toCharArray();
+
+	/** parsed templates. least recently used entries are evicted when full. */
+	private static final BoundedCache<String, ParsedTemplate> TEMPLATES =
+			new BoundedCache<>(TieConstants.DEFAULT_MAX_CACHED_TEMPLATES);
+
+	/**
+	 * hide constructor.
+	 */
+	private TemplateRegistry() {
+		// not called
+	}
+
+	/**
+	 * Builds the key of template.
+	 *
+	 * @param templateBytes
+	 *            the template bytes
+	 * @param skipConfiguration
+	 *            whether configuration is skipped
+	 * @return the key
+	 */
+	public static String buildKey(final byte[] templateBytes,
+			final boolean skipConfiguration) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256")
+					.digest(templateBytes);
+			StringBuilder sb = new StringBuilder(digest.length * 2 + 2);
+			for (byte b : digest) {
+				sb.append(HEX_DIGITS[(b >> 4) & 0xF]);
+				sb.append(HEX_DIGITS[b & 0xF]);
+			}
+			if (skipConfiguration) {
+				sb.append(":s");
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// every java platform support SHA-256.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Gets the parsed template.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the parsed template. null if not registered.
+	 */
+	public static ParsedTemplate get(final String key) {
+		return TEMPLATES.get(key);
+	}
+
+	/**
+	 * Register the template after its configuration built.
+	 *
+	 * @param key
+	 *            the key
+	 * @param wb
+	 *            the workbook with configuration built
+	 * @param sheetConfigMap
+	 *            the sheet config map
+	 * @param cellAttributesMap
+	 *            the cell attributes map
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static void register(final String key, final Workbook wb,
+			final Map<String, SheetConfiguration> sheetConfigMap,
+			final CellAttributesMap cellAttributesMap) throws IOException {
+		ByteArrayOutputStream wbOut = new ByteArrayOutputStream();
+		wb.write(wbOut);
+		ByteArrayOutputStream configOut = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(configOut)) {
+			out.writeObject(sheetConfigMap);
+			out.writeObject(cellAttributesMap);
+		}
+		// same key is same template content. keep the first one.
+		TEMPLATES.putIfAbsent(key, new ParsedTemplate(wbOut.toByteArray(),
+				configOut.toByteArray()));
+		LOG.fine("registered template " + key);
+	}
+
+	/**
+	 * Read the template written by {@link ParsedTemplate#write}. Registered
+	 * if this server doesn't have it, e.g. session moved from another server
+	 * or template removed from the registry since session saved.
+	 *
+	 * @param key
+	 *            the key
+	 * @param in
+	 *            the input stream
+	 * @return the registered template of the key
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws ClassNotFoundException
+	 *             the class not found exception
+	 */
+	public static ParsedTemplate read(final String key,
+			final ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		byte[] workbookBytes = (byte[]) in.readObject();
+		byte[] configBytes = (byte[]) in.readObject();
+		ParsedTemplate parsed = TEMPLATES.get(key);
+		if (parsed == null) {
+			parsed = TEMPLATES.putIfAbsent(key,
+					new ParsedTemplate(workbookBytes, configBytes));
+			LOG.fine("registered template from stream " + key);
+		}
+		return parsed;
+	}
+
+	/**
+	 * Remove all the templates.
+	 */
+	public static void clear() {
+		TEMPLATES.clear();
+	}
+
+	/**
+	 * Immutable parse result of one template.
+	 */
+	public static final class ParsedTemplate {
+
+		/** workbook bytes with configuration built. */
+		private final byte[] workbookBytes;
+
+		/** serialized sheet config map and cell attributes map. */
+		private final byte[] configBytes;
+
+		/** content of the workbook. created on first snapshot. */
+		private volatile WorkbookSnapshot.Baseline baseline;
+
+		/**
+		 * Instantiates a new parsed template.
+		 *
+		 * @param pworkbookBytes
+		 *            the workbook bytes
+		 * @param pconfigBytes
+		 *            the config bytes
+		 */
+		private ParsedTemplate(final byte[] pworkbookBytes,
+				final byte[] pconfigBytes) {
+			this.workbookBytes = pworkbookBytes;
+			this.configBytes = pconfigBytes;
+		}
+
+		/**
+		 * Write the template, so it can be registered again by
+		 * {@link TemplateRegistry#read} in another server. Bytes are written
+		 * as objects, so sessions of the same template in one stream share
+		 * them.
+		 *
+		 * @param out
+		 *            the output stream
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		public void write(final ObjectOutputStream out) throws IOException {
+			out.writeObject(workbookBytes);
+			out.writeObject(configBytes);
+		}
+
+		/**
+		 * Create new workbook for one session.
+		 *
+		 * @return the workbook
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 * @throws InvalidFormatException
+		 *             the invalid format exception
+		 * @throws EncryptedDocumentException
+		 *             the encrypted document exception
+		 */
+		public Workbook createWorkbook() throws IOException,
+				InvalidFormatException, EncryptedDocumentException {
+			return WorkbookFactory
+					.create(new ByteArrayInputStream(workbookBytes));
+		}
+
+		/**
+		 * Gets the baseline of workbook created by {@link #createWorkbook()}.
+		 * Session snapshot only saves the difference from it.
+		 *
+		 * @return the baseline
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		public WorkbookSnapshot.Baseline getBaseline() throws IOException {
+			WorkbookSnapshot.Baseline result = baseline;
+			if (result == null) {
+				synchronized (this) {
+					result = baseline;
+					if (result == null) {
+						try {
+							result = WorkbookSnapshot
+									.createBaseline(createWorkbook());
+						} catch (InvalidFormatException e) {
+							throw new IOException(e);
+						}
+						baseline = result;
+					}
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Create new copy of sheet configurations bound to the workbook. The
+		 * cell attributes are put into the session's cell attributes map.
+		 *
+		 * @param wb
+		 *            the workbook created by {@link #createWorkbook()}
+		 * @param cellAttributesMap
+		 *            the cell attributes map of session
+		 * @return the sheet config map
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 * @throws ClassNotFoundException
+		 *             the class not found exception
+		 */
+		@SuppressWarnings("unchecked")
+		public Map<String, SheetConfiguration> createConfiguration(
+				final Workbook wb, final CellAttributesMap cellAttributesMap)
+				throws IOException, ClassNotFoundException {
+			try (ObjectInputStream in = new ObjectInputStream(
+					new ByteArrayInputStream(configBytes))) {
+				Map<String, SheetConfiguration> sheetConfigMap =
+						(Map<String, SheetConfiguration>) in.readObject();
+				cellAttributesMap
+						.putAll((CellAttributesMap) in.readObject());
+				for (SheetConfiguration sheetConfig : sheetConfigMap
+						.values()) {
+					sheetConfig.recover(wb);
+				}
+				return sheetConfigMap;
+			}
+		}
+	}
+
+}
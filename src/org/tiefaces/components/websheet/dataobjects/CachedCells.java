@@ -5,8 +5,15 @@
 package org.tiefaces.components.websheet.dataobjects;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.tiefaces.components.websheet.TieWebSheetBean;
@@ -16,7 +23,12 @@ import org.tiefaces.components.websheet.utility.CellUtility;
  * Use to cache formula cells. The purpose is to compare current cell with
  * cached one. If they are different, then mean need to refresh them. All cached
  * cells are in current display sheet.
- * 
+ *
+ * Cells are keyed by packed (sheet, row, column) long in an open addressing
+ * table. Raw values (number, boolean, string id) are stored instead of
+ * formatted string. Strings are pooled with reference count, and released
+ * when no cached cell refer to them.
+ *
  * @author Jason Jiang
  *
  */
@@ -27,12 +39,71 @@ public class CachedCells implements Serializable {
 	 */
 	private static final long serialVersionUID = 916959757743324812L;
 
-	/** The cached map. */
-	private HashMap<Cell, FormulaMapping> cachedMap = new HashMap<>();
+	/** The Constant INITIAL_CAPACITY. must be power of 2. */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** The Constant EMPTY_KEY. packed key is never negative. */
+	private static final long EMPTY_KEY = -1L;
+
+	/** The Constant NO_ID. */
+	private static final int NO_ID = -1;
+
+	/** The Constant TYPE_BLANK. */
+	private static final byte TYPE_BLANK = 0;
+
+	/** The Constant TYPE_NUMERIC. */
+	private static final byte TYPE_NUMERIC = 1;
+
+	/** The Constant TYPE_STRING. */
+	private static final byte TYPE_STRING = 2;
+
+	/** The Constant TYPE_BOOLEAN. */
+	private static final byte TYPE_BOOLEAN = 3;
+
+	/** The Constant TYPE_ERROR. */
+	private static final byte TYPE_ERROR = 4;
+
+	/** The packed cell keys. */
+	private long[] keys;
+
+	/** The value types. */
+	private byte[] types;
+
+	/** The numeric values. boolean is 1 or 0, error is error code. */
+	private double[] numbers;
+
+	/** The string ids of string values. */
+	private int[] stringIds;
+
+	/** The string ids of origin formulas. */
+	private int[] formulaIds;
+
+	/** The number of cached cells. */
+	private int size = 0;
+
+	/** The string pool. released entry is null. */
+	private List<String> strings = new ArrayList<>();
+
+	/** The reference count of strings in pool. */
+	private List<Integer> stringRefCounts = new ArrayList<>();
+
+	/** The released ids in string pool for reuse. */
+	private Deque<Integer> freeStringIds = new ArrayDeque<>();
+
+	/** The string pool index. */
+	private Map<String, Integer> stringIndex = new HashMap<>();
 
 	/** The parent. */
 	private TieWebSheetBean parent = null;
 
+	/**
+	 * changed cells since last refresh.
+	 */
+	private transient Set<Cell> changedCells;
+
+	/** whole workbook recalculated since last refresh. */
+	private transient boolean allChanged = false;
+
 	/**
 	 * Instantiates a new cached cells.
 	 *
@@ -41,6 +112,7 @@ public class CachedCells implements Serializable {
 	 */
 	public CachedCells(final TieWebSheetBean pparent) {
 		this.parent = pparent;
+		allocate(INITIAL_CAPACITY);
 	}
 
 	/**
@@ -52,21 +124,13 @@ public class CachedCells implements Serializable {
 	 *            the cell type
 	 */
 	public final void put(final Cell cell, final CellType formula) {
-		Map<Cell, FormulaMapping> map = cachedMap;
 		// if cellType not null then only specified Type will be put into Cache
 		// e.g. only formula cell will be cached then pass in
 		// Cell.CELL_TYPE_FORMULA
 		if ((cell != null) && ((formula == null)
 				|| (cell.getCellTypeEnum() == formula))) {
-			String value = CellUtility.getCellValueWithFormat(cell,
-					parent.getFormulaEvaluator(),
-					parent.getDataFormatter());
-			FormulaMapping f = map.get(cell);
-			if (f == null) {
-				f = new FormulaMapping();
-			}
-			f.setValue(value);
-			map.put(cell, f);
+			storeValue(insertSlot(CellUtility.getCellIndexLongKey(cell)),
+					cell);
 		}
 	}
 
@@ -79,54 +143,134 @@ public class CachedCells implements Serializable {
 	 *            the origin formula
 	 */
 	public final void put(final Cell cell, final String originFormula) {
-		Map<Cell, FormulaMapping> map = cachedMap;
-		// if cellType not null then only specified Type will be put into Cache
-		// e.g. only formula cell will be cached then pass in
-		// Cell.CELL_TYPE_FORMULA
 		if ((cell != null) && (originFormula != null)) {
-			FormulaMapping f = map.get(cell);
-			if (f == null) {
-				f = new FormulaMapping();
-			}
-			f.setOriginFormula(originFormula);
-			String value = CellUtility.getCellValueWithFormat(cell,
-					parent.getFormulaEvaluator(),
-					parent.getDataFormatter());
-			f.setValue(value);
-			map.put(cell, f);
+			int slot = insertSlot(CellUtility.getCellIndexLongKey(cell));
+			int oldFormulaId = formulaIds[slot];
+			formulaIds[slot] = acquireString(originFormula);
+			releaseString(oldFormulaId);
+			storeValue(slot, cell);
 		}
 	}
 
 	/**
-	 * Gets the value.
+	 * Gets the origin formula.
 	 *
 	 * @param cell
 	 *            the cell
-	 * @return the value
+	 * @return the origin formula. null if not exist.
 	 */
+	public final String getOriginFormula(final Cell cell) {
+		int slot = findSlot(CellUtility.getCellIndexLongKey(cell));
+		if ((slot < 0) || (formulaIds[slot] == NO_ID)) {
+			return null;
+		}
+		return strings.get(formulaIds[slot]);
+	}
+
+	/**
+	 * Gets the cached value, formatted with the style of the cell.
+	 *
+	 * @param cell
+	 *            the cell
+	 * @return the value. null if not cached.
+	 * @deprecated cached raw value is compared by
+	 *             {@link #isValueChanged(Cell)}. Formatting is only done
+	 *             when displayed.
+	 */
+	@Deprecated
 	public final String getValue(final Cell cell) {
-		return cachedMap.get(cell).getValue();
+		int slot = findSlot(CellUtility.getCellIndexLongKey(cell));
+		if (slot < 0) {
+			return null;
+		}
+		switch (types[slot]) {
+		case TYPE_NUMERIC:
+			return parent.getDataFormatter().formatRawCellContents(
+					numbers[slot], cell.getCellStyle().getDataFormat(),
+					cell.getCellStyle().getDataFormatString());
+		case TYPE_STRING:
+			return strings.get(stringIds[slot]);
+		case TYPE_BOOLEAN:
+			return (numbers[slot] != 0) ? "TRUE" : "FALSE";
+		default:
+			return "";
+		}
+	}
+
+	/**
+	 * Checks whether the cell is cached.
+	 *
+	 * @param cell
+	 *            the cell
+	 * @return true, if cached.
+	 */
+	public final boolean contains(final Cell cell) {
+		return (cell != null)
+				&& (findSlot(CellUtility.getCellIndexLongKey(cell)) >= 0);
+	}
+
+	/**
+	 * Size.
+	 *
+	 * @return the number of cached cells.
+	 */
+	public final int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the string pool size.
+	 *
+	 * @return the number of strings referred by cached cells.
+	 */
+	public final int getStringPoolSize() {
+		return stringIndex.size();
 	}
 
 	/**
 	 * Clear.
 	 */
 	public final void clear() {
-		cachedMap.clear();
+		allocate(INITIAL_CAPACITY);
+		size = 0;
+		strings.clear();
+		stringRefCounts.clear();
+		freeStringIds.clear();
+		stringIndex.clear();
+		clearChanged();
 	}
 
 	/**
-	 * Checks if is value changed.
-	 * 
+	 * Checks if is value changed. Compare raw value of the cell with cached
+	 * one, no formatting needed.
+	 *
 	 * @param cell
 	 *            the cell
 	 *
-	 * @return true, if is value changed
+	 * @return true, if is value changed. false if cell not cached.
 	 */
 	public final boolean isValueChanged(final Cell cell) {
-		String newValue = CellUtility.getCellValueWithFormat(cell,
-				parent.getFormulaEvaluator(), parent.getDataFormatter());
-		return isValueChanged(cell, newValue);
+		int slot = findSlot(CellUtility.getCellIndexLongKey(cell));
+		if (slot < 0) {
+			return false;
+		}
+		CellType type = getValueType(cell);
+		switch (type) {
+		case NUMERIC:
+			return (types[slot] != TYPE_NUMERIC) || (Double.compare(
+					numbers[slot], cell.getNumericCellValue()) != 0);
+		case STRING:
+			return (types[slot] != TYPE_STRING) || !strings
+					.get(stringIds[slot]).equals(cell.getStringCellValue());
+		case BOOLEAN:
+			return (types[slot] != TYPE_BOOLEAN) || ((numbers[slot] != 0)
+					!= cell.getBooleanCellValue());
+		case ERROR:
+			return (types[slot] != TYPE_ERROR)
+					|| (numbers[slot] != cell.getErrorCellValue());
+		default:
+			return types[slot] != TYPE_BLANK;
+		}
 	}
 
 	/**
@@ -138,11 +282,13 @@ public class CachedCells implements Serializable {
 	 *            the new value
 	 *
 	 * @return true, if is value changed
+	 * @deprecated use {@link #isValueChanged(Cell)}, which compares raw
+	 *             value without formatting.
 	 */
+	@Deprecated
 	public final boolean isValueChanged(final Cell cell,
 			final String pnewValue) {
-		Map<Cell, FormulaMapping> map = cachedMap;
-		String oldValue = map.get(cell).getValue();
+		String oldValue = getValue(cell);
 		String newValue = pnewValue;
 		if (oldValue == null) {
 			oldValue = "";
@@ -150,19 +296,286 @@ public class CachedCells implements Serializable {
 		if (newValue == null) {
 			newValue = "";
 		}
-		if (!oldValue.equals(newValue)) {
-			return true;
+		return !oldValue.equals(newValue);
+	}
+
+	/**
+	 * Record the cell into change feed if its value is different from cached
+	 * one. Only cached cells will be recorded.
+	 *
+	 * @param cell
+	 *            the cell after recalc.
+	 */
+	public final void markChanged(final Cell cell) {
+		if ((cell != null) && isValueChanged(cell)) {
+			getChangedCells().add(cell);
 		}
-		return false;
+	}
+
+	/**
+	 * Mark whole workbook changed. e.g. after full recalc.
+	 */
+	public final void markAllChanged() {
+		this.allChanged = true;
+	}
+
+	/**
+	 * Checks if whole workbook changed since last refresh.
+	 *
+	 * @return true, if all changed.
+	 */
+	public final boolean isAllChanged() {
+		return allChanged;
+	}
+
+	/**
+	 * Gets the changed cells since last refresh.
+	 *
+	 * @return the changed cells.
+	 */
+	public final Set<Cell> getChangedCells() {
+		if (changedCells == null) {
+			changedCells = new LinkedHashSet<>();
+		}
+		return changedCells;
+	}
+
+	/**
+	 * Clear change feed after refresh.
+	 */
+	public final void clearChanged() {
+		getChangedCells().clear();
+		this.allChanged = false;
 	}
 
 	/**
 	 * Gets the cached map.
 	 *
-	 * @return the cached map
+	 * @return copy of cached cells. changes are not written back.
+	 * @deprecated cached cells are kept in a packed table. Use
+	 *             {@link #contains(Cell)}, {@link #getOriginFormula(Cell)} and
+	 *             {@link #isValueChanged(Cell)}.
 	 */
+	@Deprecated
 	public final Map<Cell, FormulaMapping> getCachedMap() {
-		return cachedMap;
+		Map<Cell, FormulaMapping> map = new HashMap<>();
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] == EMPTY_KEY) {
+				continue;
+			}
+			Cell cell = CellUtility.getPoiCellFromLongKey(parent.getWb(),
+					keys[slot]);
+			if (cell != null) {
+				FormulaMapping f = new FormulaMapping();
+				f.setOriginFormula(getOriginFormula(cell));
+				f.setValue(getValue(cell));
+				map.put(cell, f);
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Gets the value type. For formula cell return cached result type.
+	 *
+	 * @param cell
+	 *            the cell
+	 * @return the value type
+	 */
+	private static CellType getValueType(final Cell cell) {
+		CellType type = cell.getCellTypeEnum();
+		if (type == CellType.FORMULA) {
+			type = cell.getCachedFormulaResultTypeEnum();
+		}
+		return type;
+	}
+
+	/**
+	 * Store raw value of the cell into slot.
+	 *
+	 * @param slot
+	 *            the slot
+	 * @param cell
+	 *            the cell
+	 */
+	private void storeValue(final int slot, final Cell cell) {
+		int oldStringId = stringIds[slot];
+		stringIds[slot] = NO_ID;
+		numbers[slot] = 0;
+		switch (getValueType(cell)) {
+		case NUMERIC:
+			types[slot] = TYPE_NUMERIC;
+			numbers[slot] = cell.getNumericCellValue();
+			break;
+		case STRING:
+			types[slot] = TYPE_STRING;
+			stringIds[slot] = acquireString(cell.getStringCellValue());
+			break;
+		case BOOLEAN:
+			types[slot] = TYPE_BOOLEAN;
+			numbers[slot] = cell.getBooleanCellValue() ? 1 : 0;
+			break;
+		case ERROR:
+			types[slot] = TYPE_ERROR;
+			numbers[slot] = cell.getErrorCellValue();
+			break;
+		default:
+			types[slot] = TYPE_BLANK;
+			break;
+		}
+		releaseString(oldStringId);
+	}
+
+	/**
+	 * Get id of string in pool and add one reference. Add it if not exist.
+	 *
+	 * @param str
+	 *            the string
+	 * @return the id
+	 */
+	private int acquireString(final String str) {
+		Integer id = stringIndex.get(str);
+		if (id != null) {
+			stringRefCounts.set(id, stringRefCounts.get(id) + 1);
+			return id;
+		}
+		id = freeStringIds.poll();
+		if (id == null) {
+			id = strings.size();
+			strings.add(str);
+			stringRefCounts.add(1);
+		} else {
+			strings.set(id, str);
+			stringRefCounts.set(id, 1);
+		}
+		stringIndex.put(str, id);
+		return id;
+	}
+
+	/**
+	 * Remove one reference of string in pool. String is released when no
+	 * reference left.
+	 *
+	 * @param id
+	 *            the id. NO_ID is ignored.
+	 */
+	private void releaseString(final int id) {
+		if (id == NO_ID) {
+			return;
+		}
+		int count = stringRefCounts.get(id) - 1;
+		stringRefCounts.set(id, count);
+		if (count <= 0) {
+			stringIndex.remove(strings.get(id));
+			strings.set(id, null);
+			freeStringIds.push(id);
+		}
+	}
+
+	/**
+	 * Allocate empty table.
+	 *
+	 * @param capacity
+	 *            the capacity
+	 */
+	private void allocate(final int capacity) {
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY_KEY);
+		types = new byte[capacity];
+		numbers = new double[capacity];
+		stringIds = new int[capacity];
+		Arrays.fill(stringIds, NO_ID);
+		formulaIds = new int[capacity];
+		Arrays.fill(formulaIds, NO_ID);
+	}
+
+	/**
+	 * Hash the key into start slot.
+	 *
+	 * @param key
+	 *            the key
+	 * @param mask
+	 *            the mask of table
+	 * @return the slot
+	 */
+	private static int hash(final long key, final int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	/**
+	 * Find slot of the key.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the slot. -1 if not exist.
+	 */
+	private int findSlot(final long key) {
+		int mask = keys.length - 1;
+		int slot = hash(key, mask);
+		while (keys[slot] != EMPTY_KEY) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Find slot of the key, insert the key if not exist.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the slot
+	 */
+	private int insertSlot(final long key) {
+		// keep load factor under 0.5
+		if ((size + 1) * 2 > keys.length) {
+			rehash(keys.length * 2);
+		}
+		int mask = keys.length - 1;
+		int slot = hash(key, mask);
+		while (keys[slot] != EMPTY_KEY) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		stringIds[slot] = NO_ID;
+		formulaIds[slot] = NO_ID;
+		size++;
+		return slot;
+	}
+
+	/**
+	 * Rehash into bigger table.
+	 *
+	 * @param capacity
+	 *            the new capacity
+	 */
+	private void rehash(final int capacity) {
+		long[] oldKeys = keys;
+		byte[] oldTypes = types;
+		double[] oldNumbers = numbers;
+		int[] oldStringIds = stringIds;
+		int[] oldFormulaIds = formulaIds;
+		allocate(capacity);
+		int mask = capacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY_KEY) {
+				int slot = hash(oldKeys[i], mask);
+				while (keys[slot] != EMPTY_KEY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				types[slot] = oldTypes[i];
+				numbers[slot] = oldNumbers[i];
+				stringIds[slot] = oldStringIds[i];
+				formulaIds[slot] = oldFormulaIds[i];
+			}
+		}
 	}
 
 }
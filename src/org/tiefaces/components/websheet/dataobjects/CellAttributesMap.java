@@ -117,6 +117,23 @@ public class CellAttributesMap implements Serializable {
 
 	}
 
+	/**
+	 * put all the attributes of other map into this map.
+	 * 
+	 * @param other
+	 *            other cell attributes map.
+	 */
+	public final void putAll(final CellAttributesMap other) {
+		this.templateCommentMap.putAll(other.getTemplateCommentMap());
+		this.cellInputType.putAll(other.getCellInputType());
+		this.cellInputAttributes.putAll(other.getCellInputAttributes());
+		this.cellSelectItemsAttributes
+				.putAll(other.getCellSelectItemsAttributes());
+		this.cellDatePattern.putAll(other.getCellDatePattern());
+		this.cellValidateAttributes
+				.putAll(other.getCellValidateAttributes());
+	}
+
 	/**
 	 * return templatecommentmap.
 	 * 
@@ -12,13 +12,15 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.faces.context.FacesContext;
-
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.PictureData;
 import org.tiefaces.components.websheet.TieWebSheetBean;
+import org.tiefaces.components.websheet.chart.ChartHelper;
+import org.tiefaces.components.websheet.service.ImageCache;
 import org.tiefaces.components.websheet.utility.CellUtility;
 
 /**
@@ -159,43 +161,43 @@ public class CellMap implements Serializable, java.util.Map {
 	}
 
 	/**
-	 * Put picture image to session map and return the key to web.
+	 * Put picture image to image cache and return the key to web.
 	 * 
 	 * @param rowIndex
 	 *            the row index of the cell which contains picture.
 	 * @param colIndex
 	 *            the column index of the cell which contains picture.
-	 * @return the key of the picture image in the session map.
+	 * @return the key of the picture image in the image cache.
 	 */
 	private String loadPicture(final int rowIndex, final int colIndex) {
 
 		FacesCell facesCell = parent.getCellHelper()
 				.getFacesCellWithRowColFromCurrentPage(rowIndex, colIndex);
 		if (facesCell != null && facesCell.isContainPic()) {
-			FacesContext context = FacesContext.getCurrentInstance();
 			String pictureId = facesCell.getPictureId();
-			String pictureViewId = Integer.toHexString(
-					System.identityHashCode(parent.getWb())) + pictureId;
-			Map<String, Object> sessionMap = context.getExternalContext()
-					.getSessionMap();
-			if (sessionMap.get(pictureViewId) == null) {
-				sessionMap.put(pictureViewId, parent.getPicturesMap()
-						.get(pictureId).getPictureData());
+			String imageKey = parent.getImageKeysMap().get(pictureId);
+			if ((imageKey == null) || !ImageCache.contains(imageKey)) {
+				PictureData picData = parent.getPicturesMap().get(pictureId)
+						.getPictureData();
+				imageKey = ImageCache.put(picData.getData(),
+						picData.getMimeType());
+				parent.getImageKeysMap().put(pictureId, imageKey);
 			}
-			return pictureViewId;
+			parent.registerImage(imageKey, pictureId, false);
+			return imageKey;
 		} else {
 			return null;
 		}
 	}
 
 	/**
-	 * Put chart image to session map and return the key to web.
+	 * Put chart image to image cache and return the key to web.
 	 * 
 	 * @param rowIndex
 	 *            the row index of the cell which contains picture.
 	 * @param colIndex
 	 *            the column index of the cell which contains picture.
-	 * @return the key of the picture image in the session map.
+	 * @return the key of the chart image in the image cache.
 	 */
 
 	private String loadChart(final int rowIndex, final int colIndex) {
@@ -203,19 +205,21 @@ public class CellMap implements Serializable, java.util.Map {
 		FacesCell facesCell = parent.getCellHelper()
 				.getFacesCellWithRowColFromCurrentPage(rowIndex, colIndex);
 		if (facesCell != null && facesCell.isContainChart()) {
-			FacesContext context = FacesContext.getCurrentInstance();
 			String chartId = facesCell.getChartId();
-			String chartViewId = Integer.toHexString(
-					System.identityHashCode(parent.getWb())) + chartId;
-			if (context != null) {
-				Map<String, Object> sessionMap = context
-						.getExternalContext().getSessionMap();
-				if (sessionMap.get(chartViewId) == null) {
-					sessionMap.put(chartViewId, parent.getCharsData()
-							.getChartsMap().get(chartId));
+			// changed charts are submitted to render before get the key.
+			FutureTask<byte[]> chartTask = parent.getChartHelper()
+					.getChartTask(chartId);
+			String imageKey = parent.getImageKeysMap().get(chartId);
+			if ((imageKey == null) || !ImageCache.contains(imageKey)) {
+				byte[] png = ChartHelper.getChartImage(chartTask);
+				if (png == null) {
+					return null;
 				}
+				imageKey = ImageCache.put(png, "image/png");
+				parent.getImageKeysMap().put(chartId, imageKey);
 			}
-			return chartViewId;
+			parent.registerImage(imageKey, chartId, true);
+			return imageKey;
 		} else {
 			return null;
 		}
@@ -286,14 +290,8 @@ public class CellMap implements Serializable, java.util.Map {
 							mkey.getRowIndex(), mkey.getColIndex());
 			String newValue = assembleNewValue(value, facesCell);
 			if (newValue != null && !newValue.equals(oldValue)) {
-				CellUtility.setCellValue(poiCell, newValue);
-				if (facesCell.isHasSaveAttr()) {
-					parent.getCellHelper().saveDataInContext(poiCell,
-							newValue);
-				}
-				// patch to avoid not updated downloaded file
-				CellUtility.copyCell(poiCell.getSheet(), poiCell.getRow(), poiCell.getRow(), poiCell.getColumnIndex(),false);
-				parent.getCellHelper().reCalc();
+				parent.getCellHelper().updateCellValue(poiCell, newValue,
+						facesCell.isHasSaveAttr());
 			}
 
 			return value;
@@ -334,4 +332,4 @@ public class CellMap implements Serializable, java.util.Map {
 		}
 		return newValue;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
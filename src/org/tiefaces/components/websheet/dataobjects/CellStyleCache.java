@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+package org.tiefaces.components.websheet.dataobjects;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache web styles of cells in the workbook. A workbook normally only has a
+ * few hundreds cell styles, so cells with same style key share the same css
+ * strings.
+ *
+ * @author Jason Jiang
+ *
+ */
+public class CellStyleCache {
+
+	/** style key to web styles. [0] is style, [1] is column style. */
+	private Map<String, String[]> stylesMap = new HashMap<>();
+
+	/** interned css strings. */
+	private Map<String, String> cssPool = new HashMap<>();
+
+	/**
+	 * Gets the web styles.
+	 *
+	 * @param key
+	 *            the style key
+	 * @return the styles. [0] is style, [1] is column style. null if not
+	 *         cached.
+	 */
+	public final String[] get(final String key) {
+		return stylesMap.get(key);
+	}
+
+	/**
+	 * Put web styles into cache.
+	 *
+	 * @param key
+	 *            the style key
+	 * @param style
+	 *            the style
+	 * @param columnStyle
+	 *            the column style
+	 * @return the shared styles. [0] is style, [1] is column style.
+	 */
+	public final String[] put(final String key, final String style,
+			final String columnStyle) {
+		String[] styles = new String[] { intern(style), intern(columnStyle) };
+		stylesMap.put(key, styles);
+		return styles;
+	}
+
+	/**
+	 * Size.
+	 *
+	 * @return the number of cached style keys.
+	 */
+	public final int size() {
+		return stylesMap.size();
+	}
+
+	/**
+	 * Clear.
+	 */
+	public final void clear() {
+		stylesMap.clear();
+		cssPool.clear();
+	}
+
+	/**
+	 * Intern css string.
+	 *
+	 * @param css
+	 *            the css
+	 * @return the shared css string
+	 */
+	private String intern(final String css) {
+		String shared = cssPool.get(css);
+		if (shared == null) {
+			cssPool.put(css, css);
+			shared = css;
+		}
+		return shared;
+	}
+}
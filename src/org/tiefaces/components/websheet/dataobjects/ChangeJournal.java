@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+
+package org.tiefaces.components.websheet.dataobjects;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Journal of changes since last checkpoint. Used for delta replication: only
+ * the journal is sent to replica, and replica replays it on its own copy of
+ * the web sheet which is same as the checkpoint.
+ *
+ * Changes made inside a recorded operation (e.g. data saved into context
+ * while putting cell value) are not recorded again, as replay of the outer
+ * operation makes them.
+ *
+ * @author Jason Jiang
+ *
+ */
+public class ChangeJournal implements Serializable {
+
+	/** serial instance. */
+	private static final long serialVersionUID = 1L;
+
+	/** The entries. */
+	private List<JournalEntry> entries = new ArrayList<>();
+
+	/** nested level of recorded operations. */
+	private transient int depth = 0;
+
+	/**
+	 * Begin a recorded operation. The entry is only recorded when it's not
+	 * inside other operation. Caller must call {@link #end()} after the
+	 * operation finished.
+	 *
+	 * @param entry
+	 *            the entry
+	 */
+	public final void begin(final JournalEntry entry) {
+		if (depth == 0) {
+			entries.add(entry);
+		}
+		depth++;
+	}
+
+	/**
+	 * Suspend recording. e.g. when replay the journal. Caller must call
+	 * {@link #end()} after finished.
+	 */
+	public final void suspend() {
+		depth++;
+	}
+
+	/**
+	 * End of the operation or suspending.
+	 */
+	public final void end() {
+		if (depth > 0) {
+			depth--;
+		}
+	}
+
+	/**
+	 * Gets the entries.
+	 *
+	 * @return the entries
+	 */
+	public final List<JournalEntry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Checks if is empty.
+	 *
+	 * @return true, if is empty
+	 */
+	public final boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+}
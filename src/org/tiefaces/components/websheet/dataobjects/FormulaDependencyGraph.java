@@ -0,0 +1,629 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+package org.tiefaces.components.websheet.dataobjects;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.ptg.AbstractFunctionPtg;
+import org.apache.poi.ss.formula.ptg.Area3DPxg;
+import org.apache.poi.ss.formula.ptg.AreaPtgBase;
+import org.apache.poi.ss.formula.ptg.NamePtg;
+import org.apache.poi.ss.formula.ptg.NameXPxg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.Ref3DPxg;
+import org.apache.poi.ss.formula.ptg.RefPtgBase;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.tiefaces.common.TieConstants;
+import org.tiefaces.components.websheet.utility.CellUtility;
+
+/**
+ * Reverse formula dependency graph of the workbook. Map from precedent cell to
+ * the formula cells referring it, so a cell change only need to re-evaluate
+ * its dependents instead of the whole workbook.
+ *
+ * Edges are indexed lazily per sheet from the current (expanded) formulas.
+ * Area references are indexed by precedent sheet and row block, so a lookup
+ * only checks areas near the changed cell.
+ * When rows are inserted or deleted, ShiftFormulaUtility rewrites formulas in
+ * place, so the sheet and the indexed sheets referring to it are invalidated
+ * and indexed again on next query.
+ *
+ * @author Jason Jiang
+ *
+ */
+public class FormulaDependencyGraph {
+
+	/** logger. */
+	private static final Logger LOG = Logger
+			.getLogger(FormulaDependencyGraph.class.getName());
+
+	/** functions which reference cannot be resolved from the formula. */
+	private static final Set<String> VOLATILE_FUNCTIONS = new HashSet<>();
+
+	static {
+		VOLATILE_FUNCTIONS.add("INDIRECT");
+		VOLATILE_FUNCTIONS.add("OFFSET");
+		VOLATILE_FUNCTIONS.add("NOW");
+		VOLATILE_FUNCTIONS.add("TODAY");
+		VOLATILE_FUNCTIONS.add("RAND");
+		VOLATILE_FUNCTIONS.add("RANDBETWEEN");
+		VOLATILE_FUNCTIONS.add("CELL");
+		VOLATILE_FUNCTIONS.add("INFO");
+	}
+
+	/** area references are indexed by block of 2^shift rows. */
+	private static final int AREA_ROW_BLOCK_SHIFT = 5;
+
+	/** areas span more row blocks than this are kept in a per sheet list. */
+	private static final int MAX_AREA_ROW_BLOCKS = 64;
+
+	/** The workbook. */
+	private Workbook wb;
+
+	/** The wb wrapper. */
+	private XSSFEvaluationWorkbook wbWrapper;
+
+	/** edges grouped by sheet index of dependent (formula) cells. */
+	private Map<Integer, SheetEdges> sheetEdgesMap = new HashMap<>();
+
+	/**
+	 * indexed sheets which formulas refer to the sheet. key is sheet index of
+	 * precedent sheet. kept with sheet edges map.
+	 */
+	private Map<Integer, Set<Integer>> dependentSheetsMap = new HashMap<>();
+
+	/**
+	 * Instantiates a new formula dependency graph.
+	 *
+	 * @param pwb
+	 *            the workbook.
+	 * @param pwbWrapper
+	 *            the wb wrapper.
+	 */
+	public FormulaDependencyGraph(final Workbook pwb,
+			final XSSFEvaluationWorkbook pwbWrapper) {
+		super();
+		this.wb = pwb;
+		this.wbWrapper = pwbWrapper;
+	}
+
+	/**
+	 * Find all formula cells depend on the changed cell (transitive). Volatile
+	 * formula cells are always included.
+	 *
+	 * @param changedCell
+	 *            the changed cell.
+	 * @return list of formula cells need re-evaluate.
+	 */
+	public final List<Cell> findDependentCells(final Cell changedCell) {
+		indexAllSheets();
+		Set<Long> visited = new LinkedHashSet<>();
+		Deque<Long> queue = new ArrayDeque<>();
+		queue.add(CellUtility.getCellIndexLongKey(changedCell));
+		while (!queue.isEmpty()) {
+			long key = queue.poll();
+			for (SheetEdges edges : sheetEdgesMap.values()) {
+				edges.collectDependents(key, visited, queue);
+			}
+		}
+		for (SheetEdges edges : sheetEdgesMap.values()) {
+			visited.addAll(edges.volatileCells);
+		}
+		List<Cell> cells = new ArrayList<>();
+		for (Long key : visited) {
+			Cell cell = CellUtility.getPoiCellFromLongKey(wb, key);
+			if ((cell != null)
+					&& (cell.getCellTypeEnum() == CellType.FORMULA)) {
+				cells.add(cell);
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 * Find sheets which formulas depend on the sheet (transitive), include the
+	 * sheet itself.
+	 *
+	 * @param sheetIndex
+	 *            the sheet index.
+	 * @return set of sheet index.
+	 */
+	public final Set<Integer> findDependentSheets(final int sheetIndex) {
+		indexAllSheets();
+		return collectDependentSheets(sheetIndex);
+	}
+
+	/**
+	 * Collect indexed sheets which formulas depend on the sheet (transitive),
+	 * include the sheet itself. No sheet is indexed here.
+	 *
+	 * @param sheetIndex
+	 *            the sheet index.
+	 * @return set of sheet index.
+	 */
+	private Set<Integer> collectDependentSheets(final int sheetIndex) {
+		Set<Integer> result = new LinkedHashSet<>();
+		Deque<Integer> queue = new ArrayDeque<>();
+		result.add(sheetIndex);
+		queue.add(sheetIndex);
+		while (!queue.isEmpty()) {
+			Set<Integer> dependents = dependentSheetsMap.get(queue.poll());
+			if (dependents == null) {
+				continue;
+			}
+			for (Integer dependent : dependents) {
+				if (result.add(dependent)) {
+					queue.add(dependent);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Find sheets which formulas in the sheet refer to (transitive), not
+	 * include the sheet itself.
+	 *
+	 * @param sheetIndex
+	 *            the sheet index.
+	 * @return set of sheet index.
+	 */
+	public final Set<Integer> findPrecedentSheets(final int sheetIndex) {
+		indexAllSheets();
+		Set<Integer> result = new LinkedHashSet<>();
+		Deque<Integer> queue = new ArrayDeque<>();
+		queue.add(sheetIndex);
+		while (!queue.isEmpty()) {
+			SheetEdges edges = sheetEdgesMap.get(queue.poll());
+			if (edges == null) {
+				continue;
+			}
+			for (Integer precedent : edges.precedentSheets) {
+				if ((precedent != sheetIndex) && result.add(precedent)) {
+					queue.add(precedent);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the formula cells in the sheet.
+	 *
+	 * @param sheetIndex
+	 *            the sheet index.
+	 * @return list of formula cells.
+	 */
+	public final List<Cell> getFormulaCells(final int sheetIndex) {
+		List<Cell> cells = new ArrayList<>();
+		Sheet sheet = wb.getSheetAt(sheetIndex);
+		for (Row row : sheet) {
+			for (Cell cell : row) {
+				if (cell.getCellTypeEnum() == CellType.FORMULA) {
+					cells.add(cell);
+				}
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 * Invalidate the sheet after its structure changed (e.g. add or delete
+	 * rows). The sheet will be indexed again on next query.
+	 *
+	 * @param sheet
+	 *            the sheet.
+	 */
+	public final void invalidateSheet(final Sheet sheet) {
+		int sheetIndex = wb.getSheetIndex(sheet);
+		// formulas refer to this sheet are rewritten when shifting rows.
+		// sheets not indexed yet are indexed from new formulas anyway.
+		for (Integer index : collectDependentSheets(sheetIndex)) {
+			removeSheetEdges(index);
+		}
+	}
+
+	/**
+	 * Clear the graph.
+	 */
+	public final void clear() {
+		sheetEdgesMap.clear();
+		dependentSheetsMap.clear();
+	}
+
+	/**
+	 * Index all sheets not indexed yet. Template copy sheets are skipped.
+	 */
+	private void indexAllSheets() {
+		for (int i = 0; i < wb.getNumberOfSheets(); i++) {
+			if (!sheetEdgesMap.containsKey(i) && !wb.getSheetName(i)
+					.startsWith(TieConstants.COPY_SHEET_PREFIX)) {
+				putSheetEdges(i, buildSheetEdges(i));
+			}
+		}
+	}
+
+	/**
+	 * Put edges of the sheet, and register the sheet as dependent of the
+	 * sheets it refers to.
+	 *
+	 * @param sheetIndex
+	 *            the sheet index.
+	 * @param edges
+	 *            the sheet edges.
+	 */
+	private void putSheetEdges(final int sheetIndex, final SheetEdges edges) {
+		sheetEdgesMap.put(sheetIndex, edges);
+		for (Integer precedent : edges.precedentSheets) {
+			Set<Integer> dependents = dependentSheetsMap.get(precedent);
+			if (dependents == null) {
+				dependents = new HashSet<>();
+				dependentSheetsMap.put(precedent, dependents);
+			}
+			dependents.add(sheetIndex);
+		}
+	}
+
+	/**
+	 * Remove edges of the sheet, and unregister it from the sheets it refers
+	 * to.
+	 *
+	 * @param sheetIndex
+	 *            the sheet index.
+	 */
+	private void removeSheetEdges(final int sheetIndex) {
+		SheetEdges edges = sheetEdgesMap.remove(sheetIndex);
+		if (edges == null) {
+			return;
+		}
+		for (Integer precedent : edges.precedentSheets) {
+			Set<Integer> dependents = dependentSheetsMap.get(precedent);
+			if (dependents != null) {
+				dependents.remove(sheetIndex);
+			}
+		}
+	}
+
+	/**
+	 * Builds the edges for all formula cells in the sheet.
+	 *
+	 * @param sheetIndex
+	 *            the sheet index.
+	 * @return the sheet edges.
+	 */
+	private SheetEdges buildSheetEdges(final int sheetIndex) {
+		SheetEdges edges = new SheetEdges();
+		for (Cell cell : getFormulaCells(sheetIndex)) {
+			long dependent = CellUtility.getCellIndexLongKey(sheetIndex,
+					cell.getRowIndex(), cell.getColumnIndex());
+			try {
+				Ptg[] ptgs = FormulaParser.parse(cell.getCellFormula(),
+						wbWrapper, FormulaType.CELL, sheetIndex);
+				addEdgesFromPtgs(edges, ptgs, sheetIndex, dependent);
+			} catch (Exception ex) {
+				LOG.log(Level.FINE, "cannot parse formula, treat as volatile : "
+						+ ex.getLocalizedMessage(), ex);
+				edges.volatileCells.add(dependent);
+			}
+		}
+		return edges;
+	}
+
+	/**
+	 * Adds the edges from ptgs.
+	 *
+	 * @param edges
+	 *            the edges.
+	 * @param ptgs
+	 *            the ptgs.
+	 * @param sheetIndex
+	 *            the sheet index of formula cell.
+	 * @param dependent
+	 *            the dependent key.
+	 */
+	private void addEdgesFromPtgs(final SheetEdges edges, final Ptg[] ptgs,
+			final int sheetIndex, final long dependent) {
+		for (Ptg ptg : ptgs) {
+			if (ptg instanceof Ref3DPxg) {
+				Ref3DPxg ref = (Ref3DPxg) ptg;
+				int refSheet = getRefSheetIndex(ref.getSheetName(),
+						ref.getLastSheetName());
+				if (refSheet < 0) {
+					edges.volatileCells.add(dependent);
+				} else {
+					edges.addCellEdge(CellUtility.getCellIndexLongKey(
+							refSheet, ref.getRow(), ref.getColumn()),
+							dependent, refSheet);
+				}
+			} else if (ptg instanceof RefPtgBase) {
+				RefPtgBase ref = (RefPtgBase) ptg;
+				edges.addCellEdge(CellUtility.getCellIndexLongKey(sheetIndex,
+						ref.getRow(), ref.getColumn()), dependent, sheetIndex);
+			} else if (ptg instanceof Area3DPxg) {
+				Area3DPxg area = (Area3DPxg) ptg;
+				int refSheet = getRefSheetIndex(area.getSheetName(),
+						area.getLastSheetName());
+				if (refSheet < 0) {
+					edges.volatileCells.add(dependent);
+				} else {
+					edges.addAreaEdge(new AreaEdge(refSheet, area, dependent));
+				}
+			} else if (ptg instanceof AreaPtgBase) {
+				edges.addAreaEdge(new AreaEdge(sheetIndex, (AreaPtgBase) ptg,
+						dependent));
+			} else if ((ptg instanceof NamePtg) || (ptg instanceof NameXPxg)
+					|| ((ptg instanceof AbstractFunctionPtg)
+							&& VOLATILE_FUNCTIONS.contains(
+									((AbstractFunctionPtg) ptg).getName()))) {
+				// named range or runtime reference cannot be resolved.
+				edges.volatileCells.add(dependent);
+			}
+		}
+	}
+
+	/**
+	 * Gets the ref sheet index.
+	 *
+	 * @param sheetName
+	 *            the sheet name.
+	 * @param lastSheetName
+	 *            the last sheet name for multiple sheets reference.
+	 * @return the sheet index. -1 if not resolved.
+	 */
+	private int getRefSheetIndex(final String sheetName,
+			final String lastSheetName) {
+		if ((sheetName == null) || ((lastSheetName != null)
+				&& !lastSheetName.equals(sheetName))) {
+			return -1;
+		}
+		return wb.getSheetIndex(sheetName);
+	}
+
+	/**
+	 * Edges of formula cells in one sheet.
+	 */
+	private static class SheetEdges {
+
+		/** precedent cell key to dependent cell keys. */
+		private Map<Long, List<Long>> cellEdges = new HashMap<>();
+
+		/**
+		 * area references indexed by precedent sheet and row block. key is
+		 * sheet index (high 32 bits) and row block (low 32 bits).
+		 */
+		private Map<Long, List<AreaEdge>> areaBlocks = new HashMap<>();
+
+		/**
+		 * area references span too many rows to be indexed by row block (e.g.
+		 * whole column), grouped by precedent sheet.
+		 */
+		private Map<Integer, List<AreaEdge>> wideAreas = new HashMap<>();
+
+		/** volatile cells. need evaluate for every change. */
+		private Set<Long> volatileCells = new LinkedHashSet<>();
+
+		/** sheets referred by formulas in this sheet. */
+		private Set<Integer> precedentSheets = new HashSet<>();
+
+		/**
+		 * Adds the cell edge.
+		 *
+		 * @param precedent
+		 *            the precedent.
+		 * @param dependent
+		 *            the dependent.
+		 * @param precedentSheet
+		 *            the precedent sheet.
+		 */
+		private void addCellEdge(final long precedent, final long dependent,
+				final int precedentSheet) {
+			List<Long> list = cellEdges.get(precedent);
+			if (list == null) {
+				list = new ArrayList<>();
+				cellEdges.put(precedent, list);
+			}
+			list.add(dependent);
+			precedentSheets.add(precedentSheet);
+		}
+
+		/**
+		 * Adds the area edge.
+		 *
+		 * @param edge
+		 *            the edge.
+		 */
+		private void addAreaEdge(final AreaEdge edge) {
+			int firstBlock = edge.firstRow >> AREA_ROW_BLOCK_SHIFT;
+			int lastBlock = edge.lastRow >> AREA_ROW_BLOCK_SHIFT;
+			if (lastBlock - firstBlock >= MAX_AREA_ROW_BLOCKS) {
+				addToList(wideAreas, edge.sheetIndex, edge);
+			} else {
+				for (int block = firstBlock; block <= lastBlock; block++) {
+					addToList(areaBlocks, getAreaBlockKey(edge.sheetIndex,
+							block), edge);
+				}
+			}
+			precedentSheets.add(edge.sheetIndex);
+		}
+
+		/**
+		 * Collect dependents of areas contain the cell.
+		 *
+		 * @param areas
+		 *            the areas. could be null.
+		 * @param sheetIndex
+		 *            the sheet index.
+		 * @param row
+		 *            the row.
+		 * @param col
+		 *            the col.
+		 * @param visited
+		 *            the visited dependents.
+		 * @param queue
+		 *            the queue for next level.
+		 */
+		private static void collectAreaDependents(final List<AreaEdge> areas,
+				final int sheetIndex, final int row, final int col,
+				final Set<Long> visited, final Deque<Long> queue) {
+			if (areas == null) {
+				return;
+			}
+			for (AreaEdge edge : areas) {
+				if (edge.contains(sheetIndex, row, col)
+						&& visited.add(edge.dependent)) {
+					queue.add(edge.dependent);
+				}
+			}
+		}
+
+		/**
+		 * Collect dependents of the precedent key.
+		 *
+		 * @param key
+		 *            the precedent key.
+		 * @param visited
+		 *            the visited dependents.
+		 * @param queue
+		 *            the queue for next level.
+		 */
+		private void collectDependents(final long key, final Set<Long> visited,
+				final Deque<Long> queue) {
+			List<Long> list = cellEdges.get(key);
+			if (list != null) {
+				for (Long dependent : list) {
+					if (visited.add(dependent)) {
+						queue.add(dependent);
+					}
+				}
+			}
+			int sheetIndex = CellUtility.getSheetIndexFromLongKey(key);
+			int row = CellUtility.getRowIndexFromLongKey(key);
+			int col = CellUtility.getColumnIndexFromLongKey(key);
+			collectAreaDependents(
+					areaBlocks.get(getAreaBlockKey(sheetIndex,
+							row >> AREA_ROW_BLOCK_SHIFT)),
+					sheetIndex, row, col, visited, queue);
+			collectAreaDependents(wideAreas.get(sheetIndex), sheetIndex, row,
+					col, visited, queue);
+		}
+	}
+
+	/**
+	 * Gets the key of area row block.
+	 *
+	 * @param sheetIndex
+	 *            the sheet index.
+	 * @param block
+	 *            the row block.
+	 * @return the key.
+	 */
+	private static long getAreaBlockKey(final int sheetIndex,
+			final int block) {
+		return (((long) sheetIndex) << 32) | (block & 0xffffffffL);
+	}
+
+	/**
+	 * Adds the edge to list of the key.
+	 *
+	 * @param <K>
+	 *            the key type.
+	 * @param map
+	 *            the map.
+	 * @param key
+	 *            the key.
+	 * @param edge
+	 *            the edge.
+	 */
+	private static <K> void addToList(final Map<K, List<AreaEdge>> map,
+			final K key, final AreaEdge edge) {
+		List<AreaEdge> list = map.get(key);
+		if (list == null) {
+			list = new ArrayList<>();
+			map.put(key, list);
+		}
+		list.add(edge);
+	}
+
+	/**
+	 * Area reference from a formula cell.
+	 */
+	private static class AreaEdge {
+
+		/** The sheet index of area. */
+		private int sheetIndex;
+
+		/** The first row. */
+		private int firstRow;
+
+		/** The last row. */
+		private int lastRow;
+
+		/** The first column. */
+		private int firstColumn;
+
+		/** The last column. */
+		private int lastColumn;
+
+		/** The dependent key. */
+		private long dependent;
+
+		/**
+		 * Instantiates a new area edge.
+		 *
+		 * @param psheetIndex
+		 *            the sheet index.
+		 * @param area
+		 *            the area ptg.
+		 * @param pdependent
+		 *            the dependent key.
+		 */
+		AreaEdge(final int psheetIndex, final AreaPtgBase area,
+				final long pdependent) {
+			this.sheetIndex = psheetIndex;
+			this.firstRow = Math.min(area.getFirstRow(), area.getLastRow());
+			this.lastRow = Math.max(area.getFirstRow(), area.getLastRow());
+			this.firstColumn = Math.min(area.getFirstColumn(),
+					area.getLastColumn());
+			this.lastColumn = Math.max(area.getFirstColumn(),
+					area.getLastColumn());
+			this.dependent = pdependent;
+		}
+
+		/**
+		 * Whether the area contains the cell.
+		 *
+		 * @param psheetIndex
+		 *            the sheet index.
+		 * @param row
+		 *            the row.
+		 * @param col
+		 *            the col.
+		 * @return true, if contains.
+		 */
+		private boolean contains(final int psheetIndex, final int row,
+				final int col) {
+			return (psheetIndex == sheetIndex) && (row >= firstRow)
+					&& (row <= lastRow) && (col >= firstColumn)
+					&& (col <= lastColumn);
+		}
+	}
+}
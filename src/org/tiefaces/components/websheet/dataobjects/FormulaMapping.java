@@ -13,7 +13,10 @@ import java.io.Serializable;
  * 
  * @author Jason Jiang
  *
+ * @deprecated cached cells keep raw values in a packed table. Only used by
+ *             {@link CachedCells#getCachedMap()}, which returns a copy.
  */
+@Deprecated
 public class FormulaMapping implements Serializable {
 
 	/**
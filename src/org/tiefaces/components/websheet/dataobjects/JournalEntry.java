@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+
+package org.tiefaces.components.websheet.dataobjects;
+
+import java.io.Serializable;
+
+/**
+ * One recorded change of web sheet. Replayed on replica to get same state.
+ * Changes are addressed by sheet name and absolute row/column index in the
+ * sheet, so they don't depend on the current tab or page of the replica.
+ *
+ * @author Jason Jiang
+ *
+ */
+public class JournalEntry implements Serializable {
+
+	/** serial instance. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Operation of the entry.
+	 */
+	public enum Operation {
+		/** cell value changed through cells map. */
+		CELL_VALUE,
+		/** repeat row added. */
+		ADD_ROW,
+		/** repeat row deleted. */
+		DELETE_ROW,
+		/** cell value saved into data context. */
+		SAVE_DATA
+	}
+
+	/** The operation. */
+	private final Operation operation;
+
+	/** The sheet name. */
+	private final String sheetName;
+
+	/** The row index in sheet. */
+	private final int rowIndex;
+
+	/** The column index in sheet. -1 for row operations. */
+	private final int colIndex;
+
+	/** The value. */
+	private final Serializable value;
+
+	/**
+	 * Instantiates a new journal entry.
+	 *
+	 * @param poperation
+	 *            the operation
+	 * @param psheetName
+	 *            the sheet name
+	 * @param prowIndex
+	 *            the row index
+	 * @param pcolIndex
+	 *            the column index
+	 * @param pvalue
+	 *            the value
+	 */
+	public JournalEntry(final Operation poperation, final String psheetName,
+			final int prowIndex, final int pcolIndex,
+			final Serializable pvalue) {
+		super();
+		this.operation = poperation;
+		this.sheetName = psheetName;
+		this.rowIndex = prowIndex;
+		this.colIndex = pcolIndex;
+		this.value = pvalue;
+	}
+
+	/**
+	 * Gets the operation.
+	 *
+	 * @return the operation
+	 */
+	public final Operation getOperation() {
+		return operation;
+	}
+
+	/**
+	 * Gets the sheet name.
+	 *
+	 * @return the sheet name
+	 */
+	public final String getSheetName() {
+		return sheetName;
+	}
+
+	/**
+	 * Gets the row index.
+	 *
+	 * @return the row index
+	 */
+	public final int getRowIndex() {
+		return rowIndex;
+	}
+
+	/**
+	 * Gets the column index.
+	 *
+	 * @return the column index
+	 */
+	public final int getColIndex() {
+		return colIndex;
+	}
+
+	/**
+	 * Gets the value.
+	 *
+	 * @return the value
+	 */
+	public final Serializable getValue() {
+		return value;
+	}
+
+	/**
+	 * Obtain a human readable representation.
+	 *
+	 * @return String Human readable label
+	 */
+	@Override
+	public final String toString() {
+		return "{" + operation + " sheet = " + sheetName + " row = "
+				+ rowIndex + " col = " + colIndex + " value = " + value
+				+ "}";
+	}
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+package org.tiefaces.components.websheet.dataobjects;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.tiefaces.components.websheet.TieWebSheetBean;
+
+/**
+ * Body rows of current display sheet. Rows are assembled from the poi sheet
+ * only when requested (e.g. by datatable for current page), and kept in a
+ * bounded LRU cache. Evicted rows will be assembled again when needed.
+ * Rows only hold display data; validation status is restored from the status
+ * recorded by validation handler when a row is assembled.
+ *
+ * @author Jason Jiang
+ *
+ */
+public class LazyBodyRows extends AbstractList<FacesRow>
+		implements Serializable {
+
+	/**
+	 * serialVersionUID.
+	 */
+	private static final long serialVersionUID = 2731416532740367518L;
+
+	/** The parent. */
+	private TieWebSheetBean parent = null;
+
+	/** The top row index of body. */
+	private int top;
+
+	/** The number of body rows. */
+	private int rowSize;
+
+	/** The max number of cached rows. */
+	private int maxCachedRows;
+
+	/** The cached rows. key is index in body rows. */
+	private transient LinkedHashMap<Integer, FacesRow> cachedRows;
+
+	/**
+	 * Instantiates a new lazy body rows.
+	 *
+	 * @param pparent
+	 *            the parent
+	 * @param ptop
+	 *            the top row index of body.
+	 * @param prowSize
+	 *            the number of body rows.
+	 * @param pmaxCachedRows
+	 *            the max number of cached rows.
+	 */
+	public LazyBodyRows(final TieWebSheetBean pparent, final int ptop,
+			final int prowSize, final int pmaxCachedRows) {
+		super();
+		this.parent = pparent;
+		this.top = ptop;
+		this.rowSize = Math.max(prowSize, 0);
+		this.maxCachedRows = pmaxCachedRows;
+	}
+
+	/**
+	 * Gets the cached rows.
+	 *
+	 * @return the cached rows
+	 */
+	private Map<Integer, FacesRow> getCachedRows() {
+		if (cachedRows == null) {
+			cachedRows = new LinkedHashMap<Integer, FacesRow>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(
+						final Map.Entry<Integer, FacesRow> eldest) {
+					return size() > maxCachedRows;
+				}
+			};
+		}
+		return cachedRows;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.AbstractList#get(int)
+	 */
+	@Override
+	public final FacesRow get(final int index) {
+		if ((index < 0) || (index >= rowSize)) {
+			throw new IndexOutOfBoundsException(
+					"Index: " + index + ", Size: " + rowSize);
+		}
+		FacesRow row = getCachedRows().get(index);
+		if (row == null) {
+			row = parent.getHelper().getWebSheetLoader()
+					.loadFacesBodyRow(top + index);
+			getCachedRows().put(index, row);
+		}
+		return row;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.AbstractCollection#size()
+	 */
+	@Override
+	public final int size() {
+		return rowSize;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.AbstractList#set(int, java.lang.Object)
+	 */
+	@Override
+	public final FacesRow set(final int index, final FacesRow element) {
+		return getCachedRows().put(index, element);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.AbstractList#add(int, java.lang.Object)
+	 */
+	@Override
+	public final void add(final int index, final FacesRow element) {
+		shiftCachedRows(index, 1, false);
+		getCachedRows().put(index, element);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.AbstractList#remove(int)
+	 */
+	@Override
+	public final FacesRow remove(final int index) {
+		FacesRow row = getCachedRows().get(index);
+		shiftCachedRows(index, -1, false);
+		return row;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.AbstractList#clear()
+	 */
+	@Override
+	public final void clear() {
+		getCachedRows().clear();
+		rowSize = 0;
+	}
+
+	/**
+	 * Rows inserted into sheet. Cached rows after the index are moved down
+	 * with row index updated. New rows will be loaded when needed.
+	 *
+	 * @param index
+	 *            the index in body rows.
+	 * @param length
+	 *            the number of rows inserted.
+	 */
+	public final void insertRows(final int index, final int length) {
+		shiftCachedRows(index, length, true);
+	}
+
+	/**
+	 * Rows removed from sheet. Cached rows after removed ones are moved up
+	 * with row index updated.
+	 *
+	 * @param index
+	 *            the index in body rows.
+	 * @param length
+	 *            the number of rows removed.
+	 */
+	public final void removeRows(final int index, final int length) {
+		shiftCachedRows(index, -length, true);
+	}
+
+	/**
+	 * Checks if the row is loaded.
+	 *
+	 * @param index
+	 *            the index in body rows.
+	 * @return true, if is loaded.
+	 */
+	public final boolean isLoaded(final int index) {
+		return getCachedRows().containsKey(index);
+	}
+
+	/**
+	 * Shift cached rows.
+	 *
+	 * @param index
+	 *            the index in body rows.
+	 * @param length
+	 *            positive for insert, negative for remove.
+	 * @param updateRowIndex
+	 *            whether update row index of shifted rows.
+	 */
+	private void shiftCachedRows(final int index, final int length,
+			final boolean updateRowIndex) {
+		Map<Integer, FacesRow> map = getCachedRows();
+		LinkedHashMap<Integer, FacesRow> shifted = new LinkedHashMap<>();
+		for (Map.Entry<Integer, FacesRow> entry : map.entrySet()) {
+			int key = entry.getKey();
+			FacesRow row = entry.getValue();
+			if (key < index) {
+				shifted.put(key, row);
+			} else if (key >= index - Math.min(length, 0)) {
+				if (updateRowIndex) {
+					row.setRowIndex(row.getRowIndex() + length);
+				}
+				shifted.put(key + length, row);
+			}
+		}
+		map.clear();
+		map.putAll(shifted);
+		rowSize += length;
+	}
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+package org.tiefaces.components.websheet.dataobjects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.tiefaces.components.websheet.utility.CellUtility;
+
+/**
+ * Index of merged regions in one sheet. Every cell covered by a merged region
+ * is mapped to the region, so covered/anchor queries by row and column are
+ * O(1). The index is updated when rows are inserted and regions are copied
+ * (see CellUtility.copyRows).
+ *
+ * @author Jason Jiang
+ *
+ */
+public class MergedRegionIndex {
+
+	/** The regions. */
+	private List<CellRangeAddress> regions = new ArrayList<>();
+
+	/** packed (row, column) key to the region covering the cell. */
+	private Map<Long, CellRangeAddress> cellRegions = new HashMap<>();
+
+	/**
+	 * Instantiates a new merged region index from the sheet.
+	 *
+	 * @param sheet
+	 *            the sheet
+	 */
+	public MergedRegionIndex(final Sheet sheet) {
+		super();
+		int numRegions = sheet.getNumMergedRegions();
+		for (int i = 0; i < numRegions; i++) {
+			CellRangeAddress caddress = sheet.getMergedRegion(i);
+			if (caddress != null) {
+				addRegion(caddress);
+			}
+		}
+	}
+
+	/**
+	 * Adds the region.
+	 *
+	 * @param caddress
+	 *            the region
+	 */
+	public final void addRegion(final CellRangeAddress caddress) {
+		regions.add(caddress);
+		indexRegion(caddress, caddress);
+	}
+
+	/**
+	 * Gets the region covering the cell.
+	 *
+	 * @param row
+	 *            the row
+	 * @param col
+	 *            the col
+	 * @return the region. null if not merged.
+	 */
+	public final CellRangeAddress getRegion(final int row, final int col) {
+		return cellRegions.get(getKey(row, col));
+	}
+
+	/**
+	 * Gets the region if the cell is the top left (anchor) cell of it.
+	 *
+	 * @param row
+	 *            the row
+	 * @param col
+	 *            the col
+	 * @return the region. null if the cell is not an anchor.
+	 */
+	public final CellRangeAddress getAnchorRegion(final int row,
+			final int col) {
+		CellRangeAddress caddress = getRegion(row, col);
+		if ((caddress != null) && (caddress.getFirstRow() == row)
+				&& (caddress.getFirstColumn() == col)) {
+			return caddress;
+		}
+		return null;
+	}
+
+	/**
+	 * Checks if the cell is skipped. i.e. covered by a region but not its
+	 * anchor.
+	 *
+	 * @param row
+	 *            the row
+	 * @param col
+	 *            the col
+	 * @return true, if is skipped
+	 */
+	public final boolean isSkipped(final int row, final int col) {
+		CellRangeAddress caddress = getRegion(row, col);
+		return (caddress != null) && ((caddress.getFirstRow() != row)
+				|| (caddress.getFirstColumn() != col));
+	}
+
+	/**
+	 * Shift regions which start at or below the start row. Same as the sheet
+	 * shifting rows when inserting.
+	 *
+	 * @param startRow
+	 *            the start row
+	 * @param n
+	 *            the number of rows to shift
+	 */
+	public final void shiftRows(final int startRow, final int n) {
+		if (n == 0) {
+			return;
+		}
+		List<CellRangeAddress> shifted = new ArrayList<>();
+		for (int i = 0; i < regions.size(); i++) {
+			CellRangeAddress caddress = regions.get(i);
+			if (caddress.getFirstRow() >= startRow) {
+				indexRegion(caddress, null);
+				CellRangeAddress newAddress = new CellRangeAddress(
+						caddress.getFirstRow() + n,
+						caddress.getLastRow() + n,
+						caddress.getFirstColumn(),
+						caddress.getLastColumn());
+				regions.set(i, newAddress);
+				shifted.add(newAddress);
+			}
+		}
+		for (CellRangeAddress caddress : shifted) {
+			indexRegion(caddress, caddress);
+		}
+	}
+
+	/**
+	 * Gets the regions.
+	 *
+	 * @return the regions. read only.
+	 */
+	public final List<CellRangeAddress> getRegions() {
+		return Collections.unmodifiableList(regions);
+	}
+
+	/**
+	 * Size.
+	 *
+	 * @return the number of regions
+	 */
+	public final int size() {
+		return regions.size();
+	}
+
+	/**
+	 * Map (or unmap if value is null) all cells of the region.
+	 *
+	 * @param caddress
+	 *            the region
+	 * @param value
+	 *            the value
+	 */
+	private void indexRegion(final CellRangeAddress caddress,
+			final CellRangeAddress value) {
+		for (int row = caddress.getFirstRow(); row <= caddress
+				.getLastRow(); row++) {
+			for (int col = caddress.getFirstColumn(); col <= caddress
+					.getLastColumn(); col++) {
+				if (value == null) {
+					cellRegions.remove(getKey(row, col));
+				} else {
+					cellRegions.put(getKey(row, col), value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the key of the cell.
+	 *
+	 * @param row
+	 *            the row
+	 * @param col
+	 *            the col
+	 * @return the key
+	 */
+	private static long getKey(final int row, final int col) {
+		return CellUtility.getCellIndexLongKey(0, row, col);
+	}
+}
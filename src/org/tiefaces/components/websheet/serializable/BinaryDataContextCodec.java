@@ -0,0 +1,323 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+package org.tiefaces.components.websheet.serializable;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import com.google.gson.Gson;
+
+/**
+ * Default data context codec. Keeps concrete types of context objects.
+ *
+ * Serializable objects are saved with java serialization into the same
+ * stream, so they share class descriptors and references. Collections and
+ * maps are saved item by item, so they keep their own class even if items are
+ * not serializable. Other objects are saved as json together with their class
+ * name, then restored to the same class. e.g. a list of department beans is
+ * restored as the same list class with department beans, not untyped maps.
+ * Classes are resolved through the thread context class loader, as the
+ * context objects belong to the web application.
+ *
+ * @author Jason Jiang
+ *
+ */
+public class BinaryDataContextCodec implements DataContextCodec {
+
+	/** logger. */
+	private static final Logger LOG = Logger
+			.getLogger(BinaryDataContextCodec.class.getName());
+
+	/** null value. */
+	private static final byte TYPE_NULL = 0;
+
+	/** java serialized value. */
+	private static final byte TYPE_JAVA = 1;
+
+	/** collection saved item by item. */
+	private static final byte TYPE_COLLECTION = 2;
+
+	/** map saved entry by entry. */
+	private static final byte TYPE_MAP = 3;
+
+	/** json with class name. */
+	private static final byte TYPE_JSON = 4;
+
+	/** shared gson instance. gson is thread safe. */
+	private static final Gson GSON = new Gson();
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.tiefaces.components.websheet.serializable.DataContextCodec#
+	 * write(java.util.Map, java.io.ObjectOutput)
+	 */
+	@Override
+	public final void write(final Map<String, Object> dataContext,
+			final ObjectOutput out) throws IOException {
+		if (dataContext == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(dataContext.size());
+		SerializableProbe probe = new SerializableProbe();
+		for (Map.Entry<String, Object> entry : dataContext.entrySet()) {
+			out.writeUTF(entry.getKey());
+			writeValue(entry.getValue(), out, probe);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.tiefaces.components.websheet.serializable.DataContextCodec#read(
+	 * java.io.ObjectInput)
+	 */
+	@Override
+	public final Map<String, Object> read(final ObjectInput in)
+			throws IOException {
+		int size = in.readInt();
+		if (size < 0) {
+			return null;
+		}
+		Map<String, Object> dataContext = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			String key = in.readUTF();
+			dataContext.put(key, readValue(in));
+		}
+		return dataContext;
+	}
+
+	/**
+	 * Write value.
+	 *
+	 * @param value
+	 *            the value
+	 * @param out
+	 *            the out
+	 * @param probe
+	 *            the probe of java serialization
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@SuppressWarnings("rawtypes")
+	private void writeValue(final Object value, final ObjectOutput out,
+			final SerializableProbe probe) throws IOException {
+		if (value == null) {
+			out.writeByte(TYPE_NULL);
+			return;
+		}
+		if (value instanceof Collection) {
+			Collection collection = (Collection) value;
+			out.writeByte(TYPE_COLLECTION);
+			out.writeUTF(getContainerClassName(value,
+					value instanceof Set ? LinkedHashSet.class
+							: ArrayList.class));
+			out.writeInt(collection.size());
+			for (Object item : collection) {
+				writeValue(item, out, probe);
+			}
+			return;
+		}
+		if (value instanceof Map) {
+			Map<?, ?> map = (Map) value;
+			out.writeByte(TYPE_MAP);
+			out.writeUTF(getContainerClassName(value, HashMap.class));
+			out.writeInt(map.size());
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				writeValue(entry.getKey(), out, probe);
+				writeValue(entry.getValue(), out, probe);
+			}
+			return;
+		}
+		if (probe.isSerializable(value)) {
+			out.writeByte(TYPE_JAVA);
+			out.writeObject(value);
+			return;
+		}
+		out.writeByte(TYPE_JSON);
+		out.writeUTF(value.getClass().getName());
+		out.writeObject(GSON.toJson(value));
+	}
+
+	/**
+	 * Read value.
+	 *
+	 * @param in
+	 *            the in
+	 * @return the object
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Object readValue(final ObjectInput in) throws IOException {
+		byte type = in.readByte();
+		try {
+			switch (type) {
+			case TYPE_NULL:
+				return null;
+			case TYPE_COLLECTION:
+				Collection collection = (Collection) newInstance(
+						in.readUTF());
+				int collectionSize = in.readInt();
+				for (int i = 0; i < collectionSize; i++) {
+					collection.add(readValue(in));
+				}
+				return collection;
+			case TYPE_MAP:
+				Map map = (Map) newInstance(in.readUTF());
+				int mapSize = in.readInt();
+				for (int i = 0; i < mapSize; i++) {
+					Object key = readValue(in);
+					map.put(key, readValue(in));
+				}
+				return map;
+			case TYPE_JAVA:
+				return in.readObject();
+			case TYPE_JSON:
+				Class<?> clazz = loadClass(in.readUTF());
+				return GSON.fromJson((String) in.readObject(), clazz);
+			default:
+				throw new IOException("Unknown data context value type : "
+						+ type);
+			}
+		} catch (ClassNotFoundException | InstantiationException
+				| IllegalAccessException e) {
+			throw new IOException(e);
+		}
+	}
+
+
+	/**
+	 * Gets the class name used to restore collection or map. Classes without
+	 * public no-arg constructor (e.g. Arrays.asList) are restored as default
+	 * class.
+	 *
+	 * @param value
+	 *            the collection or map
+	 * @param defaultClass
+	 *            the default class
+	 * @return the class name
+	 */
+	private String getContainerClassName(final Object value,
+			final Class<?> defaultClass) {
+		Class<?> clazz = value.getClass();
+		try {
+			if (Modifier.isPublic(clazz.getModifiers())
+					&& Modifier.isPublic(
+							clazz.getConstructor().getModifiers())) {
+				return clazz.getName();
+			}
+		} catch (NoSuchMethodException e) {
+			LOG.fine("no default constructor for " + clazz.getName());
+		}
+		return defaultClass.getName();
+	}
+
+	/**
+	 * New instance of the class.
+	 *
+	 * @param className
+	 *            the class name
+	 * @return the object
+	 * @throws ClassNotFoundException
+	 *             the class not found exception
+	 * @throws InstantiationException
+	 *             the instantiation exception
+	 * @throws IllegalAccessException
+	 *             the illegal access exception
+	 */
+	private Object newInstance(final String className)
+			throws ClassNotFoundException, InstantiationException,
+			IllegalAccessException {
+		return loadClass(className).newInstance();
+	}
+
+	/**
+	 * Load class through thread context class loader. Fall back to the class
+	 * loader of this library when no context class loader.
+	 *
+	 * @param className
+	 *            the class name
+	 * @return the class
+	 * @throws ClassNotFoundException
+	 *             the class not found exception
+	 */
+	private Class<?> loadClass(final String className)
+			throws ClassNotFoundException {
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		if (loader == null) {
+			loader = BinaryDataContextCodec.class.getClassLoader();
+		}
+		return Class.forName(className, false, loader);
+	}
+
+	/**
+	 * Check if a value could be java serialized before writing it into the
+	 * real stream, as a failed write leaves the stream broken. The value is
+	 * written into a stream discarding all bytes, which is created once for
+	 * all values of a data context.
+	 */
+	private static final class SerializableProbe {
+
+		/** stream discarding all bytes. */
+		private ObjectOutputStream objOut;
+
+		/**
+		 * Checks if the value is serializable, including all its fields.
+		 *
+		 * @param value
+		 *            the value
+		 * @return true, if serializable
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		boolean isSerializable(final Object value) throws IOException {
+			if (!(value instanceof Serializable)) {
+				return false;
+			}
+			if (objOut == null) {
+				objOut = new ObjectOutputStream(new OutputStream() {
+					@Override
+					public void write(final int b) {
+						// discard
+					}
+
+					@Override
+					public void write(final byte[] b, final int off,
+							final int len) {
+						// discard
+					}
+				});
+			}
+			try {
+				objOut.writeObject(value);
+				// don't keep references to the values.
+				objOut.reset();
+				return true;
+			} catch (NotSerializableException e) {
+				// some field is not serializable.
+				LOG.fine("save as json : " + e.getMessage());
+				objOut = null;
+				return false;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+package org.tiefaces.components.websheet.serializable;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Map;
+
+/**
+ * Codec for saving data context when serialize web sheet. Implementation
+ * should be stateless and thread safe, as one instance is shared by all
+ * contexts. Implementation need a public no-arg constructor, which is used to
+ * create the instance when deserialize.
+ *
+ * @author Jason Jiang
+ *
+ */
+public interface DataContextCodec {
+
+	/**
+	 * Write data context.
+	 *
+	 * @param dataContext
+	 *            the data context. could be null.
+	 * @param out
+	 *            the out
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void write(Map<String, Object> dataContext, ObjectOutput out)
+			throws IOException;
+
+	/**
+	 * Read data context.
+	 *
+	 * @param in
+	 *            the in
+	 * @return the data context. could be null.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	Map<String, Object> read(ObjectInput in) throws IOException;
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+package org.tiefaces.components.websheet.serializable;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.lang.reflect.Type;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Save data context as json string. Objects are restored as untyped maps,
+ * lists and doubles. Kept for context which only contains such objects.
+ *
+ * @author Jason Jiang
+ *
+ */
+public class JsonDataContextCodec implements DataContextCodec {
+
+	/** shared gson instance. gson is thread safe. */
+	private static final Gson GSON = new Gson();
+
+	/** type of data context. */
+	private static final Type CONTEXT_TYPE = new TypeToken<Map<String, Object>>() {
+	}.getType();
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.tiefaces.components.websheet.serializable.DataContextCodec#
+	 * write(java.util.Map, java.io.ObjectOutput)
+	 */
+	@Override
+	public final void write(final Map<String, Object> dataContext,
+			final ObjectOutput out) throws IOException {
+		out.writeObject(GSON.toJson(dataContext));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.tiefaces.components.websheet.serializable.DataContextCodec#read(
+	 * java.io.ObjectInput)
+	 */
+	@Override
+	public final Map<String, Object> read(final ObjectInput in)
+			throws IOException {
+		try {
+			return GSON.fromJson((String) in.readObject(), CONTEXT_TYPE);
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+	}
+
+}
@@ -6,14 +6,11 @@ package org.tiefaces.components.websheet.serializable;
 
 import java.io.IOException;
 import java.io.Serializable;
-import java.lang.reflect.Type;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.apache.poi.EncryptedDocumentException;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
 
 /**
  * serialize workbook.
@@ -37,8 +34,20 @@ public class SerialDataContext implements Serializable {
 	 */
 	private transient Map<String, Object> dataContext;
 
-	/** convert map to json string. */
-	private String mapToJson;
+	/** default codec. */
+	private static final DataContextCodec DEFAULT_CODEC =
+			new BinaryDataContextCodec();
+
+	/** codec instances by class name. reused by all contexts. */
+	private static final ConcurrentMap<String, DataContextCodec> CODECS =
+			new ConcurrentHashMap<>();
+
+	static {
+		CODECS.put(DEFAULT_CODEC.getClass().getName(), DEFAULT_CODEC);
+	}
+
+	/** codec used to save data context. */
+	private transient DataContextCodec codec;
 
 	/**
 	 * save the workbook before serialize.
@@ -50,9 +59,10 @@ public class SerialDataContext implements Serializable {
 	 */
 	private void writeObject(final java.io.ObjectOutputStream out)
 			throws IOException {
-		Gson objGson = new GsonBuilder().setPrettyPrinting().create();
-		this.mapToJson = objGson.toJson(this.dataContext);
 		out.defaultWriteObject();
+		DataContextCodec objCodec = getCodec();
+		out.writeUTF(objCodec.getClass().getName());
+		objCodec.write(this.dataContext, out);
 	}
 
 	/**
@@ -67,18 +77,76 @@ public class SerialDataContext implements Serializable {
 			throws IOException {
 		try {
 			in.defaultReadObject();
-			Gson objGson = new GsonBuilder().setPrettyPrinting().create();
-			Type listType = new TypeToken<Map<String, Object>>() {
-			}.getType();
-			this.dataContext = objGson.fromJson(mapToJson, listType);
-		} catch (EncryptedDocumentException | ClassNotFoundException e) {
+			this.codec = lookupCodec(in.readUTF());
+			this.dataContext = this.codec.read(in);
+		} catch (ClassNotFoundException | InstantiationException
+				| IllegalAccessException e) {
 			LOG.log(Level.SEVERE,
-					" error in readObject of serialWorkbook : "
+					" error in readObject of serialDataContext : "
 							+ e.getLocalizedMessage(),
 					e);
 		}
 	}
 
+	/**
+	 * Lookup codec instance by class name. Instance is created once and
+	 * reused.
+	 *
+	 * @param className
+	 *            the class name
+	 * @return the data context codec
+	 * @throws ClassNotFoundException
+	 *             the class not found exception
+	 * @throws InstantiationException
+	 *             the instantiation exception
+	 * @throws IllegalAccessException
+	 *             the illegal access exception
+	 */
+	private static DataContextCodec lookupCodec(final String className)
+			throws ClassNotFoundException, InstantiationException,
+			IllegalAccessException {
+		DataContextCodec objCodec = CODECS.get(className);
+		if (objCodec == null) {
+			// codec may be provided by the web application.
+			ClassLoader loader = Thread.currentThread()
+					.getContextClassLoader();
+			if (loader == null) {
+				loader = SerialDataContext.class.getClassLoader();
+			}
+			objCodec = (DataContextCodec) Class
+					.forName(className, true, loader).newInstance();
+			DataContextCodec existing = CODECS.putIfAbsent(className,
+					objCodec);
+			if (existing != null) {
+				objCodec = existing;
+			}
+		}
+		return objCodec;
+	}
+
+	/**
+	 * Gets the codec. Default is {@link BinaryDataContextCodec}.
+	 *
+	 * @return the codec
+	 */
+	public final DataContextCodec getCodec() {
+		if (codec == null) {
+			codec = DEFAULT_CODEC;
+		}
+		return codec;
+	}
+
+	/**
+	 * Sets the codec. e.g. {@link JsonDataContextCodec} for context only
+	 * contains maps, lists and simple values.
+	 *
+	 * @param pcodec
+	 *            the codec to set
+	 */
+	public final void setCodec(final DataContextCodec pcodec) {
+		this.codec = pcodec;
+	}
+
 	/**
 	 * Gets the data context.
 	 *
@@ -83,7 +83,9 @@ public class SerialRow implements Serializable {
 	 */
 	private void writeObject(final java.io.ObjectOutputStream out)
 			throws IOException {
-		this.rowIndex = this.getRow().getRowNum();
+		if (this.getRow() != null) {
+			this.rowIndex = this.getRow().getRowNum();
+		}
 		out.defaultWriteObject();
 	}
 
@@ -124,6 +126,19 @@ public class SerialRow implements Serializable {
 		this.row = prow;
 	}
 
+	/**
+	 * Gets the row number. Use row index if no row object attached, e.g.
+	 * row mapping for output not kept in memory.
+	 *
+	 * @return the row number
+	 */
+	public final int getRowNum() {
+		if (row != null) {
+			return row.getRowNum();
+		}
+		return rowIndex;
+	}
+
 	/**
 	 * Gets the row index.
 	 *
@@ -4,7 +4,12 @@
  */
 package org.tiefaces.components.websheet.serializable;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -16,6 +21,9 @@ import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.tiefaces.components.websheet.configuration.SheetConfiguration;
+import org.tiefaces.components.websheet.configuration.TemplateRegistry;
+import org.tiefaces.components.websheet.configuration.TemplateRegistry.ParsedTemplate;
+import org.tiefaces.components.websheet.dataobjects.ChangeJournal;
 
 /**
  * serialize workbook.
@@ -34,6 +42,21 @@ public class SerialWorkbook implements Serializable {
 	 */
 	private static final long serialVersionUID = 4711304873642901753L;
 
+	/** no workbook saved. */
+	private static final byte FORMAT_NONE = 0;
+
+	/** whole xlsx package saved. */
+	private static final byte FORMAT_PACKAGE = 1;
+
+	/**
+	 * template and snapshot saved. template restored from template registry,
+	 * or registered from the stream if not found.
+	 */
+	private static final byte FORMAT_SNAPSHOT = 2;
+
+	/** workbook released. template and snapshot bytes saved. */
+	private static final byte FORMAT_RELEASED = 3;
+
 	/**
 	 * workbook is transient.
 	 */
@@ -42,10 +65,45 @@ public class SerialWorkbook implements Serializable {
 	/** hold configuration for each sheet. */
 	private Map<String, SheetConfiguration> sheetConfigMap;
 
+	/**
+	 * key of the template in template registry. null if workbook is not
+	 * loaded from a registered template.
+	 */
+	private String templateKey;
 
+	/**
+	 * registered template. transient, written with the snapshot and
+	 * registered again after deserialized. kept here so the workbook could
+	 * be rebuilt even if the registry dropped it.
+	 */
+	private transient ParsedTemplate template;
 
 	/**
-	 * save the workbook before serialize.
+	 * snapshot of released workbook and its sheet configurations. workbook
+	 * is rebuilt from template and this snapshot when accessed again.
+	 */
+	private transient byte[] releasedSnapshot;
+
+	/**
+	 * changes of the workbook since last checkpoint. transient, a replica
+	 * gets the journal instead of the workbook after the first copy.
+	 */
+	private transient ChangeJournal changeJournal;
+
+	/**
+	 * write the released form when serialized, while the workbook in memory
+	 * is kept.
+	 */
+	private transient boolean releaseOnWrite;
+
+	/**
+	 * save the workbook before serialize. if template registered (template
+	 * cache enabled), the template is saved with snapshot of the cells
+	 * changed from it instead of whole xlsx package. so the receiver could
+	 * rebuild the workbook even it doesn't have the template registered, and
+	 * sessions of the same template in one stream share the template bytes.
+	 * otherwise whole xlsx package is saved. if release on write, the
+	 * released form is saved without releasing the workbook in memory.
 	 * 
 	 * @param out
 	 *            outputstream.
@@ -54,8 +112,34 @@ public class SerialWorkbook implements Serializable {
 	 */
 	private void writeObject(final java.io.ObjectOutputStream out)
 			throws IOException {
+		if (releaseOnWrite && (releasedSnapshot == null) && (wb != null)
+				&& (getTemplate() != null)) {
+			// sheet configurations are in the snapshot of released form.
+			ObjectOutputStream.PutField fields = out.putFields();
+			fields.put("sheetConfigMap", null);
+			fields.put("templateKey", templateKey);
+			out.writeFields();
+			byte[] snapshot = createReleasedSnapshot();
+			out.writeByte(FORMAT_RELEASED);
+			getTemplate().write(out);
+			out.writeInt(snapshot.length);
+			out.write(snapshot);
+			return;
+		}
 		out.defaultWriteObject();
-		if (wb != null) {
+		if (releasedSnapshot != null) {
+			out.writeByte(FORMAT_RELEASED);
+			getTemplate().write(out);
+			out.writeInt(releasedSnapshot.length);
+			out.write(releasedSnapshot);
+		} else if (wb == null) {
+			out.writeByte(FORMAT_NONE);
+		} else if (getTemplate() != null) {
+			out.writeByte(FORMAT_SNAPSHOT);
+			getTemplate().write(out);
+			WorkbookSnapshot.write(wb, getTemplate().getBaseline(), out);
+		} else {
+			out.writeByte(FORMAT_PACKAGE);
 			wb.write(out);
 		}
 	}
@@ -72,7 +156,25 @@ public class SerialWorkbook implements Serializable {
 			throws IOException {
 		try {
 			in.defaultReadObject();
-			wb = WorkbookFactory.create(in);
+			byte format = in.readByte();
+			if (format == FORMAT_NONE) {
+				return;
+			}
+			if (format == FORMAT_PACKAGE) {
+				wb = WorkbookFactory.create(in);
+				recover();
+				return;
+			}
+			// register template if this server doesn't have it.
+			template = TemplateRegistry.read(templateKey, in);
+			if (format == FORMAT_RELEASED) {
+				// keep released. workbook rebuilt when accessed.
+				releasedSnapshot = new byte[in.readInt()];
+				in.readFully(releasedSnapshot);
+				return;
+			}
+			wb = template.createWorkbook();
+			WorkbookSnapshot.read(wb, in);
 			recover();
 		} catch (EncryptedDocumentException | InvalidFormatException
 				| ClassNotFoundException e) {
@@ -89,6 +191,9 @@ public class SerialWorkbook implements Serializable {
 	 * @return the wb
 	 */
 	public final Workbook getWb() {
+		if (releasedSnapshot != null) {
+			materialize();
+		}
 		return wb;
 	}
 
@@ -99,15 +204,185 @@ public class SerialWorkbook implements Serializable {
 	 *            the wb to set.
 	 */
 	public final void setWb(final Workbook pwb) {
+		if (pwb != this.wb) {
+			// journal only applies to the workbook it's recorded on.
+			this.changeJournal = null;
+		}
 		this.wb = pwb;
+		this.releasedSnapshot = null;
+	}
+
+	/**
+	 * Gets the change journal since last checkpoint.
+	 *
+	 * @return the change journal
+	 */
+	public final ChangeJournal getChangeJournal() {
+		if (changeJournal == null) {
+			changeJournal = new ChangeJournal();
+		}
+		return changeJournal;
+	}
+
+	/**
+	 * Checkpoint for delta replication. Return changes since last checkpoint
+	 * and start a new journal.
+	 *
+	 * @return the change journal since last checkpoint
+	 */
+	public final ChangeJournal checkpoint() {
+		ChangeJournal journal = getChangeJournal();
+		changeJournal = new ChangeJournal();
+		return journal;
 	}
 
 	/**
-	 * Gets the sheet config map.
+	 * Release the workbook. Only snapshot of the cells changed from the
+	 * template is kept, while the template is shared with other sessions.
+	 * Sheet configurations refer to cells of the workbook, so they are
+	 * serialized into the snapshot too. Both are rebuilt when accessed
+	 * again.
+	 *
+	 * @return true, if released. false if no workbook or template not
+	 *         registered.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public final boolean release() throws IOException {
+		if ((wb == null) || (getTemplate() == null)) {
+			return false;
+		}
+		this.releasedSnapshot = createReleasedSnapshot();
+		this.wb = null;
+		this.sheetConfigMap = null;
+		return true;
+	}
+
+	/**
+	 * Create snapshot of the sheet configurations and the cells changed
+	 * from the template.
+	 *
+	 * @return the snapshot bytes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private byte[] createReleasedSnapshot() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(sheetConfigMap);
+			WorkbookSnapshot.write(wb, getTemplate().getBaseline(), out);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Sets release on write. When enabled, the released form (see
+	 * {@link #release()}) is written when serialized, while the workbook in
+	 * memory is kept. Only available when template registered.
+	 *
+	 * @param preleaseOnWrite
+	 *            the release on write flag
+	 */
+	public final void setReleaseOnWrite(final boolean preleaseOnWrite) {
+		this.releaseOnWrite = preleaseOnWrite;
+	}
+
+	/**
+	 * Checks if workbook is released.
+	 *
+	 * @return true, if released
+	 */
+	public final boolean isReleased() {
+		return releasedSnapshot != null;
+	}
+
+	/**
+	 * Rebuild released workbook from template and snapshot. Only the sheet
+	 * configurations serialized in the snapshot are recovered.
+	 */
+	@SuppressWarnings("unchecked")
+	private void materialize() {
+		try (ObjectInputStream in = new ObjectInputStream(
+				new ByteArrayInputStream(releasedSnapshot))) {
+			Map<String, SheetConfiguration> configMap =
+					(Map<String, SheetConfiguration>) in.readObject();
+			Workbook newWb = getRequiredTemplate().createWorkbook();
+			WorkbookSnapshot.read(newWb, in);
+			this.wb = newWb;
+			this.sheetConfigMap = configMap;
+			this.releasedSnapshot = null;
+			recover();
+		} catch (EncryptedDocumentException | InvalidFormatException
+				| ClassNotFoundException | IOException e) {
+			LOG.log(Level.SEVERE,
+					" error in rebuild released workbook : "
+							+ e.getLocalizedMessage(),
+					e);
+		}
+	}
+
+	/**
+	 * Gets the template key.
+	 *
+	 * @return the key of template in template registry. null if not
+	 *         registered.
+	 */
+	public final String getTemplateKey() {
+		return templateKey;
+	}
+
+	/**
+	 * Sets the registered template which the workbook is loaded from.
+	 *
+	 * @param ptemplateKey
+	 *            the key in template registry
+	 * @param ptemplate
+	 *            the registered template
+	 */
+	public final void setTemplate(final String ptemplateKey,
+			final ParsedTemplate ptemplate) {
+		this.templateKey = ptemplateKey;
+		this.template = ptemplate;
+	}
+
+	/**
+	 * Gets the registered template. Looked up by key after deserialized.
+	 *
+	 * @return the template. null if not registered.
+	 */
+	private ParsedTemplate getTemplate() {
+		if ((template == null) && (templateKey != null)) {
+			template = TemplateRegistry.get(templateKey);
+		}
+		return template;
+	}
+
+	/**
+	 * Gets the registered template for rebuilding workbook.
+	 *
+	 * @return the template
+	 * @throws InvalidObjectException
+	 *             if template is not registered in this server.
+	 */
+	private ParsedTemplate getRequiredTemplate()
+			throws InvalidObjectException {
+		ParsedTemplate parsed = getTemplate();
+		if (parsed == null) {
+			throw new InvalidObjectException(
+					"template is not registered : " + templateKey);
+		}
+		return parsed;
+	}
+
+	/**
+	 * Gets the sheet config map. Rebuilt with workbook if released.
 	 *
 	 * @return the sheetConfigMap
 	 */
 	public final Map<String, SheetConfiguration> getSheetConfigMap() {
+		if (releasedSnapshot != null) {
+			materialize();
+		}
 		return sheetConfigMap;
 	}
 
@@ -126,9 +401,12 @@ public class SerialWorkbook implements Serializable {
 	 * recover the cell reference to the sheet.
 	 */
 	public void recover() {
-		Map<String, SheetConfiguration> map = this.getSheetConfigMap();
-		for (Entry<String, SheetConfiguration> entry : map.entrySet()) {
-			entry.getValue().recover(this.getWb());
+		if ((sheetConfigMap == null) || (wb == null)) {
+			return;
+		}
+		for (Entry<String, SheetConfiguration> entry : sheetConfigMap
+				.entrySet()) {
+			entry.getValue().recover(wb);
 		}
 	}
 
@@ -0,0 +1,805 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+package org.tiefaces.components.websheet.serializable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.ClientAnchor;
+import org.apache.poi.ss.usermodel.Comment;
+import org.apache.poi.ss.usermodel.CreationHelper;
+import org.apache.poi.ss.usermodel.Drawing;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+/**
+ * Compact snapshot of workbook content changed by web sheet. Only sheets,
+ * rows, cells (value, formula, style and comment), merged regions and hidden
+ * columns are saved. Other parts (styles, pictures, charts etc.) are not
+ * changed by web sheet, so they are restored from the template.
+ *
+ * When a baseline of the template is given, only rows and cells different
+ * from the baseline are saved, and the snapshot must be read into a workbook
+ * created from the same template. Without baseline all rows are saved.
+ *
+ * Compared with writing whole xlsx package, there's no xml and zip cost.
+ *
+ * @author Jason Jiang
+ *
+ */
+public final class WorkbookSnapshot {
+
+	/** logger. */
+	private static final Logger LOG = Logger
+			.getLogger(WorkbookSnapshot.class.getName());
+
+	/** max string length safe for writeUTF. */
+	private static final int MAX_UTF_LENGTH = 21845;
+
+	/**
+	 * hide constructor.
+	 */
+	private WorkbookSnapshot() {
+		// not called
+	}
+
+	/**
+	 * Create baseline of the workbook. The baseline is immutable and could be
+	 * shared by sessions of the same template.
+	 *
+	 * @param wb
+	 *            the workbook created from template
+	 * @return the baseline
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static Baseline createBaseline(final Workbook wb)
+			throws IOException {
+		Map<String, SheetBaseline> sheets = new HashMap<>();
+		for (int i = 0; i < wb.getNumberOfSheets(); i++) {
+			Sheet sheet = wb.getSheetAt(i);
+			sheets.put(sheet.getSheetName(), new SheetBaseline(sheet));
+		}
+		return new Baseline(sheets);
+	}
+
+	/**
+	 * Write snapshot of the workbook.
+	 *
+	 * @param wb
+	 *            the workbook
+	 * @param baseline
+	 *            baseline of the template. null to save all rows.
+	 * @param out
+	 *            the out
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static void write(final Workbook wb, final Baseline baseline,
+			final ObjectOutput out) throws IOException {
+		out.writeBoolean(baseline != null);
+		out.writeInt(wb.getNumberOfSheets());
+		for (int i = 0; i < wb.getNumberOfSheets(); i++) {
+			Sheet sheet = wb.getSheetAt(i);
+			out.writeUTF(sheet.getSheetName());
+			out.writeInt(getSheetHiddenState(wb, i));
+			SheetBaseline sheetBaseline = null;
+			if (baseline != null) {
+				sheetBaseline = baseline.sheets.get(sheet.getSheetName());
+			}
+			writeSheet(sheet, sheetBaseline, out);
+		}
+	}
+
+	/**
+	 * Read snapshot into workbook. The workbook should be created from the
+	 * template of the baseline used when written.
+	 *
+	 * @param wb
+	 *            the workbook
+	 * @param in
+	 *            the in
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static void read(final Workbook wb, final ObjectInput in)
+			throws IOException {
+		boolean diff = in.readBoolean();
+		int sheetCount = in.readInt();
+		Set<String> sheetNames = new HashSet<>();
+		for (int i = 0; i < sheetCount; i++) {
+			String sheetName = in.readUTF();
+			int hiddenState = in.readInt();
+			sheetNames.add(sheetName);
+			Sheet sheet = wb.getSheet(sheetName);
+			if (sheet == null) {
+				// e.g. template copy sheet created when configuration.
+				sheet = wb.createSheet(sheetName);
+			}
+			wb.setSheetHidden(wb.getSheetIndex(sheet), hiddenState);
+			readSheet(sheet, in);
+		}
+		if (diff) {
+			for (int i = wb.getNumberOfSheets() - 1; i >= 0; i--) {
+				if (!sheetNames.contains(wb.getSheetName(i))) {
+					wb.removeSheetAt(i);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the sheet hidden state.
+	 *
+	 * @param wb
+	 *            the wb
+	 * @param sheetIndex
+	 *            the sheet index
+	 * @return the sheet hidden state
+	 */
+	private static int getSheetHiddenState(final Workbook wb,
+			final int sheetIndex) {
+		if (wb.isSheetVeryHidden(sheetIndex)) {
+			return Workbook.SHEET_STATE_VERY_HIDDEN;
+		}
+		if (wb.isSheetHidden(sheetIndex)) {
+			return Workbook.SHEET_STATE_HIDDEN;
+		}
+		return Workbook.SHEET_STATE_VISIBLE;
+	}
+
+	/**
+	 * Write sheet. Only rows and cells different from baseline are written.
+	 *
+	 * @param sheet
+	 *            the sheet
+	 * @param baseline
+	 *            baseline of the sheet. null to write all rows.
+	 * @param out
+	 *            the out
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void writeSheet(final Sheet sheet,
+			final SheetBaseline baseline, final ObjectOutput out)
+			throws IOException {
+		out.writeBoolean(baseline == null);
+		ByteArrayOutputStream rowBytes = new ByteArrayOutputStream();
+		DataOutputStream rowOut = new DataOutputStream(rowBytes);
+		int rowCount = 0;
+		int maxColumn = 0;
+		Set<Integer> rowNums = new HashSet<>();
+		for (Row row : sheet) {
+			maxColumn = Math.max(maxColumn, row.getLastCellNum());
+			rowNums.add(row.getRowNum());
+			RowBaseline rowBaseline = null;
+			if (baseline != null) {
+				rowBaseline = baseline.rows.get(row.getRowNum());
+			}
+			if (writeRow(row, rowBaseline, rowOut)) {
+				rowCount++;
+			}
+		}
+		rowOut.flush();
+		out.writeInt(rowCount);
+		out.write(rowBytes.toByteArray());
+		List<Integer> removedRows = new ArrayList<>();
+		List<Integer> columns = new ArrayList<>();
+		boolean regionsChanged = true;
+		if (baseline != null) {
+			for (Integer rowNum : baseline.rows.keySet()) {
+				if (!rowNums.contains(rowNum)) {
+					removedRows.add(rowNum);
+				}
+			}
+			maxColumn = Math.max(maxColumn, baseline.maxColumn);
+			regionsChanged = !baseline.mergedRegions
+					.equals(getMergedRegions(sheet));
+		}
+		out.writeInt(removedRows.size());
+		for (Integer rowNum : removedRows) {
+			out.writeInt(rowNum);
+		}
+		for (int col = 0; col < maxColumn; col++) {
+			boolean hidden = sheet.isColumnHidden(col);
+			if ((baseline == null) ? hidden
+					: (hidden != baseline.hiddenColumns.contains(col))) {
+				columns.add(col);
+			}
+		}
+		out.writeInt(columns.size());
+		for (Integer col : columns) {
+			out.writeInt(col);
+			out.writeBoolean(sheet.isColumnHidden(col));
+		}
+		out.writeBoolean(regionsChanged);
+		if (regionsChanged) {
+			out.writeInt(sheet.getNumMergedRegions());
+			for (int i = 0; i < sheet.getNumMergedRegions(); i++) {
+				CellRangeAddress region = sheet.getMergedRegion(i);
+				out.writeInt(region.getFirstRow());
+				out.writeInt(region.getLastRow());
+				out.writeInt(region.getFirstColumn());
+				out.writeInt(region.getLastColumn());
+			}
+		}
+	}
+
+	/**
+	 * Write row if it's different from baseline. Only changed cells and
+	 * columns of removed cells are written.
+	 *
+	 * @param row
+	 *            the row
+	 * @param baseline
+	 *            baseline of the row. null to write all cells.
+	 * @param out
+	 *            the out
+	 * @return true, if written
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static boolean writeRow(final Row row,
+			final RowBaseline baseline, final DataOutput out)
+			throws IOException {
+		List<byte[]> changedCells = new ArrayList<>();
+		Set<Integer> columns = new HashSet<>();
+		for (Cell cell : row) {
+			columns.add(cell.getColumnIndex());
+			byte[] cellBytes = encodeCell(cell);
+			if ((baseline == null) || !Arrays.equals(cellBytes,
+					baseline.cells.get(cell.getColumnIndex()))) {
+				changedCells.add(cellBytes);
+			}
+		}
+		List<Integer> removedCells = new ArrayList<>();
+		if (baseline != null) {
+			for (Integer col : baseline.cells.keySet()) {
+				if (!columns.contains(col)) {
+					removedCells.add(col);
+				}
+			}
+			if (changedCells.isEmpty() && removedCells.isEmpty()
+					&& (baseline.height == row.getHeight())
+					&& (baseline.zeroHeight == row.getZeroHeight())) {
+				return false;
+			}
+		}
+		out.writeInt(row.getRowNum());
+		out.writeShort(row.getHeight());
+		out.writeBoolean(row.getZeroHeight());
+		out.writeInt(changedCells.size());
+		for (byte[] cellBytes : changedCells) {
+			out.write(cellBytes);
+		}
+		out.writeInt(removedCells.size());
+		for (Integer col : removedCells) {
+			out.writeInt(col);
+		}
+		return true;
+	}
+
+	/**
+	 * Encode cell. Also used to compare cell with baseline.
+	 *
+	 * @param cell
+	 *            the cell
+	 * @return the bytes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static byte[] encodeCell(final Cell cell) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		writeCell(cell, out);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Write cell.
+	 *
+	 * @param cell
+	 *            the cell
+	 * @param out
+	 *            the out
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void writeCell(final Cell cell, final DataOutput out)
+			throws IOException {
+		out.writeInt(cell.getColumnIndex());
+		out.writeShort(cell.getCellStyle().getIndex());
+		CellType cellType = cell.getCellTypeEnum();
+		out.writeByte(cellType.ordinal());
+		if (cellType == CellType.FORMULA) {
+			writeString(cell.getCellFormula(), out);
+			// keep cached result, so no need recalc after restore.
+			cellType = cell.getCachedFormulaResultTypeEnum();
+			out.writeByte(cellType.ordinal());
+		}
+		writeCellValue(cell, cellType, out);
+		Comment comment = cell.getCellComment();
+		out.writeBoolean(comment != null);
+		if (comment != null) {
+			writeComment(comment, out);
+		}
+	}
+
+	/**
+	 * Write comment with its anchor and visibility.
+	 *
+	 * @param comment
+	 *            the comment
+	 * @param out
+	 *            the out
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void writeComment(final Comment comment,
+			final DataOutput out) throws IOException {
+		String text = null;
+		if (comment.getString() != null) {
+			text = comment.getString().getString();
+		}
+		writeString(text, out);
+		writeString(comment.getAuthor(), out);
+		out.writeBoolean(comment.isVisible());
+		ClientAnchor anchor = getClientAnchor(comment);
+		out.writeBoolean(anchor != null);
+		if (anchor != null) {
+			out.writeInt(anchor.getCol1());
+			out.writeInt(anchor.getRow1());
+			out.writeInt(anchor.getCol2());
+			out.writeInt(anchor.getRow2());
+			out.writeInt(anchor.getDx1());
+			out.writeInt(anchor.getDy1());
+			out.writeInt(anchor.getDx2());
+			out.writeInt(anchor.getDy2());
+		}
+	}
+
+	/**
+	 * Gets the client anchor of comment.
+	 *
+	 * @param comment
+	 *            the comment
+	 * @return the client anchor. null if comment has no shape.
+	 */
+	private static ClientAnchor getClientAnchor(final Comment comment) {
+		try {
+			return comment.getClientAnchor();
+		} catch (NullPointerException e) {
+			// xssf comment without vml shape doesn't check it.
+			return null;
+		}
+	}
+
+	/**
+	 * Write cell value.
+	 *
+	 * @param cell
+	 *            the cell
+	 * @param cellType
+	 *            the cell type
+	 * @param out
+	 *            the out
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void writeCellValue(final Cell cell,
+			final CellType cellType, final DataOutput out)
+			throws IOException {
+		switch (cellType) {
+		case STRING:
+			writeString(cell.getStringCellValue(), out);
+			break;
+		case NUMERIC:
+			out.writeDouble(cell.getNumericCellValue());
+			break;
+		case BOOLEAN:
+			out.writeBoolean(cell.getBooleanCellValue());
+			break;
+		case ERROR:
+			out.writeByte(cell.getErrorCellValue());
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Read sheet. When the sheet is saved in full, all existing rows, merged
+	 * regions and comments are replaced. Otherwise changes are applied over
+	 * the sheet.
+	 *
+	 * @param sheet
+	 *            the sheet
+	 * @param in
+	 *            the in
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void readSheet(final Sheet sheet, final ObjectInput in)
+			throws IOException {
+		if (in.readBoolean()) {
+			clearSheet(sheet);
+		}
+		Workbook wb = sheet.getWorkbook();
+		int rowCount = in.readInt();
+		for (int i = 0; i < rowCount; i++) {
+			int rowNum = in.readInt();
+			Row row = sheet.getRow(rowNum);
+			if (row == null) {
+				row = sheet.createRow(rowNum);
+			}
+			row.setHeight(in.readShort());
+			row.setZeroHeight(in.readBoolean());
+			int cellCount = in.readInt();
+			for (int j = 0; j < cellCount; j++) {
+				readCell(wb, row, in);
+			}
+			int removedCount = in.readInt();
+			for (int j = 0; j < removedCount; j++) {
+				removeCell(row, row.getCell(in.readInt()));
+			}
+		}
+		int removedRowCount = in.readInt();
+		for (int i = 0; i < removedRowCount; i++) {
+			Row row = sheet.getRow(in.readInt());
+			if (row != null) {
+				removeRow(sheet, row);
+			}
+		}
+		int columnCount = in.readInt();
+		for (int i = 0; i < columnCount; i++) {
+			sheet.setColumnHidden(in.readInt(), in.readBoolean());
+		}
+		if (in.readBoolean()) {
+			for (int i = sheet.getNumMergedRegions() - 1; i >= 0; i--) {
+				sheet.removeMergedRegion(i);
+			}
+			int regionCount = in.readInt();
+			for (int i = 0; i < regionCount; i++) {
+				sheet.addMergedRegionUnsafe(new CellRangeAddress(
+						in.readInt(), in.readInt(), in.readInt(),
+						in.readInt()));
+			}
+		}
+	}
+
+	/**
+	 * Clear rows, merged regions and comments of the sheet.
+	 *
+	 * @param sheet
+	 *            the sheet
+	 */
+	private static void clearSheet(final Sheet sheet) {
+		List<Row> rows = new ArrayList<>();
+		for (Row row : sheet) {
+			rows.add(row);
+		}
+		for (Row row : rows) {
+			removeRow(sheet, row);
+		}
+		for (int i = sheet.getNumMergedRegions() - 1; i >= 0; i--) {
+			sheet.removeMergedRegion(i);
+		}
+	}
+
+	/**
+	 * Removes the row with comments of its cells.
+	 *
+	 * @param sheet
+	 *            the sheet
+	 * @param row
+	 *            the row
+	 */
+	private static void removeRow(final Sheet sheet, final Row row) {
+		for (Cell cell : row) {
+			removeComment(cell);
+		}
+		sheet.removeRow(row);
+	}
+
+	/**
+	 * Removes the cell with its comment.
+	 *
+	 * @param row
+	 *            the row
+	 * @param cell
+	 *            the cell. nothing done if null.
+	 */
+	private static void removeCell(final Row row, final Cell cell) {
+		if (cell == null) {
+			return;
+		}
+		removeComment(cell);
+		row.removeCell(cell);
+	}
+
+	/**
+	 * Removes the comment of cell.
+	 *
+	 * @param cell
+	 *            the cell
+	 */
+	private static void removeComment(final Cell cell) {
+		if (cell.getCellComment() == null) {
+			return;
+		}
+		try {
+			cell.removeCellComment();
+		} catch (NullPointerException e) {
+			// xssf removes the comment before its shape. template comments
+			// left by configuration may have no shape.
+			LOG.log(Level.FINE, "comment without shape removed at "
+					+ cell.getAddress(), e);
+		}
+	}
+
+	/**
+	 * Read cell. Existing cell in same column is replaced.
+	 *
+	 * @param wb
+	 *            the wb
+	 * @param row
+	 *            the row
+	 * @param in
+	 *            the in
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void readCell(final Workbook wb, final Row row,
+			final ObjectInput in) throws IOException {
+		int col = in.readInt();
+		removeCell(row, row.getCell(col));
+		Cell cell = row.createCell(col);
+		short styleIndex = in.readShort();
+		if (styleIndex < wb.getNumCellStyles()) {
+			cell.setCellStyle(wb.getCellStyleAt(styleIndex));
+		}
+		CellType cellType = CellType.values()[in.readByte()];
+		if (cellType == CellType.FORMULA) {
+			cell.setCellFormula(readString(in));
+			cellType = CellType.values()[in.readByte()];
+		}
+		switch (cellType) {
+		case STRING:
+			cell.setCellValue(readString(in));
+			break;
+		case NUMERIC:
+			cell.setCellValue(in.readDouble());
+			break;
+		case BOOLEAN:
+			cell.setCellValue(in.readBoolean());
+			break;
+		case ERROR:
+			cell.setCellErrorValue(in.readByte());
+			break;
+		default:
+			break;
+		}
+		if (in.readBoolean()) {
+			readComment(wb, cell, in);
+		}
+	}
+
+	/**
+	 * Read comment and set it to the cell.
+	 *
+	 * @param wb
+	 *            the wb
+	 * @param cell
+	 *            the cell
+	 * @param in
+	 *            the in
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void readComment(final Workbook wb, final Cell cell,
+			final ObjectInput in) throws IOException {
+		String text = readString(in);
+		String author = readString(in);
+		boolean visible = in.readBoolean();
+		CreationHelper factory = wb.getCreationHelper();
+		ClientAnchor anchor = factory.createClientAnchor();
+		if (in.readBoolean()) {
+			anchor.setCol1(in.readInt());
+			anchor.setRow1(in.readInt());
+			anchor.setCol2(in.readInt());
+			anchor.setRow2(in.readInt());
+			anchor.setDx1(in.readInt());
+			anchor.setDy1(in.readInt());
+			anchor.setDx2(in.readInt());
+			anchor.setDy2(in.readInt());
+		} else {
+			anchor.setCol1(cell.getColumnIndex());
+			anchor.setCol2(cell.getColumnIndex() + 1);
+			anchor.setRow1(cell.getRowIndex());
+			anchor.setRow2(cell.getRowIndex() + 3);
+		}
+		Drawing drawing = cell.getSheet().createDrawingPatriarch();
+		Comment comment = drawing.createCellComment(anchor);
+		comment.setString(factory.createRichTextString(text));
+		comment.setAuthor(author);
+		comment.setVisible(visible);
+		cell.setCellComment(comment);
+	}
+
+	/**
+	 * Gets the merged regions of sheet.
+	 *
+	 * @param sheet
+	 *            the sheet
+	 * @return the merged regions
+	 */
+	private static Set<String> getMergedRegions(final Sheet sheet) {
+		Set<String> regions = new HashSet<>();
+		for (int i = 0; i < sheet.getNumMergedRegions(); i++) {
+			regions.add(sheet.getMergedRegion(i).formatAsString());
+		}
+		return regions;
+	}
+
+	/**
+	 * Write string. Long string is written as chars since writeUTF has 64k
+	 * bytes limit.
+	 *
+	 * @param str
+	 *            the str
+	 * @param out
+	 *            the out
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void writeString(final String str, final DataOutput out)
+			throws IOException {
+		String value = str;
+		if (value == null) {
+			value = "";
+		}
+		if (value.length() <= MAX_UTF_LENGTH) {
+			out.writeBoolean(true);
+			out.writeUTF(value);
+		} else {
+			out.writeBoolean(false);
+			out.writeInt(value.length());
+			out.writeChars(value);
+		}
+	}
+
+	/**
+	 * Read string.
+	 *
+	 * @param in
+	 *            the in
+	 * @return the string
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static String readString(final ObjectInput in)
+			throws IOException {
+		if (in.readBoolean()) {
+			return in.readUTF();
+		}
+		int length = in.readInt();
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append(in.readChar());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Content of the workbook created from template. Snapshot only saves
+	 * the difference from it.
+	 */
+	public static final class Baseline {
+
+		/** sheets. key is sheet name. */
+		private final Map<String, SheetBaseline> sheets;
+
+		/**
+		 * Instantiates a new baseline.
+		 *
+		 * @param psheets
+		 *            the sheets
+		 */
+		private Baseline(final Map<String, SheetBaseline> psheets) {
+			this.sheets = psheets;
+		}
+	}
+
+	/**
+	 * Content of one sheet in baseline.
+	 */
+	private static final class SheetBaseline {
+
+		/** rows. key is row number. */
+		private final Map<Integer, RowBaseline> rows = new HashMap<>();
+
+		/** hidden columns. */
+		private final Set<Integer> hiddenColumns = new HashSet<>();
+
+		/** max column of rows. */
+		private final int maxColumn;
+
+		/** merged regions. */
+		private final Set<String> mergedRegions;
+
+		/**
+		 * Instantiates a new sheet baseline.
+		 *
+		 * @param sheet
+		 *            the sheet
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		SheetBaseline(final Sheet sheet) throws IOException {
+			int max = 0;
+			for (Row row : sheet) {
+				max = Math.max(max, row.getLastCellNum());
+				rows.put(row.getRowNum(), new RowBaseline(row));
+			}
+			this.maxColumn = max;
+			for (int col = 0; col < max; col++) {
+				if (sheet.isColumnHidden(col)) {
+					hiddenColumns.add(col);
+				}
+			}
+			this.mergedRegions = getMergedRegions(sheet);
+		}
+	}
+
+	/**
+	 * Content of one row in baseline.
+	 */
+	private static final class RowBaseline {
+
+		/** height. */
+		private final short height;
+
+		/** zero height. */
+		private final boolean zeroHeight;
+
+		/** encoded cells. key is column index. */
+		private final Map<Integer, byte[]> cells = new HashMap<>();
+
+		/**
+		 * Instantiates a new row baseline.
+		 *
+		 * @param row
+		 *            the row
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		RowBaseline(final Row row) throws IOException {
+			this.height = row.getHeight();
+			this.zeroHeight = row.getZeroHeight();
+			for (Cell cell : row) {
+				cells.put(cell.getColumnIndex(), encodeCell(cell));
+			}
+		}
+	}
+
+}
@@ -5,16 +5,24 @@
 
 package org.tiefaces.components.websheet.service;
 
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.primefaces.context.RequestContext;
 import org.tiefaces.common.TieConstants;
 import org.tiefaces.components.websheet.TieWebSheetBean;
+import org.tiefaces.components.websheet.configuration.SheetConfiguration;
 import org.tiefaces.components.websheet.dataobjects.CollectionObject;
 import org.tiefaces.components.websheet.dataobjects.FacesCell;
+import org.tiefaces.components.websheet.dataobjects.FormulaDependencyGraph;
+import org.tiefaces.components.websheet.dataobjects.JournalEntry;
 import org.tiefaces.components.websheet.utility.CellUtility;
 import org.tiefaces.components.websheet.utility.CommandUtility;
 import org.tiefaces.components.websheet.utility.ConfigurationUtility;
@@ -73,23 +81,96 @@ public class CellHelper {
 				String fullName = ConfigurationUtility
 						.getFullNameFromRow(poiCell.getRow());
 				if (fullName != null) {
-					restoreDataContext(fullName);
-					SaveAttrsUtility.saveDataToObjectInContext(
-							parent.getSerialDataContext().getDataContext(),
-							saveAttr, strValue, parent.getExpEngine());
-					parent.getHelper().getWebSheetLoader().setUnsavedStatus(
-							RequestContext.getCurrentInstance(), true);
+					boolean recorded = parent.beginChange(new JournalEntry(
+							JournalEntry.Operation.SAVE_DATA,
+							poiCell.getSheet().getSheetName(),
+							poiCell.getRowIndex(), poiCell.getColumnIndex(),
+							strValue));
+					try {
+						restoreDataContext(poiCell.getSheet(), fullName);
+						SaveAttrsUtility.saveDataToObjectInContext(
+								parent.getSerialDataContext()
+										.getDataContext(),
+								saveAttr, strValue, parent.getExpEngine());
+						parent.getHelper().getWebSheetLoader()
+								.setUnsavedStatus(
+										RequestContext.getCurrentInstance(),
+										true);
+					} finally {
+						if (recorded) {
+							parent.endChange();
+						}
+					}
 				}
 			}
 		}
 	}
 
 	/**
-	 * recalc whole workbook.
+	 * Save data in context with cell address. Used when replay change
+	 * journal.
+	 *
+	 * @param sheetName
+	 *            the sheet name
+	 * @param rowIndex
+	 *            the row index
+	 * @param colIndex
+	 *            the column index
+	 * @param strValue
+	 *            the str value
+	 */
+	public final void saveDataInContext(final String sheetName,
+			final int rowIndex, final int colIndex, final String strValue) {
+		Sheet sheet = parent.getWb().getSheet(sheetName);
+		if ((sheet == null) || (sheet.getRow(rowIndex) == null)) {
+			return;
+		}
+		Cell poiCell = sheet.getRow(rowIndex).getCell(colIndex);
+		if (poiCell != null) {
+			saveDataInContext(poiCell, strValue);
+		}
+	}
+
+	/**
+	 * Update value of the cell, save it into data context and recalc cells
+	 * depend on it. Recorded in change journal as one cell value change.
+	 *
+	 * @param poiCell
+	 *            the poi cell
+	 * @param newValue
+	 *            the new value
+	 * @param saveData
+	 *            true if the cell may have save attribute.
+	 */
+	public final void updateCellValue(final Cell poiCell,
+			final String newValue, final boolean saveData) {
+		boolean recorded = parent.beginChange(new JournalEntry(
+				JournalEntry.Operation.CELL_VALUE,
+				poiCell.getSheet().getSheetName(), poiCell.getRowIndex(),
+				poiCell.getColumnIndex(), newValue));
+		try {
+			CellUtility.setCellValue(poiCell, newValue);
+			if (saveData) {
+				saveDataInContext(poiCell, newValue);
+			}
+			// patch to avoid not updated downloaded file. rebuild in place
+			// so formula evaluator keep the same cell.
+			CellUtility.refreshCell(poiCell);
+			reCalc(poiCell);
+		} finally {
+			if (recorded) {
+				parent.endChange();
+			}
+		}
+	}
+
+	/**
+	 * recalc whole workbook. All charts are marked as changed.
 	 */
 	public final void reCalc() {
 
 		parent.getFormulaEvaluator().clearAllCachedResultValues();
+		parent.getCachedCells().markAllChanged();
 		try {
 			parent.getFormulaEvaluator().evaluateAll();
 		} catch (Exception ex) {
@@ -98,9 +179,102 @@ public class CellHelper {
 					" recalc formula error : " + ex.getLocalizedMessage(),
 					ex);
 		}
+		parent.getChartHelper().markAllChartsChanged();
 
 	}
 
+	/**
+	 * recalc only formula cells depend on the changed cell. Fall back to
+	 * whole workbook recalc if dependents cannot be resolved. Dependents which
+	 * value changed are recorded into change feed of cached cells, and charts
+	 * refer to them are marked as changed.
+	 *
+	 * @param changedCell
+	 *            the changed cell.
+	 */
+	public final void reCalc(final Cell changedCell) {
+		FormulaDependencyGraph graph = parent.getFormulaDependencyGraph();
+		if ((changedCell == null) || (graph == null)) {
+			reCalc();
+			return;
+		}
+		FormulaEvaluator evaluator = parent.getFormulaEvaluator();
+		try {
+			evaluator.notifyUpdateCell(changedCell);
+			List<Cell> dependentCells = graph
+					.findDependentCells(changedCell);
+			for (Cell cell : dependentCells) {
+				evaluator.evaluateFormulaCellEnum(cell);
+				parent.getCachedCells().markChanged(cell);
+			}
+			// charts refer to changed values are rendered again.
+			dependentCells.add(changedCell);
+			parent.getChartHelper().markChartsChanged(dependentCells);
+		} catch (Exception ex) {
+			LOG.log(Level.SEVERE, " recalc dependent formula error : "
+					+ ex.getLocalizedMessage(), ex);
+			reCalc();
+		}
+	}
+
+	/**
+	 * recalc formula cells in the sheet and sheets refer to it. Used after
+	 * structure change of the sheet (e.g. add or delete rows).
+	 *
+	 * @param sheet
+	 *            the sheet.
+	 */
+	public final void reCalcSheet(final Sheet sheet) {
+		if (sheet == null) {
+			reCalc();
+			return;
+		}
+		reCalcSheets(Collections.singletonList(sheet));
+	}
+
+	/**
+	 * recalc formula cells in the sheets and sheets refer to them. Each
+	 * formula cell is evaluated once even if it depends on several of the
+	 * sheets. Used after sheets expanded in lazy tab load mode, so other
+	 * sheets are not evaluated. Charts refer to the sheets are marked as
+	 * changed.
+	 *
+	 * @param sheets
+	 *            the sheets.
+	 */
+	public final void reCalcSheets(final List<Sheet> sheets) {
+		FormulaDependencyGraph graph = parent.getFormulaDependencyGraph();
+		if (graph == null) {
+			reCalc();
+			return;
+		}
+		FormulaEvaluator evaluator = parent.getFormulaEvaluator();
+		evaluator.clearAllCachedResultValues();
+		parent.getCachedCells().markAllChanged();
+		try {
+			Set<Integer> dependentSheets = new LinkedHashSet<>();
+			for (Sheet sheet : sheets) {
+				// formulas of the sheet and its dependents may be rewritten.
+				graph.invalidateSheet(sheet);
+			}
+			for (Sheet sheet : sheets) {
+				dependentSheets.addAll(graph.findDependentSheets(
+						parent.getWb().getSheetIndex(sheet)));
+			}
+			for (Integer sheetIndex : dependentSheets) {
+				for (Cell cell : graph.getFormulaCells(sheetIndex)) {
+					evaluator.evaluateFormulaCellEnum(cell);
+				}
+			}
+			// charts refer to the sheets are rendered again.
+			parent.getChartHelper().markSheetChartsChanged(dependentSheets);
+		} catch (Exception ex) {
+			LOG.log(Level.SEVERE, " recalc sheet formula error : "
+					+ ex.getLocalizedMessage(), ex);
+			reCalc();
+		}
+	}
+
 	/**
 	 * evaluate boolean express.
 	 *
@@ -171,15 +345,55 @@ public class CellHelper {
 	}
 
 	/**
-	 * Restore data context.
+	 * Restore data context for row of current sheet.
 	 *
 	 * @param fullName
 	 *            the full name
 	 */
 	public final void restoreDataContext(final String fullName) {
+		restoreDataContext(parent.getCurrentSheetConfig(), fullName);
+	}
+
+	/**
+	 * Restore data context for row of the sheet. The sheet may be not the
+	 * current one, e.g. replay change journal.
+	 *
+	 * @param sheet
+	 *            the sheet of the row
+	 * @param fullName
+	 *            the full name
+	 */
+	public final void restoreDataContext(final Sheet sheet,
+			final String fullName) {
+		restoreDataContext(findSheetConfig(sheet), fullName);
+	}
+
+	/**
+	 * Restore data context with commands of the sheet configuration.
+	 *
+	 * @param sheetConfig
+	 *            the sheet config
+	 * @param fullName
+	 *            the full name
+	 */
+	private void restoreDataContext(final SheetConfiguration sheetConfig,
+			final String fullName) {
 
 		String[] parts = fullName.split(":");
 
+		if (sheetConfig != parent.getCurrentSheetConfig()) {
+			if ((parts.length <= 1) || (sheetConfig == null)) {
+				return;
+			}
+			for (String part : parts) {
+				startRestoreDataContext(sheetConfig, part);
+			}
+			// data context is changed for other sheet. current sheet will
+			// restore all parts next time.
+			parent.getCurrent().setCurrentDataContextName(null);
+			return;
+		}
+
 		if (!isNeedRestore(fullName, parts)) {
 			return;
 		}
@@ -206,7 +420,7 @@ public class CellHelper {
 			}
 			if (!skip) {
 				stopSkip = true;
-				startRestoreDataContext(part);
+				startRestoreDataContext(sheetConfig, part);
 			}
 		}
 		if (stopSkip) {
@@ -226,9 +440,54 @@ public class CellHelper {
 	 * @return the collection object
 	 */
 	public final CollectionObject getLastCollect(final String fullName) {
+		return getLastCollect(parent.getCurrentSheetConfig(), fullName);
+	}
+
+	/**
+	 * Get last collect object from full name of row in the sheet.
+	 *
+	 * @param sheet
+	 *            the sheet of the row
+	 * @param fullName
+	 *            the full name
+	 * @return the collection object
+	 */
+	public final CollectionObject getLastCollect(final Sheet sheet,
+			final String fullName) {
+		return getLastCollect(findSheetConfig(sheet), fullName);
+	}
+
+	/**
+	 * Get last collect object with commands of the sheet configuration.
+	 *
+	 * @param sheetConfig
+	 *            the sheet config
+	 * @param fullName
+	 *            the full name
+	 * @return the collection object
+	 */
+	private CollectionObject getLastCollect(
+			final SheetConfiguration sheetConfig, final String fullName) {
 		String[] parts = fullName.split(":");
 		String part = parts[parts.length - 1];
-		return startRestoreDataContext(part);
+		return startRestoreDataContext(sheetConfig, part);
+	}
+
+	/**
+	 * Find configuration of the sheet. Current one is preferred if several
+	 * tabs show the sheet.
+	 *
+	 * @param sheet
+	 *            the sheet
+	 * @return the sheet configuration. null if not found.
+	 */
+	private SheetConfiguration findSheetConfig(final Sheet sheet) {
+		String tabName = parent.getHelper().getWebSheetLoader()
+				.findTabName(sheet.getSheetName());
+		if (tabName == null) {
+			return null;
+		}
+		return parent.getSheetConfigMap().get(tabName);
 	}
 
 	/**
@@ -261,20 +520,23 @@ public class CellHelper {
 	/**
 	 * Start restore data context.
 	 *
+	 * @param sheetConfig
+	 *            the sheet config which the commands belong to
 	 * @param part
 	 *            the part
 	 * @return the collection object
 	 */
-	private CollectionObject startRestoreDataContext(final String part) {
-		if (part.startsWith(TieConstants.EACH_COMMAND_FULL_NAME_PREFIX)) {
+	private CollectionObject startRestoreDataContext(
+			final SheetConfiguration sheetConfig, final String part) {
+		if ((sheetConfig != null) && part
+				.startsWith(TieConstants.EACH_COMMAND_FULL_NAME_PREFIX)) {
 			String[] varparts = part.split("\\.");
 			CollectionObject collect = new CollectionObject();
 
 			collect.setEachCommand(
 					CommandUtility
 							.getEachCommandFromPartsName(
-									parent.getCurrentSheetConfig()
-											.getCommandIndexMap(),
+									sheetConfig.getCommandIndexMap(),
 									varparts));
 			collect.setLastCollection(ConfigurationUtility
 					.transformToCollectionObject(parent.getExpEngine(),
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+package org.tiefaces.components.websheet.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.tiefaces.common.TieConstants;
+
+/**
+ * Bounded cache of images (pictures and rendered charts) shared by all
+ * sessions. Keyed by content hash of image bytes, so same image has same key
+ * and url, and the browser can cache it.
+ *
+ * The cache is limited by total bytes. Least recently used images are evicted
+ * first, and put again by {@link SessionImages} when requested by a session
+ * which rendered them.
+ *
+ * @author Jason Jiang
+ *
+ */
+public final class ImageCache {
+
+	/** images. key is content hash. access order for lru. */
+	private static final Map<String, CachedImage> IMAGES =
+			new LinkedHashMap<>(16, 0.75f, true);
+
+	/** total bytes of cached images. */
+	private static long totalBytes = 0;
+
+	/**
+	 * hide constructor.
+	 */
+	private ImageCache() {
+		// not called
+	}
+
+	/**
+	 * Put image into cache.
+	 *
+	 * @param data
+	 *            the image bytes
+	 * @param contentType
+	 *            the content type
+	 * @return the key of image
+	 */
+	public static String put(final byte[] data, final String contentType) {
+		String key = digest(data);
+		synchronized (IMAGES) {
+			if (IMAGES.get(key) == null) {
+				IMAGES.put(key, new CachedImage(data, contentType));
+				totalBytes += data.length;
+				evict(key);
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Content hash of image bytes in hex.
+	 *
+	 * @param data
+	 *            the image bytes
+	 * @return the hash
+	 */
+	private static String digest(final byte[] data) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(data);
+			StringBuilder sb = new StringBuilder(hash.length * 2);
+			for (byte b : hash) {
+				sb.append(Character.forDigit((b >> 4) & 0xF, 16))
+						.append(Character.forDigit(b & 0xF, 16));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException ex) {
+			// every jvm supports sha-256.
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Gets the image.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the cached image. null if not in cache.
+	 */
+	public static CachedImage get(final String key) {
+		synchronized (IMAGES) {
+			return IMAGES.get(key);
+		}
+	}
+
+	/**
+	 * Checks if the image is in cache.
+	 *
+	 * @param key
+	 *            the key
+	 * @return true, if cached
+	 */
+	public static boolean contains(final String key) {
+		synchronized (IMAGES) {
+			return IMAGES.containsKey(key);
+		}
+	}
+
+	/**
+	 * Clear the cache.
+	 */
+	public static void clear() {
+		synchronized (IMAGES) {
+			IMAGES.clear();
+			totalBytes = 0;
+		}
+	}
+
+	/**
+	 * Evict least recently used images until total bytes is in limit. The
+	 * image just put is always kept.
+	 *
+	 * @param keepKey
+	 *            the key of image just put
+	 */
+	private static void evict(final String keepKey) {
+		Iterator<Map.Entry<String, CachedImage>> it = IMAGES.entrySet()
+				.iterator();
+		while ((totalBytes > TieConstants.DEFAULT_MAX_CACHED_IMAGE_BYTES)
+				&& it.hasNext()) {
+			Map.Entry<String, CachedImage> entry = it.next();
+			if (!entry.getKey().equals(keepKey)) {
+				totalBytes -= entry.getValue().getData().length;
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Cached image.
+	 */
+	public static final class CachedImage {
+
+		/** The data. */
+		private final byte[] data;
+
+		/** The content type. */
+		private final String contentType;
+
+		/**
+		 * Instantiates a new cached image.
+		 *
+		 * @param pdata
+		 *            the data
+		 * @param pcontentType
+		 *            the content type
+		 */
+		CachedImage(final byte[] pdata, final String pcontentType) {
+			this.data = pdata;
+			this.contentType = pcontentType;
+		}
+
+		/**
+		 * Gets the data.
+		 *
+		 * @return the data
+		 */
+		public byte[] getData() {
+			return data;
+		}
+
+		/**
+		 * Gets the content type.
+		 *
+		 * @return the content type
+		 */
+		public String getContentType() {
+			return contentType;
+		}
+	}
+
+}
@@ -5,7 +5,6 @@
 
 package org.tiefaces.components.websheet.service;
 
-import java.awt.image.BufferedImage;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -87,9 +86,8 @@ public class PicturesHelper {
 			String chartId = parent.getCharsData().getChartPositionMap()
 					.get(fId);
 			if (chartId != null) {
-				BufferedImage img = parent.getCharsData().getChartsMap()
-						.get(chartId);
-				if (img != null) {
+				if (parent.getCharsData().getChartsMap()
+						.get(chartId) != null) {
 					fcell.setContainChart(true);
 					fcell.setChartId(chartId);
 					fcell.setChartStyle(PicturesUtility.generateChartStyle(
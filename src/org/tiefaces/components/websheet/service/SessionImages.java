@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+package org.tiefaces.components.websheet.service;
+
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.http.HttpSession;
+
+import org.apache.poi.ss.usermodel.Picture;
+import org.apache.poi.ss.usermodel.PictureData;
+import org.tiefaces.components.websheet.TieWebSheetBean;
+import org.tiefaces.components.websheet.chart.ChartHelper;
+
+/**
+ * Images rendered for one session. Key in image cache mapped to the picture or
+ * chart of the web sheet it comes from. Image servlet only serves images
+ * registered in the session of the request, and loads them again from the
+ * web sheet when evicted from the shared image cache.
+ *
+ * Sources are not serialized with the session. They are registered again
+ * when the page is rendered.
+ *
+ * @author Jason Jiang
+ *
+ */
+public final class SessionImages implements Serializable {
+
+	/** serial instance. */
+	private static final long serialVersionUID = 1L;
+
+	/** logger. */
+	private static final Logger LOG = Logger
+			.getLogger(SessionImages.class.getName());
+
+	/** attribute name in session. */
+	public static final String SESSION_KEY = SessionImages.class.getName();
+
+	/** source of each image. key is the key in image cache. */
+	private transient Map<String, ImageSource> sources;
+
+	/**
+	 * Gets the session images from session map. Created if not exist.
+	 *
+	 * @param sessionMap
+	 *            the session map
+	 * @return the session images
+	 */
+	public static SessionImages get(final Map<String, Object> sessionMap) {
+		SessionImages images = (SessionImages) sessionMap.get(SESSION_KEY);
+		if (images == null) {
+			images = new SessionImages();
+			sessionMap.put(SESSION_KEY, images);
+		}
+		return images;
+	}
+
+	/**
+	 * Gets the session images of the http session.
+	 *
+	 * @param session
+	 *            the session. may be null.
+	 * @return the session images. null if no session or no image rendered in
+	 *         the session.
+	 */
+	public static SessionImages get(final HttpSession session) {
+		if (session == null) {
+			return null;
+		}
+		return (SessionImages) session.getAttribute(SESSION_KEY);
+	}
+
+	/**
+	 * Gets the image rendered in the session of the session map.
+	 *
+	 * @param sessionMap
+	 *            the session map
+	 * @param imageKey
+	 *            the key in image cache
+	 * @return the image. null if not rendered in the session or not
+	 *         available.
+	 */
+	public static ImageCache.CachedImage getImage(
+			final Map<String, Object> sessionMap, final String imageKey) {
+		SessionImages images = (SessionImages) sessionMap.get(SESSION_KEY);
+		if ((images == null) || (imageKey == null)) {
+			return null;
+		}
+		return images.getImage(imageKey);
+	}
+
+	/**
+	 * Gets the sources.
+	 *
+	 * @return the sources
+	 */
+	private Map<String, ImageSource> getSources() {
+		if (sources == null) {
+			synchronized (this) {
+				if (sources == null) {
+					sources = new ConcurrentHashMap<>();
+				}
+			}
+		}
+		return sources;
+	}
+
+	/**
+	 * Register image rendered in the session.
+	 *
+	 * @param imageKey
+	 *            the key in image cache
+	 * @param bean
+	 *            the web sheet bean
+	 * @param sourceId
+	 *            the picture or chart id
+	 * @param chart
+	 *            true if it's a chart
+	 */
+	public void register(final String imageKey, final TieWebSheetBean bean,
+			final String sourceId, final boolean chart) {
+		getSources().put(imageKey, new ImageSource(bean, sourceId, chart));
+	}
+
+	/**
+	 * Checks if the image is rendered in the session.
+	 *
+	 * @param imageKey
+	 *            the key in image cache
+	 * @return true, if registered
+	 */
+	public boolean contains(final String imageKey) {
+		return getSources().containsKey(imageKey);
+	}
+
+	/**
+	 * Gets the image registered in the session. Loaded again from its source
+	 * if evicted from image cache.
+	 *
+	 * @param imageKey
+	 *            the key in image cache
+	 * @return the image. null if not registered, its web sheet is gone or its
+	 *         content changed.
+	 */
+	public ImageCache.CachedImage getImage(final String imageKey) {
+		ImageSource source = getSources().get(imageKey);
+		if (source == null) {
+			return null;
+		}
+		ImageCache.CachedImage image = ImageCache.get(imageKey);
+		if (image != null) {
+			return image;
+		}
+		ImageCache.CachedImage loaded = source.load();
+		if (loaded == null) {
+			getSources().remove(imageKey);
+			return null;
+		}
+		if (!imageKey.equals(ImageCache.put(loaded.getData(),
+				loaded.getContentType()))) {
+			// content changed. page will refer to the new key.
+			LOG.fine("image changed since rendered : " + imageKey);
+			getSources().remove(imageKey);
+			return null;
+		}
+		return loaded;
+	}
+
+	/**
+	 * Picture or chart in a web sheet. Web sheet is weakly referred, so it's
+	 * not kept after its view is gone.
+	 */
+	private static final class ImageSource {
+
+		/** The bean. */
+		private final WeakReference<TieWebSheetBean> bean;
+
+		/** picture or chart id. */
+		private final String sourceId;
+
+		/** true if chart. */
+		private final boolean chart;
+
+		/**
+		 * Instantiates a new image source.
+		 *
+		 * @param pbean
+		 *            the bean
+		 * @param psourceId
+		 *            the source id
+		 * @param pchart
+		 *            the chart flag
+		 */
+		ImageSource(final TieWebSheetBean pbean, final String psourceId,
+				final boolean pchart) {
+			this.bean = new WeakReference<>(pbean);
+			this.sourceId = psourceId;
+			this.chart = pchart;
+		}
+
+		/**
+		 * Load image from web sheet.
+		 *
+		 * @return the image. null if not available.
+		 */
+		ImageCache.CachedImage load() {
+			TieWebSheetBean sheetBean = bean.get();
+			if (sheetBean == null) {
+				return null;
+			}
+			try {
+				if (chart) {
+					byte[] png = ChartHelper.getChartImage(sheetBean
+							.getChartHelper().getChartTask(sourceId));
+					return (png == null) ? null
+							: new ImageCache.CachedImage(png, "image/png");
+				}
+				Picture picture = sheetBean.getPicturesMap().get(sourceId);
+				if (picture == null) {
+					return null;
+				}
+				PictureData picData = picture.getPictureData();
+				return new ImageCache.CachedImage(picData.getData(),
+						picData.getMimeType());
+			} catch (Exception ex) {
+				LOG.log(Level.WARNING, "Error in load image " + sourceId
+						+ " : " + ex.getLocalizedMessage(), ex);
+				return null;
+			}
+		}
+	}
+
+}
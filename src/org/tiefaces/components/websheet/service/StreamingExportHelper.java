@@ -0,0 +1,927 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+
+package org.tiefaces.components.websheet.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.tiefaces.common.TieConstants;
+import org.tiefaces.components.websheet.TieWebSheetBean;
+import org.tiefaces.components.websheet.configuration.CellTemplate;
+import org.tiefaces.components.websheet.configuration.ConfigCommand;
+import org.tiefaces.components.websheet.configuration.ConfigRange;
+import org.tiefaces.components.websheet.configuration.EachCommand;
+import org.tiefaces.components.websheet.configuration.FormCommand;
+import org.tiefaces.components.websheet.configuration.RowsMapping;
+import org.tiefaces.components.websheet.configuration.SheetConfiguration;
+import org.tiefaces.components.websheet.configuration.ShiftFormulaRef;
+import org.tiefaces.components.websheet.serializable.SerialRow;
+import org.tiefaces.components.websheet.utility.CommandUtility;
+import org.tiefaces.components.websheet.utility.ConfigurationUtility;
+
+/**
+ * Build a streaming workbook for export. The form template of each sheet is
+ * expanded again from the data context straight into a SXSSF workbook, so only
+ * a window of rows is kept in memory no matter how large the collections are.
+ *
+ * Cells are evaluated and formulas are shifted with the same rules as loading
+ * the web sheet. Expansion runs twice: the first pass only calculates where
+ * the watched rows go, the second pass writes rows in order. Watched rows of
+ * each unit are kept as offsets from the unit start, and units of same length
+ * and offsets share them, so the kept positions don't grow with the
+ * collection size. Commands start at same row are expanded one after another.
+ * An empty collection leaves one blank unit, same as the template rows left
+ * in the web sheet. Charts, pictures and comments are not exported.
+ *
+ * @author Jason Jiang
+ *
+ */
+public class StreamingExportHelper {
+
+	/** The parent. */
+	private TieWebSheetBean parent = null;
+
+	/** logger. */
+	private static final Logger LOG = Logger
+			.getLogger(StreamingExportHelper.class.getName());
+
+	/** target workbook. */
+	private SXSSFWorkbook targetWb;
+
+	/** styles created in target workbook. key is source style index. */
+	private Map<Short, CellStyle> styleMap = new HashMap<>();
+
+	/** compiled cell templates. */
+	private Map<String, CellTemplate> cellTemplateMap = new HashMap<>();
+
+	/** current live sheet. used for formula parse. */
+	private Sheet sheet;
+
+	/** current template sheet. */
+	private Sheet templateSheet;
+
+	/** current target sheet. */
+	private Sheet targetSheet;
+
+	/** watch list of current sheet. */
+	private List<Integer> watchList;
+
+	/**
+	 * watched rows of expanded each commands in current sheet. key is full
+	 * name of the each command in its parent unit.
+	 */
+	private NavigableMap<String, UnitRows> unitRowsMap;
+
+	/** watched rows of form command in current sheet. */
+	private UnitRows formUnitRows;
+
+	/** merged regions of source sheet. key is first row. */
+	private Map<Integer, List<CellRangeAddress>> mergedRegionMap;
+
+	/** true when writing rows. false when only calculate row positions. */
+	private boolean writing = false;
+
+	/**
+	 * Instantiates a new streaming export helper.
+	 *
+	 * @param pparent
+	 *            the parent
+	 */
+	public StreamingExportHelper(final TieWebSheetBean pparent) {
+		super();
+		this.parent = pparent;
+	}
+
+	/**
+	 * Builds the streaming workbook. Caller need dispose the workbook after
+	 * written to release temp files.
+	 *
+	 * @param windowSize
+	 *            rows kept in memory for each sheet.
+	 * @return the streaming workbook
+	 */
+	public final SXSSFWorkbook buildWorkbook(final int windowSize) {
+		targetWb = new SXSSFWorkbook(windowSize);
+		Workbook wb = parent.getWb();
+		Map<String, Object> context = null;
+		if ((parent.getSerialDataContext() != null)
+				&& (parent.getSerialDataContext().getDataContext() != null)) {
+			// work on a copy. each var is put into context when expand.
+			context = new HashMap<>(
+					parent.getSerialDataContext().getDataContext());
+			context.remove("tiecells");
+		}
+		for (int i = 0; i < wb.getNumberOfSheets(); i++) {
+			Sheet source = wb.getSheetAt(i);
+			if (source.getSheetName()
+					.startsWith(TieConstants.COPY_SHEET_PREFIX)) {
+				continue;
+			}
+			targetSheet = targetWb.createSheet(source.getSheetName());
+			if (wb.isSheetHidden(i)) {
+				targetWb.setSheetHidden(
+						targetWb.getSheetIndex(targetSheet), true);
+			}
+			SheetConfiguration sheetConfig = findSheetConfig(
+					source.getSheetName());
+			Sheet template = CommandUtility.getTemplateCopySheet(source);
+			if ((context != null) && (sheetConfig != null)
+					&& (sheetConfig.getFormCommand() != null)
+					&& (template != null)) {
+				writeFormSheet(source, template, sheetConfig, context);
+			} else {
+				writeStaticSheet(source);
+			}
+		}
+		targetWb.setForceFormulaRecalculation(true);
+		return targetWb;
+	}
+
+	/**
+	 * Find sheet config by sheet name.
+	 *
+	 * @param sheetName
+	 *            the sheet name
+	 * @return the sheet configuration. null if not found.
+	 */
+	private SheetConfiguration findSheetConfig(final String sheetName) {
+		if (parent.getSheetConfigMap() == null) {
+			return null;
+		}
+		for (SheetConfiguration sheetConfig : parent.getSheetConfigMap()
+				.values()) {
+			if (sheetName.equals(sheetConfig.getSheetName())) {
+				return sheetConfig;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Write sheet as is. Used for sheets without form command.
+	 *
+	 * @param source
+	 *            the source sheet
+	 */
+	private void writeStaticSheet(final Sheet source) {
+		setupSheet(source, source);
+		for (int i = 0; i <= source.getLastRowNum(); i++) {
+			writeRow(source.getRow(i), i, null, null);
+			addMergedRegions(i, i, null, source.getLastRowNum() + 1);
+		}
+	}
+
+	/**
+	 * Expand form command of the sheet from template.
+	 *
+	 * @param source
+	 *            the live sheet
+	 * @param template
+	 *            the template sheet
+	 * @param sheetConfig
+	 *            the sheet config
+	 * @param context
+	 *            the context
+	 */
+	private void writeFormSheet(final Sheet source, final Sheet template,
+			final SheetConfiguration sheetConfig,
+			final Map<String, Object> context) {
+		setupSheet(source, template);
+		watchList = sheetConfig.getWatchList();
+		if (watchList == null) {
+			watchList = new ArrayList<>();
+		}
+		unitRowsMap = new TreeMap<>();
+		formUnitRows = new UnitRows();
+		FormCommand formCommand = sheetConfig.getFormCommand();
+		int formTop = formCommand.getConfigRange().getFirstRowAddr()
+				.getRow();
+		int formLastPlus = formCommand.getConfigRange().getLastRowPlusAddr()
+				.getRow();
+
+		// first pass gather row positions for formula shift.
+		writing = false;
+		int length = expandForm(formCommand, formTop, context);
+
+		writing = true;
+		for (int i = 0; i < formTop; i++) {
+			writeRow(template.getRow(i), i, null, null);
+			addMergedRegions(i, i, null, formTop);
+		}
+		expandForm(formCommand, formTop, context);
+		int offset = formTop + length - formLastPlus;
+		for (int i = formLastPlus; i <= template.getLastRowNum(); i++) {
+			writeRow(template.getRow(i), i + offset, null, null);
+			addMergedRegions(i, i + offset, null,
+					template.getLastRowNum() + 1);
+		}
+	}
+
+	/**
+	 * Setup sheet level settings and prepare for writing.
+	 *
+	 * @param source
+	 *            the live sheet
+	 * @param template
+	 *            the sheet rows read from
+	 */
+	private void setupSheet(final Sheet source, final Sheet template) {
+		this.sheet = source;
+		this.templateSheet = template;
+		mergedRegionMap = new HashMap<>();
+		for (int i = 0; i < template.getNumMergedRegions(); i++) {
+			CellRangeAddress region = template.getMergedRegion(i);
+			List<CellRangeAddress> list = mergedRegionMap
+					.get(region.getFirstRow());
+			if (list == null) {
+				list = new ArrayList<>();
+				mergedRegionMap.put(region.getFirstRow(), list);
+			}
+			list.add(region);
+		}
+		int maxColumn = 0;
+		for (Row row : template) {
+			maxColumn = Math.max(maxColumn, row.getLastCellNum());
+		}
+		for (int col = 0; col < maxColumn; col++) {
+			targetSheet.setColumnWidth(col, template.getColumnWidth(col));
+			targetSheet.setColumnHidden(col, template.isColumnHidden(col));
+		}
+		targetSheet.setDefaultRowHeight(template.getDefaultRowHeight());
+	}
+
+	/**
+	 * Expand form command.
+	 *
+	 * @param formCommand
+	 *            the form command
+	 * @param atRow
+	 *            the at row
+	 * @param context
+	 *            the context
+	 * @return the length
+	 */
+	private int expandForm(final FormCommand formCommand, final int atRow,
+			final Map<String, Object> context) {
+		String fullName = formCommand.getCommandName();
+		List<RowsMapping> rowsMappingList = new ArrayList<>();
+		if (writing) {
+			rowsMappingList.add(new UnitRowsMapping(formUnitRows, 0));
+			return expandRange(formCommand.getConfigRange(), fullName, atRow,
+					context, rowsMappingList, null);
+		}
+		Map<Integer, Integer> watchedRows = new HashMap<>();
+		int length = expandRange(formCommand.getConfigRange(), fullName,
+				atRow, context, rowsMappingList, watchedRows);
+		formUnitRows.addUnit(atRow, watchedRows);
+		return length;
+	}
+
+	/**
+	 * Expand each command. Same as building the command in sheet, the
+	 * template range is expanded once for each object in the collection.
+	 *
+	 * @param eachCommand
+	 *            the each command
+	 * @param fullName
+	 *            the full name of parent
+	 * @param atRow
+	 *            the at row
+	 * @param context
+	 *            the context
+	 * @param rowsMappingList
+	 *            the rows mapping list
+	 * @return the length
+	 */
+	@SuppressWarnings("rawtypes")
+	private int expandEach(final EachCommand eachCommand,
+			final String fullName, final int atRow,
+			final Map<String, Object> context,
+			final List<RowsMapping> rowsMappingList) {
+		String eachFullName = fullName + ":" + eachCommand.getCommandName();
+		Collection itemsCollection = ConfigurationUtility
+				.transformToCollectionObject(parent.getExpEngine(),
+						eachCommand.getItems(), context);
+		UnitRows unitRows = getUnitRows(eachFullName);
+		if (itemsCollection.isEmpty()) {
+			return expandBlankUnit(eachCommand.getConfigRange(), atRow,
+					unitRows);
+		}
+		int insertPosition = atRow;
+		int index = 0;
+		for (Object obj : itemsCollection) {
+			String unitFullName = eachFullName + "." + index;
+			context.put(eachCommand.getVar(), obj);
+			if (writing) {
+				RowsMapping unitRowsMapping = new UnitRowsMapping(unitRows,
+						index);
+				rowsMappingList.add(unitRowsMapping);
+				insertPosition += expandRange(eachCommand.getConfigRange(),
+						unitFullName, insertPosition, context,
+						rowsMappingList, null);
+				rowsMappingList.remove(unitRowsMapping);
+			} else {
+				Map<Integer, Integer> watchedRows = new HashMap<>();
+				int length = expandRange(eachCommand.getConfigRange(),
+						unitFullName, insertPosition, context,
+						rowsMappingList, watchedRows);
+				unitRows.addUnit(insertPosition, watchedRows);
+				insertPosition += length;
+			}
+			context.remove(eachCommand.getVar());
+			index++;
+		}
+		if (!writing && !unitRows.hasWatchedRows()) {
+			// no watched rows in the units. no need keep them.
+			unitRowsMap.remove(eachFullName);
+		}
+		return insertPosition - atRow;
+	}
+
+	/**
+	 * Expand each command with empty collection. Template rows are kept as
+	 * one blank unit, same as the web sheet.
+	 *
+	 * @param configRange
+	 *            the config range of each command
+	 * @param atRow
+	 *            the at row
+	 * @param unitRows
+	 *            the unit rows of each command
+	 * @return the length
+	 */
+	private int expandBlankUnit(final ConfigRange configRange,
+			final int atRow, final UnitRows unitRows) {
+		int firstRow = configRange.getFirstRowAddr().getRow();
+		int lastRowPlus = configRange.getLastRowPlusAddr().getRow();
+		Map<Integer, Integer> watchedRows = new HashMap<>();
+		for (int rowIndex = firstRow; rowIndex < lastRowPlus; rowIndex++) {
+			int outRow = atRow + rowIndex - firstRow;
+			if (writing) {
+				writeBlankRow(templateSheet.getRow(rowIndex), outRow);
+				addMergedRegions(rowIndex, outRow, null, lastRowPlus);
+			} else if (watchList.contains(rowIndex)) {
+				// formulas refer to the blank rows.
+				watchedRows.put(rowIndex, outRow);
+			}
+		}
+		if (!writing) {
+			unitRows.addUnit(atRow, watchedRows);
+		}
+		return lastRowPlus - firstRow;
+	}
+
+	/**
+	 * Expand range. Rows are walked through in template order, command areas
+	 * are expanded and static rows are written.
+	 *
+	 * @param configRange
+	 *            the config range
+	 * @param fullName
+	 *            the full name
+	 * @param atRow
+	 *            the at row
+	 * @param context
+	 *            the context
+	 * @param rowsMappingList
+	 *            the rows mapping list
+	 * @param watchedRows
+	 *            watched rows of the unit gathered in first pass. key is
+	 *            template row, value is target row. null when writing.
+	 * @return the length
+	 */
+	private int expandRange(final ConfigRange configRange,
+			final String fullName, final int atRow,
+			final Map<String, Object> context,
+			final List<RowsMapping> rowsMappingList,
+			final Map<Integer, Integer> watchedRows) {
+		ShiftFormulaRef shiftFormulaRef = null;
+		if (writing) {
+			// allRowsMappingList = child + current
+			List<RowsMapping> allRowsMappingList = findChildRowsMapping(
+					fullName);
+			allRowsMappingList.addAll(rowsMappingList);
+			shiftFormulaRef = new ShiftFormulaRef(watchList,
+					allRowsMappingList);
+		}
+		int lastRowPlus = configRange.getLastRowPlusAddr().getRow();
+		int outRow = atRow;
+		int rowIndex = configRange.getFirstRowAddr().getRow();
+		while (rowIndex < lastRowPlus) {
+			List<ConfigCommand> commands = findCommandsAtRow(configRange,
+					rowIndex);
+			if (!commands.isEmpty()) {
+				int nextRowIndex = rowIndex;
+				for (ConfigCommand command : commands) {
+					if (command instanceof EachCommand) {
+						outRow += expandEach((EachCommand) command, fullName,
+								outRow, context, rowsMappingList);
+					} else {
+						outRow += expandRange(command.getConfigRange(),
+								fullName, outRow, context, rowsMappingList,
+								watchedRows);
+					}
+					nextRowIndex = Math.max(nextRowIndex, command
+							.getConfigRange().getLastRowPlusAddr().getRow());
+				}
+				rowIndex = nextRowIndex;
+				continue;
+			}
+			if (writing) {
+				writeRow(templateSheet.getRow(rowIndex), outRow, context,
+						shiftFormulaRef);
+				addMergedRegions(rowIndex, outRow, configRange, lastRowPlus);
+			} else if (watchList.contains(rowIndex)) {
+				watchedRows.put(rowIndex, outRow);
+			}
+			rowIndex++;
+			outRow++;
+		}
+		return outRow - atRow;
+	}
+
+	/**
+	 * Find commands start at the row. Side by side commands start at same
+	 * row.
+	 *
+	 * @param configRange
+	 *            the config range
+	 * @param rowIndex
+	 *            the row index in template
+	 * @return the commands in config order. empty if not found.
+	 */
+	private List<ConfigCommand> findCommandsAtRow(
+			final ConfigRange configRange, final int rowIndex) {
+		List<ConfigCommand> commands = Collections.emptyList();
+		if (configRange.getCommandList() != null) {
+			for (ConfigCommand command : configRange.getCommandList()) {
+				if (command.getConfigRange().getFirstRowAddr()
+						.getRow() == rowIndex) {
+					if (commands.isEmpty()) {
+						commands = new ArrayList<>();
+					}
+					commands.add(command);
+				}
+			}
+		}
+		return commands;
+	}
+
+	/**
+	 * Gets the unit rows of each command. Created in first pass and reused
+	 * in second pass.
+	 *
+	 * @param eachFullName
+	 *            the full name of each command
+	 * @return the unit rows
+	 */
+	private UnitRows getUnitRows(final String eachFullName) {
+		UnitRows unitRows = unitRowsMap.get(eachFullName);
+		if (unitRows == null) {
+			// no watched rows found in first pass when writing.
+			unitRows = new UnitRows();
+			if (!writing) {
+				unitRowsMap.put(eachFullName, unitRows);
+			}
+		}
+		return unitRows;
+	}
+
+	/**
+	 * Find rows mapping of all units expanded inside the unit.
+	 *
+	 * @param fullName
+	 *            the full name of the unit
+	 * @return the rows mapping list
+	 */
+	private List<RowsMapping> findChildRowsMapping(final String fullName) {
+		List<RowsMapping> rowsMappingList = new ArrayList<>();
+		String prefix = fullName + ":";
+		for (Map.Entry<String, UnitRows> entry : unitRowsMap
+				.tailMap(prefix, true).entrySet()) {
+			if (!entry.getKey().startsWith(prefix)) {
+				break;
+			}
+			rowsMappingList.add(new UnitRowsMapping(entry.getValue(), -1));
+		}
+		return rowsMappingList;
+	}
+
+	/**
+	 * Write row into target sheet.
+	 *
+	 * @param sourceRow
+	 *            the source row
+	 * @param rowIndex
+	 *            the target row index
+	 * @param context
+	 *            the context. null if no need evaluate.
+	 * @param shiftFormulaRef
+	 *            the shift formula ref
+	 */
+	private void writeRow(final Row sourceRow, final int rowIndex,
+			final Map<String, Object> context,
+			final ShiftFormulaRef shiftFormulaRef) {
+		if (sourceRow == null) {
+			return;
+		}
+		Row row = createTargetRow(sourceRow, rowIndex);
+		for (Cell sourceCell : sourceRow) {
+			Cell cell = row.createCell(sourceCell.getColumnIndex());
+			cell.setCellStyle(getTargetStyle(sourceCell.getCellStyle()));
+			copyCellValue(sourceCell, cell);
+			if (context != null) {
+				buildCell(cell, context, shiftFormulaRef);
+			}
+		}
+	}
+
+	/**
+	 * Write row with styles only into target sheet.
+	 *
+	 * @param sourceRow
+	 *            the source row
+	 * @param rowIndex
+	 *            the target row index
+	 */
+	private void writeBlankRow(final Row sourceRow, final int rowIndex) {
+		if (sourceRow == null) {
+			return;
+		}
+		Row row = createTargetRow(sourceRow, rowIndex);
+		for (Cell sourceCell : sourceRow) {
+			row.createCell(sourceCell.getColumnIndex()).setCellStyle(
+					getTargetStyle(sourceCell.getCellStyle()));
+		}
+	}
+
+	/**
+	 * Create row in target sheet with height and style of source row.
+	 *
+	 * @param sourceRow
+	 *            the source row
+	 * @param rowIndex
+	 *            the target row index
+	 * @return the target row
+	 */
+	private Row createTargetRow(final Row sourceRow, final int rowIndex) {
+		Row row = targetSheet.createRow(rowIndex);
+		row.setHeight(sourceRow.getHeight());
+		row.setZeroHeight(sourceRow.getZeroHeight());
+		if (sourceRow.isFormatted()) {
+			row.setRowStyle(getTargetStyle(sourceRow.getRowStyle()));
+		}
+		return row;
+	}
+
+	/**
+	 * Copy cell value.
+	 *
+	 * @param sourceCell
+	 *            the source cell
+	 * @param cell
+	 *            the target cell
+	 */
+	private void copyCellValue(final Cell sourceCell, final Cell cell) {
+		switch (sourceCell.getCellTypeEnum()) {
+		case STRING:
+			cell.setCellValue(sourceCell.getStringCellValue());
+			break;
+		case NUMERIC:
+			cell.setCellValue(sourceCell.getNumericCellValue());
+			break;
+		case BOOLEAN:
+			cell.setCellValue(sourceCell.getBooleanCellValue());
+			break;
+		case FORMULA:
+			cell.setCellFormula(sourceCell.getCellFormula());
+			break;
+		case ERROR:
+			cell.setCellErrorValue(sourceCell.getErrorCellValue());
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Evaluate cell and shift formula.
+	 *
+	 * @param cell
+	 *            the cell
+	 * @param context
+	 *            the context
+	 * @param shiftFormulaRef
+	 *            the shift formula ref
+	 */
+	private void buildCell(final Cell cell,
+			final Map<String, Object> context,
+			final ShiftFormulaRef shiftFormulaRef) {
+		try {
+			CommandUtility.evaluate(context, cell, parent.getExpEngine(),
+					cellTemplateMap);
+			if (cell.getCellTypeEnum() == CellType.FORMULA) {
+				shiftFormulaRef.setFormulaChanged(0);
+				ConfigurationUtility.buildCellFormulaForShiftedRows(sheet,
+						parent.getWbWrapper(), shiftFormulaRef, cell,
+						cell.getCellFormula());
+			}
+		} catch (Exception ex) {
+			LOG.log(Level.SEVERE,
+					"build cell ( row = " + cell.getRowIndex()
+							+ " column = " + cell.getColumnIndex()
+							+ " error = " + ex.getLocalizedMessage(),
+					ex);
+		}
+	}
+
+	/**
+	 * Add merged regions start at the source row. Only regions inside the
+	 * static rows of the range are added, as they are kept together after
+	 * expand.
+	 *
+	 * @param sourceRowIndex
+	 *            the source row index
+	 * @param rowIndex
+	 *            the target row index
+	 * @param configRange
+	 *            the config range. null if no command in rows.
+	 * @param lastRowPlus
+	 *            the last row plus of the rows
+	 */
+	private void addMergedRegions(final int sourceRowIndex,
+			final int rowIndex, final ConfigRange configRange,
+			final int lastRowPlus) {
+		List<CellRangeAddress> list = mergedRegionMap.get(sourceRowIndex);
+		if (list == null) {
+			return;
+		}
+		for (CellRangeAddress region : list) {
+			if ((region.getLastRow() < lastRowPlus)
+					&& isStaticRows(configRange, region)) {
+				targetSheet.addMergedRegionUnsafe(new CellRangeAddress(
+						rowIndex,
+						rowIndex + region.getLastRow() - region.getFirstRow(),
+						region.getFirstColumn(), region.getLastColumn()));
+			}
+		}
+	}
+
+	/**
+	 * Whether all rows of region are static rows of the range.
+	 *
+	 * @param configRange
+	 *            the config range
+	 * @param region
+	 *            the region
+	 * @return true if all static
+	 */
+	private boolean isStaticRows(final ConfigRange configRange,
+			final CellRangeAddress region) {
+		if (configRange == null) {
+			return true;
+		}
+		for (int i = region.getFirstRow(); i <= region.getLastRow(); i++) {
+			if (!ConfigurationUtility.isStaticRow(configRange, i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the style in target workbook.
+	 *
+	 * @param sourceStyle
+	 *            the source style
+	 * @return the target style
+	 */
+	private CellStyle getTargetStyle(final CellStyle sourceStyle) {
+		CellStyle style = styleMap.get(sourceStyle.getIndex());
+		if (style == null) {
+			style = targetWb.createCellStyle();
+			style.cloneStyleFrom(sourceStyle);
+			styleMap.put(sourceStyle.getIndex(), style);
+		}
+		return style;
+	}
+
+	/**
+	 * Watched rows of units expanded from one command. Rows are kept as
+	 * offsets from unit start. Units with same offsets as the first unit share
+	 * them, and unit starts are kept as first start plus stride until a unit
+	 * breaks the stride.
+	 */
+	private static final class UnitRows {
+
+		/** offsets of first unit. key is template row. */
+		private Map<Integer, Integer> offsets = Collections.emptyMap();
+
+		/** offsets of units different from first unit. key is unit index. */
+		private Map<Integer, Map<Integer, Integer>> unitOffsets;
+
+		/** start row of first unit. */
+		private int firstStart;
+
+		/** rows between unit starts. */
+		private int stride;
+
+		/** number of units. */
+		private int count;
+
+		/** start rows of units. null while units keep the stride. */
+		private int[] starts;
+
+		/** whether any unit has watched rows. */
+		private boolean watched;
+
+		/**
+		 * Adds the unit.
+		 *
+		 * @param start
+		 *            the start row of the unit
+		 * @param watchedRows
+		 *            watched rows of the unit. key is template row, value is
+		 *            target row.
+		 */
+		void addUnit(final int start,
+				final Map<Integer, Integer> watchedRows) {
+			Map<Integer, Integer> unitOffset = new HashMap<>();
+			for (Map.Entry<Integer, Integer> entry : watchedRows
+					.entrySet()) {
+				unitOffset.put(entry.getKey(), entry.getValue() - start);
+			}
+			watched = watched || !unitOffset.isEmpty();
+			if (count == 0) {
+				offsets = unitOffset;
+				firstStart = start;
+			} else {
+				if (!unitOffset.equals(offsets)) {
+					if (unitOffsets == null) {
+						unitOffsets = new HashMap<>();
+					}
+					unitOffsets.put(count, unitOffset);
+				}
+				addStart(start);
+			}
+			count++;
+		}
+
+		/**
+		 * Adds the start of unit other than first one.
+		 *
+		 * @param start
+		 *            the start
+		 */
+		private void addStart(final int start) {
+			if (count == 1) {
+				stride = start - firstStart;
+				return;
+			}
+			if (starts == null) {
+				if (start == firstStart + count * stride) {
+					return;
+				}
+				starts = new int[Math.max(count * 2, 16)];
+				for (int i = 0; i < count; i++) {
+					starts[i] = firstStart + i * stride;
+				}
+			} else if (count == starts.length) {
+				starts = Arrays.copyOf(starts, count * 2);
+			}
+			starts[count] = start;
+		}
+
+		/**
+		 * Gets the start row of unit.
+		 *
+		 * @param unit
+		 *            the unit index
+		 * @return the start row
+		 */
+		int getStart(final int unit) {
+			if (starts != null) {
+				return starts[unit];
+			}
+			return firstStart + unit * stride;
+		}
+
+		/**
+		 * Gets the offsets of unit.
+		 *
+		 * @param unit
+		 *            the unit index
+		 * @return the offsets. key is template row.
+		 */
+		Map<Integer, Integer> getOffsets(final int unit) {
+			if (unitOffsets != null) {
+				Map<Integer, Integer> unitOffset = unitOffsets.get(unit);
+				if (unitOffset != null) {
+					return unitOffset;
+				}
+			}
+			return offsets;
+		}
+
+		/**
+		 * Gets the count.
+		 *
+		 * @return number of units
+		 */
+		int getCount() {
+			return count;
+		}
+
+		/**
+		 * Checks for watched rows.
+		 *
+		 * @return true if any unit has watched rows
+		 */
+		boolean hasWatchedRows() {
+			return watched;
+		}
+	}
+
+	/**
+	 * Rows mapping calculated from unit rows, so target rows are not kept per
+	 * unit.
+	 */
+	private static final class UnitRowsMapping extends RowsMapping {
+
+		/** serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** the unit rows. */
+		private final transient UnitRows rows;
+
+		/** the unit index. -1 means all units. */
+		private final int unit;
+
+		/**
+		 * Instantiates a new unit rows mapping.
+		 *
+		 * @param prows
+		 *            the unit rows
+		 * @param punit
+		 *            the unit index. -1 means all units.
+		 */
+		UnitRowsMapping(final UnitRows prows, final int punit) {
+			super();
+			this.rows = prows;
+			this.unit = punit;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.tiefaces.components.websheet.configuration.RowsMapping#get(
+		 * java.lang.Integer)
+		 */
+		@Override
+		public List<SerialRow> get(final Integer sourceRowNum) {
+			if (unit >= 0) {
+				if (unit >= rows.getCount()) {
+					return null;
+				}
+				Integer offset = rows.getOffsets(unit).get(sourceRowNum);
+				if (offset == null) {
+					return null;
+				}
+				return Collections.singletonList(
+						new SerialRow(null, rows.getStart(unit) + offset));
+			}
+			List<SerialRow> list = null;
+			for (int i = 0; i < rows.getCount(); i++) {
+				Integer offset = rows.getOffsets(i).get(sourceRowNum);
+				if (offset != null) {
+					if (list == null) {
+						list = new ArrayList<>();
+					}
+					list.add(new SerialRow(null, rows.getStart(i) + offset));
+				}
+			}
+			return list;
+		}
+	}
+
+}
@@ -5,9 +5,7 @@
 
 package org.tiefaces.components.websheet.service;
 
-import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.logging.Logger;
@@ -15,7 +13,6 @@ import java.util.logging.Logger;
 import javax.enterprise.context.SessionScoped;
 import javax.faces.context.FacesContext;
 import javax.faces.event.PhaseId;
-import javax.imageio.ImageIO;
 import javax.inject.Named;
 
 import org.primefaces.model.DefaultStreamedContent;
@@ -26,10 +23,15 @@ import org.primefaces.model.StreamedContent;
  * 
  * @author Jason Jiang
  *
+ * @deprecated charts are served by {@link TieWebSheetImageServlet}. Kept for
+ *             pages still using <code>#{tieWebSheetChartsService.chart}</code>
+ *             with <code>chartViewId</code> parameter, which is now the key
+ *             of the chart image returned by the cells map.
  */
 
 @Named
 @SessionScoped
+@Deprecated
 public class TieWebSheetChartsService implements Serializable {
 
 	/**
@@ -65,18 +67,16 @@ public class TieWebSheetChartsService implements Serializable {
 		} else {
 			// So, browser is requesting the image. Return a real
 			// StreamedContent with the image bytes.
-			String chartId = context.getExternalContext()
+			String imageKey = context.getExternalContext()
 					.getRequestParameterMap().get("chartViewId");
-
-			BufferedImage bufferedImg = (BufferedImage) FacesContext
-					.getCurrentInstance().getExternalContext()
-					.getSessionMap().get(chartId);
-			ByteArrayOutputStream os = new ByteArrayOutputStream();
-			ImageIO.write(bufferedImg, "png", os);
-			FacesContext.getCurrentInstance().getExternalContext()
-					.getSessionMap().remove(chartId);
-			return new DefaultStreamedContent(new ByteArrayInputStream(
-					os.toByteArray()), "image/png");
+			ImageCache.CachedImage image = SessionImages.getImage(
+					context.getExternalContext().getSessionMap(), imageKey);
+			if (image == null) {
+				return new DefaultStreamedContent();
+			}
+			return new DefaultStreamedContent(
+					new ByteArrayInputStream(image.getData()),
+					image.getContentType());
 		}
 	}
 
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+
+package org.tiefaces.components.websheet.service;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.tiefaces.common.TieConstants;
+
+/**
+ * Serve pictures and charts from image cache. The url contains content hash
+ * of the image, so the content of an url never changes. Browser can cache it
+ * and revalidate it with etag without download again.
+ *
+ * Only images rendered in the session of the request are served. Images
+ * evicted from the cache are loaded again from the web sheet.
+ *
+ * @author Jason Jiang
+ *
+ */
+@WebServlet(urlPatterns = TieConstants.IMAGE_SERVLET_PATH + "*")
+public class TieWebSheetImageServlet extends HttpServlet {
+
+	/**
+	 * serialVersionUID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/** log instance. */
+	private static final Logger LOG = Logger
+			.getLogger(TieWebSheetImageServlet.class.getName());
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * javax.servlet.http.HttpServlet#doGet(javax.servlet.http.HttpServletRequest,
+	 * javax.servlet.http.HttpServletResponse)
+	 */
+	@Override
+	protected void doGet(final HttpServletRequest request,
+			final HttpServletResponse response) throws IOException {
+		String key = request.getPathInfo();
+		if ((key == null) || (key.length() < 2)) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		key = key.substring(1);
+		SessionImages images = SessionImages.get(request.getSession(false));
+		if ((images == null) || !images.contains(key)) {
+			LOG.fine("image not rendered in session : " + key);
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		String etag = "\"" + key + "\"";
+		response.setHeader("ETag", etag);
+		response.setHeader("Cache-Control",
+				"private, max-age=" + TieConstants.IMAGE_CACHE_MAX_AGE);
+		if (etag.equals(request.getHeader("If-None-Match"))) {
+			// content of the key never changes.
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+		ImageCache.CachedImage image = images.getImage(key);
+		if (image == null) {
+			LOG.fine("image not available : " + key);
+			response.setHeader("Cache-Control", "no-cache");
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		if (image.getContentType() != null) {
+			response.setContentType(image.getContentType());
+		}
+		response.setContentLength(image.getData().length);
+		response.getOutputStream().write(image.getData());
+	}
+
+}
@@ -15,7 +15,6 @@ import javax.faces.context.FacesContext;
 import javax.faces.event.PhaseId;
 import javax.inject.Named;
 
-import org.apache.poi.ss.usermodel.PictureData;
 import org.primefaces.model.DefaultStreamedContent;
 import org.primefaces.model.StreamedContent;
 
@@ -24,11 +23,17 @@ import org.primefaces.model.StreamedContent;
  * 
  * @author Jason Jiang
  *
+ * @deprecated pictures are served by {@link TieWebSheetImageServlet}. Kept
+ *             for pages still using
+ *             <code>#{tieWebSheetPicturesService.picture}</code> with
+ *             <code>pictureViewId</code> parameter, which is now the key of
+ *             the picture image returned by the cells map.
  */
 
 
 @Named
 @SessionScoped
+@Deprecated
 public class TieWebSheetPicturesService implements Serializable  {
 
 	/**
@@ -65,17 +70,17 @@ public class TieWebSheetPicturesService implements Serializable  {
 		} else {
 			// So, browser is requesting the image. Return a real
 			// StreamedContent with the image bytes.
-			String pictureId = context.getExternalContext()
+			String imageKey = context.getExternalContext()
 					.getRequestParameterMap().get("pictureViewId");
-
-			PictureData picData = (PictureData) FacesContext
-					.getCurrentInstance().getExternalContext()
-					.getSessionMap().get(pictureId);
-			FacesContext.getCurrentInstance().getExternalContext()
-					.getSessionMap().remove(pictureId);
-			LOG.fine(" return real picture and remove session");
-			return new DefaultStreamedContent(new ByteArrayInputStream(
-					picData.getData()));
+			ImageCache.CachedImage image = SessionImages.getImage(
+					context.getExternalContext().getSessionMap(), imageKey);
+			if (image == null) {
+				return new DefaultStreamedContent();
+			}
+			LOG.fine(" return real picture");
+			return new DefaultStreamedContent(
+					new ByteArrayInputStream(image.getData()),
+					image.getContentType());
 		}
 	}
 	
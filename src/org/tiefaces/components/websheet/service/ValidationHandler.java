@@ -6,6 +6,7 @@
 package org.tiefaces.components.websheet.service;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
@@ -16,6 +17,7 @@ import javax.faces.context.FacesContext;
 import javax.faces.event.AjaxBehaviorEvent;
 
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.primefaces.component.datatable.DataTable;
 import org.primefaces.context.RequestContext;
@@ -25,6 +27,7 @@ import org.tiefaces.components.websheet.configuration.SheetConfiguration;
 import org.tiefaces.components.websheet.dataobjects.CellFormAttributes;
 import org.tiefaces.components.websheet.dataobjects.FacesCell;
 import org.tiefaces.components.websheet.dataobjects.FacesRow;
+import org.tiefaces.components.websheet.dataobjects.LazyBodyRows;
 import org.tiefaces.components.websheet.dataobjects.TieCell;
 import org.tiefaces.components.websheet.utility.CellControlsUtility;
 import org.tiefaces.components.websheet.utility.CellUtility;
@@ -59,8 +62,8 @@ public class ValidationHandler {
 	 *
 	 * @param oldStatus
 	 *            the old status
-	 * @param newStatus
-	 *            the new status
+	 * @param errmsg
+	 *            the error message. null if valid.
 	 * @param formRow
 	 *            the form row
 	 * @param formCol
@@ -69,12 +72,11 @@ public class ValidationHandler {
 	 *            the cell
 	 */
 	private void refreshAfterStatusChanged(final boolean oldStatus,
-			final boolean newStatus, final int formRow, final int formCol,
+			final String errmsg, final int formRow, final int formCol,
 			final FacesCell cell) {
 
-		if (!newStatus) {
-			cell.setErrormsg("");
-		}
+		boolean newStatus = errmsg != null;
+		cell.setErrormsg(newStatus ? errmsg : "");
 		cell.setInvalid(newStatus);
 		if ((oldStatus != newStatus)
 				&& (parent.getWebFormClientId() != null)) {
@@ -86,7 +88,8 @@ public class ValidationHandler {
 	}
 
 	/**
-	 * Validate with row col in current page.
+	 * Validate with row col in current page. Validation status is recorded,
+	 * and the faces cell is updated if its row is loaded.
 	 *
 	 * @param row
 	 *            the row
@@ -99,28 +102,115 @@ public class ValidationHandler {
 	public boolean validateWithRowColInCurrentPage(final int row,
 			final int col, final boolean passEmptyCheck) {
 
-		int topRow = parent.getCurrent().getCurrentTopRow();
-		int leftCol = parent.getCurrent().getCurrentLeftColumn();
-		boolean pass = true;
+		SheetConfiguration sheetConfig = parent.getSheetConfigMap()
+				.get(parent.getCurrent().getCurrentTabName());
+		if (sheetConfig == null) {
+			return true;
+		}
+		Sheet sheet1 = parent.getWb().getSheet(sheetConfig.getSheetName());
+		return validateCell(sheet1, sheet1.getRow(row), row, col,
+				passEmptyCheck, sheetConfig, true);
+	}
 
-		
-		FacesRow fRow = CellUtility.getFacesRowFromBodyRow(row, parent.getBodyRows(), topRow);
-		if (fRow == null) {
-			return pass;
+	/**
+	 * Validate the cell in the sheet and record the validation status.
+	 *
+	 * @param sheet1
+	 *            the sheet
+	 * @param row
+	 *            the poi row. skipped if null.
+	 * @param rowIndex
+	 *            the row index
+	 * @param col
+	 *            the col
+	 * @param passEmptyCheck
+	 *            the pass empty check
+	 * @param sheetConfig
+	 *            the sheet config
+	 * @param currentPage
+	 *            whether the sheet is current display sheet.
+	 * @return true, if successful
+	 */
+	private boolean validateCell(final Sheet sheet1, final Row row,
+			final int rowIndex, final int col, final boolean passEmptyCheck,
+			final SheetConfiguration sheetConfig,
+			final boolean currentPage) {
+		if ((row == null) || parent.getMergedRegionIndex(sheet1)
+				.isSkipped(rowIndex, col) || sheet1.isColumnHidden(col)) {
+			// not displayed cell.
+			return true;
 		}
-		
-		FacesCell cell = CellUtility.getFacesCellFromBodyRow(row, col,
-				parent.getBodyRows(), topRow, leftCol);
-		if (cell == null) {
-			return pass;
+		String errmsg = checkCellValue(sheet1, row, col, passEmptyCheck,
+				sheetConfig);
+		long key = CellUtility.getCellIndexLongKey(
+				parent.getWb().getSheetIndex(sheet1), rowIndex, col);
+		if (errmsg == null) {
+			parent.getInvalidCellsMap().remove(key);
+		} else {
+			parent.getInvalidCellsMap().put(key, errmsg);
 		}
+		if (currentPage) {
+			FacesCell cell = getLoadedFacesCell(rowIndex, col);
+			if (cell != null) {
+				refreshAfterStatusChanged(cell.isInvalid(), errmsg,
+						rowIndex - parent.getCurrent().getCurrentTopRow(),
+						col - parent.getCurrent().getCurrentLeftColumn(),
+						cell);
+			}
+		}
+		return errmsg == null;
+	}
 
+	/**
+	 * Gets the faces cell if its row is loaded in body rows. Row is not
+	 * loaded by this call.
+	 *
+	 * @param row
+	 *            the row
+	 * @param col
+	 *            the col
+	 * @return the faces cell. null if not loaded.
+	 */
+	private FacesCell getLoadedFacesCell(final int row, final int col) {
+		List<FacesRow> bodyRows = parent.getBodyRows();
+		int index = row - parent.getCurrent().getCurrentTopRow();
+		if ((index < 0) || (index >= bodyRows.size())
+				|| ((bodyRows instanceof LazyBodyRows)
+						&& !((LazyBodyRows) bodyRows).isLoaded(index))) {
+			return null;
+		}
+		List<FacesCell> cells = bodyRows.get(index).getCells();
+		int cindex = col - parent.getCurrent().getCurrentLeftColumn();
+		if ((cindex < 0) || (cindex >= cells.size())) {
+			return null;
+		}
+		return cells.get(cindex);
+	}
 
-		Cell poiCell = parent.getCellHelper()
-				.getPoiCellWithRowColFromCurrentPage(row, col);
-		boolean oldStatus = cell.isInvalid();
-
-		String value = CellUtility.getCellValueWithoutFormat(poiCell);
+	/**
+	 * Check value of the cell against validation rules and error message
+	 * from object in context.
+	 *
+	 * @param sheet1
+	 *            the sheet
+	 * @param row
+	 *            the poi row
+	 * @param col
+	 *            the col
+	 * @param passEmptyCheck
+	 *            the pass empty check
+	 * @param sheetConfig
+	 *            the sheet config
+	 * @return error message. null if passed.
+	 */
+	private String checkCellValue(final Sheet sheet1, final Row row,
+			final int col, final boolean passEmptyCheck,
+			final SheetConfiguration sheetConfig) {
+		Cell poiCell = row.getCell(col);
+		String value = null;
+		if (poiCell != null) {
+			value = CellUtility.getCellValueWithoutFormat(poiCell);
+		}
 		if (value == null) {
 			value = "";
 		} else {
@@ -128,120 +218,125 @@ public class ValidationHandler {
 		}
 
 		if (passEmptyCheck && value.isEmpty()) {
-			refreshAfterStatusChanged(oldStatus, false, row - topRow,
-					col - leftCol, cell);
-			return pass;
+			return null;
 		}
 
-		SheetConfiguration sheetConfig = parent.getSheetConfigMap()
-				.get(parent.getCurrent().getCurrentTabName());
-		List<CellFormAttributes> cellAttributes = CellControlsUtility
-				.findCellValidateAttributes(parent.getCellAttributesMap()
-						.getCellValidateAttributes(), fRow.getOriginRowIndex(), poiCell);
-
-		if (parent.isAdvancedContext() && parent.getConfigAdvancedContext().getErrorSuffix()!= null) {
-			pass = checkErrorMessageFromObjectInContext(row - topRow,
-				col - leftCol, cell, poiCell, value, sheetConfig);
+		if ((poiCell != null) && parent.isAdvancedContext()
+				&& (parent.getConfigAdvancedContext()
+						.getErrorSuffix() != null)) {
+			String errmsg = checkErrorMessageFromObjectInContext(poiCell);
+			if (errmsg != null) {
+				return errmsg;
+			}
 		}
 
+		List<CellFormAttributes> cellAttributes = CellControlsUtility
+				.findCellValidateAttributes(
+						parent.getCellAttributesMap()
+								.getCellValidateAttributes(),
+						getOriginRowIndex(row), sheet1.getSheetName(), col);
 		if (cellAttributes != null) {
-			pass = pass && validateAllRulesForSingleCell(row - topRow,
-					col - leftCol, cell, poiCell, value, sheetConfig,
-					cellAttributes);
+			return validateAllRulesForSingleCell(sheet1, row.getRowNum(),
+					col, value, cellAttributes);
 		}
+		return null;
+	}
 
-
-		if (pass) {
-			refreshAfterStatusChanged(oldStatus, false, row - topRow,
-					col - leftCol, cell);
+	/**
+	 * Gets the origin row index of the row in template.
+	 *
+	 * @param row
+	 *            the row
+	 * @return the origin row index
+	 */
+	private static int getOriginRowIndex(final Row row) {
+		int rowNum = ConfigurationUtility
+				.getOriginalRowNumInHiddenColumn(row);
+		if (rowNum < 0) {
+			rowNum = row.getRowNum();
 		}
-		return pass;
-
+		return rowNum;
 	}
 
+	/**
+	 * Check error message from object in context.
+	 *
+	 * @param poiCell
+	 *            the poi cell
+	 * @return error message. null if passed.
+	 */
+	private String checkErrorMessageFromObjectInContext(final Cell poiCell) {
+
+		@SuppressWarnings("unchecked")
+		HashMap<String, TieCell> tieCells = (HashMap<String, TieCell>) parent
+				.getSerialDataContext().getDataContext().get("tiecells");
+
+		if (tieCells != null) {
+
+			TieCell tieCell = tieCells
+					.get(CellUtility.getSkeyFromPoiCell(poiCell));
+
+			if (tieCell != null && tieCell.getContextObject() != null) {
+
+				String errorMethod = tieCell.getMethodStr()
+						+ parent.getConfigAdvancedContext().getErrorSuffix();
+
+				String errorMessage = CellControlsUtility
+						.getObjectPropertyValue(tieCell.getContextObject(),
+								errorMethod, true);
+
+				if (errorMessage != null && !errorMessage.isEmpty()) {
+					LOG.log(Level.INFO, "Validation failed for sheet "
+							+ poiCell.getSheet().getSheetName() + " row "
+							+ Integer.toString(poiCell.getRowIndex())
+							+ " column "
+							+ Integer.toString(poiCell.getColumnIndex())
+							+ " : " + errorMessage);
+					return errorMessage;
+				}
+
+			}
+		}
 
-	private boolean checkErrorMessageFromObjectInContext(final int formRow, final int formCol, final FacesCell cell,
-	    final Cell poiCell, final String value, final SheetConfiguration sheetConfig) {
-
-        	@SuppressWarnings("unchecked")
-        	HashMap<String, TieCell> tieCells = (HashMap<String, TieCell>) parent.getSerialDataContext().getDataContext()
-        		.get("tiecells");
-        
-        	if (tieCells != null) {
-
-        	    TieCell tieCell = tieCells.get(CellUtility.getSkeyFromPoiCell(poiCell));
-        
-        	    if (tieCell != null && tieCell.getContextObject() != null) {
-        
-        		String errorMethod = tieCell.getMethodStr() + parent.getConfigAdvancedContext().getErrorSuffix();
-        
-        		String errorMessage = CellControlsUtility.getObjectPropertyValue(tieCell.getContextObject(),
-        			errorMethod, true);
-        
-        		if (errorMessage != null && !errorMessage.isEmpty()) {
-        		    cell.setErrormsg(errorMessage);
-        		    LOG.log(Level.INFO,
-        			    "Validation failed for sheet " + poiCell.getSheet().getSheetName() + " row "
-        				    + Integer.toString(poiCell.getRowIndex()) + " column "
-        				    + Integer.toString(poiCell.getColumnIndex()) + " : " + errorMessage);
-        		    refreshAfterStatusChanged(false, true, formRow, formCol, cell);
-        		    return false;
-        		}
-        
-        	    }
-        	}
-        
-        	return true;
+		return null;
 
 	}
 
 	/**
 	 * Validate all rules for single cell.
 	 *
-	 * @param formRow
-	 *            the form row
-	 * @param formCol
-	 *            the form col
-	 * @param cell
-	 *            the cell
-	 * @param poiCell
-	 *            the poi cell
+	 * @param sheet1
+	 *            the sheet
+	 * @param rowIndex
+	 *            the row index
+	 * @param col
+	 *            the col
 	 * @param value
 	 *            the value
-	 * @param sheetConfig
-	 *            the sheet config
 	 * @param cellAttributes
 	 *            the cell attributes
-	 * @return true, if successful
+	 * @return error message. null if passed.
 	 */
-	private boolean validateAllRulesForSingleCell(final int formRow,
-			final int formCol, final FacesCell cell, final Cell poiCell,
-			final String value, final SheetConfiguration sheetConfig,
+	private String validateAllRulesForSingleCell(final Sheet sheet1,
+			final int rowIndex, final int col, final String value,
 			final List<CellFormAttributes> cellAttributes) {
-		Sheet sheet1 = parent.getWb().getSheet(sheetConfig.getSheetName());
 		for (CellFormAttributes attr : cellAttributes) {
-			boolean pass = doValidation(value, attr, poiCell.getRowIndex(),
-					sheet1);
+			boolean pass = doValidation(value, attr, rowIndex, sheet1);
 			if (!pass) {
 				String errmsg = attr.getMessage();
 				if (errmsg == null) {
 					errmsg = TieConstants.DEFALT_MSG_INVALID_INPUT;
 				}
-				cell.setErrormsg(errmsg);
 				LOG.log(Level.INFO,
 						"Validation failed for sheet "
 								+ sheet1.getSheetName() + " row "
-								+ Integer.toString(poiCell.getRowIndex())
-								+ " column "
-								+ Integer.toString(poiCell.getColumnIndex())
-								+ " : " + errmsg);
-				refreshAfterStatusChanged(false, true, formRow, formCol,
-						cell);
-				return false;
+								+ Integer.toString(rowIndex) + " column "
+								+ Integer.toString(col) + " : " + errmsg);
+				return errmsg;
 			}
 
 		}
-		return true;
+		return null;
 	}
 
 	/**
@@ -260,14 +355,9 @@ public class ValidationHandler {
 	private boolean doValidation(final Object value,
 			final CellFormAttributes attr, final int rowIndex,
 			final Sheet sheet) {
-		boolean pass;
-
-		String attrValue = attr.getValue();
-		attrValue = attrValue.replace("$value", value.toString() + "");
-		attrValue = ConfigurationUtility
-				.replaceExpressionWithCellValue(attrValue, rowIndex, sheet);
-		pass = parent.getCellHelper().evalBoolExpression(attrValue);
-		return pass;
+		// rule compiled once. values bound instead of rewriting rule text.
+		return ValidationRule.compile(attr.getValue())
+				.evaluate(value.toString(), rowIndex, sheet);
 
 	}
 
@@ -287,14 +377,181 @@ public class ValidationHandler {
 	}
 
 	/**
-	 * Validate current page.
+	 * Validate current page. Only rows of the rendered datatable page are
+	 * validated. Rows of other pages are validated when their page is
+	 * rendered, or by findFirstInvalidSheet on submit. Rows are read from
+	 * the sheet directly, so body rows not loaded yet are not loaded.
 	 *
 	 * @return true, if successful
 	 */
 	public final boolean validateCurrentPage() {
+		SheetConfiguration sheetConfig = parent.getSheetConfigMap()
+				.get(parent.getCurrent().getCurrentTabName());
+		if (sheetConfig == null) {
+			return true;
+		}
+		Sheet sheet1 = parent.getWb().getSheet(sheetConfig.getSheetName());
+		clearSheetStatus(sheet1);
+		int first = 0;
+		int rows = (parent.getMaxRowsPerPage() == null) ? 0
+				: parent.getMaxRowsPerPage();
+		DataTable webDataTable = findDataTable();
+		if (webDataTable != null) {
+			first = webDataTable.getFirst();
+			rows = webDataTable.getRows();
+		}
+		return validatePageRows(sheet1, sheetConfig, first, rows);
+	}
+
+	/**
+	 * Validate rows of a datatable page in current sheet. Used when user
+	 * moves to another page.
+	 *
+	 * @param first
+	 *            index of first row of the page in body rows
+	 * @param rows
+	 *            rows per page. all rows if not positive.
+	 * @return true, if successful
+	 */
+	public final boolean validatePage(final int first, final int rows) {
+		SheetConfiguration sheetConfig = parent.getSheetConfigMap()
+				.get(parent.getCurrent().getCurrentTabName());
+		if (sheetConfig == null) {
+			return true;
+		}
+		return validatePageRows(
+				parent.getWb().getSheet(sheetConfig.getSheetName()),
+				sheetConfig, first, rows);
+	}
+
+	/**
+	 * Validate body rows of a page in current sheet.
+	 *
+	 * @param sheet1
+	 *            the sheet
+	 * @param sheetConfig
+	 *            the sheet config
+	 * @param first
+	 *            index of first row of the page in body rows
+	 * @param rows
+	 *            rows per page. all rows if not positive.
+	 * @return true, if successful
+	 */
+	private boolean validatePageRows(final Sheet sheet1,
+			final SheetConfiguration sheetConfig, final int first,
+			final int rows) {
+		boolean passEmptyCheck = isPassEmptyCheck();
+		int start = parent.getCurrent().getCurrentTopRow()
+				+ Math.max(first, 0);
+		int bottom = CellUtility.getBodyBottomFromConfig(sheetConfig);
+		if (rows > 0) {
+			bottom = Math.min(bottom, start + rows - 1);
+		}
 		boolean allpass = true;
-		boolean passEmptyCheck = true;
+		for (int irow = start; irow <= bottom; irow++) {
+			if (!validateRow(sheet1, irow, passEmptyCheck, sheetConfig,
+					true)) {
+				allpass = false;
+			}
+		}
+		return allpass;
+	}
 
+	/**
+	 * Find datatable of the web sheet in current view.
+	 *
+	 * @return the datatable. null if not available.
+	 */
+	private DataTable findDataTable() {
+		if ((FacesContext.getCurrentInstance() == null)
+				|| (parent.getWebFormClientId() == null)) {
+			return null;
+		}
+		UIComponent s = FacesContext.getCurrentInstance().getViewRoot()
+				.findComponent(parent.getWebFormClientId());
+		if (s instanceof DataTable) {
+			return (DataTable) s;
+		}
+		return null;
+	}
+
+	/**
+	 * Validate body rows of the sheet.
+	 *
+	 * @param sheet1
+	 *            the sheet
+	 * @param sheetConfig
+	 *            the sheet config
+	 * @param passEmptyCheck
+	 *            the pass empty check
+	 * @param currentPage
+	 *            whether the sheet is current display sheet.
+	 * @param stopOnFirstInvalid
+	 *            whether stop on first invalid row.
+	 * @return true, if successful
+	 */
+	private boolean validateSheet(final Sheet sheet1,
+			final SheetConfiguration sheetConfig,
+			final boolean passEmptyCheck, final boolean currentPage,
+			final boolean stopOnFirstInvalid) {
+		boolean allpass = true;
+		int top = sheetConfig.getBodyCellRange().getTopRow();
+		int bottom = CellUtility.getBodyBottomFromConfig(sheetConfig);
+		for (int irow = top; irow <= bottom; irow++) {
+			if (!validateRow(sheet1, irow, passEmptyCheck, sheetConfig,
+					currentPage)) {
+				allpass = false;
+				if (stopOnFirstInvalid) {
+					break;
+				}
+			}
+		}
+		return allpass;
+	}
+
+	/**
+	 * Clear recorded validation status of the sheet.
+	 *
+	 * @param sheet1
+	 *            the sheet
+	 */
+	public final void clearSheetStatus(final Sheet sheet1) {
+		int sheetIndex = parent.getWb().getSheetIndex(sheet1);
+		Iterator<Long> keys = parent.getInvalidCellsMap().keySet()
+				.iterator();
+		while (keys.hasNext()) {
+			if (CellUtility.getSheetIndexFromLongKey(keys.next())
+					== sheetIndex) {
+				keys.remove();
+			}
+		}
+	}
+
+	/**
+	 * Restore recorded validation status into the faces cell. Used when
+	 * assembling faces row, no validation rule is evaluated.
+	 *
+	 * @param fcell
+	 *            the faces cell
+	 * @param poiCell
+	 *            the poi cell
+	 */
+	public final void restoreValidationStatus(final FacesCell fcell,
+			final Cell poiCell) {
+		String errmsg = parent.getInvalidCellsMap()
+				.get(CellUtility.getCellIndexLongKey(poiCell));
+		fcell.setInvalid(errmsg != null);
+		fcell.setErrormsg((errmsg == null) ? "" : errmsg);
+	}
+
+	/**
+	 * Checks if empty fields pass the validation. Not pass only when full
+	 * validation flag is set in view.
+	 *
+	 * @return true, if empty fields pass.
+	 */
+	private boolean isPassEmptyCheck() {
+		boolean passEmptyCheck = true;
 		try {
 			if (FacesContext.getCurrentInstance() != null) {
 				Map<String, Object> viewMap = FacesContext
@@ -311,14 +568,7 @@ public class ValidationHandler {
 							+ ex.getMessage(),
 					ex);
 		}
-
-		int top = parent.getCurrent().getCurrentTopRow();
-		for (int irow = 0; irow < parent.getBodyRows().size(); irow++) {
-			if (!validateRowInCurrentPage(irow + top, passEmptyCheck)) {
-				allpass = false;
-			}
-		}
-		return allpass;
+		return passEmptyCheck;
 	}
 
 	/**
@@ -334,11 +584,17 @@ public class ValidationHandler {
 			final boolean passEmptyCheck) {
 		SheetConfiguration sheetConfig = parent.getSheetConfigMap()
 				.get(parent.getCurrent().getCurrentTabName());
-		return this.validateRow(irow, passEmptyCheck, sheetConfig);
+		if (sheetConfig == null) {
+			return true;
+		}
+		return this.validateRow(
+				parent.getWb().getSheet(sheetConfig.getSheetName()), irow,
+				passEmptyCheck, sheetConfig, true);
 	}
 
 	/**
-	 * Find first invalid sheet.
+	 * Find first invalid sheet. In lazy tab load mode, sheets not opened yet
+	 * are expanded first, as their data may be invalid too.
 	 *
 	 * @param passEmptyCheck
 	 *            the pass empty check
@@ -346,16 +602,17 @@ public class ValidationHandler {
 	 */
 	public final String findFirstInvalidSheet(
 			final boolean passEmptyCheck) {
+		parent.getHelper().getWebSheetLoader().loadRemainingSheetsData();
 		for (Map.Entry<String, SheetConfiguration> entry : parent
 				.getSheetConfigMap().entrySet()) {
 			SheetConfiguration sheetConfig = entry.getValue();
 			String tabName = entry.getKey();
-			int topRow = sheetConfig.getBodyCellRange().getTopRow();
-			for (int irow = 0; irow < parent.getBodyRows().size(); irow++) {
-				if (!validateRow(irow + topRow, passEmptyCheck,
-						sheetConfig)) {
-					return tabName;
-				}
+			Sheet sheet1 = parent.getWb()
+					.getSheet(sheetConfig.getSheetName());
+			if (!validateSheet(sheet1, sheetConfig, passEmptyCheck,
+					tabName.equals(parent.getCurrent().getCurrentTabName()),
+					true)) {
+				return tabName;
 			}
 		}
 		return null;
@@ -364,28 +621,32 @@ public class ValidationHandler {
 	/**
 	 * Validate data row.
 	 * 
+	 * @param sheet1
+	 *            the sheet.
 	 * @param irow
 	 *            row number.
 	 * @param passEmptyCheck
 	 *            whether pass empty cell.
 	 * @param sheetConfig
 	 *            sheet config.
+	 * @param currentPage
+	 *            whether the sheet is current display sheet.
 	 * @return true if passed validation.
 	 */
-	private boolean validateRow(final int irow,
+	private boolean validateRow(final Sheet sheet1, final int irow,
 			final boolean passEmptyCheck,
-			final SheetConfiguration sheetConfig) {
+			final SheetConfiguration sheetConfig,
+			final boolean currentPage) {
 		boolean pass = true;
-		if (sheetConfig == null) {
+		Row row = sheet1.getRow(irow);
+		if (row == null) {
 			return pass;
 		}
-		int top = sheetConfig.getBodyCellRange().getTopRow();
-		List<FacesCell> cellRow = parent.getBodyRows().get(irow - top)
-				.getCells();
-		for (int index = 0; index < cellRow.size(); index++) {
-			FacesCell fcell = cellRow.get(index);
-			if ((fcell != null) && (!validateWithRowColInCurrentPage(irow,
-					fcell.getColumnIndex(), passEmptyCheck))) {
+		int left = sheetConfig.getBodyCellRange().getLeftCol();
+		int right = sheetConfig.getBodyCellRange().getRightCol();
+		for (int col = left; col <= right; col++) {
+			if (!validateCell(sheet1, row, irow, col, passEmptyCheck,
+					sheetConfig, currentPage)) {
 				pass = false;
 			}
 		}
@@ -413,7 +674,12 @@ public class ValidationHandler {
 				int[] rowcol = CellUtility
 						.getRowColFromComponentAttributes(target);
 				validateRowInCurrentPage(rowcol[0], true);
-				refreshCachedCellsInCurrentPage(facesContext, tblName);
+				if (parent.getCachedCells().isAllChanged()) {
+					refreshCachedCellsInCurrentPage(facesContext, tblName);
+				} else {
+					refreshChangedCellsInCurrentPage(facesContext, tblName);
+				}
+				parent.getCachedCells().clearChanged();
 			}
 		} catch (Exception ex) {
 			LOG.log(Level.SEVERE,
@@ -451,6 +717,49 @@ public class ValidationHandler {
 		}
 	}
 
+	/**
+	 * Refresh only changed cells recorded in change feed of cached cells, if
+	 * they are in current page.
+	 *
+	 * @param facesContext
+	 *            the faces context
+	 * @param tblName
+	 *            the tbl name
+	 */
+	private void refreshChangedCellsInCurrentPage(
+			final FacesContext facesContext, final String tblName) {
+		UIComponent s = facesContext.getViewRoot().findComponent(tblName);
+		if (s == null) {
+			return;
+		}
+		SheetConfiguration sheetConfig = parent.getSheetConfigMap()
+				.get(parent.getCurrent().getCurrentTabName());
+		if (sheetConfig == null) {
+			return;
+		}
+		DataTable webDataTable = (DataTable) s;
+		int first = webDataTable.getFirst();
+		int last = Math.min(first + webDataTable.getRowsToRender(),
+				webDataTable.getRowCount() - 1);
+		int top = parent.getCurrent().getCurrentTopRow();
+		int left = parent.getCurrent().getCurrentLeftColumn();
+
+		for (Cell poiCell : parent.getCachedCells().getChangedCells()) {
+			int i = poiCell.getRowIndex() - top;
+			int index = poiCell.getColumnIndex() - left;
+			if ((i < first) || (i > last) || (index < 0)
+					|| !poiCell.getSheet().getSheetName()
+							.equals(sheetConfig.getSheetName())) {
+				continue;
+			}
+			List<FacesCell> cells = parent.getBodyRows().get(i).getCells();
+			if (index < cells.size()) {
+				parent.getHelper().getWebSheetLoader().refreshChangedCell(
+						tblName, i, index, poiCell, cells.get(index));
+			}
+		}
+	}
+
 	/**
 	 * Refresh cached cells in row.
 	 *
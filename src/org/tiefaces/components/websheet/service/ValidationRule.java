@@ -0,0 +1,274 @@
+/*
+ * Copyright 2017 TieFaces.
+ * Licensed under MIT
+ */
+
+package org.tiefaces.components.websheet.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Row.MissingCellPolicy;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellReference;
+import org.tiefaces.common.BoundedCache;
+import org.tiefaces.common.TieConstants;
+import org.tiefaces.components.websheet.configuration.ExpressionEngine;
+import org.tiefaces.components.websheet.utility.CellUtility;
+
+/**
+ * Validation rule compiled once from rule text. e.g. "$value &gt; $B".
+ *
+ * $value and cell references ($B for same row, $B$5 for fixed cell) are
+ * turned into variables of the compiled script. When validate, their values
+ * are bound into context instead of rewriting the rule text. Same as the
+ * rule text used before, the script is upper-cased and AND/OR are turned
+ * into &amp;&amp;/||. So text values are bound upper-cased.
+ *
+ * @author Jason Jiang
+ *
+ */
+public final class ValidationRule {
+
+	/** logger. */
+	private static final Logger LOG = Logger
+			.getLogger(ValidationRule.class.getName());
+
+	/** variable name for $value. */
+	private static final String VALUE_VARIABLE = "TIEV";
+
+	/** variable name prefix for cell references. */
+	private static final String CELL_VARIABLE_PREFIX = "TIEC";
+
+	/** placeholder for value in rule text. */
+	private static final String VALUE_PLACEHOLDER = "$value";
+
+	/** pattern of number value. */
+	private static final Pattern NUMBER_PATTERN = Pattern
+			.compile("[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?");
+
+	/** pattern of integer value. */
+	private static final Pattern INTEGER_PATTERN = Pattern
+			.compile("[-+]?\\d{1,18}");
+
+	/** compiled rules by rule text. */
+	private static final BoundedCache<String, ValidationRule> RULES =
+			new BoundedCache<>(
+					TieConstants.DEFAULT_MAX_CACHED_VALIDATION_RULES);
+
+	/** compiled script. */
+	private final ExpressionEngine expression;
+
+	/** column of each cell reference. */
+	private final int[] refColumns;
+
+	/** row of each cell reference. -1 means same row of validated cell. */
+	private final int[] refRows;
+
+	/**
+	 * Instantiates a new validation rule.
+	 *
+	 * @param script
+	 *            the script
+	 * @param prefColumns
+	 *            the ref columns
+	 * @param prefRows
+	 *            the ref rows
+	 */
+	private ValidationRule(final String script, final int[] prefColumns,
+			final int[] prefRows) {
+		this.expression = new ExpressionEngine(script);
+		this.refColumns = prefColumns;
+		this.refRows = prefRows;
+	}
+
+	/**
+	 * Gets the compiled rule. Compiled once for same rule text.
+	 *
+	 * @param ruleText
+	 *            the rule text
+	 * @return the validation rule
+	 */
+	public static ValidationRule compile(final String ruleText) {
+		ValidationRule rule = RULES.get(ruleText);
+		if (rule == null) {
+			rule = RULES.putIfAbsent(ruleText, parse(ruleText));
+		}
+		return rule;
+	}
+
+	/**
+	 * Parse the rule text.
+	 *
+	 * @param ruleText
+	 *            the rule text
+	 * @return the validation rule
+	 */
+	private static ValidationRule parse(final String ruleText) {
+		String text = ruleText.replace(VALUE_PLACEHOLDER, VALUE_VARIABLE);
+		StringBuilder script = new StringBuilder();
+		List<String> refs = new ArrayList<>();
+		int pos = 0;
+		while (pos < text.length()) {
+			int end = findCellReferenceEnd(text, pos);
+			if (end > pos) {
+				String ref = text.substring(pos, end);
+				int refIndex = refs.indexOf(ref);
+				if (refIndex < 0) {
+					refIndex = refs.size();
+					refs.add(ref);
+				}
+				script.append(CELL_VARIABLE_PREFIX).append(refIndex);
+				pos = end;
+			} else {
+				script.append(text.charAt(pos));
+				pos++;
+			}
+		}
+		int[] columns = new int[refs.size()];
+		int[] rows = new int[refs.size()];
+		for (int i = 0; i < refs.size(); i++) {
+			String ref = refs.get(i);
+			int rowStart = ref.indexOf(TieConstants.CELL_ADDR_PRE_FIX, 1);
+			if (rowStart < 0) {
+				columns[i] = CellReference
+						.convertColStringToIndex(ref.substring(1));
+				rows[i] = -1;
+			} else {
+				columns[i] = CellReference.convertColStringToIndex(
+						ref.substring(1, rowStart));
+				rows[i] = Integer.parseInt(ref.substring(rowStart + 1)) - 1;
+			}
+		}
+		String finalScript = ("( " + script + " )").toUpperCase()
+				.replace("AND", "&&").replace("OR", "||");
+		return new ValidationRule(finalScript, columns, rows);
+	}
+
+	/**
+	 * Find end of cell reference starts at the position. e.g. $B or $B$5.
+	 *
+	 * @param text
+	 *            the text
+	 * @param start
+	 *            the start
+	 * @return end of reference. same as start if no reference.
+	 */
+	private static int findCellReferenceEnd(final String text,
+			final int start) {
+		if (text.charAt(start) != '$') {
+			return start;
+		}
+		int pos = start + 1;
+		while ((pos < text.length()) && Character.isLetter(text.charAt(pos))) {
+			pos++;
+		}
+		if (pos == start + 1) {
+			return start;
+		}
+		if ((pos + 1 < text.length()) && (text.charAt(pos) == '$')
+				&& Character.isDigit(text.charAt(pos + 1))) {
+			pos++;
+			while ((pos < text.length())
+					&& Character.isDigit(text.charAt(pos))) {
+				pos++;
+			}
+		}
+		return pos;
+	}
+
+	/**
+	 * Validate the value.
+	 *
+	 * @param value
+	 *            the value of validated cell
+	 * @param rowIndex
+	 *            the row index of validated cell
+	 * @param sheet
+	 *            the sheet
+	 * @return true, if passed
+	 */
+	public boolean evaluate(final String value, final int rowIndex,
+			final Sheet sheet) {
+		Map<String, Object> context = new HashMap<>();
+		context.put(VALUE_VARIABLE, toBoundValue(value));
+		for (int i = 0; i < refColumns.length; i++) {
+			int refRow = refRows[i];
+			if (refRow < 0) {
+				refRow = rowIndex;
+			}
+			context.put(CELL_VARIABLE_PREFIX + i, toBoundValue(
+					getCellValue(sheet, refRow, refColumns[i])));
+		}
+		try {
+			Object result = expression.evaluate(context);
+			return (result instanceof Boolean) && (Boolean) result;
+		} catch (Exception e) {
+			LOG.log(Level.SEVERE,
+					"Validation rule script = "
+							+ expression.getJexlExpression().getExpression()
+							+ "; error = " + e.getLocalizedMessage(),
+					e);
+			return false;
+		}
+	}
+
+	/**
+	 * Gets the cell value.
+	 *
+	 * @param sheet
+	 *            the sheet
+	 * @param rowIndex
+	 *            the row index
+	 * @param colIndex
+	 *            the col index
+	 * @return the cell value. empty if no cell.
+	 */
+	private static String getCellValue(final Sheet sheet, final int rowIndex,
+			final int colIndex) {
+		Row row = sheet.getRow(rowIndex);
+		if (row == null) {
+			return "";
+		}
+		Cell cell = row.getCell(colIndex,
+				MissingCellPolicy.CREATE_NULL_AS_BLANK);
+		String str = CellUtility.getCellValueWithoutFormat(cell);
+		if (str == null) {
+			return "";
+		}
+		return str;
+	}
+
+	/**
+	 * Convert text value to the object bound into script. Numbers and
+	 * booleans are converted as they were written in the rule.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the object
+	 */
+	static Object toBoundValue(final String value) {
+		if (value == null) {
+			return null;
+		}
+		String str = value.trim();
+		if (INTEGER_PATTERN.matcher(str).matches()) {
+			return Long.valueOf(str);
+		}
+		if (NUMBER_PATTERN.matcher(str).matches()) {
+			return Double.valueOf(str);
+		}
+		if ("true".equalsIgnoreCase(str) || "false".equalsIgnoreCase(str)) {
+			return Boolean.valueOf(str);
+		}
+		return str.toUpperCase();
+	}
+
+}
@@ -5,12 +5,21 @@
 
 package org.tiefaces.components.websheet.service;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -25,6 +34,7 @@ import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.apache.poi.ss.usermodel.Row.MissingCellPolicy;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.util.IOUtils;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.primefaces.component.datatable.DataTable;
 import org.primefaces.context.RequestContext;
@@ -37,9 +47,13 @@ import org.tiefaces.components.websheet.configuration.ConfigurationHandler;
 import org.tiefaces.components.websheet.configuration.RangeBuildRef;
 import org.tiefaces.components.websheet.configuration.RowsMapping;
 import org.tiefaces.components.websheet.configuration.SheetConfiguration;
+import org.tiefaces.components.websheet.configuration.TemplateRegistry;
+import org.tiefaces.components.websheet.configuration.TemplateRegistry.ParsedTemplate;
 import org.tiefaces.components.websheet.dataobjects.FacesCell;
 import org.tiefaces.components.websheet.dataobjects.FacesRow;
 import org.tiefaces.components.websheet.dataobjects.HeaderCell;
+import org.tiefaces.components.websheet.dataobjects.LazyBodyRows;
+import org.tiefaces.components.websheet.dataobjects.MergedRegionIndex;
 import org.tiefaces.components.websheet.dataobjects.TieCell;
 import org.tiefaces.components.websheet.utility.CellStyleUtility;
 import org.tiefaces.components.websheet.utility.CellUtility;
@@ -62,6 +76,14 @@ public class WebSheetLoader implements Serializable {
 	private static final Logger LOG = Logger
 			.getLogger(WebSheetLoader.class.getName());
 
+	/**
+	 * shared executor loading sheets in parallel, bounded by number of
+	 * processors for all sessions. when the queue is full the sheet is
+	 * loaded in caller thread.
+	 */
+	private static final ThreadPoolExecutor LOAD_EXECUTOR =
+			createLoadExecutor();
+
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 1L;
 
@@ -81,14 +103,11 @@ public class WebSheetLoader implements Serializable {
 	 *
 	 * @param sheetConfig
 	 *            the sheet config
-	 * @param cellRangeMap
-	 *            the cell range map
-	 * @param skippedRegionCells
-	 *            the skipped region cells
+	 * @param regionIndex
+	 *            the merged region index
 	 */
 	private void loadHeaderRows(final SheetConfiguration sheetConfig,
-			final Map<String, CellRangeAddress> cellRangeMap,
-			final List<String> skippedRegionCells) {
+			final MergedRegionIndex regionIndex) {
 
 		int top = sheetConfig.getHeaderCellRange().getTopRow();
 		int bottom = sheetConfig.getHeaderCellRange().getBottomRow();
@@ -134,8 +153,7 @@ public class WebSheetLoader implements Serializable {
 			for (int i = top; i <= bottom; i++) {
 				parent.getHeaderRows()
 						.add(loadHeaderRowWithConfigurationTab(sheetConfig,
-								rangeBuildRef, i, cellRangeMap,
-								skippedRegionCells));
+								rangeBuildRef, i, regionIndex));
 
 			}
 			// set showlinenumber to false as default
@@ -245,17 +263,14 @@ public class WebSheetLoader implements Serializable {
 	 *            the range build ref
 	 * @param currentRow
 	 *            the current row
-	 * @param cellRangeMap
-	 *            the cell range map
-	 * @param skippedRegionCells
-	 *            the skipped region cells
+	 * @param regionIndex
+	 *            the merged region index
 	 * @return the list
 	 */
 	private List<HeaderCell> loadHeaderRowWithConfigurationTab(
 			final SheetConfiguration sheetConfig,
 			final RangeBuildRef rangeBuildRef, final int currentRow,
-			final Map<String, CellRangeAddress> cellRangeMap,
-			final List<String> skippedRegionCells) {
+			final MergedRegionIndex regionIndex) {
 
 		Sheet sheet1 = rangeBuildRef.getSheet();
 		int left = rangeBuildRef.getLeft();
@@ -264,10 +279,7 @@ public class WebSheetLoader implements Serializable {
 		Row row = sheet1.getRow(currentRow);
 		List<HeaderCell> headercells = new ArrayList<>();
 		for (int cindex = left; cindex <= right; cindex++) {
-			String cellindex = CellUtility.getCellIndexNumberKey(cindex,
-					currentRow);
-
-			if (!skippedRegionCells.contains(cellindex)
+			if (!regionIndex.isSkipped(currentRow, cindex)
 					&& !sheet1.isColumnHidden(cindex)) {
 				Cell cell = null;
 				if (row != null) {
@@ -280,16 +292,17 @@ public class WebSheetLoader implements Serializable {
 					FacesCell fcell = new FacesCell();
 
 					CellUtility.convertCell(sheetConfig, fcell, cell,
-							cellRangeMap, originRowIndex,
+							regionIndex, originRowIndex,
 							parent.getCellAttributesMap(), null);
 					parent.getPicHelper().setupFacesCellPictureCharts(
 							sheet1, fcell, cell, WebSheetUtility
 									.getFullCellRefName(sheet1, cell));
 					CellStyleUtility.setupCellStyle(parent.getWb(), fcell,
-							cell, row.getHeightInPoints());
+							cell, row.getHeightInPoints(),
+							parent.getCellStyleCache());
 					fcell.setColumnStyle(fcell.getColumnStyle()
-							+ getColumnWidthStyle(sheet1, cellRangeMap,
-									cellindex, cindex, totalWidth));
+							+ getColumnWidthStyle(sheet1, regionIndex,
+									currentRow, cindex, totalWidth));
 					fcell.setColumnIndex(cindex);
 
 					headercells.add(new HeaderCell(
@@ -313,10 +326,10 @@ public class WebSheetLoader implements Serializable {
 	 *
 	 * @param sheet1
 	 *            the sheet 1
-	 * @param cellRangeMap
-	 *            the cell range map
-	 * @param cellindex
-	 *            the cellindex
+	 * @param regionIndex
+	 *            the merged region index
+	 * @param rowIndex
+	 *            the row index
 	 * @param cindex
 	 *            the cindex
 	 * @param totalWidth
@@ -324,11 +337,11 @@ public class WebSheetLoader implements Serializable {
 	 * @return the column width style
 	 */
 	private String getColumnWidthStyle(final Sheet sheet1,
-			final Map<String, CellRangeAddress> cellRangeMap,
-			final String cellindex, final int cindex,
-			final double totalWidth) {
+			final MergedRegionIndex regionIndex, final int rowIndex,
+			final int cindex, final double totalWidth) {
 
-		CellRangeAddress caddress = cellRangeMap.get(cellindex);
+		CellRangeAddress caddress = regionIndex.getAnchorRegion(rowIndex,
+				cindex);
 		double colWidth;
 		// check whether the cell has rowspan or colspan
 		if (caddress != null) {
@@ -351,6 +364,7 @@ public class WebSheetLoader implements Serializable {
 	 */
 	private void clearWorkbook() {
 		parent.setFormulaEvaluator(null);
+		parent.setFormulaDependencyGraph(null);
 		parent.setDataFormatter(null);
 		parent.setSheetConfigMap(null);
 		parent.setTabs(null);
@@ -359,12 +373,17 @@ public class WebSheetLoader implements Serializable {
 		parent.setHeaderRows(null);
 		parent.setBodyRows(null);
 		parent.setWb(null);
+		parent.getSerialWb().setTemplate(null, null);
 		parent.getHeaderRows().clear();
 		parent.getBodyRows().clear();
-		parent.getCharsData().getChartsMap().clear();
+		parent.getCharsData().clearChartsMap();
 		parent.getCharsData().getChartDataMap().clear();
 		parent.getCharsData().getChartAnchorsMap().clear();
 		parent.getCharsData().getChartPositionMap().clear();
+		parent.getCharsData().getChartSourceIndex().clear();
+		parent.getCharsData().getChangedChartIds().clear();
+		parent.getImageKeysMap().clear();
+		parent.getInvalidCellsMap().clear();
 		parent.getCellAttributesMap().clear();
 	}
 
@@ -381,9 +400,35 @@ public class WebSheetLoader implements Serializable {
 			final Map<String, Object> dataContext) {
 
 		try {
-			Workbook wb = WorkbookFactory.create(fis);
-			int ireturn = loadWorkbook(wb, dataContext);
+			// keep original template bytes. used for key of template registry.
+			byte[] templateBytes = IOUtils.toByteArray(fis);
 			fis.close();
+			String templateKey = null;
+			ParsedTemplate parsed = null;
+			if (parent.isTemplateCache()) {
+				templateKey = TemplateRegistry.buildKey(templateBytes,
+						parent.isSkipConfiguration());
+				parsed = TemplateRegistry.get(templateKey);
+			}
+			Workbook wb;
+			if (parsed != null) {
+				wb = parsed.createWorkbook();
+			} else {
+				wb = WorkbookFactory
+						.create(new ByteArrayInputStream(templateBytes));
+			}
+			int ireturn = loadWorkbook(wb, dataContext, templateKey,
+					parsed);
+			if ((ireturn > 0) && (templateKey != null)) {
+				// session snapshot is kept over the registered template.
+				ParsedTemplate registered = parsed;
+				if (registered == null) {
+					registered = TemplateRegistry.get(templateKey);
+				}
+				if (registered != null) {
+					parent.getSerialWb().setTemplate(templateKey, registered);
+				}
+			}
 			return ireturn;
 		} catch (Exception e) {
 			LOG.log(Level.SEVERE, "Web Form loadWorkbook Error Exception = "
@@ -404,6 +449,25 @@ public class WebSheetLoader implements Serializable {
 	 */
 	public final int loadWorkbook(final Workbook wb,
 			final Map<String, Object> dataContext) {
+		return loadWorkbook(wb, dataContext, null, null);
+	}
+
+	/**
+	 * Load workbook.
+	 *
+	 * @param wb
+	 *            the wb
+	 * @param dataContext
+	 *            the data context
+	 * @param templateKey
+	 *            the key in template registry. null if not use registry.
+	 * @param parsed
+	 *            the parsed template from registry. null if not found.
+	 * @return the int
+	 */
+	private int loadWorkbook(final Workbook wb,
+			final Map<String, Object> dataContext, final String templateKey,
+			final ParsedTemplate parsed) {
 
 		try {
 			clearWorkbook();
@@ -415,8 +479,19 @@ public class WebSheetLoader implements Serializable {
 			LOG.fine("Begin load work book...");
 			parent.setWb(wb);
 			parent.getSerialDataContext().setDataContext(dataContext);
-			parent.setSheetConfigMap(
-					new ConfigurationHandler(parent).buildConfiguration());
+			if (parsed != null) {
+				parent.setSheetConfigMap(parsed.createConfiguration(wb,
+						parent.getCellAttributesMap()));
+			} else {
+				parent.setSheetConfigMap(
+						new ConfigurationHandler(parent).buildConfiguration());
+				if (templateKey != null) {
+					// register before data loaded into the workbook.
+					TemplateRegistry.register(templateKey, wb,
+							parent.getSheetConfigMap(),
+							parent.getCellAttributesMap());
+				}
+			}
 			parent.reCalcMaxColCounts();
 			parent.getChartHelper().loadChartsMap();
 			parent.getPicHelper().loadPicturesMap();
@@ -469,37 +544,254 @@ public class WebSheetLoader implements Serializable {
 			parent.getSerialDataContext().getDataContext().put("tiecells", new HashMap<String,TieCell>());
 		}
 
+		if (parent.isLazyTabLoad()) {
+			// sheets are expanded when their tabs are opened.
+			return;
+		}
+
+		if (parent.isParallelLoad() && !parent.isAdvancedContext()
+				&& (parent.getSheetConfigMap().size() > 1)) {
+			loadSheetsDataInParallel();
+		} else {
+			for (SheetConfiguration sheetConfig : parent.getSheetConfigMap()
+					.values()) {
+				loadSheetData(sheetConfig,
+						parent.getSerialDataContext().getDataContext(),
+						null);
+			}
+		}
 		for (SheetConfiguration sheetConfig : parent.getSheetConfigMap()
 				.values()) {
-			List<RowsMapping> currentRowsMappingList = null;
-			ConfigBuildRef configBuildRef = new ConfigBuildRef(
-					parent.getWbWrapper(),
-					parent.getWb().getSheet(sheetConfig.getSheetName()),
-					parent.getExpEngine(), parent.getCellHelper(),
-					sheetConfig.getCachedCells(),
-					parent.getCellAttributesMap(),
-					sheetConfig.getFinalCommentMap());
-			int length = sheetConfig.getFormCommand().buildAt(null,
-					configBuildRef,
-					sheetConfig.getFormCommand().getTopRow(),
-					parent.getSerialDataContext().getDataContext(),
-					currentRowsMappingList);
-			sheetConfig.setShiftMap(configBuildRef.getShiftMap());
-			sheetConfig.setCollectionObjNameMap(
-					configBuildRef.getCollectionObjNameMap());
-			sheetConfig.setCommandIndexMap(
-					configBuildRef.getCommandIndexMap());
-			sheetConfig.setWatchList(configBuildRef.getWatchList());
-			sheetConfig
-					.setBodyAllowAddRows(configBuildRef.isBodyAllowAdd());
-			sheetConfig.getBodyCellRange().setBottomRow(
-					sheetConfig.getFormCommand().getTopRow() + length - 1);
-			sheetConfig.setBodyPopulated(true);
+			// merged regions changed after template expanded.
+			parent.removeMergedRegionIndex(sheetConfig.getSheetName());
 		}
 		parent.getCellHelper().reCalc();
 
 	}
 
+	/**
+	 * Load data of the sheet if it's not expanded yet in lazy tab load mode.
+	 * Sheets referred by formulas of the sheet are expanded together,
+	 * otherwise the formulas are evaluated against template rows.
+	 *
+	 * @param sheetConfig
+	 *            the sheet config
+	 */
+	private void loadSheetDataOnDemand(final SheetConfiguration sheetConfig) {
+		if (!parent.isLazyTabLoad() || sheetConfig.isBodyPopulated()
+				|| (parent.getSerialDataContext().getDataContext() == null)) {
+			return;
+		}
+		List<SheetConfiguration> sheetConfigs = new ArrayList<>();
+		sheetConfigs.add(sheetConfig);
+		Workbook wb = parent.getWb();
+		for (Integer sheetIndex : parent.getFormulaDependencyGraph()
+				.findPrecedentSheets(
+						wb.getSheetIndex(sheetConfig.getSheetName()))) {
+			String sheetName = wb.getSheetName(sheetIndex);
+			for (SheetConfiguration precedent : parent.getSheetConfigMap()
+					.values()) {
+				if (precedent.getSheetName().equals(sheetName)
+						&& !precedent.isBodyPopulated()) {
+					sheetConfigs.add(precedent);
+				}
+			}
+		}
+		loadSheetsData(sheetConfigs);
+	}
+
+	/**
+	 * Find the tab showing the sheet. Current tab is preferred.
+	 *
+	 * @param sheetName
+	 *            the sheet name
+	 * @return the tab name. null if no tab shows the sheet.
+	 */
+	public final String findTabName(final String sheetName) {
+		String currentTabName = parent.getCurrent().getCurrentTabName();
+		SheetConfiguration current = (currentTabName == null) ? null
+				: parent.getSheetConfigMap().get(currentTabName);
+		if ((current != null) && current.getSheetName().equals(sheetName)) {
+			return currentTabName;
+		}
+		for (Map.Entry<String, SheetConfiguration> entry : parent
+				.getSheetConfigMap().entrySet()) {
+			if (entry.getValue().getSheetName().equals(sheetName)) {
+				return entry.getKey();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Load data of the sheet if it's not expanded yet in lazy tab load mode.
+	 * Used when the sheet is changed without its tab opened, e.g. replay
+	 * change journal.
+	 *
+	 * @param sheetName
+	 *            the sheet name
+	 */
+	public final void loadSheetDataOnDemand(final String sheetName) {
+		String tabName = findTabName(sheetName);
+		if (tabName != null) {
+			loadSheetDataOnDemand(parent.getSheetConfigMap().get(tabName));
+		}
+	}
+
+	/**
+	 * Load data of all sheets not expanded yet in lazy tab load mode. Used
+	 * before whole workbook is needed, e.g. export.
+	 */
+	public final void loadRemainingSheetsData() {
+		if (!parent.isLazyTabLoad()
+				|| (parent.getSerialDataContext().getDataContext() == null)) {
+			return;
+		}
+		List<SheetConfiguration> sheetConfigs = new ArrayList<>();
+		for (SheetConfiguration sheetConfig : parent.getSheetConfigMap()
+				.values()) {
+			if (!sheetConfig.isBodyPopulated()) {
+				sheetConfigs.add(sheetConfig);
+			}
+		}
+		if (!sheetConfigs.isEmpty()) {
+			loadSheetsData(sheetConfigs);
+		}
+	}
+
+	/**
+	 * Load data of the sheets, then recalc only formulas in the sheets and
+	 * sheets refer to them. Sheets not expanded yet are left as they are.
+	 *
+	 * @param sheetConfigs
+	 *            the sheet configs
+	 */
+	private void loadSheetsData(final List<SheetConfiguration> sheetConfigs) {
+		List<Sheet> sheets = new ArrayList<>();
+		for (SheetConfiguration sheetConfig : sheetConfigs) {
+			loadSheetData(sheetConfig,
+					parent.getSerialDataContext().getDataContext(), null);
+			parent.removeMergedRegionIndex(sheetConfig.getSheetName());
+			sheets.add(parent.getWb().getSheet(sheetConfig.getSheetName()));
+		}
+		// formulas changed after template expanded.
+		parent.getCellHelper().reCalcSheets(sheets);
+	}
+
+	/**
+	 * Creates the load executor.
+	 *
+	 * @return the thread pool executor
+	 */
+	private static ThreadPoolExecutor createLoadExecutor() {
+		int threads = Runtime.getRuntime().availableProcessors();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads,
+				threads, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(
+						TieConstants.DEFAULT_PARALLEL_LOAD_QUEUE_SIZE),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(final Runnable r) {
+						Thread thread = new Thread(r, "tiefaces-load");
+						thread.setDaemon(true);
+						return thread;
+					}
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Load data of each sheet on the shared load executor. All the sheets
+	 * share one workbook, which is not thread safe (e.g. shifting rows
+	 * updates formulas in all sheets). So every sheet build holds the
+	 * workbook lock, and only releases it when evaluating data expressions.
+	 * i.e. only data evaluation runs in parallel, while changes of the
+	 * workbook are serial. It helps when reading data objects is slow, e.g.
+	 * lazy loaded from database, not when the template is large. Each build
+	 * uses its own copy of the data context, as each command puts its var
+	 * into the context.
+	 */
+	private void loadSheetsDataInParallel() {
+		final Map<String, Object> dataContext = parent.getSerialDataContext()
+				.getDataContext();
+		final ReentrantLock workbookLock = new ReentrantLock();
+		List<Callable<Integer>> tasks = new ArrayList<>();
+		for (final SheetConfiguration sheetConfig : parent
+				.getSheetConfigMap().values()) {
+			tasks.add(new Callable<Integer>() {
+				@Override
+				public Integer call() {
+					workbookLock.lock();
+					try {
+						return loadSheetData(sheetConfig,
+								new HashMap<String, Object>(dataContext),
+								workbookLock);
+					} finally {
+						workbookLock.unlock();
+					}
+				}
+			});
+		}
+		try {
+			for (Future<Integer> future : LOAD_EXECUTOR.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(
+					"Interrupted in parallel load data", e);
+		} catch (ExecutionException e) {
+			// fail the load same as sequential load.
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(
+					"Error in parallel load data", cause);
+		}
+	}
+
+	/**
+	 * Load data of one sheet. Expand the form command of the sheet.
+	 *
+	 * @param sheetConfig
+	 *            the sheet config
+	 * @param dataContext
+	 *            the data context
+	 * @param workbookLock
+	 *            the workbook lock held by caller. null if not parallel.
+	 * @return the length of the form
+	 */
+	private int loadSheetData(final SheetConfiguration sheetConfig,
+			final Map<String, Object> dataContext,
+			final ReentrantLock workbookLock) {
+		List<RowsMapping> currentRowsMappingList = null;
+		ConfigBuildRef configBuildRef = new ConfigBuildRef(
+				parent.getWbWrapper(),
+				parent.getWb().getSheet(sheetConfig.getSheetName()),
+				parent.getExpEngine(), parent.getCellHelper(),
+				sheetConfig.getCachedCells(), parent.getCellAttributesMap(),
+				sheetConfig.getFinalCommentMap());
+		configBuildRef.setWorkbookLock(workbookLock);
+		int length = sheetConfig.getFormCommand().buildAt(null,
+				configBuildRef, sheetConfig.getFormCommand().getTopRow(),
+				dataContext, currentRowsMappingList);
+		sheetConfig.setShiftMap(configBuildRef.getShiftMap());
+		sheetConfig.setCollectionObjNameMap(
+				configBuildRef.getCollectionObjNameMap());
+		sheetConfig.setCommandIndexMap(configBuildRef.getCommandIndexMap());
+		sheetConfig.setWatchList(configBuildRef.getWatchList());
+		sheetConfig.setBodyAllowAddRows(configBuildRef.isBodyAllowAdd());
+		sheetConfig.getBodyCellRange().setBottomRow(
+				sheetConfig.getFormCommand().getTopRow() + length - 1);
+		sheetConfig.setBodyPopulated(true);
+		return length;
+	}
+
 	/**
 	 * Find tab index with name.
 	 *
@@ -539,6 +831,7 @@ public class WebSheetLoader implements Serializable {
 
 		SheetConfiguration sheetConfig = parent.getSheetConfigMap()
 				.get(tabName);
+		loadSheetDataOnDemand(sheetConfig);
 
 		parent.setMaxRowsPerPage(
 				parent.getSheetConfigMap().get(tabName).getMaxRowPerPage());
@@ -547,16 +840,14 @@ public class WebSheetLoader implements Serializable {
 
 		// populate repeat rows before setup cell range map
 
-		Map<String, CellRangeAddress> cellRangeMap = ConfigurationUtility
-				.indexMergedRegion(sheet1);
-		List<String> skippedRegionCells = ConfigurationUtility
-				.skippedRegionCells(sheet1);
-		loadHeaderRows(sheetConfig, cellRangeMap, skippedRegionCells);
-		loadBodyRows(sheetConfig, cellRangeMap, skippedRegionCells);
-		parent.getValidationHandler().validateCurrentPage();
+		MergedRegionIndex regionIndex = parent.getMergedRegionIndex(sheet1);
+		loadHeaderRows(sheetConfig, regionIndex);
+		loadBodyRows(sheetConfig);
 		createDynamicColumns(tabName);
 		// reset datatable current page to 1
 		setDataTablePage(0);
+		// validate rows of first page. body rows get the status when loaded.
+		parent.getValidationHandler().validateCurrentPage();
 		parent.getCurrent().setCurrentDataContextName(null);
 		saveObjs();
 		if ((RequestContext.getCurrentInstance() != null)
@@ -636,42 +927,65 @@ public class WebSheetLoader implements Serializable {
 
 	}
 
+	/**
+	 * Reload body rows of current tab. e.g. after workbook rebuilt from
+	 * snapshot.
+	 */
+	public final void reloadBodyRows() {
+		SheetConfiguration sheetConfig = parent.getCurrentSheetConfig();
+		if (sheetConfig != null) {
+			loadBodyRows(sheetConfig);
+		}
+	}
+
 	/**
 	 * Load body rows.
 	 *
 	 * @param sheetConfig
 	 *            the sheet config
-	 * @param cellRangeMap
-	 *            the cell range map
-	 * @param skippedRegionCells
-	 *            the skipped region cells
 	 */
-	private void loadBodyRows(final SheetConfiguration sheetConfig,
-			final Map<String, CellRangeAddress> cellRangeMap,
-			final List<String> skippedRegionCells) {
+	private void loadBodyRows(final SheetConfiguration sheetConfig) {
 
 		int top = sheetConfig.getBodyCellRange().getTopRow();
 		int bottom = CellUtility.getBodyBottomFromConfig(sheetConfig);
 		int left = sheetConfig.getBodyCellRange().getLeftCol();
-		int right = sheetConfig.getBodyCellRange().getRightCol();
-
-		String sheetName = sheetConfig.getSheetName();
-		Sheet sheet1 = parent.getWb().getSheet(sheetName);
 
-		parent.getBodyRows().clear();
 		clearCache();
-
-		for (int i = top; i <= bottom; i++) {
-
-			parent.getBodyRows().add(assembleFacesBodyRow(i, sheet1, left,
-					right, sheetConfig, cellRangeMap, skippedRegionCells));
-
+		if (parent.isLazyBodyRows()) {
+			// rows are assembled on demand for requested page.
+			parent.setBodyRows(new LazyBodyRows(parent, top,
+					bottom - top + 1,
+					Math.max(TieConstants.DEFAULT_MAX_CACHED_BODY_ROWS,
+							2 * sheetConfig.getMaxRowPerPage())));
+		} else {
+			List<FacesRow> bodyRows = new ArrayList<>();
+			for (int i = top; i <= bottom; i++) {
+				bodyRows.add(loadFacesBodyRow(i));
+			}
+			parent.setBodyRows(bodyRows);
 		}
 		sheetConfig.setBodyPopulated(true);
 		parent.getCurrent().setCurrentTopRow(top);
 		parent.getCurrent().setCurrentLeftColumn(left);
 	}
 
+	/**
+	 * Load faces body row of current display sheet.
+	 *
+	 * @param rowIndex
+	 *            the row index
+	 * @return the faces row
+	 */
+	public final FacesRow loadFacesBodyRow(final int rowIndex) {
+		SheetConfiguration sheetConfig = parent.getSheetConfigMap()
+				.get(parent.getCurrent().getCurrentTabName());
+		Sheet sheet1 = parent.getWb().getSheet(sheetConfig.getSheetName());
+		return assembleFacesBodyRow(rowIndex, sheet1,
+				sheetConfig.getBodyCellRange().getLeftCol(),
+				sheetConfig.getBodyCellRange().getRightCol(), sheetConfig,
+				parent.getMergedRegionIndex(sheet1));
+	}
+
 	/**
 	 * Assemble faces body row.
 	 *
@@ -685,17 +999,14 @@ public class WebSheetLoader implements Serializable {
 	 *            the right
 	 * @param sheetConfig
 	 *            the sheet config
-	 * @param cellRangeMap
-	 *            the cell range map
-	 * @param skippedRegionCells
-	 *            the skipped region cells
+	 * @param regionIndex
+	 *            the merged region index
 	 * @return the faces row
 	 */
 	private FacesRow assembleFacesBodyRow(final int rowIndex,
 			final Sheet sheet1, final int left, final int right,
 			final SheetConfiguration sheetConfig,
-			final Map<String, CellRangeAddress> cellRangeMap,
-			final List<String> skippedRegionCells) {
+			final MergedRegionIndex regionIndex) {
 
 		FacesRow facesRow = new FacesRow(rowIndex);
 		Row row = sheet1.getRow(rowIndex);
@@ -704,9 +1015,7 @@ public class WebSheetLoader implements Serializable {
 		String saveAttrList = SaveAttrsUtility.getSaveAttrListFromRow(row);
 		List<FacesCell> bodycells = new ArrayList<>();
 		for (int cindex = left; cindex <= right; cindex++) {
-			String cellindex = CellUtility.getCellIndexNumberKey(cindex,
-					rowIndex);
-			if (!skippedRegionCells.contains(cellindex)
+			if (!regionIndex.isSkipped(rowIndex, cindex)
 					&& !sheet1.isColumnHidden(cindex)) {
 				Cell cell = null;
 				if (row != null) {
@@ -717,14 +1026,17 @@ public class WebSheetLoader implements Serializable {
 					FacesCell fcell = new FacesCell();
 
 					CellUtility.convertCell(sheetConfig, fcell, cell,
-							cellRangeMap, facesRow.getOriginRowIndex(),
+							regionIndex, facesRow.getOriginRowIndex(),
 							parent.getCellAttributesMap(), saveAttrList);
 					parent.getPicHelper().setupFacesCellPictureCharts(
 							sheet1, fcell, cell, WebSheetUtility
 									.getFullCellRefName(sheet1, cell));
 					CellStyleUtility.setupCellStyle(parent.getWb(), fcell,
-							cell, row.getHeightInPoints());
+							cell, row.getHeightInPoints(),
+							parent.getCellStyleCache());
 					fcell.setColumnIndex(cindex);
+					parent.getValidationHandler()
+							.restoreValidationStatus(fcell, cell);
 					bodycells.add(fcell);
 					addCache(cell);
 				} else {
@@ -800,10 +1112,12 @@ public class WebSheetLoader implements Serializable {
 	 */
 	private void processRefreshCell(final String tblName, final int i,
 			final int index, final Cell cell, final FacesCell fcell) {
-		String newValue = CellUtility.getCellValueWithFormat(cell,
-				parent.getFormulaEvaluator(), parent.getDataFormatter());
-		if (parent.getCachedCells().isValueChanged(cell, newValue)) {
+		if (parent.getCachedCells().isValueChanged(cell)) {
 			if (fcell.isHasSaveAttr()) {
+				// only format the value when needed
+				String newValue = CellUtility.getCellValueWithFormat(cell,
+						parent.getFormulaEvaluator(),
+						parent.getDataFormatter());
 				parent.getCellHelper().saveDataInContext(cell, newValue);
 			}
 			RequestContext.getCurrentInstance()
@@ -812,6 +1126,63 @@ public class WebSheetLoader implements Serializable {
 		}
 	}
 
+	/**
+	 * Refresh changed cell recorded in change feed of cached cells.
+	 *
+	 * @param tblName
+	 *            the tbl name
+	 * @param i
+	 *            the i
+	 * @param index
+	 *            the index
+	 * @param cell
+	 *            the cell
+	 * @param fcell
+	 *            the fcell
+	 */
+	public final void refreshChangedCell(final String tblName, final int i,
+			final int index, final Cell cell, final FacesCell fcell) {
+		if ((cell != null) && (tblName != null)) {
+			try {
+				processRefreshCell(tblName, i, index, cell, fcell);
+			} catch (Exception ex) {
+				LOG.log(Level.SEVERE, "refresh Changed Cell error : "
+						+ ex.getLocalizedMessage(), ex);
+			}
+		}
+	}
+
+	/**
+	 * Rebuild cached cells for body rows. Cached cells are keyed by position,
+	 * so need rebuild after rows shifted.
+	 *
+	 * @param sheet
+	 *            the sheet
+	 * @param sheetConfig
+	 *            the sheet config
+	 */
+	private void rebuildCache(final Sheet sheet,
+			final SheetConfiguration sheetConfig) {
+		clearCache();
+		int top = sheetConfig.getBodyCellRange().getTopRow();
+		int left = sheetConfig.getBodyCellRange().getLeftCol();
+		List<FacesRow> bodyRows = parent.getBodyRows();
+		for (int irow = 0; irow < bodyRows.size(); irow++) {
+			if ((bodyRows instanceof LazyBodyRows)
+					&& !((LazyBodyRows) bodyRows).isLoaded(irow)) {
+				// not loaded rows will be cached when loaded.
+				continue;
+			}
+			List<FacesCell> cells = bodyRows.get(irow).getCells();
+			for (int index = 0; index < cells.size(); index++) {
+				if (cells.get(index) != null) {
+					addCache(CellUtility.getPoiCellFromSheet(irow + top,
+							index + left, sheet));
+				}
+			}
+		}
+	}
+
 	/**
 	 * Creates the dynamic columns.
 	 *
@@ -835,16 +1206,32 @@ public class WebSheetLoader implements Serializable {
 	}
 
 	/**
-	 * Adds the repeat row.
+	 * Adds the repeat row in current tab.
 	 *
 	 * @param rowIndex
 	 *            the row index
 	 */
 	public final void addRepeatRow(final int rowIndex) {
+		addRepeatRow(parent.getCurrent().getCurrentTabName(), rowIndex);
+	}
+
+	/**
+	 * Adds the repeat row in the tab. Web rows are only refreshed when it's
+	 * the current tab, e.g. replay change journal on other tab.
+	 *
+	 * @param tabName
+	 *            the tab name
+	 * @param rowIndex
+	 *            the row index
+	 */
+	public final void addRepeatRow(final String tabName,
+			final int rowIndex) {
 
 		try {
+			boolean currentTab = tabName
+					.equals(parent.getCurrent().getCurrentTabName());
 			SheetConfiguration sheetConfig = parent.getSheetConfigMap()
-					.get(parent.getCurrent().getCurrentTabName());
+					.get(tabName);
 			Sheet sheet = parent.getWb()
 					.getSheet(sheetConfig.getSheetName());
 			ConfigBuildRef configBuildRef = new ConfigBuildRef(
@@ -854,6 +1241,9 @@ public class WebSheetLoader implements Serializable {
 					sheetConfig.getFinalCommentMap());
 			// set add mode
 			configBuildRef.setAddMode(true);
+			// keep merged region index updated when copying rows.
+			configBuildRef
+					.setMergedRegionIndex(parent.getMergedRegionIndex(sheet));
 			configBuildRef.setCollectionObjNameMap(
 					sheetConfig.getCollectionObjNameMap());
 			configBuildRef
@@ -862,9 +1252,19 @@ public class WebSheetLoader implements Serializable {
 			configBuildRef.setWatchList(sheetConfig.getWatchList());
 			int length = CommandUtility.addRow(configBuildRef, rowIndex,
 					parent.getSerialDataContext().getDataContext());
-			refreshBodyRowsInRange(configBuildRef.getInsertPosition(),
-					length, sheet, sheetConfig);
-			parent.getCellHelper().reCalc();
+			// each var is removed from data context. restore it on next save.
+			parent.getCurrent().setCurrentDataContextName(null);
+			if (currentTab) {
+				refreshBodyRowsInRange(configBuildRef.getInsertPosition(),
+						length, sheet, sheetConfig);
+			}
+			parent.getChartHelper().rebuildChartSourceIndex();
+			parent.getCellHelper().reCalcSheet(sheet);
+			if (currentTab) {
+				rebuildCache(sheet, sheetConfig);
+				// validation status is keyed by position.
+				parent.getValidationHandler().validateCurrentPage();
+			}
 		} catch (AddRowException e) {
 			FacesContext.getCurrentInstance().addMessage(null,
 					new FacesMessage(FacesMessage.SEVERITY_ERROR,
@@ -895,18 +1295,20 @@ public class WebSheetLoader implements Serializable {
 	private void refreshBodyRowsInRange(final int insertPosition,
 			final int length, final Sheet sheet,
 			final SheetConfiguration sheetConfig) {
-		Map<String, CellRangeAddress> cellRangeMap = ConfigurationUtility
-				.indexMergedRegion(sheet);
-		List<String> skippedRegionCells = ConfigurationUtility
-				.skippedRegionCells(sheet);
 		int top = sheetConfig.getBodyCellRange().getTopRow();
+		if (parent.getBodyRows() instanceof LazyBodyRows) {
+			// new rows will be loaded when needed.
+			((LazyBodyRows) parent.getBodyRows())
+					.insertRows(insertPosition - top, length);
+			return;
+		}
 		int left = sheetConfig.getBodyCellRange().getLeftCol();
 		int right = sheetConfig.getBodyCellRange().getRightCol();
 		for (int irow = insertPosition; irow < (insertPosition
 				+ length); irow++) {
 			parent.getBodyRows().add(irow - top,
 					assembleFacesBodyRow(irow, sheet, left, right,
-							sheetConfig, cellRangeMap, skippedRegionCells));
+							sheetConfig, parent.getMergedRegionIndex(sheet)));
 		}
 		for (int irow = insertPosition + length - top; irow < parent
 				.getBodyRows().size(); irow++) {
@@ -916,15 +1318,31 @@ public class WebSheetLoader implements Serializable {
 	}
 
 	/**
-	 * Delete repeat row.
+	 * Delete repeat row in current tab.
 	 *
 	 * @param rowIndex
 	 *            the row index
 	 */
 	public final void deleteRepeatRow(final int rowIndex) {
+		deleteRepeatRow(parent.getCurrent().getCurrentTabName(), rowIndex);
+	}
+
+	/**
+	 * Delete repeat row in the tab. Web rows are only refreshed when it's the
+	 * current tab.
+	 *
+	 * @param tabName
+	 *            the tab name
+	 * @param rowIndex
+	 *            the row index
+	 */
+	public final void deleteRepeatRow(final String tabName,
+			final int rowIndex) {
 		try {
+			boolean currentTab = tabName
+					.equals(parent.getCurrent().getCurrentTabName());
 			SheetConfiguration sheetConfig = parent.getSheetConfigMap()
-					.get(parent.getCurrent().getCurrentTabName());
+					.get(tabName);
 			Sheet sheet = parent.getWb()
 					.getSheet(sheetConfig.getSheetName());
 			ConfigBuildRef configBuildRef = new ConfigBuildRef(
@@ -941,8 +1359,18 @@ public class WebSheetLoader implements Serializable {
 			configBuildRef.setWatchList(sheetConfig.getWatchList());
 			CommandUtility.deleteRow(configBuildRef, rowIndex,
 					parent.getSerialDataContext().getDataContext(),
-					sheetConfig, parent.getBodyRows());
-			parent.getCellHelper().reCalc();
+					sheetConfig, currentTab ? parent.getBodyRows() : null);
+			// each var is removed from data context. restore it on next save.
+			parent.getCurrent().setCurrentDataContextName(null);
+			// merged regions changed after rows removed. rebuild when needed.
+			parent.removeMergedRegionIndex(sheet.getSheetName());
+			parent.getChartHelper().rebuildChartSourceIndex();
+			parent.getCellHelper().reCalcSheet(sheet);
+			if (currentTab) {
+				rebuildCache(sheet, sheetConfig);
+				// validation status is keyed by position.
+				parent.getValidationHandler().validateCurrentPage();
+			}
 		} catch (DeleteRowException e) {
 			FacesContext.getCurrentInstance().addMessage(null,
 					new FacesMessage(FacesMessage.SEVERITY_ERROR,
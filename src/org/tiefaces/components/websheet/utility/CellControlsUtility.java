@@ -9,6 +9,8 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -32,6 +34,14 @@ public final class CellControlsUtility {
 	private static final Logger LOG = Logger
 			.getLogger(CellControlsUtility.class.getName());
 
+	/** resolved setters by class and property name. */
+	private static final ConcurrentMap<Class<?>, ConcurrentMap<String, Accessor>> SETTERS =
+			new ConcurrentHashMap<>();
+
+	/** resolved getters by class and property name. */
+	private static final ConcurrentMap<Class<?>, ConcurrentMap<String, Accessor>> GETTERS =
+			new ConcurrentHashMap<>();
+
 	/** list of supported components. */
 	private static List<String> supportComponents = Arrays.asList(
 			"Calendar", "SelectOneMenu", "InputNumber", "InputTextarea");
@@ -185,6 +195,34 @@ public final class CellControlsUtility {
 		public abstract Object parseValue(String value);
 	}
 
+	/**
+	 * Resolved accessor method of a property. Method is null if not found.
+	 */
+	private static final class Accessor {
+
+		/** not found accessor. */
+		private static final Accessor NOT_FOUND = new Accessor(null, null);
+
+		/** The method. */
+		private final Method method;
+
+		/** parameter type of setter. null for getter. */
+		private final AttributesType type;
+
+		/**
+		 * Instantiates a new accessor.
+		 *
+		 * @param pmethod
+		 *            the method
+		 * @param ptype
+		 *            the parameter type
+		 */
+		private Accessor(final Method pmethod, final AttributesType ptype) {
+			this.method = pmethod;
+			this.type = ptype;
+		}
+	}
+
 	/**
 	 * hide constructor.
 	 */
@@ -255,18 +293,18 @@ public final class CellControlsUtility {
 	/**
 	 * match parameter of method.
 	 * 
-	 * @param obj
-	 *            object.
+	 * @param clazz
+	 *            class of object.
 	 * @param methodName
 	 *            method name.
 	 * @return index of paraMatchArray if mached. otherwise return -1.
 	 */
-	private static AttributesType matchParaMeterOfMethod(final Object obj,
-			final String methodName) {
+	private static AttributesType matchParaMeterOfMethod(
+			final Class<?> clazz, final String methodName) {
 
 		for (AttributesType attr : AttributesType.values()) {
 			try {
-				obj.getClass().getMethod(methodName,
+				clazz.getMethod(methodName,
 						new Class[] { attr.clazz });
 				return attr;
 
@@ -310,17 +348,10 @@ public final class CellControlsUtility {
 			final String propertyName, final String propertyValue,
 			final boolean ignoreNonExisting) {
 		try {
-
-			String methodName = "set"
-					+ Character.toUpperCase(propertyName.charAt(0))
-					+ propertyName.substring(1);
-			AttributesType parameterType = matchParaMeterOfMethod(obj,
-					methodName);
-			if (parameterType != null) {
-				Method method = obj.getClass().getMethod(methodName,
-						new Class[] { parameterType.clazz });
-				method.invoke(obj,
-						convertToObject(parameterType, propertyValue));
+			Accessor setter = findSetter(obj.getClass(), propertyName);
+			if (setter.method != null) {
+				setter.method.invoke(obj,
+						convertToObject(setter.type, propertyValue));
 			}
 		} catch (Exception e) {
 			String msg = "failed to set property '" + propertyName
@@ -349,11 +380,12 @@ public final class CellControlsUtility {
 	public static String getObjectPropertyValue(final Object obj,
 			final String propertyName, final boolean ignoreNonExisting) {
 		try {
-			Method method = obj.getClass()
-					.getMethod("get"
-							+ Character.toUpperCase(propertyName.charAt(0))
-							+ propertyName.substring(1));
-			return (String) method.invoke(obj);
+			Accessor getter = findGetter(obj.getClass(), propertyName);
+			if (getter.method == null) {
+				throw new NoSuchMethodException(
+						getAccessorName("get", propertyName));
+			}
+			return (String) getter.method.invoke(obj);
 		} catch (Exception e) {
 			String msg = "failed to get property '" + propertyName
 					+ "' for object " + obj;
@@ -367,6 +399,109 @@ public final class CellControlsUtility {
 		return null;
 	}
 
+	/**
+	 * Gets the accessor name. e.g. setName for property name.
+	 *
+	 * @param prefix
+	 *            the prefix. get or set.
+	 * @param propertyName
+	 *            the property name
+	 * @return the accessor name
+	 */
+	private static String getAccessorName(final String prefix,
+			final String propertyName) {
+		return prefix + Character.toUpperCase(propertyName.charAt(0))
+				+ propertyName.substring(1);
+	}
+
+	/**
+	 * Gets the property accessors of the class from cache.
+	 *
+	 * @param cache
+	 *            the cache
+	 * @param clazz
+	 *            the clazz
+	 * @return the accessors of the class
+	 */
+	private static ConcurrentMap<String, Accessor> getClassAccessors(
+			final ConcurrentMap<Class<?>, ConcurrentMap<String, Accessor>> cache,
+			final Class<?> clazz) {
+		ConcurrentMap<String, Accessor> accessors = cache.get(clazz);
+		if (accessors == null) {
+			accessors = new ConcurrentHashMap<>();
+			ConcurrentMap<String, Accessor> existing = cache
+					.putIfAbsent(clazz, accessors);
+			if (existing != null) {
+				accessors = existing;
+			}
+		}
+		return accessors;
+	}
+
+	/**
+	 * Find setter of the property. Resolved once for each class and
+	 * property.
+	 *
+	 * @param clazz
+	 *            the clazz
+	 * @param propertyName
+	 *            the property name
+	 * @return the accessor. method is null if not found.
+	 */
+	private static Accessor findSetter(final Class<?> clazz,
+			final String propertyName) {
+		ConcurrentMap<String, Accessor> accessors = getClassAccessors(
+				SETTERS, clazz);
+		Accessor setter = accessors.get(propertyName);
+		if (setter == null) {
+			String methodName = getAccessorName("set", propertyName);
+			setter = Accessor.NOT_FOUND;
+			AttributesType parameterType = matchParaMeterOfMethod(clazz,
+					methodName);
+			if (parameterType != null) {
+				try {
+					setter = new Accessor(clazz.getMethod(methodName,
+							new Class[] { parameterType.clazz }),
+							parameterType);
+				} catch (NoSuchMethodException e) {
+					LOG.log(Level.FINE, " error in findSetter = "
+							+ e.getLocalizedMessage(), e);
+				}
+			}
+			accessors.putIfAbsent(propertyName, setter);
+		}
+		return setter;
+	}
+
+	/**
+	 * Find getter of the property. Resolved once for each class and
+	 * property.
+	 *
+	 * @param clazz
+	 *            the clazz
+	 * @param propertyName
+	 *            the property name
+	 * @return the accessor. method is null if not found.
+	 */
+	private static Accessor findGetter(final Class<?> clazz,
+			final String propertyName) {
+		ConcurrentMap<String, Accessor> accessors = getClassAccessors(
+				GETTERS, clazz);
+		Accessor getter = accessors.get(propertyName);
+		if (getter == null) {
+			getter = Accessor.NOT_FOUND;
+			try {
+				getter = new Accessor(clazz.getMethod(
+						getAccessorName("get", propertyName)), null);
+			} catch (NoSuchMethodException e) {
+				LOG.log(Level.FINE, " error in findGetter = "
+						+ e.getLocalizedMessage(), e);
+			}
+			accessors.putIfAbsent(propertyName, getter);
+		}
+		return getter;
+	}
+
 	/**
 	 * Setup control attributes.
 	 *
@@ -432,9 +567,31 @@ public final class CellControlsUtility {
 			final Map<String, List<CellFormAttributes>> validateMaps,
 			final int originRowIndex,
 			final Cell cell) {
-		String key = cell.getSheet().getSheetName() + "!" + CellUtility
-				.getCellIndexNumberKey(cell.getColumnIndex(), originRowIndex);
-		
+		return findCellValidateAttributes(validateMaps, originRowIndex,
+				cell.getSheet().getSheetName(), cell.getColumnIndex());
+	}
+
+	/**
+	 * Find cell validate attributes with sheet name and column index. Used
+	 * when the cell may not exist in the row.
+	 *
+	 * @param validateMaps
+	 *            validateMaps.
+	 * @param originRowIndex
+	 *            original Row Index from template.
+	 * @param sheetName
+	 *            sheet name.
+	 * @param columnIndex
+	 *            column index.
+	 * @return list.
+	 */
+	public static List<CellFormAttributes> findCellValidateAttributes(
+			final Map<String, List<CellFormAttributes>> validateMaps,
+			final int originRowIndex, final String sheetName,
+			final int columnIndex) {
+		String key = sheetName + "!" + CellUtility
+				.getCellIndexNumberKey(columnIndex, originRowIndex);
+
 		return validateMaps.get(key);
 	}
 	
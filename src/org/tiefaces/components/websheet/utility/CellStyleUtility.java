@@ -16,6 +16,7 @@ import org.apache.poi.xssf.usermodel.XSSFColor;
 import org.apache.poi.xssf.usermodel.XSSFFont;
 import org.tiefaces.common.FacesUtility;
 import org.tiefaces.common.TieConstants;
+import org.tiefaces.components.websheet.dataobjects.CellStyleCache;
 import org.tiefaces.components.websheet.dataobjects.FacesCell;
 
 /**
@@ -338,6 +339,27 @@ public final class CellStyleUtility {
 	public static void setupCellStyle(final Workbook wb,
 			final FacesCell fcell, final Cell poiCell,
 			final float rowHeight) {
+		setupCellStyle(wb, fcell, poiCell, rowHeight, null);
+	}
+
+	/**
+	 * setup cell style. Web styles are shared from style cache if there is
+	 * one with same style key.
+	 *
+	 * @param wb
+	 *            workbook.
+	 * @param fcell
+	 *            faces cell.
+	 * @param poiCell
+	 *            poi cell.
+	 * @param rowHeight
+	 *            row height.
+	 * @param styleCache
+	 *            style cache of the workbook. null if no cache.
+	 */
+	public static void setupCellStyle(final Workbook wb,
+			final FacesCell fcell, final Cell poiCell,
+			final float rowHeight, final CellStyleCache styleCache) {
 
 		CellStyle cellStyle = poiCell.getCellStyle();
 		if ((cellStyle != null) && (!cellStyle.getLocked())) {
@@ -353,12 +375,59 @@ public final class CellStyleUtility {
 			setInputStyleBaseOnInputType(fcell, poiCell);
 
 		}
+		String key = null;
+		if ((styleCache != null) && (cellStyle != null)) {
+			key = getStyleCacheKey(fcell, poiCell, cellStyle, rowHeight);
+			String[] styles = styleCache.get(key);
+			if (styles != null) {
+				fcell.setStyle(styles[0]);
+				fcell.setColumnStyle(styles[1]);
+				return;
+			}
+		}
 		String webStyle = getCellStyle(wb, poiCell, fcell.getInputType())
 				+ getCellFontStyle(wb, poiCell)
 				+ getRowStyle(wb, poiCell, fcell.getInputType(), rowHeight,
 						fcell.getRowspan());
+		String columnStyle = getColumnStyle(wb, fcell, poiCell, rowHeight);
+		if (key != null) {
+			String[] styles = styleCache.put(key, webStyle, columnStyle);
+			webStyle = styles[0];
+			columnStyle = styles[1];
+		}
 		fcell.setStyle(webStyle);
-		fcell.setColumnStyle(getColumnStyle(wb, fcell, poiCell, rowHeight));
+		fcell.setColumnStyle(columnStyle);
+	}
+
+	/**
+	 * Gets the style cache key. Web styles only depend on cell style, input
+	 * type, row height in pixels, rowspan, cell type (for general alignment)
+	 * and whether contains picture or chart.
+	 *
+	 * @param fcell
+	 *            faces cell.
+	 * @param poiCell
+	 *            poi cell.
+	 * @param cellStyle
+	 *            cell style.
+	 * @param rowHeight
+	 *            row height.
+	 * @return the style cache key
+	 */
+	private static String getStyleCacheKey(final FacesCell fcell,
+			final Cell poiCell, final CellStyle cellStyle,
+			final float rowHeight) {
+		StringBuilder key = new StringBuilder();
+		key.append(cellStyle.getIndex()).append(':')
+				.append(fcell.getInputType()).append(':')
+				.append(WebSheetUtility.pointsToPixels(rowHeight))
+				.append(':').append(fcell.getRowspan() == 1 ? '1' : 'n')
+				.append(':').append(getAlignmentFromCellType(poiCell).isEmpty()
+						? '0' : '1')
+				.append(':').append(
+						fcell.isContainPic() || fcell.isContainChart() ? '1'
+								: '0');
+		return key.toString();
 	}
 
 	/**
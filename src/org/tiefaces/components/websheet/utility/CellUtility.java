@@ -41,6 +41,7 @@ import org.tiefaces.components.websheet.configuration.SheetConfiguration;
 import org.tiefaces.components.websheet.dataobjects.CellAttributesMap;
 import org.tiefaces.components.websheet.dataobjects.FacesCell;
 import org.tiefaces.components.websheet.dataobjects.FacesRow;
+import org.tiefaces.components.websheet.dataobjects.MergedRegionIndex;
 import org.tiefaces.components.websheet.dataobjects.TieCell;
 
 import com.microsoft.schemas.office.excel.CTClientData;
@@ -294,12 +295,111 @@ public final class CellUtility {
 	 */
 	public static void copyRows(final Sheet srcSheet, final Sheet destSheet, final int srcRowStart, final int srcRowEnd,
 			final int destRow, final boolean checkLock, final boolean setHiddenColumn) {
+		copyRows(srcSheet, destSheet, srcRowStart, srcRowEnd, destRow, checkLock, setHiddenColumn, null);
+	}
+
+	/**
+	 * Copy rows. Also keep the merged region index of dest sheet updated.
+	 *
+	 * @param srcSheet
+	 *            the src sheet
+	 * @param destSheet
+	 *            the dest sheet
+	 * @param srcRowStart
+	 *            the src row start
+	 * @param srcRowEnd
+	 *            the src row end
+	 * @param destRow
+	 *            the dest row
+	 * @param checkLock
+	 *            the check lock
+	 * @param setHiddenColumn
+	 *            the set hidden column
+	 * @param destRegionIndex
+	 *            the merged region index of dest sheet. null if not indexed.
+	 */
+	public static void copyRows(final Sheet srcSheet, final Sheet destSheet, final int srcRowStart, final int srcRowEnd,
+			final int destRow, final boolean checkLock, final boolean setHiddenColumn,
+			final MergedRegionIndex destRegionIndex) {
 
 		int length = srcRowEnd - srcRowStart + 1;
 		if (length <= 0) {
 			return;
 		}
 		destSheet.shiftRows(destRow, destSheet.getLastRowNum(), length, true, false);
+		if (destRegionIndex != null) {
+			destRegionIndex.shiftRows(destRow, length);
+		}
+		fillCopiedRows(srcSheet, destSheet, srcRowStart, srcRowEnd, destRow, checkLock, setHiddenColumn,
+				destRegionIndex);
+	}
+
+	/**
+	 * Copy rows repeatedly. Rows after dest row are shifted only once for all
+	 * copies, then copies are filled one after another.
+	 *
+	 * @param srcSheet
+	 *            the src sheet
+	 * @param destSheet
+	 *            the dest sheet
+	 * @param srcRowStart
+	 *            the src row start
+	 * @param srcRowEnd
+	 *            the src row end
+	 * @param destRow
+	 *            the dest row
+	 * @param times
+	 *            the number of copies
+	 * @param checkLock
+	 *            the check lock
+	 * @param setHiddenColumn
+	 *            the set hidden column
+	 * @param destRegionIndex
+	 *            the merged region index of dest sheet. null if not indexed.
+	 */
+	public static void copyRowsRepeatedly(final Sheet srcSheet, final Sheet destSheet, final int srcRowStart,
+			final int srcRowEnd, final int destRow, final int times, final boolean checkLock,
+			final boolean setHiddenColumn, final MergedRegionIndex destRegionIndex) {
+
+		int length = srcRowEnd - srcRowStart + 1;
+		if ((length <= 0) || (times <= 0)) {
+			return;
+		}
+		destSheet.shiftRows(destRow, destSheet.getLastRowNum(), length * times, true, false);
+		if (destRegionIndex != null) {
+			destRegionIndex.shiftRows(destRow, length * times);
+		}
+		for (int i = 0; i < times; i++) {
+			fillCopiedRows(srcSheet, destSheet, srcRowStart, srcRowEnd, destRow + i * length, checkLock,
+					setHiddenColumn, destRegionIndex);
+		}
+	}
+
+	/**
+	 * Fill copied rows and merged regions to dest rows which are already
+	 * shifted for the copy.
+	 *
+	 * @param srcSheet
+	 *            the src sheet
+	 * @param destSheet
+	 *            the dest sheet
+	 * @param srcRowStart
+	 *            the src row start
+	 * @param srcRowEnd
+	 *            the src row end
+	 * @param destRow
+	 *            the dest row
+	 * @param checkLock
+	 *            the check lock
+	 * @param setHiddenColumn
+	 *            the set hidden column
+	 * @param destRegionIndex
+	 *            the merged region index of dest sheet. null if not indexed.
+	 */
+	private static void fillCopiedRows(final Sheet srcSheet, final Sheet destSheet, final int srcRowStart,
+			final int srcRowEnd, final int destRow, final boolean checkLock, final boolean setHiddenColumn,
+			final MergedRegionIndex destRegionIndex) {
+		int length = srcRowEnd - srcRowStart + 1;
 		for (int i = 0; i < length; i++) {
 			copySingleRow(srcSheet, destSheet, srcRowStart + i, destRow + i, checkLock, setHiddenColumn);
 		}
@@ -314,6 +414,9 @@ public final class CellUtility {
 				CellRangeAddress newCellRangeAddress = new CellRangeAddress(targetRowFrom, targetRowTo,
 						cellRangeAddress.getFirstColumn(), cellRangeAddress.getLastColumn());
 				destSheet.addMergedRegion(newCellRangeAddress);
+				if (destRegionIndex != null) {
+					destRegionIndex.addRegion(newCellRangeAddress);
+				}
 			}
 		}
 	}
@@ -356,6 +459,37 @@ public final class CellUtility {
 
 	}
 
+	/**
+	 * Rebuild the cell content in place. Stale parts of the cell (e.g. inline
+	 * string) are dropped so the downloaded file shows the new value. The
+	 * cell object itself is kept, so formula evaluator which cached the cell
+	 * still refer to the same one.
+	 *
+	 * @param cell
+	 *            the cell
+	 */
+	public static void refreshCell(final Cell cell) {
+		switch (cell.getCellTypeEnum()) {
+		case STRING:
+			String strValue = cell.getStringCellValue();
+			cell.setCellType(CellType.BLANK);
+			cell.setCellValue(strValue);
+			break;
+		case NUMERIC:
+			double numValue = cell.getNumericCellValue();
+			cell.setCellType(CellType.BLANK);
+			cell.setCellValue(numValue);
+			break;
+		case BOOLEAN:
+			boolean boolValue = cell.getBooleanCellValue();
+			cell.setCellType(CellType.BLANK);
+			cell.setCellValue(boolValue);
+			break;
+		default:
+			break;
+		}
+	}
+
 	/**
 	 * Copy cell.
 	 *
@@ -697,6 +831,87 @@ public final class CellUtility {
 				+ TieConstants.CELL_ADDR_PRE_FIX + rowIndex;
 	}
 
+	/**
+	 * return cell index packed into a long key. sheet index take the high
+	 * bits, then row index and column index. e.g. sheet 0 A1 is 0L.
+	 *
+	 * @param sheetIndex
+	 *            sheet index.
+	 * @param rowIndex
+	 *            row index.
+	 * @param columnIndex
+	 *            column index.
+	 * @return long key.
+	 */
+	public static long getCellIndexLongKey(final int sheetIndex, final int rowIndex, final int columnIndex) {
+		return ((long) sheetIndex << TieConstants.CELL_KEY_SHEET_SHIFT)
+				| ((long) rowIndex << TieConstants.CELL_KEY_ROW_SHIFT) | (columnIndex & TieConstants.CELL_KEY_COLUMN_MASK);
+	}
+
+	/**
+	 * return cell index packed into a long key.
+	 *
+	 * @param cell
+	 *            input cell.
+	 * @return long key.
+	 */
+	public static long getCellIndexLongKey(final Cell cell) {
+		Sheet sheet = cell.getSheet();
+		return getCellIndexLongKey(sheet.getWorkbook().getSheetIndex(sheet), cell.getRowIndex(),
+				cell.getColumnIndex());
+	}
+
+	/**
+	 * Gets the sheet index from long key.
+	 *
+	 * @param key
+	 *            long key.
+	 * @return sheet index.
+	 */
+	public static int getSheetIndexFromLongKey(final long key) {
+		return (int) (key >>> TieConstants.CELL_KEY_SHEET_SHIFT);
+	}
+
+	/**
+	 * Gets the row index from long key.
+	 *
+	 * @param key
+	 *            long key.
+	 * @return row index.
+	 */
+	public static int getRowIndexFromLongKey(final long key) {
+		return (int) ((key >>> TieConstants.CELL_KEY_ROW_SHIFT) & TieConstants.CELL_KEY_ROW_MASK);
+	}
+
+	/**
+	 * Gets the column index from long key.
+	 *
+	 * @param key
+	 *            long key.
+	 * @return column index.
+	 */
+	public static int getColumnIndexFromLongKey(final long key) {
+		return (int) (key & TieConstants.CELL_KEY_COLUMN_MASK);
+	}
+
+	/**
+	 * Gets the poi cell from long key.
+	 *
+	 * @param wb
+	 *            workbook.
+	 * @param key
+	 *            long key.
+	 * @return the cell. null if not exist.
+	 */
+	public static Cell getPoiCellFromLongKey(final Workbook wb, final long key) {
+		int sheetIndex = getSheetIndexFromLongKey(key);
+		if ((wb == null) || (sheetIndex >= wb.getNumberOfSheets())) {
+			return null;
+		}
+		return getPoiCellFromSheet(getRowIndexFromLongKey(key), getColumnIndexFromLongKey(key),
+				wb.getSheetAt(sheetIndex));
+	}
+
 	/**
 	 * Convert cell.
 	 *
@@ -706,8 +921,8 @@ public final class CellUtility {
 	 *            the fcell
 	 * @param poiCell
 	 *            the poi cell
-	 * @param cellRangeMap
-	 *            the cell range map
+	 * @param regionIndex
+	 *            the merged region index
 	 * @param originRowIndex
 	 *            the origin row index
 	 * @param cellAttributesMap
@@ -716,12 +931,64 @@ public final class CellUtility {
 	 *            the save attrs
 	 */
 	// set up facesCell's attribute from poiCell and others.
+	public static void convertCell(final SheetConfiguration sheetConfig, final FacesCell fcell, final Cell poiCell,
+			final MergedRegionIndex regionIndex, final int originRowIndex,
+			final CellAttributesMap cellAttributesMap, final String saveAttrs) {
+		setupFacesCell(sheetConfig, fcell, poiCell,
+				regionIndex.getAnchorRegion(poiCell.getRowIndex(), poiCell.getColumnIndex()), originRowIndex,
+				cellAttributesMap, saveAttrs);
+	}
+
+	/**
+	 * Convert cell.
+	 *
+	 * @param sheetConfig
+	 *            the sheet config
+	 * @param fcell
+	 *            the fcell
+	 * @param poiCell
+	 *            the poi cell
+	 * @param cellRangeMap
+	 *            the cell range map keyed by top left cell of merged regions
+	 * @param originRowIndex
+	 *            the origin row index
+	 * @param cellAttributesMap
+	 *            the cell attributes map
+	 * @param saveAttrs
+	 *            the save attrs
+	 * @deprecated use
+	 *             {@link #convertCell(SheetConfiguration, FacesCell, Cell, MergedRegionIndex, int, CellAttributesMap, String)}
+	 *             with the merged region index of the sheet.
+	 */
+	@Deprecated
 	public static void convertCell(final SheetConfiguration sheetConfig, final FacesCell fcell, final Cell poiCell,
 			final Map<String, CellRangeAddress> cellRangeMap, final int originRowIndex,
 			final CellAttributesMap cellAttributesMap, final String saveAttrs) {
-		CellRangeAddress caddress;
-		String key = getCellIndexNumberKey(poiCell);
-		caddress = cellRangeMap.get(key);
+		setupFacesCell(sheetConfig, fcell, poiCell, cellRangeMap.get(getCellIndexNumberKey(poiCell)),
+				originRowIndex, cellAttributesMap, saveAttrs);
+	}
+
+	/**
+	 * Set up faces cell from poi cell.
+	 *
+	 * @param sheetConfig
+	 *            the sheet config
+	 * @param fcell
+	 *            the fcell
+	 * @param poiCell
+	 *            the poi cell
+	 * @param caddress
+	 *            the merged region anchored at the cell. null if none.
+	 * @param originRowIndex
+	 *            the origin row index
+	 * @param cellAttributesMap
+	 *            the cell attributes map
+	 * @param saveAttrs
+	 *            the save attrs
+	 */
+	private static void setupFacesCell(final SheetConfiguration sheetConfig, final FacesCell fcell,
+			final Cell poiCell, final CellRangeAddress caddress, final int originRowIndex,
+			final CellAttributesMap cellAttributesMap, final String saveAttrs) {
 		if (caddress != null) {
 			// has col or row span
 			fcell.setColspan(caddress.getLastColumn() - caddress.getFirstColumn() + 1);
@@ -14,15 +14,14 @@ import java.util.NavigableMap;
 import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
 import org.tiefaces.common.TieConstants;
 import org.tiefaces.components.websheet.configuration.Command;
+import org.tiefaces.components.websheet.configuration.CellTemplate;
 import org.tiefaces.components.websheet.configuration.ConfigBuildRef;
 import org.tiefaces.components.websheet.configuration.ConfigRange;
 import org.tiefaces.components.websheet.configuration.ConfigRangeAttrs;
@@ -32,6 +31,7 @@ import org.tiefaces.components.websheet.configuration.RowsMapping;
 import org.tiefaces.components.websheet.configuration.SheetConfiguration;
 import org.tiefaces.components.websheet.dataobjects.CollectionObject;
 import org.tiefaces.components.websheet.dataobjects.FacesRow;
+import org.tiefaces.components.websheet.dataobjects.LazyBodyRows;
 import org.tiefaces.components.websheet.dataobjects.TieCell;
 import org.tiefaces.exception.AddRowException;
 import org.tiefaces.exception.DeleteRowException;
@@ -77,9 +77,10 @@ public final class CommandUtility {
 		String fullName = ConfigurationUtility.getFullNameFromRow(
 				configBuildRef.getSheet().getRow(rowIndex));
 		String[] parts = fullName.split(":");
-		configBuildRef.getCellHelper().restoreDataContext(fullName);
+		configBuildRef.getCellHelper()
+				.restoreDataContext(configBuildRef.getSheet(), fullName);
 		CollectionObject collect = configBuildRef.getCellHelper()
-				.getLastCollect(fullName);
+				.getLastCollect(configBuildRef.getSheet(), fullName);
 
 		Collection lastCollection = collect.getLastCollection();
 		int lastCollectionIndex = collect.getLastCollectionIndex();
@@ -146,7 +147,7 @@ public final class CommandUtility {
 	 * @param sheetConfig
 	 *            the sheet config
 	 * @param bodyRows
-	 *            the body rows
+	 *            the body rows. null if the sheet is not shown in web.
 	 * @return the int
 	 * @throws DeleteRowException
 	 *             the delete row exception
@@ -160,9 +161,10 @@ public final class CommandUtility {
 		String fullName = ConfigurationUtility.getFullNameFromRow(
 				configBuildRef.getSheet().getRow(rowIndex));
 
-		configBuildRef.getCellHelper().restoreDataContext(fullName);
+		configBuildRef.getCellHelper()
+				.restoreDataContext(configBuildRef.getSheet(), fullName);
 		CollectionObject collect = configBuildRef.getCellHelper()
-				.getLastCollect(fullName);
+				.getLastCollect(configBuildRef.getSheet(), fullName);
 
 		Collection lastCollection = collect.getLastCollection();
 		int lastCollectionIndex = collect.getLastCollectionIndex();
@@ -456,20 +458,59 @@ public final class CommandUtility {
 		int srcEndRow = sourceConfigRange.getLastRowPlusAddr().getRow() - 1;
 
 		Sheet sheet = configBuildRef.getSheet();
-		Workbook wb = sheet.getWorkbook();
-		// excel sheet name has limit 31 chars
-		String copyName = TieConstants.COPY_SHEET_PREFIX
-				+ sheet.getSheetName();
-		if (copyName.length() > TieConstants.EXCEL_SHEET_NAME_LIMIT) {
-			copyName = copyName.substring(0,
-					TieConstants.EXCEL_SHEET_NAME_LIMIT);
-		}
-		Sheet srcSheet = wb.getSheet(copyName);
 		if (index > 0) {
-			CellUtility.copyRows(srcSheet, sheet, srcStartRow, srcEndRow,
-					insertPosition, false, true);
+			CellUtility.copyRows(getTemplateCopySheet(sheet), sheet,
+					srcStartRow, srcEndRow, insertPosition, false, true,
+					configBuildRef.getMergedRegionIndex());
 		}
+		mapEachTemplateRows(sourceConfigRange, configBuildRef,
+				insertPosition, unitRowsMapping);
+	}
+
+	/**
+	 * Insert each templates for multiple objects at once. Rows after insert
+	 * position are shifted only once for all copies.
+	 *
+	 * @param sourceConfigRange
+	 *            the source config range
+	 * @param configBuildRef
+	 *            the config build ref
+	 * @param count
+	 *            the number of templates to insert
+	 * @param insertPosition
+	 *            the insert position
+	 */
+	public static void insertEachTemplates(
+			final ConfigRange sourceConfigRange,
+			final ConfigBuildRef configBuildRef, final int count,
+			final int insertPosition) {
+		int srcStartRow = sourceConfigRange.getFirstRowAddr().getRow();
+		int srcEndRow = sourceConfigRange.getLastRowPlusAddr().getRow() - 1;
+		Sheet sheet = configBuildRef.getSheet();
+		CellUtility.copyRowsRepeatedly(getTemplateCopySheet(sheet), sheet,
+				srcStartRow, srcEndRow, insertPosition, count, false, true,
+				configBuildRef.getMergedRegionIndex());
+	}
 
+	/**
+	 * Map watched static rows of each template at insert position.
+	 *
+	 * @param sourceConfigRange
+	 *            the source config range
+	 * @param configBuildRef
+	 *            the config build ref
+	 * @param insertPosition
+	 *            the insert position
+	 * @param unitRowsMapping
+	 *            the unit rows mapping
+	 */
+	public static void mapEachTemplateRows(
+			final ConfigRange sourceConfigRange,
+			final ConfigBuildRef configBuildRef, final int insertPosition,
+			final RowsMapping unitRowsMapping) {
+		int srcStartRow = sourceConfigRange.getFirstRowAddr().getRow();
+		int srcEndRow = sourceConfigRange.getLastRowPlusAddr().getRow() - 1;
+		Sheet sheet = configBuildRef.getSheet();
 		for (int rowIndex = srcStartRow; rowIndex <= srcEndRow; rowIndex++) {
 			if (configBuildRef.getWatchList().contains(rowIndex)
 					&& (ConfigurationUtility.isStaticRow(sourceConfigRange,
@@ -480,6 +521,24 @@ public final class CommandUtility {
 		}
 	}
 
+	/**
+	 * Gets the template copy sheet of the sheet.
+	 *
+	 * @param sheet
+	 *            the sheet
+	 * @return the template copy sheet
+	 */
+	public static Sheet getTemplateCopySheet(final Sheet sheet) {
+		// excel sheet name has limit 31 chars
+		String copyName = TieConstants.COPY_SHEET_PREFIX
+				+ sheet.getSheetName();
+		if (copyName.length() > TieConstants.EXCEL_SHEET_NAME_LIMIT) {
+			copyName = copyName.substring(0,
+					TieConstants.EXCEL_SHEET_NAME_LIMIT);
+		}
+		return sheet.getWorkbook().getSheet(copyName);
+	}
+
 	/**
 	 * Evaluate.
 	 *
@@ -490,45 +549,124 @@ public final class CommandUtility {
 	 * @param engine
 	 *            the engine
 	 */
-	@SuppressWarnings("deprecation")
 	public static void evaluate(final Map<String, Object> context,
 			final Cell cell, final ExpressionEngine engine) {
+		evaluate(context, cell, engine, null);
+	}
+
+	/**
+	 * Evaluate. Compiled templates are reused by cell string value, so same
+	 * template cells in expanded rows are only parsed once.
+	 *
+	 * @param context
+	 *            the context
+	 * @param cell
+	 *            the cell
+	 * @param engine
+	 *            the engine
+	 * @param templateMap
+	 *            compiled templates. key is cell string value. null if no
+	 *            reuse.
+	 */
+	public static void evaluate(final Map<String, Object> context,
+			final Cell cell, final ExpressionEngine engine,
+			final Map<String, CellTemplate> templateMap) {
+		evaluate(context, cell, engine, templateMap, null);
+	}
+
+	/**
+	 * Evaluate. Same as
+	 * {@link #evaluate(Map, Cell, ExpressionEngine, Map)}, while the
+	 * workbook is released to other sheet builds during evaluating data
+	 * expressions.
+	 *
+	 * @param context
+	 *            the context
+	 * @param cell
+	 *            the cell
+	 * @param engine
+	 *            the engine
+	 * @param templateMap
+	 *            compiled templates. key is cell string value. null if no
+	 *            reuse.
+	 * @param configBuildRef
+	 *            the config build ref. null if not building.
+	 */
+	@SuppressWarnings("deprecation")
+	public static void evaluate(final Map<String, Object> context,
+			final Cell cell, final ExpressionEngine engine,
+			final Map<String, CellTemplate> templateMap,
+			final ConfigBuildRef configBuildRef) {
 		if ((cell != null) && (cell.getCellTypeEnum() == CellType.STRING)) {
 			String strValue = cell.getStringCellValue();
 			if (isUserFormula(strValue)) {
-				evaluateUserFormula(cell, strValue);
-			} else {
-				evaluateNormalCells(cell, strValue, context, engine);
+				evaluateUserFormula(cell,
+						getCellTemplate(strValue, templateMap));
+			} else if (strValue.contains(TieConstants.METHOD_PREFIX)) {
+				evaluateNormalCells(cell,
+						getCellTemplate(strValue, templateMap), context,
+						engine, configBuildRef);
 			}
 		}
 	}
 
+	/**
+	 * Gets the compiled template of the string value.
+	 *
+	 * @param strValue
+	 *            the str value
+	 * @param templateMap
+	 *            compiled templates. null if no reuse.
+	 * @return the cell template
+	 */
+	private static CellTemplate getCellTemplate(final String strValue,
+			final Map<String, CellTemplate> templateMap) {
+		if (templateMap == null) {
+			return CellTemplate.compile(strValue);
+		}
+		CellTemplate template = templateMap.get(strValue);
+		if (template == null) {
+			template = CellTemplate.compile(strValue);
+			templateMap.put(strValue, template);
+		}
+		return template;
+	}
+
 	/**
 	 * Evaluate normal cells.
 	 *
 	 * @param cell
 	 *            cell.
-	 * @param strValue
-	 *            string value.
+	 * @param template
+	 *            compiled template of cell value.
 	 * @param context
 	 *            context.
 	 * @param engine
 	 *            engine.
+	 * @param configBuildRef
+	 *            the config build ref. null if not building.
 	 */
 	private static void evaluateNormalCells(final Cell cell,
-			final String strValue, final Map<String, Object> context,
-			final ExpressionEngine engine) {
-		if (strValue.contains(TieConstants.METHOD_PREFIX)) {
-
-			Object evaluationResult = evaluate(strValue, context, engine);
-			if (evaluationResult == null) {
-				evaluationResult = "";
+			final CellTemplate template, final Map<String, Object> context,
+			final ExpressionEngine engine,
+			final ConfigBuildRef configBuildRef) {
+		Object evaluationResult;
+		if (configBuildRef != null) {
+			configBuildRef.beginEvaluation();
+		}
+		try {
+			evaluationResult = template.evaluate(context, engine);
+		} finally {
+			if (configBuildRef != null) {
+				configBuildRef.endEvaluation();
 			}
-			CellUtility.setCellValue(cell, evaluationResult.toString());
-
-			createTieCell(cell, context, engine);
-
 		}
+		if (evaluationResult == null) {
+			evaluationResult = "";
+		}
+		CellUtility.setCellValue(cell, evaluationResult.toString());
+
+		createTieCell(cell, context, engine);
 	}
 
 	private static void createTieCell(final Cell cell, final Map<String, Object> context,
@@ -580,12 +718,12 @@ public final class CommandUtility {
 	 *
 	 * @param cell
 	 *            the cell
-	 * @param strValue
-	 *            the str value
+	 * @param template
+	 *            the compiled template of user formula
 	 */
 	private static void evaluateUserFormula(final Cell cell,
-			final String strValue) {
-		String formulaStr = strValue.substring(2, strValue.length() - 1);
+			final CellTemplate template) {
+		String formulaStr = template.getUserFormula();
 		if ((formulaStr != null) && (!formulaStr.isEmpty())) {
 			cell.setCellFormula(formulaStr);
 		}
@@ -617,45 +755,7 @@ public final class CommandUtility {
 	public static Object evaluate(final String strValue,
 			final Map<String, Object> context,
 			final ExpressionEngine engine) {
-		StringBuffer sb = new StringBuffer();
-		int beginExpressionLength = TieConstants.METHOD_PREFIX.length();
-		int endExpressionLength = TieConstants.METHOD_END.length();
-		Matcher exprMatcher = TieConstants.EXPRESSION_NOTATION_PATTERN
-				.matcher(strValue);
-		String matchedString;
-		String expression;
-		Object lastMatchEvalResult = null;
-		int matchCount = 0;
-		int endOffset = 0;
-		while (exprMatcher.find()) {
-			endOffset = exprMatcher.end();
-			matchCount++;
-			matchedString = exprMatcher.group();
-			expression = matchedString.substring(beginExpressionLength,
-					matchedString.length() - endExpressionLength);
-			lastMatchEvalResult = engine.evaluate(expression, context);
-			exprMatcher.appendReplacement(sb,
-					Matcher.quoteReplacement(lastMatchEvalResult != null
-							? lastMatchEvalResult.toString() : ""));
-		}
-		String lastStringResult = lastMatchEvalResult != null
-				? lastMatchEvalResult.toString() : "";
-		boolean isAppendTail = matchCount == 1
-				&& endOffset < strValue.length();
-		Object evaluationResult = null;
-		if (matchCount > 1 || isAppendTail) {
-			exprMatcher.appendTail(sb);
-			evaluationResult = sb.toString();
-		} else if (matchCount == 1) {
-			if (sb.length() > lastStringResult.length()) {
-				evaluationResult = sb.toString();
-			} else {
-				evaluationResult = lastMatchEvalResult;
-			}
-		} else if (matchCount == 0) {
-			evaluationResult = strValue;
-		}
-		return evaluationResult;
+		return CellTemplate.compile(strValue).evaluate(context, engine);
 	}
 
 	/**
@@ -792,7 +892,7 @@ public final class CommandUtility {
 	 * @param sheetConfig
 	 *            the sheet config
 	 * @param bodyRows
-	 *            the body rows
+	 *            the body rows. null if the sheet is not shown in web.
 	 * @param rowIndexStart
 	 *            the row index start
 	 * @param rowIndexEnd
@@ -803,11 +903,16 @@ public final class CommandUtility {
 			final List<FacesRow> bodyRows, final int rowIndexStart,
 			final int rowIndexEnd) {
 		int top = sheetConfig.getBodyCellRange().getTopRow();
-		if ((rowIndexEnd < rowIndexStart) || (rowIndexStart < top)) {
+		if ((bodyRows == null) || (rowIndexEnd < rowIndexStart)
+				|| (rowIndexStart < top)) {
 			return;
 		}
 
 		int irows = rowIndexEnd - rowIndexStart + 1;
+		if (bodyRows instanceof LazyBodyRows) {
+			((LazyBodyRows) bodyRows).removeRows(rowIndexStart - top, irows);
+			return;
+		}
 		for (int rowIndex = rowIndexEnd; rowIndex >= rowIndexStart; rowIndex--) {
 			bodyRows.remove(rowIndex - top);
 		}
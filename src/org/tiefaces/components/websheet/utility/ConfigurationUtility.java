@@ -32,6 +32,7 @@ import org.tiefaces.components.websheet.configuration.ConfigRangeAttrs;
 import org.tiefaces.components.websheet.configuration.ExpressionEngine;
 import org.tiefaces.components.websheet.configuration.RowsMapping;
 import org.tiefaces.components.websheet.configuration.ShiftFormulaRef;
+import org.tiefaces.components.websheet.dataobjects.MergedRegionIndex;
 import org.tiefaces.exception.EvaluationException;
 
 /**
@@ -686,20 +687,17 @@ public final class ConfigurationUtility {
 	 * @param sheet1
 	 *            the sheet 1
 	 * @return the map
+	 * @deprecated use {@link MergedRegionIndex#getAnchorRegion(int, int)}.
 	 */
+	@Deprecated
 	public static Map<String, CellRangeAddress> indexMergedRegion(
 			final Sheet sheet1) {
-
-		int numRegions = sheet1.getNumMergedRegions();
 		Map<String, CellRangeAddress> cellRangeMap = new HashMap<>();
-		for (int i = 0; i < numRegions; i++) {
-
-			CellRangeAddress caddress = sheet1.getMergedRegion(i);
-			if (caddress != null) {
-				cellRangeMap.put(CellUtility.getCellIndexNumberKey(
-						caddress.getFirstColumn(), caddress.getFirstRow()),
-						caddress);
-			}
+		for (CellRangeAddress caddress : new MergedRegionIndex(sheet1)
+				.getRegions()) {
+			cellRangeMap.put(CellUtility.getCellIndexNumberKey(
+					caddress.getFirstColumn(), caddress.getFirstRow()),
+					caddress);
 		}
 		return cellRangeMap;
 	}
@@ -710,43 +708,25 @@ public final class ConfigurationUtility {
 	 * @param sheet1
 	 *            the sheet 1
 	 * @return the list
+	 * @deprecated use {@link MergedRegionIndex#isSkipped(int, int)}.
 	 */
+	@Deprecated
 	public static List<String> skippedRegionCells(final Sheet sheet1) {
-		int numRegions = sheet1.getNumMergedRegions();
+		MergedRegionIndex regionIndex = new MergedRegionIndex(sheet1);
 		List<String> skipCellList = new ArrayList<>();
-		for (int i = 0; i < numRegions; i++) {
-
-			CellRangeAddress caddress = sheet1.getMergedRegion(i);
-			if (caddress != null) {
-				addSkipCellToListInTheRegion(skipCellList, caddress);
-			}
-		}
-		return skipCellList;
-	}
-
-	/**
-	 * Add skipped cell into the list of a region.
-	 * 
-	 * @param skipCellList
-	 *            list.
-	 * @param caddress
-	 *            region.
-	 */
-	private static void addSkipCellToListInTheRegion(
-			final List<String> skipCellList,
-			final CellRangeAddress caddress) {
-		for (int col = caddress.getFirstColumn(); col <= caddress
-				.getLastColumn(); col++) {
-			for (int row = caddress.getFirstRow(); row <= caddress
-					.getLastRow(); row++) {
-				if ((col == caddress.getFirstColumn())
-						&& (row == caddress.getFirstRow())) {
-					continue;
+		for (CellRangeAddress caddress : regionIndex.getRegions()) {
+			for (int col = caddress.getFirstColumn(); col <= caddress
+					.getLastColumn(); col++) {
+				for (int row = caddress.getFirstRow(); row <= caddress
+						.getLastRow(); row++) {
+					if (regionIndex.isSkipped(row, col)) {
+						skipCellList.add(
+								CellUtility.getCellIndexNumberKey(col, row));
+					}
 				}
-				skipCellList
-						.add(CellUtility.getCellIndexNumberKey(col, row));
 			}
 		}
+		return skipCellList;
 	}
 
 }
@@ -4,12 +4,14 @@
  */
 package org.tiefaces.components.websheet.utility;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Row.MissingCellPolicy;
+import org.tiefaces.common.BoundedCache;
 import org.tiefaces.common.TieConstants;
 import org.tiefaces.components.websheet.configuration.ExpressionEngine;
 
@@ -18,6 +20,17 @@ import org.tiefaces.components.websheet.configuration.ExpressionEngine;
  */
 public final class SaveAttrsUtility {
 
+	/** empty index for list without save attrs. */
+	private static final String[] EMPTY_INDEX = new String[0];
+
+	/**
+	 * parsed save attrs list. key is the list string in hidden column, so
+	 * a changed list is parsed again. rows expanded from same template row
+	 * share one entry.
+	 */
+	private static final BoundedCache<String, String[]> SAVE_ATTRS_INDEX =
+			new BoundedCache<>(TieConstants.DEFAULT_MAX_CACHED_SAVE_ATTRS);
+
 	/**
 	 * hide constructor.
 	 */
@@ -123,19 +136,70 @@ public final class SaveAttrsUtility {
 	public static String getSaveAttrFromList(final int columnIndex,
 			final String saveAttrs) {
 		if ((saveAttrs != null) && (!saveAttrs.isEmpty())) {
-			String str = "$" + columnIndex + "=";
-			int istart = saveAttrs.indexOf(str);
-			if (istart >= 0) {
-				int iend = saveAttrs.indexOf(',', istart);
-				if (iend > istart) {
-					return saveAttrs.substring(istart + str.length(), iend);
-	
-				}
+			String[] index = getSaveAttrIndex(saveAttrs);
+			if ((columnIndex >= 0) && (columnIndex < index.length)) {
+				return index[columnIndex];
 			}
 		}
 		return null;
 	}
 
+	/**
+	 * Gets the parsed save attrs list. Array index is column index.
+	 *
+	 * @param saveAttrs
+	 *            the save attrs list. e.g. $0=employee.name,$2=employee.age,
+	 * @return save attr of each column. null if column has no save attr.
+	 */
+	static String[] getSaveAttrIndex(final String saveAttrs) {
+		String[] index = SAVE_ATTRS_INDEX.get(saveAttrs);
+		if (index == null) {
+			index = SAVE_ATTRS_INDEX.putIfAbsent(saveAttrs,
+					parseSaveAttrIndex(saveAttrs));
+		}
+		return index;
+	}
+
+	/**
+	 * Parses the save attrs list. Parsing stops at first malformed entry.
+	 *
+	 * @param saveAttrs
+	 *            the save attrs list
+	 * @return save attr of each column
+	 */
+	private static String[] parseSaveAttrIndex(final String saveAttrs) {
+		Map<Integer, String> attrs = new LinkedHashMap<>();
+		int maxColumn = -1;
+		int pos = 0;
+		while ((pos < saveAttrs.length()) && (saveAttrs.charAt(pos) == '$')) {
+			int iequal = saveAttrs.indexOf('=', pos);
+			int iend = saveAttrs.indexOf(',', iequal + 1);
+			if ((iequal < 0) || (iend < 0)) {
+				break;
+			}
+			int columnIndex;
+			try {
+				columnIndex = Integer
+						.parseInt(saveAttrs.substring(pos + 1, iequal));
+			} catch (NumberFormatException e) {
+				break;
+			}
+			if (!attrs.containsKey(columnIndex)) {
+				attrs.put(columnIndex, saveAttrs.substring(iequal + 1, iend));
+				maxColumn = Math.max(maxColumn, columnIndex);
+			}
+			pos = iend + 1;
+		}
+		if (maxColumn < 0) {
+			return EMPTY_INDEX;
+		}
+		String[] index = new String[maxColumn + 1];
+		for (Map.Entry<Integer, String> entry : attrs.entrySet()) {
+			index[entry.getKey()] = entry.getValue();
+		}
+		return index;
+	}
+
 	/**
 	 * Checks if is checks for save attr.
 	 *
@@ -166,12 +230,9 @@ public final class SaveAttrsUtility {
 			final String saveAttrs) {
 		
 		if (cell != null) {
-			int columnIndex = cell.getColumnIndex();
-			String str = "$" + columnIndex + "=";
-			if ((saveAttrs != null) && (saveAttrs.indexOf(str) >= 0)) {
-				return true;
-			}
-		}	
+			return getSaveAttrFromList(cell.getColumnIndex(),
+					saveAttrs) != null;
+		}
 		return false;
 	}
 
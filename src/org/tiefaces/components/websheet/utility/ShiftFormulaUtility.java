@@ -26,7 +26,6 @@ import org.apache.poi.ss.formula.ptg.RefPtg;
 import org.apache.poi.ss.formula.ptg.RefPtgBase;
 import org.apache.poi.ss.formula.ptg.AddPtg;
 import org.apache.poi.ss.formula.ptg.ValueOperatorPtg;
-import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.util.CellReference;
 import org.tiefaces.components.websheet.configuration.RowsMapping;
 import org.tiefaces.components.websheet.configuration.ShiftFormulaRef;
@@ -177,7 +176,7 @@ public final class ShiftFormulaUtility {
 			// return changed ptg
 			return singlePtg(
 					fixupRefRelativeRowOneToOne(ptg,
-							rowlist.get(0).getRow()),
+							rowlist.get(0).getRowNum()),
 					originalOperandClass, -1);
 		}
 		shiftFormulaRef.setFormulaChanged(rowlist.size());
@@ -271,12 +270,12 @@ public final class ShiftFormulaUtility {
 	 *
 	 * @param ptg
 	 *            the ptg
-	 * @param newRow
-	 *            the new row
+	 * @param newRowNum
+	 *            the new row number
 	 * @return the object
 	 */
 	protected static Object fixupRefRelativeRowOneToOne(final Object ptg,
-			final Row newRow) {
+			final int newRowNum) {
 		if (ptg instanceof RefPtgBase) {
 			if (ptg instanceof Ref3DPxg) {
 				Ref3DPxg ref3dPxg = (Ref3DPxg) ptg;
@@ -285,7 +284,7 @@ public final class ShiftFormulaUtility {
 						new SheetIdentifier(null,
 								new NameIdentifier(ref3dPxg.getSheetName(),
 										false)),
-						new CellReference(newRow.getRowNum(),
+						new CellReference(newRowNum,
 								ref3dPxg.getColumn()));
 				new3dpxg.setClass(ref3dPxg.getPtgClass());
 				new3dpxg.setColRelative(ref3dPxg.isColRelative());
@@ -294,7 +293,7 @@ public final class ShiftFormulaUtility {
 				return new3dpxg;
 			} else {
 				RefPtgBase refPtgBase = (RefPtgBase) ptg;
-				return new RefPtg(newRow.getRowNum(),
+				return new RefPtg(newRowNum,
 						refPtgBase.getColumn(), refPtgBase.isRowRelative(),
 						refPtgBase.isColRelative());
 
@@ -312,7 +311,7 @@ public final class ShiftFormulaUtility {
 				new3dpxg.setFirstColRelative(
 						area3dPxg.isFirstColRelative());
 				new3dpxg.setLastColRelative(area3dPxg.isLastColRelative());
-				int shiftRow = newRow.getRowNum() - area3dPxg.getFirstRow();
+				int shiftRow = newRowNum - area3dPxg.getFirstRow();
 				new3dpxg.setFirstRow(area3dPxg.getFirstRow() + shiftRow);
 				new3dpxg.setLastRow(area3dPxg.getLastRow() + shiftRow);
 				new3dpxg.setFirstRowRelative(
@@ -322,8 +321,7 @@ public final class ShiftFormulaUtility {
 				return new3dpxg;
 			} else {
 				AreaPtgBase areaPtgBase = (AreaPtgBase) ptg;
-				int shiftRow = newRow.getRowNum()
-						- areaPtgBase.getFirstRow();
+				int shiftRow = newRowNum - areaPtgBase.getFirstRow();
 				return new AreaPtg(areaPtgBase.getFirstRow() + shiftRow,
 						areaPtgBase.getLastRow() + shiftRow,
 						areaPtgBase.getFirstColumn(),
@@ -410,7 +408,7 @@ public final class ShiftFormulaUtility {
 			unitSize = 2;
 		}
 		for (int i = 0; i < rowList.size(); i++) {
-			Row row = rowList.get(i).getRow();
+			int rowNum = rowList.get(i).getRowNum();
 			if (refPtg instanceof Ref3DPxg) {
 				Ref3DPxg ref3dPxg = (Ref3DPxg) refPtg;
 				Ref3DPxg new3dpxg = new Ref3DPxg(
@@ -418,7 +416,7 @@ public final class ShiftFormulaUtility {
 						new SheetIdentifier(null,
 								new NameIdentifier(ref3dPxg.getSheetName(),
 										false)),
-						new CellReference(row.getRowNum(),
+						new CellReference(rowNum,
 								ref3dPxg.getColumn()));
 				new3dpxg.setClass(originalOperandClass);
 				new3dpxg.setColRelative(ref3dPxg.isColRelative());
@@ -427,7 +425,7 @@ public final class ShiftFormulaUtility {
 				newPtg[i * unitSize] = new3dpxg;
 			} else {
 				RefPtgBase refPtgBase = refPtg;
-				newPtg[i * unitSize] = new RefPtg(row.getRowNum(),
+				newPtg[i * unitSize] = new RefPtg(rowNum,
 						refPtgBase.getColumn(), refPtgBase.isRowRelative(),
 						refPtgBase.isColRelative());
 			}
@@ -457,8 +455,7 @@ public final class ShiftFormulaUtility {
 		int originLastRow = areaPtg.getLastRow();
 		int unitSize = 2;
 		for (int i = 0; i < rowList.size(); i++) {
-			Row row = rowList.get(i).getRow();
-			int shiftRow = row.getRowNum() - originFirstRow;
+			int shiftRow = rowList.get(i).getRowNum() - originFirstRow;
 			if (ptg instanceof Area3DPxg) {
 				Area3DPxg area3dPxg = (Area3DPxg) ptg;
 				Area3DPxg new3dpxg = new Area3DPxg(
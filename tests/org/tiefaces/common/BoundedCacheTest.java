@@ -0,0 +1,82 @@
+/**
+ * 
+ */
+package org.tiefaces.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Jason Jiang
+ *
+ */
+public class BoundedCacheTest {
+
+	@Test
+	public final void testGetAndPutCountHitsAndMisses() throws Exception {
+		BoundedCache<String, String> cache = new BoundedCache<>(10);
+		assertNull(cache.get("a"));
+		assertEquals("1", cache.putIfAbsent("a", "1"));
+		assertEquals("1", cache.get("a"));
+		assertEquals("1", cache.get("a"));
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public final void testPutIfAbsentKeepsFirstValue() throws Exception {
+		BoundedCache<String, Object> cache = new BoundedCache<>(10);
+		Object first = new Object();
+		assertSame(first, cache.putIfAbsent("a", first));
+		assertSame(first, cache.putIfAbsent("a", new Object()));
+		assertSame(first, cache.get("a"));
+	}
+
+	@Test
+	public final void testEvictLeastRecentlyUsed() throws Exception {
+		BoundedCache<Integer, Integer> cache = new BoundedCache<>(8);
+		for (int i = 0; i < 8; i++) {
+			cache.putIfAbsent(i, i);
+		}
+		// use first ones so later puts are the oldest.
+		for (int i = 0; i < 4; i++) {
+			assertNotNull(cache.get(i));
+		}
+		cache.putIfAbsent(8, 8);
+		// trimmed to three quarters of max size.
+		assertEquals(6, cache.size());
+		assertEquals(3, cache.getEvictions());
+		for (int i = 0; i < 4; i++) {
+			assertNotNull(cache.get(i));
+		}
+		assertNotNull(cache.get(8));
+		assertNull(cache.get(4));
+		assertTrue(cache.size() <= cache.getMaxSize());
+	}
+
+	@Test
+	public final void testClearResetsCounters() throws Exception {
+		BoundedCache<String, String> cache = new BoundedCache<>(1);
+		cache.putIfAbsent("a", "1");
+		cache.putIfAbsent("b", "2");
+		cache.get("b");
+		cache.get("c");
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHits());
+		assertEquals(0, cache.getMisses());
+		assertEquals(0, cache.getEvictions());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public final void testRejectNonPositiveMaxSize() throws Exception {
+		new BoundedCache<String, String>(0);
+	}
+
+}
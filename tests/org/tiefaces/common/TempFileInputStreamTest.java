@@ -0,0 +1,53 @@
+/**
+ * 
+ */
+package org.tiefaces.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import org.junit.Test;
+
+/**
+ * @author Jason Jiang
+ *
+ */
+public class TempFileInputStreamTest {
+
+	@Test
+	public final void testDeleteFileOnClose() throws Exception {
+		File file = createTempFile();
+		TempFileInputStream stream = new TempFileInputStream(file);
+		assertEquals('x', stream.read());
+		stream.close();
+		assertFalse(file.exists());
+		// close again is ignored.
+		stream.close();
+	}
+
+	@Test
+	public final void testDeleteFileOnSessionUnbound() throws Exception {
+		File file = createTempFile();
+		TempFileInputStream stream = new TempFileInputStream(file);
+		assertTrue(stream.getSessionKey().endsWith(file.getName()));
+		stream.valueBound(null);
+		assertTrue(file.exists());
+		stream.valueUnbound(null);
+		assertFalse(file.exists());
+	}
+
+	private File createTempFile() throws Exception {
+		File file = File.createTempFile(
+				TieConstants.EXPORT_TEMP_FILE_PREFIX, ".tmp");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write('x');
+		}
+		return file;
+	}
+
+}
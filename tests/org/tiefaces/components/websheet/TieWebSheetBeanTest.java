@@ -3,21 +3,43 @@
  */
 package org.tiefaces.components.websheet;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.FutureTask;
 
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.ClientAnchor;
 import org.apache.poi.ss.usermodel.Comment;
+import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.ss.usermodel.charts.AxisPosition;
+import org.apache.poi.ss.usermodel.charts.DataSources;
+import org.apache.poi.ss.usermodel.charts.LineChartData;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFChart;
+import org.apache.poi.xssf.usermodel.XSSFDrawing;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.commons.lang.SerializationUtils;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.tiefaces.common.TempFileInputStream;
 import org.tiefaces.common.TieConstants;
 import org.tiefaces.components.websheet.chart.ChartData;
+import org.tiefaces.components.websheet.chart.ChartHelper;
 import org.tiefaces.components.websheet.chart.ChartType;
+import org.tiefaces.components.websheet.configuration.SheetConfiguration;
+import org.tiefaces.components.websheet.dataobjects.ChangeJournal;
 import org.tiefaces.components.websheet.utility.CellUtility;
 import org.tiefaces.components.websheet.utility.ConfigurationUtility;
 import org.tiefaces.datademo.Department;
@@ -25,6 +47,7 @@ import org.tiefaces.datademo.WebSheetDataDemo;
 import org.tiefaces.common.Item;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -164,6 +187,11 @@ public class TieWebSheetBeanTest {
 						"resources/sheet/linecharts1.xlsx");
 		assertEquals(bean.loadWebSheet(stream), 1);
 		assertTrue(bean.getCharsData().getChartsMap().size() > 0);
+		for (FutureTask<byte[]> chartTask : bean.getCharsData()
+				.getChartsMap().values()) {
+			byte[] png = ChartHelper.getChartImage(chartTask);
+			assertTrue(png.length > 0);
+		}
 
 		Map<String, ChartData> map = bean.getCharsData().getChartDataMap();
 		for (Map.Entry<String, ChartData> entry : map.entrySet()) {
@@ -173,6 +201,76 @@ public class TieWebSheetBeanTest {
 
 	}
 
+	/**
+	 * Test chart refreshed when its source cell changed by input or by rows
+	 * added.
+	 */
+	@Test
+	public final void testRefreshChangedChart() throws Exception {
+		XSSFWorkbook template = (XSSFWorkbook) WorkbookFactory.create(
+				this.getClass().getClassLoader().getResourceAsStream(
+						"resources/sheet/PRICELISTINPUTVALIDATION.xlsx"));
+		template.setSheetName(0, "Sales");
+		XSSFSheet sales = template.getSheetAt(0);
+		// line chart of the amount in first item row.
+		XSSFDrawing drawing = sales.createDrawingPatriarch();
+		XSSFChart chart = drawing
+				.createChart(drawing.createAnchor(0, 0, 0, 0, 8, 1, 14, 10));
+		LineChartData lineData = chart.getChartDataFactory()
+				.createLineChartData();
+		lineData.addSeries(
+				DataSources.fromStringCellRange(sales,
+						CellRangeAddress.valueOf("B5:B5")),
+				DataSources.fromNumericCellRange(sales,
+						CellRangeAddress.valueOf("F5:F5")));
+		chart.plot(lineData,
+				chart.getChartAxisFactory()
+						.createCategoryAxis(AxisPosition.BOTTOM),
+				chart.getChartAxisFactory()
+						.createValueAxis(AxisPosition.LEFT));
+		chart.getCTChart().getPlotArea().getLineChartArray(0).getSerArray(0)
+				.addNewTx().addNewStrRef().setF("Sales!$F$4");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		template.write(bytes);
+
+		TieWebSheetBean bean = new TieWebSheetBean();
+		bean.init();
+		List<Item> itemList = new ArrayList<Item>();
+		itemList.add(new Item());
+		HashMap<String, Object> context = new HashMap<String, Object>();
+		context.put("items", itemList);
+		assertEquals(bean.loadWebSheet(
+				new ByteArrayInputStream(bytes.toByteArray()), context), 1);
+		String chartId = "Sales!rId1";
+		assertTrue(bean.getCharsData().getChartDataMap()
+				.containsKey(chartId));
+		// charts are marked after data loaded.
+		assertTrue(bean.getCharsData().getChangedChartIds()
+				.contains(chartId));
+		FutureTask<byte[]> oldTask = bean.getChartHelper()
+				.getChartTask(chartId);
+		assertTrue(bean.getCharsData().getChangedChartIds().isEmpty());
+
+		// amount F5 depends on price D5.
+		bean.getCellsMap().put("4:3", "3");
+		assertTrue(bean.getCharsData().getChangedChartIds()
+				.contains(chartId));
+		FutureTask<byte[]> newTask = bean.getChartHelper()
+				.getChartTask(chartId);
+		assertTrue(newTask != oldTask);
+		assertTrue(bean.getCharsData().getChangedChartIds().isEmpty());
+		assertTrue(ChartHelper.getChartImage(newTask).length > 0);
+
+		bean.addRepeatRow(4);
+		assertTrue(bean.getCharsData().getChangedChartIds()
+				.contains(chartId));
+		bean.getChartHelper().getChartTask(chartId);
+		// source index is rebuilt after rows added.
+		bean.getCellsMap().put("4:4", "2");
+		assertTrue(bean.getCharsData().getChangedChartIds()
+				.contains(chartId));
+	}
+
 	/**
 	 * Test charts area. .
 	 */
@@ -330,6 +428,24 @@ public class TieWebSheetBeanTest {
 	 */
 	@Test
 	public final void testDoExport() throws Exception {
+		TieWebSheetBean bean = new TieWebSheetBean();
+		bean.init();
+		bean.loadWebSheet(this.getClass().getClassLoader()
+				.getResourceAsStream("resources/sheet/datacommentdemo.xlsx"));
+		bean.doExport();
+		File first = ((TempFileInputStream) bean.getExportFile().getStream())
+				.getFile();
+		assertTrue(first.exists());
+		// export not downloaded is released by next export.
+		bean.doExport();
+		File second = ((TempFileInputStream) bean.getExportFile()
+				.getStream()).getFile();
+		assertFalse(first.exists());
+		assertTrue(second.exists());
+		// and when the bean is destroyed.
+		bean.finish();
+		assertFalse(second.exists());
+		assertNull(bean.getExportFile());
 	}
 
 	/**
@@ -393,6 +509,264 @@ public class TieWebSheetBeanTest {
 
 	}
 
+	/**
+	 * Test method for
+	 * {@link org.tiefaces.components.websheet.TieWebSheetBean#setParallelLoad(boolean)}
+	 * . Sheets loaded in parallel are same as loaded one by one.
+	 */
+	@Test
+	public final void testParallelLoadSameAsSequential() throws Exception {
+
+		Workbook template = WorkbookFactory.create(this.getClass()
+				.getClassLoader()
+				.getResourceAsStream("resources/sheet/datacommentdemo.xlsx"));
+		// second sheet expanded with the same data.
+		Sheet names = template.createSheet("Names");
+		names.createRow(0).createCell(0).setCellValue("Name");
+		Row eachRow = names.createRow(1);
+		eachRow.createCell(0).setCellValue("${department.name}");
+		eachRow.createCell(1).setCellValue("${department.staff.size()}");
+		names.createRow(2).createCell(0).setCellValue("End");
+		((XSSFSheet) names).getCTWorksheet().getDimension().setRef("A1:B3");
+		ClientAnchor anchor = template.getCreationHelper()
+				.createClientAnchor();
+		anchor.setCol1(0);
+		anchor.setCol2(3);
+		anchor.setRow1(1);
+		anchor.setRow2(4);
+		Comment comment = names.createDrawingPatriarch()
+				.createCellComment(anchor);
+		comment.setString(template.getCreationHelper().createRichTextString(
+				"tie:each(items=\"departments\", var=\"department\","
+						+ " length=\"1\")"));
+		eachRow.getCell(0).setCellComment(comment);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		template.write(bytes);
+
+		TieWebSheetBean sequential = new TieWebSheetBean();
+		sequential.init();
+		Map<String, Object> context = new HashMap<String, Object>();
+		context.put("departments", WebSheetDataDemo.createDepartments());
+		assertEquals(sequential.loadWebSheet(
+				new ByteArrayInputStream(bytes.toByteArray()), context), 1);
+
+		TieWebSheetBean parallel = new TieWebSheetBean();
+		parallel.init();
+		parallel.setParallelLoad(true);
+		context = new HashMap<String, Object>();
+		context.put("departments", WebSheetDataDemo.createDepartments());
+		assertEquals(parallel.loadWebSheet(
+				new ByteArrayInputStream(bytes.toByteArray()), context), 1);
+
+		assertEquals(2, parallel.getSheetConfigMap().size());
+		assertEquals("HR", CellUtility.getCellValueWithoutFormat(
+				parallel.getWb().getSheet("Names").getRow(2).getCell(0)));
+		for (String tabName : sequential.getSheetConfigMap().keySet()) {
+			SheetConfiguration config = sequential.getSheetConfigMap()
+					.get(tabName);
+			SheetConfiguration parallelConfig = parallel.getSheetConfigMap()
+					.get(tabName);
+			assertEquals(config.getBodyCellRange().getBottomRow(),
+					parallelConfig.getBodyCellRange().getBottomRow());
+			assertEquals(config.getShiftMap().keySet(),
+					parallelConfig.getShiftMap().keySet());
+			Sheet sheet = sequential.getWb().getSheet(config.getSheetName());
+			Sheet parallelSheet = parallel.getWb()
+					.getSheet(config.getSheetName());
+			assertEquals(sheet.getLastRowNum(),
+					parallelSheet.getLastRowNum());
+			assertEquals(sheet.getNumMergedRegions(),
+					parallelSheet.getNumMergedRegions());
+			for (Row row : sheet) {
+				for (Cell cell : row) {
+					Cell parallelCell = CellUtility.getPoiCellFromSheet(
+							cell.getRowIndex(), cell.getColumnIndex(),
+							parallelSheet);
+					assertEquals(cell.toString(),
+							String.valueOf(parallelCell));
+					assertEquals(
+							CellUtility.getCellValueWithoutFormat(cell),
+							CellUtility.getCellValueWithoutFormat(
+									parallelCell));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link org.tiefaces.components.websheet.TieWebSheetBean#applyJournal(org.tiefaces.components.websheet.dataobjects.ChangeJournal)}
+	 * . Journal replayed on a fresh load gets same cells as the primary.
+	 */
+	@Test
+	public final void testApplyJournalOnFreshLoad() throws Exception {
+
+		TieWebSheetBean primary = new TieWebSheetBean();
+		primary.init();
+		primary.setDeltaReplication(true);
+		List<Item> primaryItems = new ArrayList<Item>();
+		primaryItems.add(new Item());
+		HashMap<String, Object> context = new HashMap<String, Object>();
+		context.put("items", primaryItems);
+		assertEquals(primary.loadWebSheet(this.getClass().getClassLoader()
+				.getResourceAsStream(
+						"resources/sheet/PRICELISTINPUTVALIDATION.xlsx"),
+				context), 1);
+		primary.getCellsMap().put("4:3", "3");
+		primary.getCellsMap().put("4:4", "2");
+		primary.addRepeatRow(4);
+		primary.getCellsMap().put("5:3", "7");
+		primary.getCellsMap().put("5:4", "4");
+		ChangeJournal journal = (ChangeJournal) SerializationUtils
+				.clone(primary.checkpoint());
+		assertEquals(5, journal.getEntries().size());
+		assertTrue(primary.getChangeJournal().isEmpty());
+
+		TieWebSheetBean replica = new TieWebSheetBean();
+		replica.init();
+		replica.setDeltaReplication(true);
+		List<Item> replicaItems = new ArrayList<Item>();
+		replicaItems.add(new Item());
+		context = new HashMap<String, Object>();
+		context.put("items", replicaItems);
+		assertEquals(replica.loadWebSheet(this.getClass().getClassLoader()
+				.getResourceAsStream(
+						"resources/sheet/PRICELISTINPUTVALIDATION.xlsx"),
+				context), 1);
+		replica.applyJournal(journal);
+		// replayed changes are not recorded again.
+		assertTrue(replica.getChangeJournal().isEmpty());
+
+		assertEquals(primaryItems.size(), replicaItems.size());
+		for (int i = 0; i < primaryItems.size(); i++) {
+			assertEquals(primaryItems.get(i).getPrice(),
+					replicaItems.get(i).getPrice());
+			assertEquals(primaryItems.get(i).getQuantity(),
+					replicaItems.get(i).getQuantity());
+		}
+		Sheet sheet = primary.getWb().getSheet(
+				primary.getCurrentSheetConfig().getSheetName());
+		Sheet replicaSheet = replica.getWb().getSheet(sheet.getSheetName());
+		assertEquals(sheet.getLastRowNum(), replicaSheet.getLastRowNum());
+		for (Row row : sheet) {
+			for (Cell cell : row) {
+				assertEquals(CellUtility.getCellValueWithoutFormat(cell),
+						CellUtility.getCellValueWithoutFormat(
+								CellUtility.getPoiCellFromSheet(
+										cell.getRowIndex(),
+										cell.getColumnIndex(),
+										replicaSheet)));
+			}
+		}
+		assertEquals("6", CellUtility.getCellValueWithoutFormat(
+				replicaSheet.getRow(4).getCell(5)));
+		assertEquals("28", CellUtility.getCellValueWithoutFormat(
+				replicaSheet.getRow(5).getCell(5)));
+	}
+
+	/**
+	 * Test method for
+	 * {@link org.tiefaces.components.websheet.TieWebSheetBean#applyJournal(ChangeJournal)}
+	 * . Changes on a tab which is not current in replica are saved with the
+	 * commands of their own sheet.
+	 */
+	@Test
+	public final void testApplyJournalOnTwoSheets() throws Exception {
+
+		Workbook template = WorkbookFactory.create(this.getClass()
+				.getClassLoader().getResourceAsStream(
+						"resources/sheet/PRICELISTINPUTVALIDATION.xlsx"));
+		// second sheet expanded from another collection.
+		Sheet lines = template.createSheet("Lines");
+		lines.createRow(0).createCell(0).setCellValue("Quantity");
+		Row eachRow = lines.createRow(1);
+		eachRow.createCell(0).setCellValue("${line.quantity}");
+		// input cell is saved into the line.
+		CellStyle inputStyle = template.createCellStyle();
+		inputStyle.setLocked(false);
+		eachRow.getCell(0).setCellStyle(inputStyle);
+		lines.createRow(2).createCell(0).setCellValue("End");
+		((XSSFSheet) lines).getCTWorksheet().getDimension().setRef("A1:B3");
+		ClientAnchor anchor = template.getCreationHelper()
+				.createClientAnchor();
+		anchor.setCol1(0);
+		anchor.setCol2(3);
+		anchor.setRow1(1);
+		anchor.setRow2(4);
+		Comment comment = lines.createDrawingPatriarch()
+				.createCellComment(anchor);
+		comment.setString(template.getCreationHelper().createRichTextString(
+				"tie:each(items=\"others\", var=\"line\", length=\"1\","
+						+ " allowAdd=\"true\")"));
+		eachRow.getCell(0).setCellComment(comment);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		template.write(bytes);
+
+		List<Item> primaryItems = new ArrayList<Item>();
+		List<Item> primaryOthers = new ArrayList<Item>();
+		TieWebSheetBean primary = loadTwoSheets(bytes.toByteArray(),
+				primaryItems, primaryOthers);
+		String firstTab = primary.getCurrent().getCurrentTabName();
+		primary.getCellsMap().put("4:3", "3");
+		assertEquals(1, primary.loadWorkSheetByTabName("Lines"));
+		primary.addRepeatRow(1);
+		primary.getCellsMap().put("1:0", "5");
+		primary.getCellsMap().put("2:0", "9");
+		assertEquals(1, primary.loadWorkSheetByTabName(firstTab));
+		primary.getCellsMap().put("4:4", "2");
+		ChangeJournal journal = (ChangeJournal) SerializationUtils
+				.clone(primary.checkpoint());
+		assertEquals(2, primaryOthers.size());
+		assertEquals(Double.valueOf(9), primaryOthers.get(1).getQuantity());
+
+		List<Item> replicaItems = new ArrayList<Item>();
+		List<Item> replicaOthers = new ArrayList<Item>();
+		TieWebSheetBean replica = loadTwoSheets(bytes.toByteArray(),
+				replicaItems, replicaOthers);
+		replica.applyJournal(journal);
+		assertEquals(firstTab, replica.getCurrent().getCurrentTabName());
+
+		assertEquals(primaryItems.size(), replicaItems.size());
+		assertEquals(primaryItems.get(0).getPrice(),
+				replicaItems.get(0).getPrice());
+		assertEquals(primaryItems.get(0).getQuantity(),
+				replicaItems.get(0).getQuantity());
+		assertEquals(primaryOthers.size(), replicaOthers.size());
+		for (int i = 0; i < primaryOthers.size(); i++) {
+			assertEquals(primaryOthers.get(i).getQuantity(),
+					replicaOthers.get(i).getQuantity());
+		}
+		// edit on current tab still saved after other tab replayed.
+		replica.getCellsMap().put("4:3", "7");
+		assertEquals(Double.valueOf(7), replicaItems.get(0).getPrice());
+	}
+
+	/**
+	 * Load the template with price list and lines sheets.
+	 *
+	 * @param templateBytes
+	 *            the template bytes
+	 * @param items
+	 *            the items of price list
+	 * @param others
+	 *            the items of lines sheet
+	 * @return the bean
+	 */
+	private TieWebSheetBean loadTwoSheets(final byte[] templateBytes,
+			final List<Item> items, final List<Item> others) {
+		TieWebSheetBean bean = new TieWebSheetBean();
+		bean.init();
+		bean.setDeltaReplication(true);
+		items.add(new Item());
+		others.add(new Item());
+		HashMap<String, Object> context = new HashMap<String, Object>();
+		context.put("items", items);
+		context.put("others", others);
+		assertEquals(1, bean.loadWebSheet(
+				new ByteArrayInputStream(templateBytes), context));
+		return bean;
+	}
+
 
 	/**
 	 * Test method for
@@ -0,0 +1,56 @@
+/**
+ *
+ */
+package org.tiefaces.components.websheet.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * @author Jason Jiang
+ *
+ */
+public class CellTemplateTest {
+
+	/**
+	 * Test method for
+	 * {@link org.tiefaces.components.websheet.configuration.CellTemplate#evaluate(java.util.Map, org.tiefaces.components.websheet.configuration.ExpressionEngine)}.
+	 */
+	@Test
+	public final void testEvaluate() throws Exception {
+		ExpressionEngine engine = new ExpressionEngine();
+		Map<String, Object> context = new HashMap<>();
+		context.put("qty", 3);
+		context.put("price", 2.5);
+
+		assertEquals(3, CellTemplate.compile("${qty}").evaluate(context,
+				engine));
+		assertEquals("qty: 3", CellTemplate.compile("qty: ${qty}")
+				.evaluate(context, engine));
+		assertEquals("3 x 2.5", CellTemplate.compile("${qty} x ${price}")
+				.evaluate(context, engine));
+		assertEquals("no expression", CellTemplate.compile("no expression")
+				.evaluate(context, engine));
+		assertEquals("[]", CellTemplate.compile("[${missing}]")
+				.evaluate(context, engine));
+	}
+
+	/**
+	 * Test method for
+	 * {@link org.tiefaces.components.websheet.configuration.CellTemplate#getUserFormula()}.
+	 */
+	@Test
+	public final void testUserFormula() throws Exception {
+		CellTemplate template = CellTemplate.compile("$[SUM(A1:A3)]");
+		assertTrue(template.isUserFormula());
+		assertFalse(template.hasExpression());
+		assertEquals("SUM(A1:A3)", template.getUserFormula());
+	}
+
+}
@@ -0,0 +1,39 @@
+/**
+ * 
+ */
+package org.tiefaces.components.websheet.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * @author Jason Jiang
+ *
+ */
+public class ExpressionEngineTest {
+
+	@Test
+	public final void testCompiledExpressionCached() throws Exception {
+		ExpressionEngine.clearCache();
+		Map<String, Object> context = new HashMap<>();
+		context.put("x", 2);
+		ExpressionEngine engine = new ExpressionEngine();
+		assertEquals(4, engine.evaluate("x * 2", context));
+		context.put("x", 3);
+		assertEquals(6, engine.evaluate("x * 2", context));
+		assertSame(new ExpressionEngine("x * 2").getJexlExpression(),
+				new ExpressionEngine("x * 2").getJexlExpression());
+		assertEquals(1, ExpressionEngine.getCacheMisses());
+		assertEquals(3, ExpressionEngine.getCacheHits());
+		assertEquals(1, ExpressionEngine.getCacheSize());
+		ExpressionEngine.clearCache();
+		assertEquals(0, ExpressionEngine.getCacheSize());
+		assertEquals(0, ExpressionEngine.getCacheHits());
+	}
+
+}
@@ -0,0 +1,52 @@
+/**
+ * 
+ */
+package org.tiefaces.components.websheet.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+
+import org.apache.poi.util.IOUtils;
+import org.junit.Test;
+import org.tiefaces.components.websheet.TieWebSheetBean;
+
+/**
+ * @author Jason Jiang
+ *
+ */
+public class TemplateRegistryTest {
+
+	@Test
+	public final void testSecondSessionUsesRegisteredTemplate()
+			throws Exception {
+
+		TemplateRegistry.clear();
+		byte[] templateBytes = IOUtils.toByteArray(
+				this.getClass().getClassLoader().getResourceAsStream(
+						"resources/sheet/datacommentdemo.xlsx"));
+		String key = TemplateRegistry.buildKey(templateBytes, false);
+
+		TieWebSheetBean first = loadBean();
+		assertNotNull(TemplateRegistry.get(key));
+		TieWebSheetBean second = loadBean();
+
+		assertEquals(first.getSheetConfigMap().keySet(),
+				second.getSheetConfigMap().keySet());
+		assertEquals(first.getWb().getNumberOfSheets(),
+				second.getWb().getNumberOfSheets());
+		assertNotSame(first.getSheetConfigMap(),
+				second.getSheetConfigMap());
+		assertEquals(1, second.loadWorkSheetByTabName("departments"));
+	}
+
+	private TieWebSheetBean loadBean() {
+		TieWebSheetBean bean = new TieWebSheetBean();
+		bean.init();
+		bean.setTemplateCache(true);
+		bean.loadWebSheet(this.getClass().getClassLoader()
+				.getResourceAsStream("resources/sheet/datacommentdemo.xlsx"));
+		return bean;
+	}
+
+}
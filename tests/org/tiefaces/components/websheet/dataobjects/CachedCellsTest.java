@@ -0,0 +1,109 @@
+/**
+ * 
+ */
+package org.tiefaces.components.websheet.dataobjects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+import org.tiefaces.components.websheet.TieWebSheetBean;
+
+/**
+ * @author Jason Jiang
+ *
+ */
+public class CachedCellsTest {
+
+	/**
+	 * Test method for
+	 * {@link org.tiefaces.components.websheet.dataobjects.CachedCells#isValueChanged(org.apache.poi.ss.usermodel.Cell)}.
+	 */
+	@Test
+	public final void testIsValueChanged() throws Exception {
+		XSSFWorkbook wb = new XSSFWorkbook();
+		Sheet sheet = wb.createSheet("sheet1");
+		CachedCells cachedCells = new CachedCells(new TieWebSheetBean());
+		for (int i = 0; i < 200; i++) {
+			Cell cell = sheet.createRow(i).createCell(1);
+			cell.setCellValue(i);
+			cachedCells.put(cell, (CellType) null);
+		}
+		Cell stringCell = sheet.getRow(0).createCell(2);
+		stringCell.setCellValue("abc");
+		cachedCells.put(stringCell, (CellType) null);
+		assertEquals(201, cachedCells.size());
+
+		Cell cell = sheet.getRow(150).getCell(1);
+		assertFalse(cachedCells.isValueChanged(cell));
+		cell.setCellValue(1000);
+		assertTrue(cachedCells.isValueChanged(cell));
+		cachedCells.markChanged(cell);
+		assertTrue(cachedCells.getChangedCells().contains(cell));
+		cachedCells.put(cell, (CellType) null);
+		assertFalse(cachedCells.isValueChanged(cell));
+
+		assertEquals(1, cachedCells.getStringPoolSize());
+		stringCell.setCellValue("abd");
+		assertTrue(cachedCells.isValueChanged(stringCell));
+		// overwritten string is released from pool
+		cachedCells.put(stringCell, (CellType) null);
+		assertEquals(1, cachedCells.getStringPoolSize());
+		assertFalse(cachedCells.isValueChanged(stringCell));
+		Cell otherCell = sheet.getRow(1).createCell(2);
+		otherCell.setCellValue("abd");
+		cachedCells.put(otherCell, "B1+1");
+		assertEquals(2, cachedCells.getStringPoolSize());
+		otherCell.setCellValue(1);
+		cachedCells.put(otherCell, "B1+2");
+		assertEquals(2, cachedCells.getStringPoolSize());
+		assertEquals("B1+2", cachedCells.getOriginFormula(otherCell));
+
+		cachedCells.clear();
+		assertEquals(0, cachedCells.size());
+		assertEquals(0, cachedCells.getStringPoolSize());
+		assertFalse(cachedCells.contains(cell));
+		assertTrue(cachedCells.getChangedCells().isEmpty());
+		wb.close();
+	}
+
+	/**
+	 * Test deprecated methods of formatted cached value.
+	 */
+	@SuppressWarnings("deprecation")
+	@Test
+	public final void testDeprecatedFormattedValue() throws Exception {
+		XSSFWorkbook wb = new XSSFWorkbook();
+		Sheet sheet = wb.createSheet("sheet1");
+		TieWebSheetBean bean = new TieWebSheetBean();
+		bean.setWb(wb);
+		CachedCells cachedCells = new CachedCells(bean);
+		Cell cell = sheet.createRow(0).createCell(0);
+		cell.setCellValue(12);
+		cachedCells.put(cell, "A2+1");
+		Cell stringCell = sheet.getRow(0).createCell(1);
+		stringCell.setCellValue("abc");
+		cachedCells.put(stringCell, (CellType) null);
+
+		assertEquals("12", cachedCells.getValue(cell));
+		assertEquals("abc", cachedCells.getValue(stringCell));
+		assertNull(cachedCells.getValue(sheet.getRow(0).createCell(2)));
+		assertFalse(cachedCells.isValueChanged(cell, "12"));
+		assertTrue(cachedCells.isValueChanged(cell, "13"));
+
+		Map<Cell, FormulaMapping> map = cachedCells.getCachedMap();
+		assertEquals(2, map.size());
+		assertEquals("A2+1", map.get(cell).getOriginFormula());
+		assertEquals("abc", map.get(stringCell).getValue());
+		wb.close();
+	}
+
+}
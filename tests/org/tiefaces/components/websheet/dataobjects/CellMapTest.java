@@ -12,9 +12,15 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
 import org.junit.Test;
 import org.tiefaces.common.Item;
 import org.tiefaces.components.websheet.TieWebSheetBean;
+import org.tiefaces.components.websheet.service.CellHelper;
 
 /**
  * @author Jason Jiang
@@ -159,4 +165,57 @@ public class CellMapTest {
 		assertEquals(bean.getCellsMap().get("4:1"), "test item");
 	}
 
+	/**
+	 * Test method for
+	 * {@link org.tiefaces.components.websheet.dataobjects.CellMap#put(java.lang.Object, java.lang.Object)}
+	 * . Repeated edits recalc dependents without fall back to whole workbook.
+	 */
+	@Test
+	public final void testPutRecalcDependents() throws Exception {
+		TieWebSheetBean bean = new TieWebSheetBean();
+		bean.init();
+		InputStream stream =
+				this.getClass().getClassLoader().getResourceAsStream(
+						"resources/sheet/PRICELISTINPUTVALIDATION.xlsx");
+		List<Item> itemList = new ArrayList<Item>();
+		itemList.add(new Item());
+		HashMap<String, Object> context = new HashMap<String, Object>();
+		context.put("items", itemList);
+		assertEquals(bean.loadWebSheet(stream, context), 1);
+
+		final List<LogRecord> errors = new ArrayList<LogRecord>();
+		Handler handler = new Handler() {
+			@Override
+			public void publish(final LogRecord record) {
+				if (record.getLevel().intValue() >= Level.SEVERE
+						.intValue()) {
+					errors.add(record);
+				}
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		Logger logger = Logger.getLogger(CellHelper.class.getName());
+		logger.addHandler(handler);
+		try {
+			// F5 = D5*E5
+			bean.getCellsMap().put("4:4", "2");
+			bean.getCellsMap().put("4:3", "3");
+			assertEquals("6", bean.getCellsMap().get("4:5"));
+			bean.getCellsMap().put("4:3", "5");
+			assertEquals("10", bean.getCellsMap().get("4:5"));
+			bean.getCellsMap().put("4:4", "4");
+			assertEquals("20", bean.getCellsMap().get("4:5"));
+		} finally {
+			logger.removeHandler(handler);
+		}
+		assertTrue(errors.isEmpty());
+	}
+
 }
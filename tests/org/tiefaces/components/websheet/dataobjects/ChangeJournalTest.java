@@ -0,0 +1,49 @@
+/**
+ *
+ */
+package org.tiefaces.components.websheet.dataobjects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Jason Jiang
+ *
+ */
+public class ChangeJournalTest {
+
+	/**
+	 * Test method for
+	 * {@link org.tiefaces.components.websheet.dataobjects.ChangeJournal#begin(org.tiefaces.components.websheet.dataobjects.JournalEntry)}.
+	 */
+	@Test
+	public final void testNestedChangesNotRecorded() throws Exception {
+		ChangeJournal journal = new ChangeJournal();
+		assertTrue(journal.isEmpty());
+
+		journal.begin(new JournalEntry(JournalEntry.Operation.CELL_VALUE,
+				"sheet", 3, 2, "100"));
+		journal.begin(new JournalEntry(JournalEntry.Operation.SAVE_DATA,
+				"sheet", 3, 2, "100"));
+		journal.end();
+		journal.end();
+		assertEquals(1, journal.getEntries().size());
+		assertEquals(JournalEntry.Operation.CELL_VALUE,
+				journal.getEntries().get(0).getOperation());
+
+		journal.suspend();
+		journal.begin(new JournalEntry(JournalEntry.Operation.ADD_ROW,
+				"sheet", 5, -1, null));
+		journal.end();
+		journal.end();
+		assertEquals(1, journal.getEntries().size());
+
+		journal.begin(new JournalEntry(JournalEntry.Operation.DELETE_ROW,
+				"sheet", 5, -1, null));
+		journal.end();
+		assertEquals(2, journal.getEntries().size());
+	}
+
+}
@@ -0,0 +1,190 @@
+/**
+ *
+ */
+package org.tiefaces.components.websheet.dataobjects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+/**
+ * @author Jason Jiang
+ *
+ */
+public class FormulaDependencyGraphTest {
+
+	/**
+	 * Test method for
+	 * {@link org.tiefaces.components.websheet.dataobjects.FormulaDependencyGraph#findDependentCells(org.apache.poi.ss.usermodel.Cell)}.
+	 */
+	@Test
+	public final void testFindDependentCells() throws Exception {
+		XSSFWorkbook wb = new XSSFWorkbook();
+		Sheet sheet1 = wb.createSheet("sheet1");
+		Sheet sheet2 = wb.createSheet("sheet2");
+		Row row = sheet1.createRow(0);
+		row.createCell(0).setCellValue(1);
+		row.createCell(1).setCellValue(2);
+		row.createCell(2).setCellFormula("A1*2");
+		row.createCell(3).setCellFormula("SUM(A1:B1)");
+		row.createCell(4).setCellFormula("C1+1");
+		row.createCell(5).setCellFormula("B1*2");
+		sheet2.createRow(0).createCell(0).setCellFormula("sheet1!E1+1");
+
+		FormulaDependencyGraph graph = new FormulaDependencyGraph(wb,
+				XSSFEvaluationWorkbook.create(wb));
+		List<Cell> cells = graph.findDependentCells(row.getCell(0));
+		assertEquals(4, cells.size());
+		assertTrue(cells.contains(row.getCell(2)));
+		assertTrue(cells.contains(row.getCell(3)));
+		assertTrue(cells.contains(row.getCell(4)));
+		assertTrue(cells.contains(sheet2.getRow(0).getCell(0)));
+
+		cells = graph.findDependentCells(row.getCell(1));
+		assertEquals(2, cells.size());
+		assertTrue(cells.contains(row.getCell(3)));
+		assertTrue(cells.contains(row.getCell(5)));
+		wb.close();
+	}
+
+	/**
+	 * Test method for
+	 * {@link org.tiefaces.components.websheet.dataobjects.FormulaDependencyGraph#findDependentCells(org.apache.poi.ss.usermodel.Cell)}
+	 * with area references.
+	 */
+	@Test
+	public final void testFindDependentCellsWithAreas() throws Exception {
+		XSSFWorkbook wb = new XSSFWorkbook();
+		Sheet sheet1 = wb.createSheet("sheet1");
+		for (int i = 0; i < 300; i++) {
+			Row row = sheet1.createRow(i);
+			row.createCell(0).setCellValue(i);
+			row.createCell(1).setCellValue(i);
+		}
+		Row row = sheet1.getRow(0);
+		row.createCell(2).setCellFormula("SUM(A100:A200)");
+		row.createCell(3).setCellFormula("SUM(A:A)");
+		row.createCell(4).setCellFormula("SUM(A1:B50)");
+
+		FormulaDependencyGraph graph = new FormulaDependencyGraph(wb,
+				XSSFEvaluationWorkbook.create(wb));
+		List<Cell> cells = graph
+				.findDependentCells(sheet1.getRow(150).getCell(0));
+		assertEquals(2, cells.size());
+		assertTrue(cells.contains(row.getCell(2)));
+		assertTrue(cells.contains(row.getCell(3)));
+
+		cells = graph.findDependentCells(sheet1.getRow(40).getCell(1));
+		assertEquals(1, cells.size());
+		assertTrue(cells.contains(row.getCell(4)));
+
+		assertTrue(graph.findDependentCells(sheet1.getRow(250).getCell(1))
+				.isEmpty());
+		wb.close();
+	}
+
+	/**
+	 * Test method for
+	 * {@link org.tiefaces.components.websheet.dataobjects.FormulaDependencyGraph#findDependentSheets(int)}.
+	 */
+	@Test
+	public final void testFindDependentSheets() throws Exception {
+		XSSFWorkbook wb = new XSSFWorkbook();
+		wb.createSheet("sheet1").createRow(0).createCell(0).setCellValue(1);
+		wb.createSheet("sheet2").createRow(0).createCell(0)
+				.setCellFormula("sheet1!A1+1");
+		wb.createSheet("sheet3").createRow(0).createCell(0)
+				.setCellFormula("sheet2!A1+1");
+		wb.createSheet("sheet4").createRow(0).createCell(0)
+				.setCellFormula("1+1");
+
+		FormulaDependencyGraph graph = new FormulaDependencyGraph(wb,
+				XSSFEvaluationWorkbook.create(wb));
+		Set<Integer> sheets = graph.findDependentSheets(0);
+		assertEquals(3, sheets.size());
+		assertTrue(sheets.contains(0));
+		assertTrue(sheets.contains(1));
+		assertTrue(sheets.contains(2));
+		wb.close();
+	}
+
+	/**
+	 * Test method for
+	 * {@link org.tiefaces.components.websheet.dataobjects.FormulaDependencyGraph#invalidateSheet(org.apache.poi.ss.usermodel.Sheet)}.
+	 * Only the sheet and indexed sheets referring to it are indexed again.
+	 */
+	@Test
+	public final void testInvalidateSheet() throws Exception {
+		XSSFWorkbook wb = new XSSFWorkbook();
+		Sheet sheet1 = wb.createSheet("sheet1");
+		Row row = sheet1.createRow(0);
+		row.createCell(0).setCellValue(1);
+		row.createCell(1).setCellValue(2);
+		Cell cell2 = wb.createSheet("sheet2").createRow(0).createCell(0);
+		cell2.setCellFormula("sheet1!A1+1");
+		Cell cell3 = wb.createSheet("sheet3").createRow(0).createCell(0);
+		cell3.setCellFormula("sheet1!A1*2");
+		Cell cell4 = wb.createSheet("sheet4").createRow(0).createCell(0);
+		cell4.setCellFormula("sheet1!A1*3");
+
+		FormulaDependencyGraph graph = new FormulaDependencyGraph(wb,
+				XSSFEvaluationWorkbook.create(wb));
+		// invalidate before indexed.
+		graph.invalidateSheet(sheet1);
+		assertEquals(3, graph.findDependentCells(row.getCell(0)).size());
+
+		// formulas rewritten, e.g. rows shifted.
+		cell2.setCellFormula("sheet1!B1+1");
+		cell3.setCellFormula("sheet1!B1*2");
+		graph.invalidateSheet(sheet1);
+		List<Cell> cells = graph.findDependentCells(row.getCell(1));
+		assertEquals(2, cells.size());
+		assertTrue(cells.contains(cell2));
+		assertTrue(cells.contains(cell3));
+		cells = graph.findDependentCells(row.getCell(0));
+		assertEquals(1, cells.size());
+		assertTrue(cells.contains(cell4));
+
+		// sheet not referring to sheet1 is kept.
+		cell4.setCellFormula("1+1");
+		graph.invalidateSheet(wb.getSheet("sheet2"));
+		assertTrue(graph.findDependentCells(row.getCell(0))
+				.contains(cell4));
+		wb.close();
+	}
+
+	/**
+	 * Test method for
+	 * {@link org.tiefaces.components.websheet.dataobjects.FormulaDependencyGraph#findPrecedentSheets(int)}.
+	 */
+	@Test
+	public final void testFindPrecedentSheets() throws Exception {
+		XSSFWorkbook wb = new XSSFWorkbook();
+		wb.createSheet("sheet1").createRow(0).createCell(0).setCellValue(1);
+		wb.createSheet("sheet2").createRow(0).createCell(0)
+				.setCellFormula("sheet1!A1+1");
+		wb.createSheet("sheet3").createRow(0).createCell(0)
+				.setCellFormula("sheet2!A1+A2");
+		wb.createSheet("sheet4").createRow(0).createCell(0)
+				.setCellFormula("1+1");
+
+		FormulaDependencyGraph graph = new FormulaDependencyGraph(wb,
+				XSSFEvaluationWorkbook.create(wb));
+		Set<Integer> sheets = graph.findPrecedentSheets(2);
+		assertEquals(2, sheets.size());
+		assertTrue(sheets.contains(0));
+		assertTrue(sheets.contains(1));
+		assertTrue(graph.findPrecedentSheets(3).isEmpty());
+		wb.close();
+	}
+
+}
@@ -0,0 +1,65 @@
+/**
+ *
+ */
+package org.tiefaces.components.websheet.dataobjects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+/**
+ * @author Jason Jiang
+ *
+ */
+public class MergedRegionIndexTest {
+
+	/**
+	 * Test method for
+	 * {@link org.tiefaces.components.websheet.dataobjects.MergedRegionIndex#isSkipped(int, int)}.
+	 */
+	@Test
+	public final void testIsSkipped() throws Exception {
+		XSSFWorkbook wb = new XSSFWorkbook();
+		Sheet sheet = wb.createSheet("sheet1");
+		sheet.addMergedRegion(new CellRangeAddress(1, 2, 1, 3));
+
+		MergedRegionIndex regionIndex = new MergedRegionIndex(sheet);
+		assertEquals(1, regionIndex.size());
+		assertFalse(regionIndex.isSkipped(1, 1));
+		assertTrue(regionIndex.isSkipped(1, 2));
+		assertTrue(regionIndex.isSkipped(2, 3));
+		assertFalse(regionIndex.isSkipped(3, 1));
+		assertEquals(3, regionIndex.getAnchorRegion(1, 1).getLastColumn());
+		assertNull(regionIndex.getAnchorRegion(2, 1));
+		wb.close();
+	}
+
+	/**
+	 * Test method for
+	 * {@link org.tiefaces.components.websheet.dataobjects.MergedRegionIndex#shiftRows(int, int)}.
+	 */
+	@Test
+	public final void testShiftRows() throws Exception {
+		XSSFWorkbook wb = new XSSFWorkbook();
+		Sheet sheet = wb.createSheet("sheet1");
+		sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 1));
+		sheet.addMergedRegion(new CellRangeAddress(2, 3, 0, 1));
+
+		MergedRegionIndex regionIndex = new MergedRegionIndex(sheet);
+		regionIndex.shiftRows(2, 2);
+		regionIndex.addRegion(new CellRangeAddress(2, 3, 0, 1));
+		assertEquals(3, regionIndex.size());
+		assertTrue(regionIndex.isSkipped(0, 1));
+		assertTrue(regionIndex.isSkipped(3, 0));
+		assertTrue(regionIndex.isSkipped(5, 1));
+		assertEquals(4, regionIndex.getAnchorRegion(4, 0).getFirstRow());
+		wb.close();
+	}
+
+}
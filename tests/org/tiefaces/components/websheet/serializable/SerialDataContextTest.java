@@ -0,0 +1,80 @@
+/**
+ * 
+ */
+package org.tiefaces.components.websheet.serializable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.junit.Test;
+import org.tiefaces.datademo.Department;
+import org.tiefaces.datademo.Employee;
+
+/**
+ * @author Jason Jiang
+ *
+ */
+public class SerialDataContextTest {
+
+	@Test
+	public final void testBinaryCodecKeepsTypes() throws Exception {
+
+		List<Department> departments = new ArrayList<>();
+		Department dept = new Department("Sales");
+		dept.addEmployee(new Employee("Bob", 30.0, 3000.0, 0.1,
+				"1980-01-01", "M"));
+		departments.add(dept);
+		Map<String, Object> context = new HashMap<>();
+		context.put("departments", departments);
+		context.put("count", 1);
+
+		SerialDataContext sdc = new SerialDataContext();
+		sdc.setDataContext(context);
+		SerialDataContext copy =
+				(SerialDataContext) SerializationUtils.clone(sdc);
+
+		List<?> list = (List<?>) copy.getDataContext().get("departments");
+		assertTrue(list.get(0) instanceof Department);
+		Department copyDept = (Department) list.get(0);
+		assertEquals("Sales", copyDept.getName());
+		assertEquals("Bob", copyDept.getStaff().get(0).getName());
+		assertEquals(1, copy.getDataContext().get("count"));
+	}
+
+	/**
+	 * Serializable values are written into the same stream, so a value
+	 * referred twice is restored as one object, also when json values are
+	 * written between them.
+	 */
+	@Test
+	public final void testBinaryCodecSharesSerializedValues()
+			throws Exception {
+
+		Date date = new Date();
+		List<Object> list = new ArrayList<>();
+		list.add(date);
+		list.add(new Department("Sales"));
+		list.add(date);
+		Map<String, Object> context = new HashMap<>();
+		context.put("list", list);
+
+		SerialDataContext sdc = new SerialDataContext();
+		sdc.setDataContext(context);
+		SerialDataContext copy =
+				(SerialDataContext) SerializationUtils.clone(sdc);
+
+		List<?> copyList = (List<?>) copy.getDataContext().get("list");
+		assertEquals(date, copyList.get(0));
+		assertTrue(copyList.get(1) instanceof Department);
+		assertSame(copyList.get(0), copyList.get(2));
+	}
+
+}
@@ -4,15 +4,29 @@
 package org.tiefaces.components.websheet.serializable;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import org.apache.commons.lang.SerializationUtils;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.ClientAnchor;
+import org.apache.poi.ss.usermodel.Comment;
+import org.apache.poi.ss.usermodel.CreationHelper;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.junit.Test;
 import org.tiefaces.components.websheet.TieWebSheetBean;
 import org.tiefaces.components.websheet.configuration.SheetConfiguration;
+import org.tiefaces.components.websheet.configuration.TemplateRegistry;
 import org.tiefaces.components.websheet.serializable.SerialWorkbook;
 
 /**
@@ -55,4 +69,226 @@ public class SerialWorkbookTest {
 
 	}
 
+	/**
+	 * Snapshot restores expanded rows, cells and merged regions on top of the
+	 * template.
+	 */
+	@Test
+	public final void testSnapshotKeepsExpandedCells() throws Exception {
+
+		TieWebSheetBean bean = new TieWebSheetBean();
+		bean.init();
+		InputStream stream =
+				this.getClass().getClassLoader().getResourceAsStream(
+						"resources/sheet/datacommentdemo.xlsx");
+		bean.setTemplateCache(true);
+		bean.loadWebSheet(stream);
+
+		SerialWorkbook swb = bean.getSerialWb();
+		assertNotNull(swb.getTemplateKey());
+		SerialWorkbook copy =
+				(SerialWorkbook) SerializationUtils.clone(swb);
+
+		for (int i = 0; i < swb.getWb().getNumberOfSheets(); i++) {
+			Sheet sheet = swb.getWb().getSheetAt(i);
+			Sheet copySheet = copy.getWb().getSheet(sheet.getSheetName());
+			assertNotNull(copySheet);
+			assertEquals(sheet.getNumMergedRegions(),
+					copySheet.getNumMergedRegions());
+			for (Row row : sheet) {
+				Row copyRow = copySheet.getRow(row.getRowNum());
+				assertNotNull(copyRow);
+				for (Cell cell : row) {
+					Cell copyCell = copyRow.getCell(cell.getColumnIndex());
+					assertNotNull(copyCell);
+					assertEquals(cell.getCellTypeEnum(),
+							copyCell.getCellTypeEnum());
+					assertEquals(cell.toString(), copyCell.toString());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Released workbook is rebuilt with same contents when accessed.
+	 */
+	@Test
+	public final void testReleasedWorkbookRebuiltOnAccess() throws Exception {
+
+		TieWebSheetBean bean = new TieWebSheetBean();
+		bean.init();
+		InputStream stream =
+				this.getClass().getClassLoader().getResourceAsStream(
+						"resources/sheet/datacommentdemo.xlsx");
+		bean.setTemplateCache(true);
+		bean.loadWebSheet(stream);
+		Sheet sheet = bean.getWb().getSheetAt(0);
+		String sheetName = sheet.getSheetName();
+		int lastRowNum = sheet.getLastRowNum();
+
+		assertTrue(bean.releaseWorkbook());
+		assertTrue(bean.getSerialWb().isReleased());
+
+		assertNotNull(bean.getWb());
+		assertFalse(bean.getSerialWb().isReleased());
+		assertEquals(lastRowNum,
+				bean.getWb().getSheet(sheetName).getLastRowNum());
+		// configurations refer to cells of the rebuilt workbook.
+		for (SheetConfiguration config : bean.getSheetConfigMap()
+				.values()) {
+			for (Cell cell : config.getCachedCells().keySet()) {
+				assertTrue(cell.getSheet().getWorkbook() == bean.getWb());
+			}
+		}
+		assertFalse(bean.getBodyRows().isEmpty());
+		assertEquals(1, bean.loadWorkSheetByTabName("departments"));
+	}
+
+	/**
+	 * Workbook is serialized in released form with release on serialize,
+	 * and rebuilt when accessed. Workbook of the bean is kept.
+	 */
+	@Test
+	public final void testReleaseOnSerialize() throws Exception {
+
+		TieWebSheetBean bean = new TieWebSheetBean();
+		bean.init();
+		bean.setTemplateCache(true);
+		bean.setReleaseOnSerialize(true);
+		bean.loadWebSheet(this.getClass().getClassLoader()
+				.getResourceAsStream("resources/sheet/datacommentdemo.xlsx"));
+		Sheet sheet = bean.getWb().getSheetAt(0);
+		String sheetName = sheet.getSheetName();
+		String value = sheet.getRow(1).getCell(0).toString();
+		Workbook wb = bean.getWb();
+
+		TieWebSheetBean copy = (TieWebSheetBean) SerializationUtils
+				.clone(bean);
+		assertFalse(bean.getSerialWb().isReleased());
+		assertSame(wb, bean.getWb());
+		assertNotNull(bean.getSheetConfigMap().get("departments"));
+		assertTrue(copy.getSerialWb().isReleased());
+
+		assertEquals(value, bean.getWb().getSheet(sheetName).getRow(1)
+				.getCell(0).toString());
+		assertEquals(value, copy.getWb().getSheet(sheetName).getRow(1)
+				.getCell(0).toString());
+		assertFalse(copy.getSerialWb().isReleased());
+		assertNotNull(copy.getSheetConfigMap().get("departments"));
+	}
+
+	/**
+	 * Snapshot only keeps cells changed from the template. Sessions of the
+	 * same template written together share the template, so they are much
+	 * smaller than the xlsx packages.
+	 */
+	@Test
+	public final void testSnapshotOnlyKeepsChangedCells() throws Exception {
+
+		ArrayList<SerialWorkbook> packages = new ArrayList<>();
+		ArrayList<SerialWorkbook> snapshots = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			TieWebSheetBean bean = new TieWebSheetBean();
+			bean.init();
+			bean.loadWebSheet(this.getClass().getClassLoader()
+					.getResourceAsStream(
+							"resources/sheet/datacommentdemo.xlsx"));
+			assertNull(bean.getSerialWb().getTemplateKey());
+			packages.add(bean.getSerialWb());
+
+			TieWebSheetBean cached = new TieWebSheetBean();
+			cached.init();
+			cached.setTemplateCache(true);
+			cached.loadWebSheet(this.getClass().getClassLoader()
+					.getResourceAsStream(
+							"resources/sheet/datacommentdemo.xlsx"));
+			snapshots.add(cached.getSerialWb());
+		}
+		int packageSize = SerializationUtils.serialize(packages).length;
+		int snapshotSize = SerializationUtils.serialize(snapshots).length;
+		assertTrue(snapshotSize * 2 < packageSize);
+	}
+
+	/**
+	 * Snapshot is read in a server without the template registered, e.g.
+	 * after fail over or restart. Template is registered from the stream.
+	 */
+	@Test
+	public final void testSnapshotReadWithoutRegisteredTemplate()
+			throws Exception {
+
+		TieWebSheetBean bean = new TieWebSheetBean();
+		bean.init();
+		bean.setTemplateCache(true);
+		bean.loadWebSheet(this.getClass().getClassLoader()
+				.getResourceAsStream("resources/sheet/datacommentdemo.xlsx"));
+		String templateKey = bean.getSerialWb().getTemplateKey();
+		Sheet sheet = bean.getWb().getSheetAt(0);
+		String sheetName = sheet.getSheetName();
+		String value = sheet.getRow(1).getCell(0).toString();
+		byte[] saved = SerializationUtils.serialize(bean.getSerialWb());
+		assertTrue(bean.releaseWorkbook());
+		byte[] released = SerializationUtils.serialize(bean.getSerialWb());
+
+		TemplateRegistry.clear();
+		SerialWorkbook copy = (SerialWorkbook) SerializationUtils
+				.deserialize(saved);
+		assertNotNull(TemplateRegistry.get(templateKey));
+		assertEquals(value, copy.getWb().getSheet(sheetName).getRow(1)
+				.getCell(0).toString());
+		assertNotNull(copy.getSheetConfigMap().get("departments"));
+
+		TemplateRegistry.clear();
+		SerialWorkbook releasedCopy = (SerialWorkbook) SerializationUtils
+				.deserialize(released);
+		assertTrue(releasedCopy.isReleased());
+		assertNotNull(TemplateRegistry.get(templateKey));
+		TemplateRegistry.clear();
+		// rebuilt from the template read with the snapshot.
+		assertEquals(value, releasedCopy.getWb().getSheet(sheetName)
+				.getRow(1).getCell(0).toString());
+		assertNotNull(releasedCopy.getSheetConfigMap().get("departments"));
+	}
+
+	/**
+	 * Comments keep their anchor and visibility in snapshot.
+	 */
+	@Test
+	public final void testSnapshotKeepsCommentAnchor() throws Exception {
+
+		TieWebSheetBean bean = new TieWebSheetBean();
+		bean.init();
+		bean.setTemplateCache(true);
+		bean.loadWebSheet(this.getClass().getClassLoader()
+				.getResourceAsStream("resources/sheet/datacommentdemo.xlsx"));
+		Sheet sheet = bean.getWb().getSheetAt(0);
+		Cell cell = sheet.getRow(2).getCell(0);
+		CreationHelper factory = bean.getWb().getCreationHelper();
+		ClientAnchor anchor = factory.createClientAnchor();
+		anchor.setCol1(2);
+		anchor.setCol2(6);
+		anchor.setRow1(2);
+		anchor.setRow2(9);
+		Comment comment = sheet.createDrawingPatriarch()
+				.createCellComment(anchor);
+		comment.setString(factory.createRichTextString("note"));
+		comment.setAuthor("tester");
+		comment.setVisible(true);
+		cell.setCellComment(comment);
+
+		SerialWorkbook copy = (SerialWorkbook) SerializationUtils
+				.clone(bean.getSerialWb());
+		Comment copyComment = copy.getWb().getSheet(sheet.getSheetName())
+				.getRow(2).getCell(0).getCellComment();
+		assertNotNull(copyComment);
+		assertEquals("note", copyComment.getString().getString());
+		assertEquals("tester", copyComment.getAuthor());
+		assertTrue(copyComment.isVisible());
+		ClientAnchor copyAnchor = copyComment.getClientAnchor();
+		assertEquals(2, copyAnchor.getCol1());
+		assertEquals(6, copyAnchor.getCol2());
+		assertEquals(2, copyAnchor.getRow1());
+		assertEquals(9, copyAnchor.getRow2());
+	}
+
 }
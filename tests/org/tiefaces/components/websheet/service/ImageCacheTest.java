@@ -0,0 +1,33 @@
+/**
+ * 
+ */
+package org.tiefaces.components.websheet.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Jason Jiang
+ *
+ */
+public class ImageCacheTest {
+
+	@Test
+	public final void testPutIsKeyedByContent() throws Exception {
+		ImageCache.clear();
+		String key = ImageCache.put(new byte[] { 1, 2, 3 }, "image/png");
+		assertEquals(key, ImageCache.put(new byte[] { 1, 2, 3 }, "image/png"));
+		assertNotEquals(key,
+				ImageCache.put(new byte[] { 3, 2, 1 }, "image/png"));
+		assertTrue(ImageCache.contains(key));
+		assertEquals("image/png", ImageCache.get(key).getContentType());
+		assertEquals(3, ImageCache.get(key).getData().length);
+		ImageCache.clear();
+		assertFalse(ImageCache.contains(key));
+	}
+
+}
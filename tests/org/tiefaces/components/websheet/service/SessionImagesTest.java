@@ -0,0 +1,69 @@
+/**
+ * 
+ */
+package org.tiefaces.components.websheet.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.tiefaces.components.websheet.TieWebSheetBean;
+
+/**
+ * @author Jason Jiang
+ *
+ */
+public class SessionImagesTest {
+
+	@Test
+	public final void testOnlyRegisteredImageIsServed() throws Exception {
+		ImageCache.clear();
+		String other = ImageCache.put(new byte[] { 1, 2, 3 }, "image/png");
+		Map<String, Object> sessionMap = new HashMap<>();
+		SessionImages images = SessionImages.get(sessionMap);
+		assertFalse(images.contains(other));
+		assertNull(images.getImage(other));
+		assertNull(SessionImages.getImage(sessionMap, other));
+		ImageCache.clear();
+	}
+
+	@Test
+	public final void testEvictedChartIsLoadedAgain() throws Exception {
+		TieWebSheetBean bean = new TieWebSheetBean();
+		bean.init();
+		InputStream stream =
+				this.getClass().getClassLoader().getResourceAsStream(
+						"resources/sheet/linecharts1.xlsx");
+		assertEquals(bean.loadWebSheet(stream), 1);
+		String imageKey = (String) bean.getCellsMap().get("7:0:chart");
+		String chartId = null;
+		for (Map.Entry<String, String> entry : bean.getImageKeysMap()
+				.entrySet()) {
+			if (entry.getValue().equals(imageKey)) {
+				chartId = entry.getKey();
+			}
+		}
+		assertNotNull(chartId);
+		Map<String, Object> sessionMap = new HashMap<>();
+		SessionImages images = SessionImages.get(sessionMap);
+		images.register(imageKey, bean, chartId, true);
+		assertTrue(images.contains(imageKey));
+
+		ImageCache.clear();
+		ImageCache.CachedImage image = images.getImage(imageKey);
+		assertNotNull(image);
+		assertEquals("image/png", image.getContentType());
+		assertTrue(image.getData().length > 0);
+		assertTrue(ImageCache.contains(imageKey));
+		assertNotNull(SessionImages.getImage(sessionMap, imageKey));
+		ImageCache.clear();
+	}
+
+}
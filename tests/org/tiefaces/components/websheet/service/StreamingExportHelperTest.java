@@ -0,0 +1,160 @@
+/**
+ * 
+ */
+package org.tiefaces.components.websheet.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+import org.tiefaces.common.TieConstants;
+import org.tiefaces.components.websheet.TieWebSheetBean;
+import org.tiefaces.datademo.Department;
+import org.tiefaces.datademo.Employee;
+import org.tiefaces.datademo.WebSheetDataDemo;
+
+/**
+ * @author Jason Jiang
+ *
+ */
+public class StreamingExportHelperTest {
+
+	/** columns of the demo template. */
+	private static final int COLUMNS = 8;
+
+	/**
+	 * Export demo template with departments.
+	 *
+	 * @param streaming
+	 *            whether use streaming export
+	 * @param emptyStaff
+	 *            whether second department has no staff
+	 * @return the exported workbook
+	 */
+	private Workbook export(final boolean streaming,
+			final boolean emptyStaff) throws Exception {
+		TieWebSheetBean bean = new TieWebSheetBean();
+		bean.init();
+		List<Department> departments = WebSheetDataDemo.createDepartments();
+		if (emptyStaff) {
+			departments.get(1).setStaff(new ArrayList<Employee>());
+		}
+		Map<String, Object> context = new HashMap<String, Object>();
+		context.put("departments", departments);
+		bean.loadWebSheet(this.getClass().getClassLoader()
+				.getResourceAsStream("resources/sheet/datacommentdemo.xlsx"),
+				context);
+		if (streaming) {
+			bean.doStreamingExport();
+		} else {
+			bean.doExport();
+		}
+		return new XSSFWorkbook(bean.getExportFile().getStream());
+	}
+
+	/**
+	 * Cell content for compare. blank and missing cells are same.
+	 *
+	 * @param row
+	 *            the row
+	 * @param col
+	 *            the column
+	 * @return value or formula
+	 */
+	private String content(final Row row, final int col) {
+		Cell cell = (row == null) ? null : row.getCell(col);
+		if (cell == null) {
+			return "";
+		}
+		switch (cell.getCellTypeEnum()) {
+		case FORMULA:
+			return "=" + cell.getCellFormula();
+		case STRING:
+			return cell.getStringCellValue();
+		case NUMERIC:
+			return String.valueOf(cell.getNumericCellValue());
+		case BOOLEAN:
+			return String.valueOf(cell.getBooleanCellValue());
+		default:
+			return "";
+		}
+	}
+
+	/**
+	 * Assert rows are same in both sheets.
+	 *
+	 * @param live
+	 *            sheet from export
+	 * @param stream
+	 *            sheet from streaming export
+	 * @param from
+	 *            first row
+	 * @param to
+	 *            last row plus one
+	 */
+	private void assertRowsEqual(final Sheet live, final Sheet stream,
+			final int from, final int to) {
+		for (int r = from; r < to; r++) {
+			for (int c = 0; c < COLUMNS; c++) {
+				assertEquals("row " + r + " col " + c,
+						content(live.getRow(r), c),
+						content(stream.getRow(r), c));
+			}
+		}
+	}
+
+	@Test
+	public final void testStreamingExportSameAsExport() throws Exception {
+		Workbook live = export(false, false);
+		Workbook stream = export(true, false);
+		for (int i = 0; i < live.getNumberOfSheets(); i++) {
+			Sheet liveSheet = live.getSheetAt(i);
+			if (liveSheet.getSheetName()
+					.startsWith(TieConstants.COPY_SHEET_PREFIX)) {
+				continue;
+			}
+			Sheet streamSheet = stream.getSheet(liveSheet.getSheetName());
+			assertNotNull(streamSheet);
+			assertEquals(liveSheet.getLastRowNum(),
+					streamSheet.getLastRowNum());
+			assertRowsEqual(liveSheet, streamSheet, 0,
+					liveSheet.getLastRowNum() + 1);
+		}
+		// sub total formula shifted to the expanded rows.
+		Sheet sheet = stream.getSheet("Template");
+		assertEquals(CellType.FORMULA,
+				sheet.getRow(12).getCell(6).getCellTypeEnum());
+		assertEquals("SUM((G8),(G9),(G10),(G11),(G12))",
+				sheet.getRow(12).getCell(6).getCellFormula());
+	}
+
+	@Test
+	public final void testStreamingExportEmptyCollection() throws Exception {
+		Sheet live = export(false, true).getSheet("Template");
+		Sheet stream = export(true, true).getSheet("Template");
+		// empty staff keeps one blank row as the web sheet.
+		assertEquals(live.getLastRowNum(), stream.getLastRowNum());
+		// first department and the third department are not affected.
+		assertRowsEqual(live, stream, 0, 13);
+		assertRowsEqual(live, stream, 21, 32);
+		Row blankRow = stream.getRow(19);
+		for (int c = 0; c < COLUMNS; c++) {
+			assertEquals("", content(blankRow, c));
+		}
+		String subTotal = stream.getRow(20).getCell(6).getCellFormula();
+		assertTrue(subTotal, subTotal.contains("G20"));
+	}
+
+}
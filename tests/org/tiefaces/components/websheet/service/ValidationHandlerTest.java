@@ -5,12 +5,18 @@ package org.tiefaces.components.websheet.service;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -19,6 +25,7 @@ import org.tiefaces.common.Item;
 import org.tiefaces.common.TieConstants;
 import org.tiefaces.components.websheet.TieWebSheetBean;
 import org.tiefaces.components.websheet.dataobjects.FacesCell;
+import org.tiefaces.components.websheet.dataobjects.LazyBodyRows;
 
 /**
  * @author Jason Jiang
@@ -132,4 +139,151 @@ public class ValidationHandlerTest {
 
 	}
 
+	/**
+	 * Test method for
+	 * {@link org.tiefaces.components.websheet.service.ValidationHandler#validateCurrentPage()}
+	 * . Rows not loaded are validated from sheet without being loaded.
+	 */
+	@Test
+	public final void testValidateCurrentPageWithoutLoadingRows()
+			throws Exception {
+		TieWebSheetBean bean = new TieWebSheetBean();
+		bean.init();
+		bean.setLazyBodyRows(true);
+		InputStream stream =
+				this.getClass().getClassLoader().getResourceAsStream(
+						"resources/sheet/PRICELISTINPUTVALIDATION.xlsx");
+		List<Item> itemList = new ArrayList<Item>();
+		itemList.add(new Item());
+		HashMap<String, Object> context = new HashMap<String, Object>();
+		context.put("items", itemList);
+		assertEquals(bean.loadWebSheet(stream, context), 1);
+		assertTrue(bean.getBodyRows() instanceof LazyBodyRows);
+		LazyBodyRows bodyRows = (LazyBodyRows) bean.getBodyRows();
+
+		bean.getWb().getSheet("Sale Price Report").getRow(4).getCell(3)
+				.setCellValue(-1);
+		assertFalse(bean.getValidationHandler().validateCurrentPage());
+		assertFalse(bodyRows.isLoaded(4));
+		// status is restored when the row is loaded.
+		FacesCell fcell = bodyRows.get(4).getCells().get(3);
+		assertTrue(fcell.isInvalid());
+
+		bean.getWb().getSheet("Sale Price Report").getRow(4).getCell(3)
+				.setCellValue(1);
+		assertTrue(bean.getValidationHandler().validateCurrentPage());
+		assertFalse(fcell.isInvalid());
+	}
+
+	/**
+	 * Test method for
+	 * {@link org.tiefaces.components.websheet.service.ValidationHandler#validateCurrentPage()}
+	 * . Rows of other pages are validated on page change or submit.
+	 */
+	@Test
+	public final void testValidateCurrentPageOnly() throws Exception {
+		TieWebSheetBean bean = new TieWebSheetBean();
+		bean.init();
+		InputStream stream =
+				this.getClass().getClassLoader().getResourceAsStream(
+						"resources/sheet/PRICELISTINPUTVALIDATION.xlsx");
+		List<Item> itemList = new ArrayList<Item>();
+		itemList.add(new Item());
+		itemList.add(new Item());
+		itemList.add(new Item());
+		HashMap<String, Object> context = new HashMap<String, Object>();
+		context.put("items", itemList);
+		assertEquals(bean.loadWebSheet(stream, context), 1);
+		bean.setMaxRowsPerPage(5);
+
+		bean.getWb().getSheet("Sale Price Report").getRow(6).getCell(3)
+				.setCellValue(-1);
+		assertTrue(bean.getValidationHandler().validateCurrentPage());
+		assertFalse(bean.getBodyRows().get(6).getCells().get(3).isInvalid());
+		assertFalse(bean.getValidationHandler().validatePage(5, 5));
+		assertTrue(bean.getBodyRows().get(6).getCells().get(3).isInvalid());
+		assertEquals("Sale Price Report", bean.getValidationHandler()
+				.findFirstInvalidSheet(true));
+	}
+
+	/**
+	 * Test validation with all body rows assembled on tab load.
+	 */
+	@Test
+	public final void testValidateWithEagerBodyRows() throws Exception {
+		TieWebSheetBean bean = new TieWebSheetBean();
+		bean.init();
+		bean.setLazyBodyRows(false);
+		InputStream stream =
+				this.getClass().getClassLoader().getResourceAsStream(
+						"resources/sheet/PRICELISTINPUTVALIDATION.xlsx");
+		List<Item> itemList = new ArrayList<Item>();
+		itemList.add(new Item());
+		HashMap<String, Object> context = new HashMap<String, Object>();
+		context.put("items", itemList);
+		assertEquals(bean.loadWebSheet(stream, context), 1);
+		assertFalse(bean.getBodyRows() instanceof LazyBodyRows);
+
+		bean.getCellsMap().put("4:3", "-1");
+		assertFalse(bean.getValidationHandler().validateCurrentPage());
+		assertTrue(bean.getBodyRows().get(4).getCells().get(3).isInvalid());
+		bean.addRepeatRow(4);
+		assertTrue(bean.getBodyRows().get(4).getCells().get(3).isInvalid());
+		assertFalse(bean.getBodyRows().get(5).getCells().get(3).isInvalid());
+	}
+
+	/**
+	 * Lazy tab load, open other tab, edit and validate. Tabs not opened are
+	 * expanded and validated too.
+	 */
+	@Test
+	public final void testValidateLazyLoadedTabs() throws Exception {
+		Workbook template = WorkbookFactory.create(this.getClass()
+				.getClassLoader().getResourceAsStream(
+						"resources/sheet/PRICELISTINPUTVALIDATION.xlsx"));
+		// tab with validation rules is not the first one.
+		template.createSheet("Price2").createRow(0).createCell(0)
+				.setCellValue("cover");
+		template.setSheetOrder("Price2", 0);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		template.write(bytes);
+
+		TieWebSheetBean bean = new TieWebSheetBean();
+		bean.init();
+		bean.setLazyTabLoad(true);
+		List<Item> itemList = new ArrayList<Item>();
+		itemList.add(new Item());
+		HashMap<String, Object> context = new HashMap<String, Object>();
+		context.put("items", itemList);
+		assertEquals(bean.loadWebSheet(
+				new ByteArrayInputStream(bytes.toByteArray()), context), 1);
+		assertTrue(bean.getSheetConfigMap().get("Price2").isBodyPopulated());
+		assertFalse(bean.getSheetConfigMap().get("Sale Price Report")
+				.isBodyPopulated());
+
+		assertEquals(bean.loadWorkSheetByTabName("Sale Price Report"), 1);
+		assertTrue(bean.getSheetConfigMap().get("Sale Price Report")
+				.isBodyPopulated());
+		bean.getCellsMap().put("4:3", "-1");
+		assertFalse(bean.getValidationHandler().validateCurrentPage());
+		assertEquals("Sale Price Report", bean.getValidationHandler()
+				.findFirstInvalidSheet(true));
+		bean.getCellsMap().put("4:3", "1");
+		assertNull(bean.getValidationHandler().findFirstInvalidSheet(true));
+
+		// tab never opened is expanded before validated.
+		bean = new TieWebSheetBean();
+		bean.init();
+		bean.setLazyTabLoad(true);
+		assertEquals(bean.loadWebSheet(
+				new ByteArrayInputStream(bytes.toByteArray()), context), 1);
+		assertFalse(bean.getSheetConfigMap().get("Sale Price Report")
+				.isBodyPopulated());
+		// empty input of the tab is invalid.
+		assertEquals("Sale Price Report", bean.getValidationHandler()
+				.findFirstInvalidSheet(false));
+		assertTrue(bean.getSheetConfigMap().get("Sale Price Report")
+				.isBodyPopulated());
+	}
+
 }
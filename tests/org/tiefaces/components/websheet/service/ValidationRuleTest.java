@@ -0,0 +1,52 @@
+/**
+ * 
+ */
+package org.tiefaces.components.websheet.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+/**
+ * @author Jason Jiang
+ *
+ */
+public class ValidationRuleTest {
+
+	@Test
+	public final void testEvaluateWithBoundValues() throws Exception {
+		try (XSSFWorkbook wb = new XSSFWorkbook()) {
+			Sheet sheet = wb.createSheet("test");
+			Row row = sheet.createRow(1);
+			row.createCell(1).setCellValue(10);
+			sheet.createRow(4).createCell(2).setCellValue(3);
+
+			ValidationRule rule = ValidationRule.compile("$value > $B");
+			assertSame(rule, ValidationRule.compile("$value > $B"));
+			assertTrue(rule.evaluate("12", 1, sheet));
+			assertFalse(rule.evaluate("8", 1, sheet));
+
+			assertTrue(ValidationRule.compile("$value > $B and $value > $C$5")
+					.evaluate("12.5", 1, sheet));
+			assertFalse(ValidationRule.compile("$value > $B or $value < $C$5")
+					.evaluate("5", 1, sheet));
+			assertTrue(ValidationRule.compile("$value == 'yes'")
+					.evaluate("Yes", 1, sheet));
+		}
+	}
+
+	@Test
+	public final void testToBoundValue() throws Exception {
+		assertEquals(5L, ValidationRule.toBoundValue("5"));
+		assertEquals(5.5d, ValidationRule.toBoundValue(" 5.5 "));
+		assertEquals(Boolean.TRUE, ValidationRule.toBoundValue("true"));
+		assertEquals("ABC", ValidationRule.toBoundValue("abc"));
+	}
+
+}
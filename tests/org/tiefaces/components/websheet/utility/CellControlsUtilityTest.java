@@ -6,8 +6,10 @@ package org.tiefaces.components.websheet.utility;
 import org.junit.Test;
 import org.tiefaces.components.websheet.utility.CellControlsUtility;
 import org.tiefaces.components.websheet.utility.CellControlsUtility.AttributesType;
+import org.tiefaces.datademo.Department;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 /**
  * @author JASON
@@ -64,7 +66,21 @@ public class CellControlsUtilityTest {
 	 */
 	@Test
 	public void testSetObjectProperty() throws Exception {
-
+		Department dept = new Department();
+		CellControlsUtility.setObjectProperty(dept, "name", "Sales", false);
+		CellControlsUtility.setObjectProperty(dept, "headAccount", "5",
+				false);
+		// second call uses resolved accessors.
+		CellControlsUtility.setObjectProperty(dept, "name", "Support",
+				false);
+		CellControlsUtility.setObjectProperty(dept, "notExist", "1", true);
+		assertEquals("Support", dept.getName());
+		assertEquals(5, dept.getHeadAccount());
+		assertEquals("Support",
+				CellControlsUtility.getObjectPropertyValue(dept, "name",
+						false));
+		assertNull(CellControlsUtility.getObjectPropertyValue(dept,
+				"notExist", true));
 	}
 
 	/**
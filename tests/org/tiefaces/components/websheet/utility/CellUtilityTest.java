@@ -57,6 +57,32 @@ public class CellUtilityTest {
 
 	}
 
+	/**
+	 * Test method for
+	 * {@link org.tiefaces.components.websheet.utility.CellUtility#copyRowsRepeatedly(org.apache.poi.ss.usermodel.Sheet, org.apache.poi.ss.usermodel.Sheet, int, int, int, int, boolean, boolean, org.tiefaces.components.websheet.dataobjects.MergedRegionIndex)}.
+	 */
+	@Test
+	public void testCopyRowsRepeatedly() throws Exception {
+		Workbook wb = new XSSFWorkbook();
+		Sheet srcSheet = wb.createSheet("src");
+		srcSheet.createRow(0).createCell(0).setCellValue("item");
+		srcSheet.createRow(1).createCell(0).setCellValue("detail");
+		Sheet sheet = wb.createSheet("dest");
+		sheet.createRow(0).createCell(0).setCellValue("header");
+		sheet.createRow(1).createCell(0).setCellValue("footer");
+
+		CellUtility.copyRowsRepeatedly(srcSheet, sheet, 0, 1, 1, 3, false,
+				false, null);
+		assertEquals(7, sheet.getLastRowNum());
+		assertEquals("item", sheet.getRow(1).getCell(0).getStringCellValue());
+		assertEquals("detail",
+				sheet.getRow(4).getCell(0).getStringCellValue());
+		assertEquals("item", sheet.getRow(5).getCell(0).getStringCellValue());
+		assertEquals("footer",
+				sheet.getRow(7).getCell(0).getStringCellValue());
+		wb.close();
+	}
+
 	/**
 	 * Test method for
 	 * {@link org.tiefaces.components.websheet.utility.CellUtility#copyCell(org.apache.poi.ss.usermodel.Sheet, org.apache.poi.ss.usermodel.Row, org.apache.poi.ss.usermodel.Row, int, boolean)}.
@@ -182,7 +208,7 @@ public class CellUtilityTest {
 
 	/**
 	 * Test method for
-	 * {@link org.tiefaces.components.websheet.utility.CellUtility#convertCell(org.tiefaces.components.websheet.configuration.SheetConfiguration, org.tiefaces.components.websheet.dataobjects.FacesCell, org.apache.poi.ss.usermodel.Cell, java.util.Map, int, org.tiefaces.components.websheet.dataobjects.CellAttributesMap, java.lang.String)}.
+	 * {@link org.tiefaces.components.websheet.utility.CellUtility#convertCell(org.tiefaces.components.websheet.configuration.SheetConfiguration, org.tiefaces.components.websheet.dataobjects.FacesCell, org.apache.poi.ss.usermodel.Cell, org.tiefaces.components.websheet.dataobjects.MergedRegionIndex, int, org.tiefaces.components.websheet.dataobjects.CellAttributesMap, java.lang.String)}.
 	 */
 	@Test
 	public void testConvertCell() throws Exception {
@@ -3,6 +3,16 @@
  */
 package org.tiefaces.components.websheet.utility;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.Test;
 
 /**
@@ -158,17 +168,38 @@ public class ConfigurationUtilityTest {
     /**
      * Test method for {@link org.tiefaces.components.websheet.utility.ConfigurationUtility#indexMergedRegion(org.apache.poi.ss.usermodel.Sheet)}.
      */
+    @SuppressWarnings("deprecation")
     @Test
     public void testIndexMergedRegion() throws Exception {
-        
+        XSSFWorkbook wb = new XSSFWorkbook();
+        Sheet sheet = wb.createSheet("sheet1");
+        sheet.addMergedRegion(new CellRangeAddress(1, 2, 1, 3));
+        Map<String, CellRangeAddress> cellRangeMap = ConfigurationUtility
+                .indexMergedRegion(sheet);
+        assertEquals(1, cellRangeMap.size());
+        assertEquals(3, cellRangeMap
+                .get(CellUtility.getCellIndexNumberKey(1, 1))
+                .getLastColumn());
+        wb.close();
     }
 
     /**
      * Test method for {@link org.tiefaces.components.websheet.utility.ConfigurationUtility#skippedRegionCells(org.apache.poi.ss.usermodel.Sheet)}.
      */
+    @SuppressWarnings("deprecation")
     @Test
     public void testSkippedRegionCells() throws Exception {
-        
+        XSSFWorkbook wb = new XSSFWorkbook();
+        Sheet sheet = wb.createSheet("sheet1");
+        sheet.addMergedRegion(new CellRangeAddress(1, 2, 1, 3));
+        List<String> skipCellList = ConfigurationUtility
+                .skippedRegionCells(sheet);
+        assertEquals(5, skipCellList.size());
+        assertFalse(skipCellList
+                .contains(CellUtility.getCellIndexNumberKey(1, 1)));
+        assertTrue(skipCellList
+                .contains(CellUtility.getCellIndexNumberKey(3, 2)));
+        wb.close();
     }
 
 }
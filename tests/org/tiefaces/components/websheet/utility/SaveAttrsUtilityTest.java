@@ -4,6 +4,8 @@
 package org.tiefaces.components.websheet.utility;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import org.junit.Test;
 
@@ -62,6 +64,26 @@ public class SaveAttrsUtilityTest {
 		assertEquals(SaveAttrsUtility.getSaveAttrFromList(2, attrs),"employee.age");
 		assertEquals(SaveAttrsUtility.getSaveAttrFromList(3, attrs),"employee.payment");
 		assertEquals(SaveAttrsUtility.getSaveAttrFromList(4, attrs),"employee.bonus");		
+		assertNull(SaveAttrsUtility.getSaveAttrFromList(5, attrs));
+
+		String sparse = "$2=employee.age,$11=employee.name,";
+		assertNull(SaveAttrsUtility.getSaveAttrFromList(1, sparse));
+		assertEquals(SaveAttrsUtility.getSaveAttrFromList(2, sparse),"employee.age");
+		assertEquals(SaveAttrsUtility.getSaveAttrFromList(11, sparse),"employee.name");
+		assertNull(SaveAttrsUtility.getSaveAttrFromList(0, ""));
+	}
+
+	/**
+	 * Test method for {@link org.tiefaces.components.websheet.utility.SaveAttrsUtility#getSaveAttrIndex(java.lang.String)}.
+	 */
+	@Test
+	public void testGetSaveAttrIndexCached() throws Exception {
+
+		String attrs = "$0=department.name,$3=department.id,";
+		String[] index = SaveAttrsUtility.getSaveAttrIndex(attrs);
+		assertEquals(4, index.length);
+		assertSame(index, SaveAttrsUtility.getSaveAttrIndex(attrs));
+		assertSame(index, SaveAttrsUtility.getSaveAttrIndex(new String(attrs)));
 	}
 
 	/**